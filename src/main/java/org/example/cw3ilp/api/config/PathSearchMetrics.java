@@ -0,0 +1,83 @@
+package org.example.cw3ilp.api.config;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.example.cw3ilp.service.pathfinding.SearchStats;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Per-search cost, tagged by strategy and outcome (found, unreachable, budget_exceeded).
+ * <p>
+ *     The meters of every strategy and outcome are registered once, when the listener is
+ *     created, so recording a search is a map lookup and never touches the registry.
+ * </p>
+ */
+public final class PathSearchMetrics implements Consumer<SearchStats> {
+
+    private final Map<SearchStrategy, Map<SearchStats.Outcome, Meters>> meters = new EnumMap<>(SearchStrategy.class);
+
+    public PathSearchMetrics(MeterRegistry registry) {
+        for (SearchStrategy strategy : SearchStrategy.values()) {
+            Map<SearchStats.Outcome, Meters> byOutcome = new EnumMap<>(SearchStats.Outcome.class);
+            for (SearchStats.Outcome outcome : SearchStats.Outcome.values()) {
+                Tags tags = Tags.of("strategy", strategy.name(),
+                        "outcome", outcome.name().toLowerCase(Locale.ROOT));
+                byOutcome.put(outcome, Meters.register(registry, tags));
+            }
+            meters.put(strategy, byOutcome);
+        }
+    }
+
+    @Override
+    public void accept(SearchStats stats) {
+        Meters search = meters.get(stats.getStrategy()).get(stats.getOutcome());
+        search.wallTime().record(stats.getWallNanos(), TimeUnit.NANOSECONDS);
+        search.expansions().record(stats.getExpansions());
+        search.peakOpenSize().record(stats.getPeakOpenSize());
+        search.closedSize().record(stats.getClosedSize());
+        search.geometryChecks().record(stats.getGeometryChecks());
+        search.allocatedBytes().record(stats.getAllocatedBytes());
+    }
+
+    private record Meters(Timer wallTime, DistributionSummary expansions, DistributionSummary peakOpenSize,
+                          DistributionSummary closedSize, DistributionSummary geometryChecks,
+                          DistributionSummary allocatedBytes) {
+
+        static Meters register(MeterRegistry registry, Tags tags) {
+            return new Meters(
+                    Timer.builder("pathfinder.search")
+                            .tags(tags)
+                            .description("Wall time of path searches")
+                            .register(registry),
+                    DistributionSummary.builder("pathfinder.search.expansions")
+                            .tags(tags)
+                            .description("Nodes expanded per search")
+                            .register(registry),
+                    DistributionSummary.builder("pathfinder.search.open.peak")
+                            .tags(tags)
+                            .description("Largest open-set size per search")
+                            .register(registry),
+                    DistributionSummary.builder("pathfinder.search.closed")
+                            .tags(tags)
+                            .description("Closed-set size per search")
+                            .register(registry),
+                    DistributionSummary.builder("pathfinder.search.geometry.checks")
+                            .tags(tags)
+                            .description("Restricted-area point and segment queries per search")
+                            .register(registry),
+                    DistributionSummary.builder("pathfinder.search.allocated")
+                            .tags(tags)
+                            .baseUnit("bytes")
+                            .description("Bytes allocated per search")
+                            .register(registry));
+        }
+    }
+}
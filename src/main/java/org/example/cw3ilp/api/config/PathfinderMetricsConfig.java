@@ -0,0 +1,48 @@
+package org.example.cw3ilp.api.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.pathfinding.PathCache;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Publishes pathfinder internals on the actuator metrics endpoint
+ */
+@Configuration
+public class PathfinderMetricsConfig {
+
+    @Bean
+    public MeterBinder pathCacheMetrics(PathfinderService pathfinderService) {
+        PathCache cache = pathfinderService.getPathCache();
+        return registry -> {
+            FunctionCounter.builder("pathfinder.cache.requests", cache, PathCache::getHits)
+                    .tag("result", "hit")
+                    .description("Flight-path cache lookups served from the cache")
+                    .register(registry);
+            FunctionCounter.builder("pathfinder.cache.requests", cache, PathCache::getMisses)
+                    .tag("result", "miss")
+                    .description("Flight-path cache lookups that ran a search")
+                    .register(registry);
+            FunctionCounter.builder("pathfinder.cache.evictions", cache, PathCache::getEvictions)
+                    .description("Paths dropped to stay within the cache capacity")
+                    .register(registry);
+            Gauge.builder("pathfinder.cache.size", cache, PathCache::size)
+                    .description("Paths currently cached")
+                    .register(registry);
+        };
+    }
+
+    /**
+     * Per-search cost, recorded by a single listener into meters registered once
+     */
+    @Bean
+    public PathSearchMetrics pathSearchMetrics(PathfinderService pathfinderService, MeterRegistry registry) {
+        PathSearchMetrics metrics = new PathSearchMetrics(registry);
+        pathfinderService.addSearchListener(metrics);
+        return metrics;
+    }
+}
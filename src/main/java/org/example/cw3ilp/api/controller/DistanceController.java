@@ -1,11 +1,16 @@
 package org.example.cw3ilp.api.controller;
 
 import jakarta.validation.Valid;
+import org.example.cw3ilp.api.dto.BatchDistanceRequest;
+import org.example.cw3ilp.api.dto.BatchNextPositionRequest;
+import org.example.cw3ilp.api.dto.BatchPositionResponse;
 import org.example.cw3ilp.api.dto.DistanceRequest;
 import org.example.cw3ilp.api.dto.NextPositionRequest;
 import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.api.validation.PositionValidator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -19,6 +24,10 @@ import org.springframework.web.bind.annotation.RestController;
  * <p>
  *     Computational logic is handled by {@link DistanceService}
  * </p>
+ * <p>
+ *     Each endpoint has a {@code /batch} variant taking parallel coordinate arrays, so
+ *     route validation can check many pairs in one request.
+ * </p>
  */
 @RestController
 @RequestMapping("/api/v1")
@@ -26,11 +35,16 @@ public class DistanceController {
 
     private final DistanceService distanceService;
 
+    /** Most pairs or positions one batch request may hold */
+    private final int maxBatchSize;
+
     private static final Logger logger = LoggerFactory.getLogger(DistanceController.class);
 
 
-    public DistanceController(DistanceService distanceService) {
+    public DistanceController(DistanceService distanceService,
+                              @Value("${api.batch.max-size:100000}") int maxBatchSize) {
         this.distanceService = distanceService;
+        this.maxBatchSize = maxBatchSize;
     }
 
     /**
@@ -131,4 +145,110 @@ public class DistanceController {
         }
 
     }
+
+    /**
+     * Batch form of {@code /distanceTo}.
+     *
+     * @param request a {@link BatchDistanceRequest} of position pairs as parallel arrays
+     * @return a {@link ResponseEntity} containing the distances in degrees, in request order
+     *
+     * <p><b>Response:</b>
+     * <ul>
+     *     <li><code>200 OK</code> – successful</li>
+     *     <li><code>400 Bad Request</code> – missing or unequal arrays, an invalid position,
+     *     or more pairs than the batch limit</li>
+     * </ul></p>
+     */
+    @PostMapping("/distanceTo/batch")
+    public ResponseEntity<double[]> distanceToBatch(@Valid @RequestBody BatchDistanceRequest request) {
+        if (!isValidBatch(request)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        double[] distances = new double[request.getLng1().length];
+        distanceService.computeDistances(request.getLng1(), request.getLat1(),
+                request.getLng2(), request.getLat2(), distances);
+        return ResponseEntity.ok(distances);
+    }
+
+    /**
+     * Batch form of {@code /isCloseTo}.
+     *
+     * @param request a {@link BatchDistanceRequest} of position pairs as parallel arrays
+     * @return a {@link ResponseEntity} containing whether each pair is close, in request order
+     *
+     * <p><b>Response:</b>
+     * <ul>
+     *     <li><code>200 OK</code> – successful</li>
+     *     <li><code>400 Bad Request</code> – missing or unequal arrays, an invalid position,
+     *     or more pairs than the batch limit</li>
+     * </ul></p>
+     */
+    @PostMapping("/isCloseTo/batch")
+    public ResponseEntity<boolean[]> closeToBatch(@Valid @RequestBody BatchDistanceRequest request) {
+        if (!isValidBatch(request)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean[] close = new boolean[request.getLng1().length];
+        distanceService.computeCloseness(request.getLng1(), request.getLat1(),
+                request.getLng2(), request.getLat2(), close);
+        return ResponseEntity.ok(close);
+    }
+
+    /**
+     * Batch form of {@code /nextPosition}. The whole batch is rejected if any angle is
+     * not one of the 16 allowed angles.
+     *
+     * @param request a {@link BatchNextPositionRequest} of start positions and angles as parallel arrays
+     * @return a {@link ResponseEntity} containing the next positions, in request order
+     *
+     * <p><b>Response:</b>
+     * <ul>
+     *     <li><code>200 OK</code> – successful</li>
+     *     <li><code>400 Bad Request</code> – missing or unequal arrays, an invalid position or angle,
+     *     or more positions than the batch limit</li>
+     * </ul></p>
+     */
+    @PostMapping("/nextPosition/batch")
+    public ResponseEntity<BatchPositionResponse> nextPositionBatch(
+            @Valid @RequestBody BatchNextPositionRequest request) {
+
+        double[] lng = request.getLng();
+        double[] lat = request.getLat();
+        double[] angle = request.getAngle();
+        if (lng == null || lat == null || angle == null
+                || angle.length != lng.length || lng.length > maxBatchSize
+                || !PositionValidator.isValidPositions(lng, lat)) {
+            logger.warn("Bad request: invalid next position batch");
+            return ResponseEntity.badRequest().build();
+        }
+
+        try {
+            double[] nextLng = new double[lng.length];
+            double[] nextLat = new double[lng.length];
+            distanceService.computeNextPositions(lng, lat, angle, nextLng, nextLat);
+            return ResponseEntity.ok(new BatchPositionResponse(nextLng, nextLat));
+
+        } catch (IllegalArgumentException e) {
+            logger.warn("Invalid request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private boolean isValidBatch(BatchDistanceRequest request) {
+        if (request.getLng1() == null || request.getLat1() == null
+                || request.getLng2() == null || request.getLat2() == null) {
+            logger.warn("Bad request: One of the batch arrays is null");
+            return false;
+        }
+        if (request.getLng1().length > maxBatchSize
+                || request.getLng2().length != request.getLng1().length
+                || !PositionValidator.isValidPositions(request.getLng1(), request.getLat1())
+                || !PositionValidator.isValidPositions(request.getLng2(), request.getLat2())) {
+            logger.warn("Bad request: invalid distance batch of {} pairs", request.getLng1().length);
+            return false;
+        }
+        return true;
+    }
 }
@@ -10,13 +10,20 @@ import org.example.cw3ilp.repository.MedicationRepository;
 import org.example.cw3ilp.service.DistanceService;
 import org.example.cw3ilp.service.DroneFlightSimulator;
 import org.example.cw3ilp.service.DroneService;
+import org.example.cw3ilp.service.FlightReplanner;
 //import org.example.cw3ilp.service.GeocodingService;
 import org.example.cw3ilp.service.ILPDataService;
+import org.example.cw3ilp.service.NoFlyZoneService;
 import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.ServicePointAssigner;
+import org.example.cw3ilp.service.pathfinding.AnytimePath;
+import org.example.cw3ilp.service.pathfinding.EncodedPath;
+import org.example.cw3ilp.service.pathfinding.SearchBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -38,6 +45,9 @@ public class DroneController {
     private final DistanceService distanceService;
     //private final GeocodingService geocodingService;
     private final MedicationRepository medicationRepository;
+    private final FlightReplanner flightReplanner;
+    private final NoFlyZoneService noFlyZoneService;
+    private final ServicePointAssigner servicePointAssigner;
 
     public DroneController(DroneService droneService,
                            DroneFlightSimulator droneFlightSimulator,
@@ -45,7 +55,10 @@ public class DroneController {
                            ILPDataService ilpDataService,
                            DistanceService distanceService,
                            //GeocodingService geocodingService,
-                           MedicationRepository medicationRepository) {
+                           MedicationRepository medicationRepository,
+                           FlightReplanner flightReplanner,
+                           NoFlyZoneService noFlyZoneService,
+                           ServicePointAssigner servicePointAssigner) {
         this.droneService = droneService;
         this.droneFlightSimulator = droneFlightSimulator;
         this.pathfinderService = pathfinderService;
@@ -53,11 +66,18 @@ public class DroneController {
         this.distanceService = distanceService;
         //this.geocodingService = geocodingService;
         this.medicationRepository = medicationRepository;
+        this.flightReplanner = flightReplanner;
+        this.noFlyZoneService = noFlyZoneService;
+        this.servicePointAssigner = servicePointAssigner;
     }
 
 
     private static final Logger logger = LoggerFactory.getLogger(DroneController.class);
 
+    /** Path formats of the delivery endpoints: waypoint lists, or origin plus direction codes */
+    private static final String FORMAT_FULL = "full";
+    private static final String FORMAT_COMPACT = "compact";
+
 
     @GetMapping("/dronesWithCooling/{state}")
     public ResponseEntity<List<String>> dronesWithCooling(@PathVariable boolean state) {
@@ -100,9 +120,15 @@ public class DroneController {
         return ResponseEntity.ok(availableDrones);
     }
 
+    /**
+     * Calculate delivery paths, optionally within an SLA budget (milliseconds) for all path searches.
+     * With {@code format=compact} each flight path is returned as its origin and direction codes
+     */
     @PostMapping("/calcDeliveryPath")
     public ResponseEntity<CalcDeliveryPathResponse> calcDeliveryPath(
-            @Valid @RequestBody List<MedDispatchRec> dispatches
+            @Valid @RequestBody List<MedDispatchRec> dispatches,
+            @RequestParam(required = false) Long budgetMs,
+            @RequestParam(required = false) String format
     ) {
         logger.info("Received calcDeliveryPath request with {} dispatches",
                 dispatches != null ? dispatches.size() : 0);
@@ -112,14 +138,32 @@ public class DroneController {
                 logger.warn("Empty list received");
                 return ResponseEntity.badRequest().build();
             }
+            if (budgetMs != null && budgetMs <= 0) {
+                logger.warn("Invalid search budget: {} ms", budgetMs);
+                return ResponseEntity.badRequest().build();
+            }
+            if (!isValidFormat(format)) {
+                logger.warn("Invalid path format: {}", format);
+                return ResponseEntity.badRequest().build();
+            }
 
-            CalcDeliveryPathResponse response = droneService.calculateDeliveryPath(dispatches);
+            SearchBudget budget = budgetMs != null ? SearchBudget.ofMillis(budgetMs) : SearchBudget.unlimited();
+            CalcDeliveryPathResponse response = droneService.calculateDeliveryPath(dispatches, budget);
 
             if (response == null) {
                 logger.warn("Could not calculate delivery path");
                 return ResponseEntity.badRequest().build();
             }
 
+            if (FORMAT_COMPACT.equals(format)) {
+                for (DronePath dronePath : response.getDronePaths()) {
+                    for (Delivery delivery : dronePath.getDeliveries()) {
+                        delivery.setCompactFlightPath(toCompactPath(delivery.getFlightPath()));
+                        delivery.setFlightPath(null);
+                    }
+                }
+            }
+
             logger.info("Successfully calculated delivery path: {} moves, {} cost",
                     response.getTotalMoves(), response.getTotalCost());
             return ResponseEntity.ok(response);
@@ -267,31 +311,19 @@ public class DroneController {
             // Get all service points
             List<DronesAvailability.ServicePoint> servicePoints = ilpDataService.getAllServicePoints();
 
-            // Find nearest service point to target
-            DronesAvailability.ServicePoint nearestServicePoint = null;
-            double minDistance = Double.MAX_VALUE;
-
-            for (DronesAvailability.ServicePoint sp : servicePoints) {
-                if (sp.getLocation() == null) continue;
-
-                LngLat spLocation = new LngLat(
-                        sp.getLocation().getLng(),
-                        sp.getLocation().getLat()
-                );
-                LngLat targetLocation = new LngLat(targetLng, targetLat);
-                double distance = distanceService.computeDistance(spLocation, targetLocation);
-
-                if (distance < minDistance) {
-                    minDistance = distance;
-                    nearestServicePoint = sp;
-                }
-            }
+            // Find the service point reaching the target in the fewest moves
+            DronesAvailability.ServicePoint nearestServicePoint =
+                    servicePointAssigner.assign(target, servicePoints, noFlyZoneService.getZones());
 
             if (nearestServicePoint == null) {
                 return ResponseEntity.badRequest()
-                        .body(Map.of("error", "No service points available"));
+                        .body(Map.of("error", "No service point can reach the target"));
             }
 
+            double minDistance = distanceService.computeDistance(
+                    nearestServicePoint.getLocation().getLng(), nearestServicePoint.getLocation().getLat(),
+                    targetLng, targetLat);
+
             LngLatAlt servicePointLocation = new LngLatAlt(
                     nearestServicePoint.getLocation().getLng(),
                     nearestServicePoint.getLocation().getLat(),
@@ -301,8 +333,8 @@ public class DroneController {
             logger.info("Nearest service point: {} at distance: {}",
                     nearestServicePoint.getName(), minDistance);
 
-            // Get restricted areas for pathfinding
-            List<RestrictedArea> restrictedAreas = ilpDataService.getAllRestrictedAreas();
+            // Get restricted areas for pathfinding, temporary zones included
+            List<RestrictedArea> restrictedAreas = noFlyZoneService.getZones();
 
             // Calculate round trip: Service Point -> Target -> Service Point
             List<LngLatAlt> pathToTarget = pathfinderService.findPath(
@@ -372,6 +404,45 @@ public class DroneController {
         }
     }
 
+    /**
+     * Push a temporary no-fly zone; the drone in the air is re-routed around it
+     */
+    @PostMapping("/drone/temporary-zones")
+    public ResponseEntity<Map<String, Object>> addTemporaryZone(@RequestBody RestrictedArea zone) {
+        try {
+            FlightReplanner.Outcome outcome = flightReplanner.addTemporaryZone(zone);
+            return ResponseEntity.ok(Map.of(
+                    "zone", zone.getName(),
+                    "flight", outcome.name(),
+                    "temporaryZones", flightReplanner.getTemporaryZones().size()
+            ));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    /**
+     * Lift a temporary no-fly zone
+     */
+    @DeleteMapping("/drone/temporary-zones/{name}")
+    public ResponseEntity<Map<String, Object>> removeTemporaryZone(@PathVariable String name) {
+        FlightReplanner.Outcome outcome = flightReplanner.removeTemporaryZone(name);
+        if (outcome == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Map.of("error", "No temporary zone named " + name));
+        }
+        return ResponseEntity.ok(Map.of(
+                "zone", name,
+                "flight", outcome.name(),
+                "temporaryZones", flightReplanner.getTemporaryZones().size()
+        ));
+    }
+
+    @GetMapping("/drone/temporary-zones")
+    public ResponseEntity<List<RestrictedArea>> temporaryZones() {
+        return ResponseEntity.ok(flightReplanner.getTemporaryZones());
+    }
+
 //    @GetMapping("/test-geocoding")
 //    public ResponseEntity<Map<String, Object>> testGeocoding(
 //            @RequestParam(defaultValue = "Appleton Tower") String address) {
@@ -396,13 +467,27 @@ public class DroneController {
 //    }
 
     /**
-     * Calculate delivery path with medication requirements - for customer portal
+     * Calculate delivery path with medication requirements - for customer portal.
+     * With {@code budgetMs} the path search stops at the SLA deadline and reports how far
+     * from shortest its path may be. With {@code format=compact} the path is returned as
+     * {@code compactPath} (origin and direction codes) instead of a waypoint list
      */
     @PostMapping("/drone/calculate-delivery")
     public ResponseEntity<Map<String, Object>> calculateDeliveryPath(
             @RequestParam Long medicationId,
             @RequestParam double targetLat,
-            @RequestParam double targetLng) {
+            @RequestParam double targetLng,
+            @RequestParam(required = false) Long budgetMs,
+            @RequestParam(required = false) String format) {
+
+        if (budgetMs != null && budgetMs <= 0) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", "budgetMs must be positive"));
+        }
+        if (!isValidFormat(format)) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", "format must be 'full' or 'compact'"));
+        }
 
         try {
             logger.info("Calculating delivery path for medication {} to ({}, {})",
@@ -415,12 +500,13 @@ public class DroneController {
             // Get all service points
             List<DronesAvailability.ServicePoint> servicePoints = ilpDataService.getAllServicePoints();
 
-            // Find nearest service point
-            DronesAvailability.ServicePoint nearestServicePoint = distanceService.findNearestServicePoint(servicePoints, targetLng, targetLat);
+            // Find the service point reaching the target in the fewest moves
+            DronesAvailability.ServicePoint nearestServicePoint = servicePointAssigner.assign(
+                    new LngLatAlt(targetLng, targetLat, 0.0), servicePoints, noFlyZoneService.getZones());
 
             if (nearestServicePoint == null) {
                 return ResponseEntity.badRequest()
-                        .body(Map.of("success", false, "error", "No service points available"));
+                        .body(Map.of("success", false, "error", "No service point can reach the target"));
             }
 
             double startLat = nearestServicePoint.getLocation().getLat();
@@ -434,14 +520,23 @@ public class DroneController {
             logger.info("Nearest service point: {} at distance: {}",
                     nearestServicePoint.getName(), distance);
 
-            // Get restricted areas
-            List<RestrictedArea> restrictedAreas = ilpDataService.getAllRestrictedAreas();
+            // Get restricted areas, temporary zones included
+            List<RestrictedArea> restrictedAreas = noFlyZoneService.getZones();
 
             // Calculate path - ONLY to target (one-way delivery)
             LngLatAlt servicePointPos = new LngLatAlt(startLng, startLat, 50.0);
             LngLatAlt targetPos = new LngLatAlt(targetLng, targetLat, 50.0);
 
-            List<LngLatAlt> pathToTarget = pathfinderService.findPath(servicePointPos, targetPos, restrictedAreas);
+            List<LngLatAlt> pathToTarget;
+            Double suboptimalityBound = null;
+            if (budgetMs != null) {
+                AnytimePath result = pathfinderService.findPathWithinBudget(
+                        servicePointPos, targetPos, restrictedAreas, SearchBudget.ofMillis(budgetMs));
+                pathToTarget = result.getPath();
+                suboptimalityBound = result.getSuboptimalityBound();
+            } else {
+                pathToTarget = pathfinderService.findPath(servicePointPos, targetPos, restrictedAreas);
+            }
 
             if (pathToTarget == null) {
                 return ResponseEntity.badRequest()
@@ -464,16 +559,21 @@ public class DroneController {
             // Assign drone
             String assignedDrone = assignSuitableDrone(requiresRefrigeration);
 
-            // Convert to map format
-            List<Map<String, Double>> pathCoordinates = pathToTarget.stream()
-                    .map(pos -> Map.of("lat", pos.getLat(), "lng", pos.getLng()))
-                    .toList();
+            // Convert to map format, or to the origin and direction codes
+            Object pathCoordinates;
+            if (FORMAT_COMPACT.equals(format)) {
+                pathCoordinates = toCompactPath(pathToTarget);
+            } else {
+                pathCoordinates = pathToTarget.stream()
+                        .map(pos -> Map.of("lat", pos.getLat(), "lng", pos.getLng()))
+                        .toList();
+            }
 
             // Round to 2 decimal places for display
             double distanceKm = Math.round(totalDistance * 100.0) / 100.0;
             int etaMinutes = (int) Math.ceil(etaSeconds / 60.0);
 
-            return ResponseEntity.ok(Map.of(
+            Map<String, Object> body = new HashMap<>(Map.of(
                     "success", true,
                     "servicePoint", Map.of(
                             "name", nearestServicePoint.getName(),
@@ -482,12 +582,16 @@ public class DroneController {
                     ),
                     "assignedDrone", assignedDrone,
                     "requiresRefrigeration", requiresRefrigeration,
-                    "path", pathCoordinates,
+                    FORMAT_COMPACT.equals(format) ? "compactPath" : "path", pathCoordinates,
                     "totalWaypoints", pathToTarget.size(),
                     "etaSeconds", etaSeconds,
                     "etaMinutes", etaMinutes,
                     "distanceKm", distanceKm
             ));
+            if (suboptimalityBound != null) {
+                body.put("pathSuboptimalityBound", suboptimalityBound);
+            }
+            return ResponseEntity.ok(body);
 
         } catch (Exception e) {
             logger.error("Failed to calculate delivery path", e);
@@ -497,6 +601,16 @@ public class DroneController {
     }
 
 
+    private static boolean isValidFormat(String format) {
+        return format == null || FORMAT_FULL.equals(format) || FORMAT_COMPACT.equals(format);
+    }
+
+    private static CompactPath toCompactPath(List<LngLatAlt> path) {
+        EncodedPath encoded = EncodedPath.encode(path);
+        return new CompactPath(encoded.getOriginLng(), encoded.getOriginLat(),
+                encoded.getWaypoints(), encoded.getCodesBase64());
+    }
+
     private double calculatePathDistanceAlt(List<LngLatAlt> path) {
         double totalDistance = 0;
         for (int i = 0; i < path.size() - 1; i++) {
@@ -2,12 +2,14 @@ package org.example.cw3ilp.api.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.cw3ilp.api.model.LngLatAlt;
 import org.example.cw3ilp.entity.DeliveryOrder;
 import org.example.cw3ilp.entity.Medication;
 import org.example.cw3ilp.entity.OrderStatus;
 import org.example.cw3ilp.repository.DeliveryOrderRepository;
 import org.example.cw3ilp.repository.MedicationRepository;
 import org.example.cw3ilp.service.OrderService;
+import org.example.cw3ilp.service.pathfinding.EncodedPath;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -175,7 +177,7 @@ public class OrderController {
         double lng = parseDouble(request.get("lng"));
         Long medicationId = parseLong(request.get("medicationId"));
         int quantity = request.containsKey("quantity") ? parseInt(request.get("quantity")) : 1;
-        List<?> calculatedPathList = (List<?>) request.get("calculatedPath");
+        Object calculatedPathValue = request.get("calculatedPath");
         String assignedDroneId = (String) request.get("assignedDroneId");
 
         log.info("Creating order: address={}, lat={}, lng={}, medicationId={}, assignedDrone={}",
@@ -196,9 +198,16 @@ public class OrderController {
                 throw new RuntimeException("Insufficient stock");
             }
 
-            // Serialize calculatedPath to JSON string if provided
+            // Reject locations no drone can fly to before anything is stored
+            if (!orderService.isDeliverable(lng, lat)) {
+                throw new RuntimeException("Delivery location cannot be reached - it is inside or enclosed by restricted areas");
+            }
+
+            // Store calculatedPath as direction codes, or as a JSON string if its points cannot be read
+            byte[] calculatedPathCompact = encodeCalculatedPath(calculatedPathValue);
             String calculatedPathJson = null;
-            if (calculatedPathList != null && !calculatedPathList.isEmpty()) {
+            if (calculatedPathCompact == null && calculatedPathValue instanceof List<?> calculatedPathList
+                    && !calculatedPathList.isEmpty()) {
                 ObjectMapper mapper = new ObjectMapper();
                 calculatedPathJson = mapper.writeValueAsString(calculatedPathList);
             }
@@ -216,6 +225,7 @@ public class OrderController {
             order.setStatus(OrderStatus.QUEUED);
             order.setCreatedAt(java.time.LocalDateTime.now());
             order.setCalculatedPath(calculatedPathJson);  // Store the pre-calculated path
+            order.setCalculatedPathCompact(calculatedPathCompact);
             order.setAssignedDroneId(assignedDroneId);    // Store the assigned drone ID
 
             // Update stock
@@ -365,6 +375,34 @@ public class OrderController {
         throw new IllegalArgumentException("Cannot parse value as Long: " + value);
     }
 
+    /**
+     * Encode a pre-calculated path sent either compact (origin, waypoints, codes) or as a list
+     * of lat/lng points
+     *
+     * @return the path's {@link EncodedPath} bytes, or null if there is no path or the list cannot be encoded
+     * @throws IllegalArgumentException if a compact path is malformed
+     */
+    private byte[] encodeCalculatedPath(Object value) {
+        if (value instanceof Map<?, ?> compact) {
+            return EncodedPath.of(parseDouble(compact.get("originLng")), parseDouble(compact.get("originLat")),
+                    parseInt(compact.get("waypoints")), (String) compact.get("codes")).toBytes();
+        }
+        if (!(value instanceof List<?> points) || points.isEmpty()) {
+            return null;
+        }
+
+        List<LngLatAlt> path = new ArrayList<>(points.size());
+        for (Object point : points) {
+            if (!(point instanceof Map<?, ?> coordinates)
+                    || !(coordinates.get("lng") instanceof Number lng) || !(coordinates.get("lat") instanceof Number lat)) {
+                log.warn("Pre-calculated path has a point without coordinates, storing it as JSON");
+                return null;
+            }
+            path.add(new LngLatAlt(lng.doubleValue(), lat.doubleValue(), null));
+        }
+        return EncodedPath.encode(path).toBytes();
+    }
+
     /**
      * Helper method to parse a value as Integer (handles both String and Number types)
      */
@@ -1,9 +1,13 @@
 package org.example.cw3ilp.api.controller;
 
 import jakarta.validation.Valid;
+import org.example.cw3ilp.api.dto.BatchRegionRequest;
 import org.example.cw3ilp.api.dto.RegionRequest;
+import org.example.cw3ilp.api.validation.PositionValidator;
 import org.example.cw3ilp.service.RegionService;
+import org.example.cw3ilp.service.geometry.PreparedPolygon;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -29,9 +33,14 @@ public class RegionController {
 
     private final RegionService regionService;
 
+    /** Most points one batch request may hold */
+    private final int maxBatchSize;
+
     @Autowired
-    public RegionController(RegionService regionService) {
+    public RegionController(RegionService regionService,
+                            @Value("${api.batch.max-size:100000}") int maxBatchSize) {
         this.regionService = regionService;
+        this.maxBatchSize = maxBatchSize;
     }
 
     /**
@@ -66,11 +75,9 @@ public class RegionController {
         }
 
         List<LngLat> vertices = request.getRegion().getVertices();
-        LngLat first = vertices.getFirst();
-        LngLat last = vertices.getLast();
 
         // check if polygon is closed
-        if (!first.getLat().equals(last.getLat()) || !first.getLng().equals(last.getLng())) {
+        if (!isClosed(vertices)) {
             return ResponseEntity.badRequest().build();
         }
 
@@ -82,4 +89,45 @@ public class RegionController {
         return ResponseEntity.ok(inside);
     }
 
+    /**
+     * Batch form of {@code /isInRegion}: tests every point against one region, which is
+     * prepared once for the whole batch.
+     *
+     * @param request a {@link BatchRegionRequest} containing the region and the points as parallel arrays
+     * @return a {@link ResponseEntity} containing whether each point is inside, in request order
+     *
+     * <p><b>Response Codes:</b></p>
+     * <ul>
+     *     <li><code>200 OK</code> – valid input, computation successful</li>
+     *     <li><code>400 Bad Request</code> – invalid input (null fields, unequal arrays, invalid points,
+     *     open region, missing vertices, or more points than the batch limit)</li>
+     * </ul>
+     */
+    @PostMapping("/isInRegion/batch")
+    public ResponseEntity<boolean[]> isInRegionBatch(@Valid @RequestBody BatchRegionRequest request) {
+        // error handling
+        if (request.getLng() == null || request.getLat() == null || request.getRegion() == null
+                || request.getRegion().getVertices() == null
+                || request.getRegion().getVertices().size() < 4
+                || request.getLng().length > maxBatchSize
+                || !PositionValidator.isValidPositions(request.getLng(), request.getLat())) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        List<LngLat> vertices = request.getRegion().getVertices();
+        if (!isClosed(vertices)) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        boolean[] inside = new boolean[request.getLng().length];
+        regionService.isInside(PreparedPolygon.of(vertices), request.getLng(), request.getLat(), inside);
+
+        return ResponseEntity.ok(inside);
+    }
+
+    private static boolean isClosed(List<LngLat> vertices) {
+        LngLat first = vertices.getFirst();
+        LngLat last = vertices.getLast();
+        return first.getLat().equals(last.getLat()) && first.getLng().equals(last.getLng());
+    }
 }
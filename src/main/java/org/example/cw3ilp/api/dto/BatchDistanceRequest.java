@@ -0,0 +1,21 @@
+package org.example.cw3ilp.api.dto;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Position pairs for the batch distance endpoints, as parallel arrays:
+ * pair {@code i} is ({@code lng1[i]}, {@code lat1[i]}) to ({@code lng2[i]}, {@code lat2[i]}).
+ */
+@Data
+public class BatchDistanceRequest {
+
+    @NotNull
+    private double[] lng1;
+    @NotNull
+    private double[] lat1;
+    @NotNull
+    private double[] lng2;
+    @NotNull
+    private double[] lat2;
+
+}
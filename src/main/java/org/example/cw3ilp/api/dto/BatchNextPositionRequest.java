@@ -0,0 +1,18 @@
+package org.example.cw3ilp.api.dto;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+/**
+ * Start positions and angles for the batch next-position endpoint, as parallel arrays
+ */
+@Data
+public class BatchNextPositionRequest {
+
+    @NotNull
+    private double[] lng;
+    @NotNull
+    private double[] lat;
+    @NotNull
+    private double[] angle;
+
+}
@@ -0,0 +1,17 @@
+package org.example.cw3ilp.api.dto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Positions returned by the batch next-position endpoint, as parallel arrays
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchPositionResponse {
+
+    private double[] lng;
+    private double[] lat;
+
+}
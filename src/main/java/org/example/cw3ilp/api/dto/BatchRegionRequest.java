@@ -0,0 +1,19 @@
+package org.example.cw3ilp.api.dto;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import org.example.cw3ilp.api.model.Region;
+
+/**
+ * One region and the points to test against it, as parallel arrays
+ */
+@Data
+public class BatchRegionRequest {
+
+    @NotNull
+    private Region region;
+    @NotNull
+    private double[] lng;
+    @NotNull
+    private double[] lat;
+
+}
@@ -0,0 +1,23 @@
+package org.example.cw3ilp.api.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Flight path as its origin plus packed direction codes, returned with {@code format=compact}
+ * <p>
+ *     {@code codes} is Base64 of the hover/jump markers and 4-bit direction codes of
+ *     {@code EncodedPath}; stepping from the origin through them gives back all
+ *     {@code waypoints} waypoints.
+ * </p>
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompactPath {
+    private Double originLng;
+    private Double originLat;
+    private Integer waypoints;
+    private String codes;
+}
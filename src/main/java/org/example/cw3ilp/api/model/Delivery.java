@@ -1,5 +1,6 @@
 package org.example.cw3ilp.api.model;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.Data;
 
 import java.util.List;
@@ -8,4 +9,7 @@ import java.util.List;
 public class Delivery {
     private Integer deliveryId;
     private List<LngLatAlt> flightPath;
+    /** Set, with {@code flightPath} null, when the compact format was requested; omitted otherwise */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private CompactPath compactFlightPath;
 }
@@ -107,6 +107,33 @@ public class PositionValidator implements ConstraintValidator<ValidPosition, Lng
         return true;
     }
 
+    /**
+     * Same rules as {@link #isValid} for a bare coordinate pair, without the messages.
+     * Used by the batch endpoints, whose positions are not {@link LngLat} objects.
+     */
+    public static boolean isValidPosition(double lng, double lat) {
+        return Double.isFinite(lng) && Double.isFinite(lat)
+                && lng >= MIN_LONGITUDE && lng <= MAX_LONGITUDE
+                && lat >= MIN_LATITUDE && lat <= MAX_LATITUDE
+                && lng < 0 && lat > 0;
+    }
+
+    /**
+     * @return {@code true} if the arrays are the same length and every
+     * ({@code lng[i]}, {@code lat[i]}) passes {@link #isValidPosition}
+     */
+    public static boolean isValidPositions(double[] lng, double[] lat) {
+        if (lng.length != lat.length) {
+            return false;
+        }
+        for (int i = 0; i < lng.length; i++) {
+            if (!isValidPosition(lng[i], lat[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Checks if a number is valid (not NaN or Infinity)
      */
@@ -46,6 +46,10 @@ public class DeliveryOrder {
     @Column(name = "calculated_path", columnDefinition = "TEXT")
     private String calculatedPath;  // JSON string of the pre-calculated flight path
 
+    @Lob
+    @Column(name = "calculated_path_compact")
+    private byte[] calculatedPathCompact;  // pre-calculated flight path as EncodedPath bytes, used instead of the JSON when set
+
     @Column(name = "created_at")
     private LocalDateTime createdAt = LocalDateTime.now();
 
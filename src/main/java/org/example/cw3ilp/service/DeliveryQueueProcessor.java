@@ -8,6 +8,7 @@ import org.example.cw3ilp.api.model.RestrictedArea;
 import org.example.cw3ilp.entity.DeliveryOrder;
 import org.example.cw3ilp.entity.OrderStatus;
 import org.example.cw3ilp.repository.DeliveryOrderRepository;
+import org.example.cw3ilp.service.pathfinding.EncodedPath;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
@@ -28,6 +29,8 @@ public class DeliveryQueueProcessor {
     private final DroneFlightSimulator droneFlightSimulator;
     private final PathfinderService pathfinderService;
     private final ILPDataService ilpDataService;
+    private final NoFlyZoneService noFlyZoneService;
+    private final ServicePointAssigner servicePointAssigner;
     private final DistanceService distanceService;
 
     /**
@@ -86,12 +89,12 @@ public class DeliveryQueueProcessor {
             List<DronesAvailability.ServicePoint> servicePoints =
                     ilpDataService.getAllServicePoints();
 
-            // Find nearest service point to delivery target
+            // Find the service point reaching the delivery target in the fewest moves
             DronesAvailability.ServicePoint nearestServicePoint =
-                    distanceService.findNearestServicePoint(servicePoints, target.getLng(), target.getLat());
+                    servicePointAssigner.assign(target, servicePoints, noFlyZoneService.getZones());
 
             if (nearestServicePoint == null) {
-                throw new RuntimeException("No service points available");
+                throw new RuntimeException("No service point can reach the delivery target");
             }
 
             LngLatAlt servicePointLocation = new LngLatAlt(
@@ -111,11 +114,14 @@ public class DeliveryQueueProcessor {
             List<LngLatAlt> fullPath;
 
             // Check if order has a pre-calculated path stored
-            if (order.getCalculatedPath() != null && !order.getCalculatedPath().isEmpty()) {
+            if (order.getCalculatedPathCompact() != null
+                    || (order.getCalculatedPath() != null && !order.getCalculatedPath().isEmpty())) {
                 log.info("Using pre-calculated path from order (skipping pathfinding)");
 
-                // Deserialize the stored path from JSON (already includes hover points)
-                fullPath = deserializeFlightPath(order.getCalculatedPath());
+                // Decode the stored path (already includes hover points)
+                fullPath = order.getCalculatedPathCompact() != null
+                        ? decodeFlightPath(order.getCalculatedPathCompact())
+                        : deserializeFlightPath(order.getCalculatedPath());
 
                 if (fullPath == null || fullPath.isEmpty()) {
                     log.warn("Failed to deserialize stored path, recalculating...");
@@ -177,8 +183,8 @@ public class DeliveryQueueProcessor {
      * Calculate a new flight path from service point to target
      */
     private List<LngLatAlt> calculateNewPath(LngLatAlt servicePointLocation, LngLatAlt target) {
-        // Get restricted areas for pathfinding
-        List<RestrictedArea> restrictedAreas = ilpDataService.getAllRestrictedAreas();
+        // Get restricted areas for pathfinding, temporary zones included
+        List<RestrictedArea> restrictedAreas = noFlyZoneService.getZones();
 
         // Calculate path: Service Point -> Customer (ONE-WAY delivery only)
         List<LngLatAlt> pathToTarget = pathfinderService.findPath(
@@ -192,6 +198,18 @@ public class DeliveryQueueProcessor {
         return new ArrayList<>(pathToTarget);
     }
 
+    /**
+     * Decode flight path from its stored direction codes
+     */
+    private List<LngLatAlt> decodeFlightPath(byte[] compactPath) {
+        try {
+            return EncodedPath.fromBytes(compactPath).decode();
+        } catch (IllegalArgumentException e) {
+            log.error("Failed to decode flight path: {}", e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Deserialize flight path from JSON string
      */
@@ -1,19 +1,21 @@
 package org.example.cw3ilp.service;
 import org.example.cw3ilp.api.model.DronesAvailability;
 import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.service.geometry.ColumnKernels;
+import org.example.cw3ilp.service.geometry.ServicePointIndex;
+import org.example.cw3ilp.service.geometry.ServicePointIndexCache;
+import org.example.cw3ilp.service.pathfinding.DistanceKernel;
+import org.example.cw3ilp.service.pathfinding.LatticeSteps;
 import org.springframework.stereotype.Service;
 
-import java.util.Comparator;
 import java.util.List;
 
-import static java.lang.Math.cos;
-import static java.lang.Math.sin;
-
 /**
  * Service class responsible for distance and position calculations
  * <p>
  *     Provides methods for computing Euclidean distance, closeness checks,
- *     and finding the next position, given a starting point and an angle.
+ *     and finding the next position, given a starting point and an angle,
+ *     and looks up the nearest service points through a {@link ServicePointIndex}.
  * </p>
  */
 @Service
@@ -21,8 +23,6 @@ public class DistanceService {
 
     /** Threshold used to determine if 2 points are considered "close" */
     private static final double CLOSE_THRESHOLD = 0.00015;
-    /** Step distance of how far the point will move along the specified angle */
-    private static final double STEP_DISTANCE = 0.00015;
 
     /** Earth's radius in meters (mean radius) */
     private static final double EARTH_RADIUS_METERS = 6371000.0;
@@ -30,6 +30,12 @@ public class DistanceService {
     /** Approximate meters per degree of latitude (at equator) */
     private static final double METERS_PER_DEGREE = 111000.0;
 
+    /** Batch kernels; SIMD when the JVM runs with the vector module */
+    private final ColumnKernels kernels = ColumnKernels.preferred();
+
+    /** Nearest-service-point index over the latest ILP service-point list */
+    private final ServicePointIndexCache servicePointIndexes = new ServicePointIndexCache();
+
     /**
      * Computes distance between two geographic positions using the Haversine formula.
      * This is accurate for real-world lat/lng coordinates on a sphere.
@@ -44,11 +50,21 @@ public class DistanceService {
             throw new IllegalArgumentException("Position cannot be null");
         }
 
+        return computeDistance(lngLat1.getLng(), lngLat1.getLat(), lngLat2.getLng(), lngLat2.getLat());
+    }
+
+    /**
+     * Primitive form of {@link #computeDistance(LngLat, LngLat)} for hot loops
+     * that should not allocate {@link LngLat} objects.
+     *
+     * @return the Haversine distance in degrees
+     */
+    public double computeDistance(double lng1, double lat1, double lng2, double lat2) {
         // Convert to radians
-        double lat1Rad = Math.toRadians(lngLat1.getLat());
-        double lat2Rad = Math.toRadians(lngLat2.getLat());
-        double deltaLat = Math.toRadians(lngLat2.getLat() - lngLat1.getLat());
-        double deltaLng = Math.toRadians(lngLat2.getLng() - lngLat1.getLng());
+        double lat1Rad = Math.toRadians(lat1);
+        double lat2Rad = Math.toRadians(lat2);
+        double deltaLat = Math.toRadians(lat2 - lat1);
+        double deltaLng = Math.toRadians(lng2 - lng1);
 
         // Haversine formula
         double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2) +
@@ -81,6 +97,60 @@ public class DistanceService {
         return distance < CLOSE_THRESHOLD;
     }
 
+    /**
+     * Primitive form of {@link #computeCloseness(LngLat, LngLat)}
+     */
+    public boolean computeCloseness(double lng1, double lat1, double lng2, double lat2) {
+        return computeDistance(lng1, lat1, lng2, lat2) < CLOSE_THRESHOLD;
+    }
+
+    /**
+     * Batch form of {@link #computeDistance(double, double, double, double)}: distance
+     * {@code i} is between ({@code lng1[i]}, {@code lat1[i]}) and ({@code lng2[i]}, {@code lat2[i]}).
+     * <p>
+     *     Runs on {@link ColumnKernels#preferred()}; with the vector module loaded the
+     *     distances may differ from the single-pair form in the last bit or two.
+     * </p>
+     *
+     * @param out receives the distances in degrees; at least as long as the inputs
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void computeDistances(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out) {
+        computeDistances(DistanceKernel.HAVERSINE, lng1, lat1, lng2, lat2, out);
+    }
+
+    /**
+     * {@link #computeDistances(double[], double[], double[], double[], double[])} with a choice
+     * of formula; {@link DistanceKernel#EQUIRECTANGULAR} takes the cosine at each pair's mean latitude
+     *
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void computeDistances(DistanceKernel formula, double[] lng1, double[] lat1,
+                                 double[] lng2, double[] lat2, double[] out) {
+        int n = checkBatch(lng1, lat1, lng2, lat2, out.length);
+        if (formula == DistanceKernel.EQUIRECTANGULAR) {
+            kernels.equirectangular(lng1, lat1, lng2, lat2, out, n);
+        } else {
+            kernels.haversine(lng1, lat1, lng2, lat2, out, n);
+        }
+    }
+
+    /**
+     * Batch form of {@link #computeCloseness(double, double, double, double)}, on the
+     * Haversine distances of {@link #computeDistances(double[], double[], double[], double[], double[])}
+     *
+     * @param out receives whether each pair is close; at least as long as the inputs
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void computeCloseness(double[] lng1, double[] lat1, double[] lng2, double[] lat2, boolean[] out) {
+        int n = checkBatch(lng1, lat1, lng2, lat2, out.length);
+        double[] distances = new double[n];
+        kernels.haversine(lng1, lat1, lng2, lat2, distances, n);
+        for (int i = 0; i < n; i++) {
+            out[i] = distances[i] < CLOSE_THRESHOLD;
+        }
+    }
+
     /**
      * Computes next position based on a starting point and movement angle.
      * The step distance is fixed at {@code 0.00015} degrees, and
@@ -100,6 +170,39 @@ public class DistanceService {
      * @return a new {@link LngLat} representing the next location
      */
     public LngLat computeNextPosition(LngLat startPos, double angle) {
+        int direction = directionOf(angle);
+        double nextLng = LatticeSteps.nextLng(startPos.getLng(), direction);
+        double nextLat = LatticeSteps.nextLat(startPos.getLat(), direction);
+
+        return new LngLat(nextLng, nextLat);
+    }
+
+    /**
+     * Batch form of {@link #computeNextPosition(LngLat, double)}. Every angle is checked
+     * before any position is written.
+     *
+     * @param outLng receives the next longitudes; at least as long as the inputs
+     * @param outLat receives the next latitudes; at least as long as the inputs
+     * @throws IllegalArgumentException if the arrays differ in length or an angle is not allowed
+     */
+    public void computeNextPositions(double[] lng, double[] lat, double[] angles, double[] outLng, double[] outLat) {
+        int n = checkBatch(lng, lat, angles, angles, Math.min(outLng.length, outLat.length));
+
+        int[] directions = new int[n];
+        for (int i = 0; i < n; i++) {
+            directions[i] = directionOf(angles[i]);
+        }
+        for (int i = 0; i < n; i++) {
+            outLng[i] = LatticeSteps.nextLng(lng[i], directions[i]);
+            outLat[i] = LatticeSteps.nextLat(lat[i], directions[i]);
+        }
+    }
+
+    /**
+     * @return the lattice direction of one of the 16 allowed angles
+     * @throws IllegalArgumentException if the angle is not one of them
+     */
+    private static int directionOf(double angle) {
         // ensure angle is valid
         if (angle < 0 || angle >= 360) {
             throw new IllegalArgumentException(
@@ -112,19 +215,23 @@ public class DistanceService {
                     "Invalid angle: " + angle + ". Drone can only move in 22.5° increments (0, 22.5, 45, ..., 337.5).");
         }
 
-        // compute next position
-        double d = STEP_DISTANCE; // distance tolerance
-        double angleRad = Math.toRadians(angle); // convert to radians for sin/cos
-
-        // get dx and dy
-        double dx = d * cos(angleRad);
-        double dy = d * sin(angleRad);
-
-        // get new lat and lng
-        double nextLng = startPos.getLng() + dx;
-        double nextLat = startPos.getLat() + dy;
+        // step with the precomputed offsets for the direction; they are computed with the same
+        // cos/sin expression, so the result is unchanged
+        return (int) (Math.round(angle / LatticeSteps.ANGLE_STEP) % LatticeSteps.NUM_DIRECTIONS);
+    }
 
-        return new LngLat(nextLng, nextLat);
+    /**
+     * @return the batch length, once the four inputs match it and the output can hold it
+     */
+    private static int checkBatch(double[] a, double[] b, double[] c, double[] d, int outLength) {
+        int n = a.length;
+        if (b.length != n || c.length != n || d.length != n) {
+            throw new IllegalArgumentException("Batch arrays must all have the same length");
+        }
+        if (outLength < n) {
+            throw new IllegalArgumentException("Batch output is shorter than its input");
+        }
+        return n;
     }
 
     /**
@@ -137,15 +244,32 @@ public class DistanceService {
     public DronesAvailability.ServicePoint findNearestServicePoint(
             List<DronesAvailability.ServicePoint> servicePoints,
             double targetLng, double targetLat) {
+        return getServicePointIndex(servicePoints).nearest(targetLng, targetLat);
+    }
 
-        LngLat target = new LngLat(targetLng, targetLat);
+    /**
+     * @return up to {@code k} service points, nearest to the target first
+     */
+    public List<DronesAvailability.ServicePoint> findNearestServicePoints(
+            List<DronesAvailability.ServicePoint> servicePoints,
+            double targetLng, double targetLat, int k) {
+        return getServicePointIndex(servicePoints).nearest(targetLng, targetLat, k);
+    }
 
-        return servicePoints.stream()
-                .filter(sp -> sp.getLocation() != null)
-                .min(Comparator.comparingDouble(sp ->
-                        computeDistance(
-                                new LngLat(sp.getLocation().getLng(), sp.getLocation().getLat()),
-                                target)))
-                .orElse(null);
+    /**
+     * @param radius greatest distance, in the degree units of {@link #computeDistance(LngLat, LngLat)}
+     * @return the service points within {@code radius} of the target, nearest first
+     */
+    public List<DronesAvailability.ServicePoint> findServicePointsWithin(
+            List<DronesAvailability.ServicePoint> servicePoints,
+            double targetLng, double targetLat, double radius) {
+        return getServicePointIndex(servicePoints).within(targetLng, targetLat, radius);
+    }
+
+    /**
+     * @return the spatial index of the service points, rebuilt only when their ids or locations change
+     */
+    public ServicePointIndex getServicePointIndex(List<DronesAvailability.ServicePoint> servicePoints) {
+        return servicePointIndexes.get(servicePoints);
     }
 }
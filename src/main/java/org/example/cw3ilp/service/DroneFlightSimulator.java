@@ -3,10 +3,12 @@ package org.example.cw3ilp.service;
 import lombok.Getter;
 import org.example.cw3ilp.api.model.LngLatAlt;
 import org.example.cw3ilp.api.dto.DronePositionUpdate;
+import org.example.cw3ilp.service.pathfinding.LatticeSteps;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
@@ -32,6 +34,18 @@ public class DroneFlightSimulator {
     private static final double SPEED_KM_PER_HOUR = 160.0; // Set to 160 km/h for faster simulation
     private static final double SPEED_DEGREES_PER_SECOND = SPEED_KM_PER_HOUR / 111.0 / 3600.0;
 
+    /** Per-tick movement along each of the 16 move directions, from the shared step offsets */
+    private static final double[] TICK_LNG = new double[LatticeSteps.NUM_DIRECTIONS];
+    private static final double[] TICK_LAT = new double[LatticeSteps.NUM_DIRECTIONS];
+
+    static {
+        double stepSize = Math.hypot(LatticeSteps.dx(0), LatticeSteps.dy(0));
+        for (int direction = 0; direction < LatticeSteps.NUM_DIRECTIONS; direction++) {
+            TICK_LNG[direction] = LatticeSteps.dx(direction) / stepSize * SPEED_DEGREES_PER_SECOND;
+            TICK_LAT[direction] = LatticeSteps.dy(direction) / stepSize * SPEED_DEGREES_PER_SECOND;
+        }
+    }
+
     /** Duration (in seconds) that drone hovers at delivery location for drop-off */
     public static final int HOVER_DURATION_SECONDS = 3;
 
@@ -39,11 +53,13 @@ public class DroneFlightSimulator {
     private double currentLat;
     private double targetLng;
     private double targetLat;
+    private double tickLng;
+    private double tickLat;
 
     /**
      * Start flight WITHOUT order tracking (manual mode)
      */
-    public void startFlight(String droneId, List<LngLatAlt> path) {
+    public synchronized void startFlight(String droneId, List<LngLatAlt> path) {
         if (path == null || path.isEmpty()) {
             throw new IllegalArgumentException("Flight path cannot be empty");
         }
@@ -73,9 +89,7 @@ public class DroneFlightSimulator {
 
         // Set first target
         if (path.size() > 1) {
-            LngLatAlt target = path.get(1);
-            this.targetLng = target.getLng();
-            this.targetLat = target.getLat();
+            aimAt(path.get(1));
         }
 
         if (isReturnJourney) {
@@ -89,7 +103,7 @@ public class DroneFlightSimulator {
     /**
      * Start flight WITH order tracking (for queue processor)
      */
-    public void startFlightWithOrder(String droneId, List<LngLatAlt> path, String orderNumber) {
+    public synchronized void startFlightWithOrder(String droneId, List<LngLatAlt> path, String orderNumber) {
         // Start the flight (this will set isActive = true and calculate isReturnJourney)
         startFlight(droneId, path);
 
@@ -103,7 +117,7 @@ public class DroneFlightSimulator {
     /**
      * Get current drone position (called by WebSocket controller)
      */
-    public DronePositionUpdate getCurrentPosition() {
+    public synchronized DronePositionUpdate getCurrentPosition() {
         if (!isActive || flightPath == null) {
             return null;
         }
@@ -148,9 +162,7 @@ public class DroneFlightSimulator {
                 currentLat = nextPoint.getLat();
 
                 if (currentPathIndex < flightPath.size() - 1) {
-                    LngLatAlt target = flightPath.get(currentPathIndex + 1);
-                    targetLng = target.getLng();
-                    targetLat = target.getLat();
+                    aimAt(flightPath.get(currentPathIndex + 1));
 
                     // Check if this is a hover point (same coordinates)
                     if (Math.abs(currentLng - targetLng) < 0.0000001 &&
@@ -162,13 +174,9 @@ public class DroneFlightSimulator {
                 }
             }
         } else {
-            // Move towards target using angle-based interpolation
-            double dx = targetLng - currentLng;
-            double dy = targetLat - currentLat;
-            double angle = Math.atan2(dy, dx);
-
-            currentLng += Math.cos(angle) * SPEED_DEGREES_PER_SECOND;
-            currentLat += Math.sin(angle) * SPEED_DEGREES_PER_SECOND;
+            // Move towards target along the heading taken when it was set
+            currentLng += tickLng;
+            currentLat += tickLat;
 
             status = "FLYING";
         }
@@ -196,6 +204,81 @@ public class DroneFlightSimulator {
         return update;
     }
 
+    /**
+     * Swap in re-routed waypoints for the rest of the active flight, keeping the drone's position,
+     * status and order. {@code waypoints} replace everything from {@code fromIndex} on and must start
+     * with the waypoint at {@code fromIndex}. If the drone has moved on since {@code flightPath} was
+     * read, the waypoints it passed must be unchanged
+     *
+     * @return {@code false} if the flight changed or the drone already left the re-routed stretch
+     */
+    public synchronized boolean reroute(List<LngLatAlt> flightPath, int fromIndex, List<LngLatAlt> waypoints) {
+        if (!isActive || this.flightPath != flightPath || currentPathIndex < fromIndex) {
+            return false;
+        }
+
+        int passed = currentPathIndex - fromIndex;
+        if (passed >= waypoints.size() - 1) {
+            return false;
+        }
+        for (int i = 0; i <= passed; i++) {
+            if (!flightPath.get(fromIndex + i).equals(waypoints.get(i))) {
+                return false;
+            }
+        }
+
+        List<LngLatAlt> rerouted = new ArrayList<>(flightPath.subList(0, fromIndex));
+        rerouted.addAll(waypoints);
+        this.flightPath = rerouted;
+
+        // keep flying from where the drone is towards the new next waypoint
+        aimAt(rerouted.get(currentPathIndex + 1));
+
+        logger.info("Drone {} re-routed from waypoint {}: {} waypoints left",
+                droneId, currentPathIndex, rerouted.size() - currentPathIndex);
+        return true;
+    }
+
+    /**
+     * Waypoints of the current flight, or null before the first flight
+     */
+    public synchronized List<LngLatAlt> getFlightPath() {
+        return flightPath;
+    }
+
+    /**
+     * Index of the last waypoint the drone reached
+     */
+    public synchronized int getCurrentPathIndex() {
+        return currentPathIndex;
+    }
+
+    public synchronized String getDroneId() {
+        return droneId;
+    }
+
+    /**
+     * Set the next target and the per-tick movement towards it. A leg that is a single lattice
+     * move takes its heading from the step table; anything else (e.g. from mid-leg after a
+     * re-route) falls back to the angle between the points
+     */
+    private void aimAt(LngLatAlt target) {
+        this.targetLng = target.getLng();
+        this.targetLat = target.getLat();
+
+        double dx = targetLng - currentLng;
+        double dy = targetLat - currentLat;
+        int direction = LatticeSteps.directionOf(dx, dy);
+        if (direction >= 0) {
+            tickLng = TICK_LNG[direction];
+            tickLat = TICK_LAT[direction];
+        } else {
+            double angle = Math.atan2(dy, dx);
+            tickLng = Math.cos(angle) * SPEED_DEGREES_PER_SECOND;
+            tickLat = Math.sin(angle) * SPEED_DEGREES_PER_SECOND;
+        }
+    }
+
     /**
      * Calculate distance between two points
      */
@@ -208,7 +291,7 @@ public class DroneFlightSimulator {
     /**
      * Stop current flight
      */
-    public void stopFlight() {
+    public synchronized void stopFlight() {
         this.isActive = false;
         this.status = "STOPPED";
         this.currentOrderNumber = null;
@@ -1,16 +1,26 @@
 package org.example.cw3ilp.service;
 
+import jakarta.annotation.PreDestroy;
 import org.example.cw3ilp.api.dto.*;
 import org.example.cw3ilp.api.model.*;
+import org.example.cw3ilp.service.pathfinding.AnytimePath;
+import org.example.cw3ilp.service.pathfinding.CatchmentMap;
+import org.example.cw3ilp.service.pathfinding.SearchBudget;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,9 +29,26 @@ public class DroneService {
     private static final Logger logger = LoggerFactory.getLogger(DroneService.class);
     private final ILPDataService ilpDataService;
 
+    /** Bounded pool on which the flight paths of independent routes are built */
+    private final ExecutorService routeExecutor;
+
     @Autowired
-    public DroneService(ILPDataService ilpDataService) {
+    public DroneService(ILPDataService ilpDataService,
+                        @Value("${drone.routes.parallelism:0}") int routeParallelism) {
         this.ilpDataService = ilpDataService;
+
+        int threads = routeParallelism > 0 ? routeParallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.routeExecutor = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "route-planner-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        routeExecutor.shutdownNow();
     }
 
     public List<String> getDronesWithCooling(boolean hasCooling) {
@@ -381,23 +408,41 @@ public class DroneService {
     @Autowired
     private PathfinderService pathfinderService;
 
+    @Autowired
+    private DistanceService distanceService;
+
+    @Autowired
+    private NoFlyZoneService noFlyZoneService;
+
+    @Autowired
+    private ServicePointAssigner servicePointAssigner;
+
 
     /**
      * Calculate optimal delivery paths for a list of dispatch requests
      */
     public CalcDeliveryPathResponse calculateDeliveryPath(List<MedDispatchRec> dispatches) {
+        return calculateDeliveryPath(dispatches, SearchBudget.unlimited());
+    }
 
+    /**
+     * Calculate delivery paths within a time budget shared by every flight leg of the request.
+     * With a deadline, legs use the anytime search and may be longer than the shortest;
+     * dispatches whose leg is not found in time are skipped
+     */
+    public CalcDeliveryPathResponse calculateDeliveryPath(List<MedDispatchRec> dispatches, SearchBudget budget) {
 
         logger.info("Calculating delivery path for {} dispatches", dispatches.size());
 
         List<Drone> allDrones = ilpDataService.getAllDrones();
         List<DronesAvailability.ServicePoint> servicePoints = ilpDataService.getAllServicePoints();
-        List<RestrictedArea> restrictedAreas = ilpDataService.getAllRestrictedAreas();
+        List<RestrictedArea> restrictedAreas = noFlyZoneService.getZones();
         List<ServicePointDrones> droneAssociations = ilpDataService.getAllServicePointDrones();
         Map<String, List<Availability>> availabilityMap = ilpDataService.getDroneAvailabilityMap();
 
         logger.info("Loaded {} drones, {} service points, {} restricted areas",
                 allDrones.size(), servicePoints.size(), restrictedAreas.size());
+        prepareCatchment(servicePoints, restrictedAreas);
 
         Map<String, Drone> droneMap = buildDroneMap(allDrones);
         Map<Integer, DronesAvailability.ServicePoint> servicePointMap = buildServicePointMap(servicePoints);
@@ -406,31 +451,46 @@ public class DroneService {
         int totalMoves = 0;
         double totalCost = 0.0;
 
-        List<PlannedRoute> routes = planRoutes(
-                dispatches,
-                servicePoints,
-                droneAssociations,
-                droneMap,
-                availabilityMap,
-                restrictedAreas
-        );
-
-        for (PlannedRoute route : routes) {
-            DronePath dronePath = generateDronePath(
-                    route,
-                    servicePointMap,
-                    restrictedAreas
+        // dispatches a built route had to drop for range go back to be planned on the drones left
+        Set<String> usedDrones = new HashSet<>();
+        List<MedDispatchRec> toPlan = dispatches;
+        while (!toPlan.isEmpty()) {
+            List<PlannedRoute> routes = planRoutes(
+                    toPlan,
+                    servicePoints,
+                    droneAssociations,
+                    droneMap,
+                    availabilityMap,
+                    restrictedAreas,
+                    usedDrones
             );
 
-            if (dronePath != null && !dronePath.getDeliveries().isEmpty()) {
-                dronePaths.add(dronePath);
+            List<BuiltRoute> builtRoutes = generateDronePaths(routes, servicePointMap, restrictedAreas, budget);
+            List<MedDispatchRec> dropped = new ArrayList<>();
+
+            // merge in plan order so totals and path order do not depend on thread timing
+            for (int i = 0; i < routes.size(); i++) {
+                PlannedRoute route = routes.get(i);
+                BuiltRoute built = builtRoutes.get(i);
+                DronePath dronePath = built.path();
+                dropped.addAll(built.dropped());
+
+                if (dronePath != null && !dronePath.getDeliveries().isEmpty()) {
+                    dronePaths.add(dronePath);
 
-                int routeMoves = countMoves(dronePath);
-                double routeCost = calculateRouteCost(routeMoves, route.getDrone());
+                    int routeMoves = countMoves(dronePath);
+                    double routeCost = calculateRouteCost(routeMoves, route.getDrone());
 
-                totalMoves += routeMoves;
-                totalCost += routeCost;
+                    totalMoves += routeMoves;
+                    totalCost += routeCost;
+                }
+            }
+
+            if (!dropped.isEmpty()) {
+                logger.info("Re-planning {} dispatches dropped from routes longer than their drone's range",
+                        dropped.size());
             }
+            toPlan = dropped;
         }
 
         CalcDeliveryPathResponse response = new CalcDeliveryPathResponse();
@@ -479,6 +539,28 @@ public class DroneService {
     }
 
 
+    /**
+     * Start filling the service points' catchment map in the background; service points are
+     * assigned as usual until it is ready
+     */
+    private void prepareCatchment(List<DronesAvailability.ServicePoint> servicePoints,
+                                  List<RestrictedArea> restrictedAreas) {
+        pathfinderService.prepareCatchment(servicePointLocations(servicePoints), restrictedAreas);
+    }
+
+    /**
+     * @return the location of every service point in list order, null where it has none, so
+     * catchment map owners index the service point list
+     */
+    private List<LngLatAlt> servicePointLocations(List<DronesAvailability.ServicePoint> servicePoints) {
+        List<LngLatAlt> locations = new ArrayList<>(servicePoints.size());
+        for (DronesAvailability.ServicePoint sp : servicePoints) {
+            locations.add(sp.getLocation());
+        }
+        return locations;
+    }
+
+
     private Map<String, Drone> buildDroneMap(List<Drone> drones) {
         Map<String, Drone> map = new HashMap<>();
         for (Drone drone : drones) {
@@ -499,6 +581,8 @@ public class DroneService {
     /**
      * Plan routes - assign dispatches to drones at the CLOSEST service points
      * Allows multiple drones from different service points
+     *
+     * @param usedDrones drones already flying a route, skipped; the drones given a route here are added
      */
     private List<PlannedRoute> planRoutes(
             List<MedDispatchRec> dispatches,
@@ -506,20 +590,23 @@ public class DroneService {
             List<ServicePointDrones> droneAssociations,
             Map<String, Drone> droneMap,
             Map<String, List<Availability>> availabilityMap,
-            List<RestrictedArea> restrictedAreas
+            List<RestrictedArea> restrictedAreas,
+            Set<String> usedDrones
     ) {
         List<PlannedRoute> routes = new ArrayList<>();
         List<MedDispatchRec> unassigned = new ArrayList<>(dispatches);
-
-        Set<String> usedDrones = new HashSet<>();
+        MoveEstimates moveEstimates = new MoveEstimates(restrictedAreas);
+        // one map for the whole plan, so every dispatch is assigned the same way
+        CatchmentMap catchment = servicePointAssigner.readyCatchment(servicePoints, restrictedAreas);
 
         while (!unassigned.isEmpty()) {
             MedDispatchRec dispatch = unassigned.get(0);
 
-            DronesAvailability.ServicePoint closestSP = findClosestServicePoint(dispatch.getDelivery(), servicePoints);
+            DronesAvailability.ServicePoint closestSP = servicePointAssigner.assign(
+                    dispatch.getDelivery(), servicePoints, restrictedAreas, catchment);
 
             if (closestSP == null) {
-                logger.warn("No service point found for dispatch {}", dispatch.getId());
+                logger.warn("No reachable service point for dispatch {}", dispatch.getId());
                 unassigned.remove(0);
                 continue;
             }
@@ -554,13 +641,8 @@ public class DroneService {
                 int estimatedMoves = 0;
                 int maxMoves = drone.getCapability().getMaxMoves();
 
-                int dispatchMoves = estimateMovesForDispatch(
-                        closestSP.getLocation(),
-                        dispatch.getDelivery(),
-                        restrictedAreas
-                );
-
-                if (dispatchMoves * 2 < maxMoves) {
+                if (moveEstimates.fits(closestSP, dispatch, estimatedMoves, maxMoves)) {
+                    int dispatchMoves = moveEstimates.rangeEstimate(closestSP, dispatch);
                     route.addDispatch(dispatch);
                     estimatedMoves += dispatchMoves;
                     unassigned.remove(dispatch);
@@ -572,8 +654,8 @@ public class DroneService {
                     while (iterator.hasNext()) {
                         MedDispatchRec otherDispatch = iterator.next();
 
-                        DronesAvailability.ServicePoint otherClosestSP = findClosestServicePoint(
-                                otherDispatch.getDelivery(), servicePoints);
+                        DronesAvailability.ServicePoint otherClosestSP = servicePointAssigner.assign(
+                                otherDispatch.getDelivery(), servicePoints, restrictedAreas, catchment);
 
                         if (otherClosestSP == null || !otherClosestSP.getId().equals(closestSP.getId())) {
                             logger.info("Dispatch {} is closer to {} - will use different drone",
@@ -586,15 +668,9 @@ public class DroneService {
                             continue;
                         }
 
-                        int otherDispatchMoves = estimateMovesForDispatch(
-                                closestSP.getLocation(),
-                                otherDispatch.getDelivery(),
-                                restrictedAreas
-                        );
-
-                        if (estimatedMoves + otherDispatchMoves * 2 < maxMoves) {
+                        if (moveEstimates.fits(closestSP, otherDispatch, estimatedMoves, maxMoves)) {
                             route.addDispatch(otherDispatch);
-                            estimatedMoves += otherDispatchMoves;
+                            estimatedMoves += moveEstimates.rangeEstimate(closestSP, otherDispatch);
                             iterator.remove();
                             logger.info("Added dispatch {} to same drone route", otherDispatch.getId());
                         }
@@ -611,9 +687,16 @@ public class DroneService {
                 logger.warn("No available drone at {} for dispatch {}, trying other service points...",
                         closestSP.getName(), dispatch.getId());
 
+                List<DronesAvailability.ServicePoint> backups = new ArrayList<>();
                 for (DronesAvailability.ServicePoint sp : servicePoints) {
                     if (sp.getId().equals(closestSP.getId())) continue;
+                    if (!pathfinderService.isReachable(sp.getLocation(), dispatch.getDelivery(), restrictedAreas)) continue;
+                    backups.add(sp);
+                }
+                // fewest estimated moves first
+                backups.sort(Comparator.comparingInt(sp -> moveEstimates.rangeEstimate(sp, dispatch)));
 
+                for (DronesAvailability.ServicePoint sp : backups) {
                     ServicePointDrones otherSpDrones = findDroneAssociationForServicePoint(
                             sp.getId(), droneAssociations);
 
@@ -631,10 +714,9 @@ public class DroneService {
                         if (!canDroneHandleDispatch(drone, dispatch, availability)) continue;
 
                         int maxMoves = drone.getCapability().getMaxMoves();
-                        int dispatchMoves = estimateMovesForDispatch(
-                                sp.getLocation(), dispatch.getDelivery(), restrictedAreas);
 
-                        if (dispatchMoves * 2 < maxMoves) {
+                        if (moveEstimates.fits(sp, dispatch, 0, maxMoves)) {
+                            int dispatchMoves = moveEstimates.rangeEstimate(sp, dispatch);
                             PlannedRoute route = new PlannedRoute(drone, sp);
                             route.addDispatch(dispatch);
                             routes.add(route);
@@ -658,49 +740,10 @@ public class DroneService {
             }
         }
 
-        logger.info("Created {} routes using {} drones", routes.size(), usedDrones.size());
+        logger.info("Created {} routes, {} drones in use", routes.size(), usedDrones.size());
         return routes;
     }
 
-    /**
-     * Find the closest service point to a delivery location
-     */
-    private DronesAvailability.ServicePoint findClosestServicePoint(LngLatAlt deliveryLocation, List<DronesAvailability.ServicePoint> servicePoints) {
-        if (deliveryLocation == null || servicePoints == null || servicePoints.isEmpty()) {
-            return null;
-        }
-
-        DronesAvailability.ServicePoint closest = null;
-        double minDistance = Double.MAX_VALUE;
-
-        logger.info("Finding closest service point for delivery at ({}, {})",
-                deliveryLocation.getLng(), deliveryLocation.getLat());
-
-        for (DronesAvailability.ServicePoint sp : servicePoints) {
-            if (sp.getLocation() == null) {
-                logger.warn("  Service point {} has null location!", sp.getName());
-                continue;
-            }
-
-            double distance = pathfinderService.calculateDistance(sp.getLocation(), deliveryLocation);
-
-            logger.info("  Distance to {} (id={}): {} (SP at {}, {})",
-                    sp.getName(), sp.getId(), distance,
-                    sp.getLocation().getLng(), sp.getLocation().getLat());
-
-            if (distance < minDistance) {
-                minDistance = distance;
-                closest = sp;
-            }
-        }
-
-        if (closest != null) {
-            logger.info("  -> CLOSEST: {} with distance {}", closest.getName(), minDistance);
-        }
-
-        return closest;
-    }
-
     /**
      * Find drone association for a specific service point
      */
@@ -717,6 +760,32 @@ public class DroneService {
     }
 
 
+    /**
+     * Moves from service points to dispatches for route planning, without searching.
+     * Whether a drone can take a dispatch is judged on {@link #rangeEstimate}, the straight-line
+     * moves with a detour allowance, which also ranks backup service points; routes are checked
+     * against the drone's range again once built
+     */
+    private class MoveEstimates {
+        private final List<RestrictedArea> zones;
+
+        MoveEstimates(List<RestrictedArea> zones) {
+            this.zones = zones;
+        }
+
+        /**
+         * Whether a drone with {@code maxMoves} can fly to the dispatch and back on top of
+         * {@code plannedMoves}, judged on the range estimate
+         */
+        boolean fits(DronesAvailability.ServicePoint sp, MedDispatchRec dispatch, int plannedMoves, int maxMoves) {
+            return plannedMoves + 2L * rangeEstimate(sp, dispatch) < maxMoves;
+        }
+
+        int rangeEstimate(DronesAvailability.ServicePoint sp, MedDispatchRec dispatch) {
+            return estimateMovesForDispatch(sp.getLocation(), dispatch.getDelivery(), zones);
+        }
+    }
+
     /**
      * Estimate moves needed for a dispatch (straight-line estimate)
      */
@@ -783,18 +852,74 @@ public class DroneService {
     }
 
     /**
-     * Generate a DronePath with flight paths for each delivery
+     * Generate the DronePath of every route concurrently - routes fly different drones and
+     * share no state. Results are returned in route order; a failed route fails the whole call
+     */
+    private List<BuiltRoute> generateDronePaths(
+            List<PlannedRoute> routes,
+            Map<Integer, DronesAvailability.ServicePoint> servicePointMap,
+            List<RestrictedArea> restrictedAreas,
+            SearchBudget budget
+    ) {
+        if (routes.size() <= 1) {
+            List<BuiltRoute> paths = new ArrayList<>();
+            for (PlannedRoute route : routes) {
+                paths.add(generateDronePath(route, servicePointMap, restrictedAreas, budget));
+            }
+            return paths;
+        }
+
+        List<Future<BuiltRoute>> futures = new ArrayList<>(routes.size());
+        for (PlannedRoute route : routes) {
+            futures.add(routeExecutor.submit(() -> generateDronePath(route, servicePointMap, restrictedAreas, budget)));
+        }
+
+        List<BuiltRoute> paths = new ArrayList<>(routes.size());
+        try {
+            for (Future<BuiltRoute> future : futures) {
+                paths.add(future.get());
+            }
+            return paths;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while generating drone paths", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Drone path generation failed", e.getCause());
+        } finally {
+            if (paths.size() < routes.size()) {
+                // stop the routes still searching - nobody will read their result
+                budget.cancel();
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * Flight path of a route, or null if none was built, and the dispatches dropped from it
+     * because the built route was longer than the drone can fly
+     */
+    private record BuiltRoute(DronePath path, List<MedDispatchRec> dropped) {
+    }
+
+    /**
+     * Generate a DronePath with flight paths for each delivery, dropping the last stops
+     * while the built route is longer than the drone can fly. Dropped stops are returned
+     * with the path so the caller can plan them on another drone
      */
-    private DronePath generateDronePath(
+    private BuiltRoute generateDronePath(
             PlannedRoute route,
             Map<Integer, DronesAvailability.ServicePoint> servicePointMap,
-            List<RestrictedArea> restrictedAreas
+            List<RestrictedArea> restrictedAreas,
+            SearchBudget budget
     ) {
         DronesAvailability.ServicePoint sp = route.getServicePoint();
         List<MedDispatchRec> dispatches = route.getDispatches();
 
         if (dispatches.isEmpty()) {
-            return null;
+            return new BuiltRoute(null, List.of());
         }
 
         for (MedDispatchRec dispatch : dispatches) {
@@ -807,25 +932,44 @@ public class DroneService {
         }
 
         List<MedDispatchRec> sequence = optimizeSequence(sp.getLocation(), dispatches, restrictedAreas);
+        int maxMoves = route.getDrone().getCapability().getMaxMoves();
+        List<MedDispatchRec> dropped = new ArrayList<>();
+
+        while (!sequence.isEmpty()) {
+            PathBuildResult result = buildCompleteFlightPathWithTracking(
+                    sp.getLocation(),
+                    sequence,
+                    restrictedAreas,
+                    budget
+            );
 
-        PathBuildResult result = buildCompleteFlightPathWithTracking(
-                sp.getLocation(),
-                sequence,
-                restrictedAreas
-        );
+            if (result == null || result.path.isEmpty()) {
+                logger.warn("Could not build flight path for route");
+                return new BuiltRoute(null, dropped);
+            }
 
-        if (result == null || result.path.isEmpty()) {
-            logger.warn("Could not build flight path for route");
-            return null;
-        }
+            List<Delivery> deliveries = splitPathIntoDeliveries(result.path, result.completedDeliveries);
 
-        List<Delivery> deliveries = splitPathIntoDeliveries(result.path, result.completedDeliveries);
+            DronePath dronePath = new DronePath();
+            dronePath.setDroneId(route.getDrone().getId());
+            dronePath.setDeliveries(deliveries);
 
-        DronePath dronePath = new DronePath();
-        dronePath.setDroneId(route.getDrone().getId());
-        dronePath.setDeliveries(deliveries);
+            int moves = countMoves(dronePath);
+            if (moves <= maxMoves) {
+                return new BuiltRoute(dronePath, dropped);
+            }
 
-        return dronePath;
+            // planning only estimated the moves - drop the last stop for re-planning and fly the rest
+            List<MedDispatchRec> completed = result.completedDeliveries;
+            MedDispatchRec last = completed.get(completed.size() - 1);
+            logger.warn("Route of drone {} needs {} moves but it can fly {}, dropping dispatch {}",
+                    route.getDrone().getId(), moves, maxMoves, last.getId());
+            dropped.add(last);
+            sequence = completed.subList(0, completed.size() - 1);
+        }
+
+        logger.warn("Drone {} cannot fly any of its dispatches within {} moves", route.getDrone().getId(), maxMoves);
+        return new BuiltRoute(null, dropped);
     }
 
 
@@ -848,7 +992,8 @@ public class DroneService {
     private PathBuildResult buildCompleteFlightPathWithTracking(
             LngLatAlt servicePointLocation,
             List<MedDispatchRec> sequence,
-            List<RestrictedArea> restrictedAreas
+            List<RestrictedArea> restrictedAreas,
+            SearchBudget budget
     ) {
         List<LngLatAlt> completePath = new ArrayList<>();
         List<MedDispatchRec> completedDeliveries = new ArrayList<>();
@@ -862,7 +1007,7 @@ public class DroneService {
                 continue;
             }
 
-            List<LngLatAlt> segment = pathfinderService.findPath(current, deliveryPoint, restrictedAreas);
+            List<LngLatAlt> segment = findLeg(current, deliveryPoint, restrictedAreas, budget);
 
             if (segment == null || segment.isEmpty()) {
                 logger.warn("Skipping dispatch {} - no path found (possibly in restricted area)", dispatch.getId());
@@ -890,7 +1035,7 @@ public class DroneService {
             return null;
         }
 
-        List<LngLatAlt> returnPath = pathfinderService.findPath(current, servicePointLocation, restrictedAreas);
+        List<LngLatAlt> returnPath = findLeg(current, servicePointLocation, restrictedAreas, budget);
         if (returnPath == null || returnPath.isEmpty()) {
             logger.warn("No path found to return to service point");
             return null;
@@ -901,6 +1046,23 @@ public class DroneService {
         return new PathBuildResult(completePath, completedDeliveries);
     }
 
+    /**
+     * Path for one flight leg: the configured search without deadline, the anytime search with one.
+     * Either way the search stops once the budget is cancelled
+     */
+    private List<LngLatAlt> findLeg(LngLatAlt from, LngLatAlt to, List<RestrictedArea> zones, SearchBudget budget) {
+        if (budget.isUnlimited()) {
+            return pathfinderService.findPath(from, to, zones, budget);
+        }
+
+        AnytimePath leg = pathfinderService.findPathWithinBudget(from, to, zones, budget);
+        if (!leg.isComplete()) {
+            logger.warn("Search budget exhausted on leg to ({}, {}), using best path found so far",
+                    to.getLng(), to.getLat());
+        }
+        return leg.getPath();
+    }
+
     /**
      * Optimize delivery sequence using greedy nearest neighbor
      */
@@ -1075,9 +1237,10 @@ public class DroneService {
 
         List<Drone> allDrones = ilpDataService.getAllDrones();
         List<DronesAvailability.ServicePoint> servicePoints = ilpDataService.getAllServicePoints();
-        List<RestrictedArea> restrictedAreas = ilpDataService.getAllRestrictedAreas();
+        List<RestrictedArea> restrictedAreas = noFlyZoneService.getZones();
         List<ServicePointDrones> droneAssociations = ilpDataService.getAllServicePointDrones();
         Map<String, List<Availability>> availabilityMap = ilpDataService.getDroneAvailabilityMap();
+        prepareCatchment(servicePoints, restrictedAreas);
 
         DronesAvailability.ServicePoint bestServicePoint = findBestServicePointForDeliveries(dispatches, servicePoints);
 
@@ -1112,7 +1275,8 @@ public class DroneService {
         PathBuildResult pathResult = buildCompleteFlightPathWithTracking(
                 bestServicePoint.getLocation(),
                 optimizedSequence,
-                restrictedAreas
+                restrictedAreas,
+                SearchBudget.unlimited()
         );
 
         if (pathResult == null || pathResult.path.isEmpty()) {
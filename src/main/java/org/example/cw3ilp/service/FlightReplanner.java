@@ -0,0 +1,113 @@
+package org.example.cw3ilp.service;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+/**
+ * Temporary no-fly zones pushed on top of the ILP restricted areas, and re-routing of the
+ * drone in the air when they change.
+ * <p>
+ *     The zones themselves are kept by {@link NoFlyZoneService}, which every planner reads, so
+ *     deliveries planned after a change avoid them too.
+ * </p>
+ * <p>
+ *     The flight path is repaired locally by {@link PathfinderService#repairPath} from the last
+ *     waypoint the drone reached, so only the stretch crossing a new zone is searched again,
+ *     and the new waypoints are swapped into the {@link DroneFlightSimulator} while it flies.
+ * </p>
+ */
+@Service
+public class FlightReplanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlightReplanner.class);
+
+    /** Repairs retried when the drone moves on while one is computed */
+    private static final int MAX_ATTEMPTS = 3;
+
+    public enum Outcome {
+        /** No drone in the air */
+        NO_FLIGHT,
+        /** The flight path was not affected */
+        UNCHANGED,
+        /** The drone was sent on a repaired path */
+        REROUTED,
+        /** The drone cannot reach its stops any more and keeps its old path */
+        NO_ROUTE
+    }
+
+    private final PathfinderService pathfinderService;
+    private final NoFlyZoneService noFlyZoneService;
+    private final DroneFlightSimulator droneFlightSimulator;
+
+    public FlightReplanner(PathfinderService pathfinderService,
+                           NoFlyZoneService noFlyZoneService,
+                           DroneFlightSimulator droneFlightSimulator) {
+        this.pathfinderService = pathfinderService;
+        this.noFlyZoneService = noFlyZoneService;
+        this.droneFlightSimulator = droneFlightSimulator;
+    }
+
+    /**
+     * Add (or replace, by name) a temporary zone and re-route the active flight around it
+     */
+    public synchronized Outcome addTemporaryZone(RestrictedArea zone) {
+        RestrictedArea replaced = noFlyZoneService.addTemporaryZone(zone);
+        logger.info("Temporary no-fly zone {} {}", zone.getName(), replaced == null ? "added" : "replaced");
+        return replanActiveFlight(replaced == null ? List.of() : List.of(replaced));
+    }
+
+    /**
+     * Lift a temporary zone; the active flight may get a shorter path
+     *
+     * @return the outcome, or null if there is no temporary zone with that name
+     */
+    public synchronized Outcome removeTemporaryZone(String name) {
+        RestrictedArea removed = noFlyZoneService.removeTemporaryZone(name);
+        if (removed == null) {
+            return null;
+        }
+
+        logger.info("Temporary no-fly zone {} lifted", name);
+        return replanActiveFlight(List.of(removed));
+    }
+
+    public List<RestrictedArea> getTemporaryZones() {
+        return noFlyZoneService.getTemporaryZones();
+    }
+
+    private Outcome replanActiveFlight(List<RestrictedArea> clearedZones) {
+        if (!droneFlightSimulator.isActive()) {
+            return Outcome.NO_FLIGHT;
+        }
+
+        List<RestrictedArea> zones = noFlyZoneService.getZones();
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            List<LngLatAlt> flightPath = droneFlightSimulator.getFlightPath();
+            int from = droneFlightSimulator.getCurrentPathIndex();
+            if (!droneFlightSimulator.isActive() || flightPath == null || from >= flightPath.size() - 1) {
+                return Outcome.NO_FLIGHT;
+            }
+
+            List<LngLatAlt> repaired = pathfinderService.repairPath(flightPath, from, zones, clearedZones);
+            if (repaired == null) {
+                logger.warn("Drone {} cannot be re-routed, keeping its path", droneFlightSimulator.getDroneId());
+                return Outcome.NO_ROUTE;
+            }
+            if (repaired.equals(flightPath.subList(from, flightPath.size()))) {
+                return Outcome.UNCHANGED;
+            }
+            if (droneFlightSimulator.reroute(flightPath, from, repaired)) {
+                return Outcome.REROUTED;
+            }
+            logger.debug("Drone moved on while its path was repaired, retrying");
+        }
+
+        logger.warn("Drone {} could not be re-routed after {} attempts", droneFlightSimulator.getDroneId(), MAX_ATTEMPTS);
+        return Outcome.NO_ROUTE;
+    }
+}
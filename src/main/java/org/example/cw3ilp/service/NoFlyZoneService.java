@@ -0,0 +1,96 @@
+package org.example.cw3ilp.service;
+
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The zones every flight must avoid: the ILP restricted areas plus the temporary no-fly zones
+ * pushed on top of them.
+ * <p>
+ *     Every planner reads its zones from {@link #getZones()}, so a temporary zone applies to new
+ *     plans as well as to the re-routing done by {@link FlightReplanner}. The combined list is
+ *     built once and the same unmodifiable instance is returned until the ILP areas or the
+ *     temporary zones change.
+ * </p>
+ */
+@Service
+public class NoFlyZoneService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NoFlyZoneService.class);
+
+    private final ILPDataService ilpDataService;
+
+    /** Temporary zones by name, in the order they were pushed */
+    private final Map<String, RestrictedArea> temporaryZones = new LinkedHashMap<>();
+
+    /** ILP areas the combined list was built from, null until first built */
+    private List<RestrictedArea> ilpZones;
+
+    /** ILP areas followed by the temporary zones, null when it needs rebuilding */
+    private List<RestrictedArea> zones;
+
+    public NoFlyZoneService(ILPDataService ilpDataService) {
+        this.ilpDataService = ilpDataService;
+    }
+
+    /**
+     * ILP restricted areas plus the temporary zones
+     *
+     * @return an unmodifiable list, the same instance for as long as neither source changes
+     */
+    public List<RestrictedArea> getZones() {
+        List<RestrictedArea> fetched = ilpDataService.getAllRestrictedAreas();
+        synchronized (this) {
+            if (zones == null || !fetched.equals(ilpZones)) {
+                ilpZones = new ArrayList<>(fetched);
+                List<RestrictedArea> combined = new ArrayList<>(ilpZones);
+                combined.addAll(temporaryZones.values());
+                zones = Collections.unmodifiableList(combined);
+                logger.debug("Rebuilt no-fly zones: {} restricted areas, {} temporary zones",
+                        ilpZones.size(), temporaryZones.size());
+            }
+            return zones;
+        }
+    }
+
+    /**
+     * Add, or replace by name, a temporary zone
+     *
+     * @return the zone it replaced, or null if the name is new
+     * @throws IllegalArgumentException if the zone has no name or fewer than 3 vertices
+     */
+    public synchronized RestrictedArea addTemporaryZone(RestrictedArea zone) {
+        if (zone == null || zone.getName() == null || zone.getVertices() == null || zone.getVertices().size() < 3) {
+            throw new IllegalArgumentException("Temporary zone needs a name and at least 3 vertices");
+        }
+
+        RestrictedArea replaced = temporaryZones.put(zone.getName(), zone);
+        zones = null;
+        return replaced;
+    }
+
+    /**
+     * Lift a temporary zone
+     *
+     * @return the lifted zone, or null if there is no temporary zone with that name
+     */
+    public synchronized RestrictedArea removeTemporaryZone(String name) {
+        RestrictedArea removed = temporaryZones.remove(name);
+        if (removed != null) {
+            zones = null;
+        }
+        return removed;
+    }
+
+    public synchronized List<RestrictedArea> getTemporaryZones() {
+        return new ArrayList<>(temporaryZones.values());
+    }
+}
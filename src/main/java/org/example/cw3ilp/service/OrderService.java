@@ -2,6 +2,9 @@ package org.example.cw3ilp.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.example.cw3ilp.api.model.DronesAvailability;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
 import org.example.cw3ilp.entity.DeliveryOrder;
 import org.example.cw3ilp.entity.Medication;
 import org.example.cw3ilp.entity.OrderStatus;
@@ -25,7 +28,8 @@ public class OrderService {
     private final DroneFlightSimulator droneFlightSimulator;
     private final PathfinderService pathfinderService;
     private final ILPDataService ilpDataService;
-    private final DistanceService distanceService;
+    private final NoFlyZoneService noFlyZoneService;
+    private final ServicePointAssigner servicePointAssigner;
 
     /**
      * Create a new delivery order
@@ -96,6 +100,23 @@ public class OrderService {
                 .orElseThrow(() -> new RuntimeException("Order not found: " + orderNumber));
     }
 
+    /**
+     * Check that a delivery location can be reached from at least one service point.
+     * Answers from the free-space components of the current restricted areas, without searching
+     */
+    public boolean isDeliverable(double lng, double lat) {
+        LngLatAlt target = new LngLatAlt(lng, lat, 0.0);
+        List<RestrictedArea> restrictedAreas = noFlyZoneService.getZones();
+
+        for (DronesAvailability.ServicePoint servicePoint : ilpDataService.getAllServicePoints()) {
+            if (servicePoint.getLocation() != null
+                    && pathfinderService.isReachable(servicePoint.getLocation(), target, restrictedAreas)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Confirm pickup by order number
      */
@@ -156,10 +177,10 @@ public class OrderService {
                 ilpDataService.getAllServicePoints();
 
             org.example.cw3ilp.api.model.DronesAvailability.ServicePoint nearestServicePoint =
-                distanceService.findNearestServicePoint(servicePoints, currentLocation.getLng(), currentLocation.getLat());
+                servicePointAssigner.assign(currentLocation, servicePoints, noFlyZoneService.getZones());
 
             if (nearestServicePoint == null) {
-                log.warn("No service points available for return journey");
+                log.warn("No service point can be reached for the return journey");
                 return;
             }
 
@@ -172,7 +193,7 @@ public class OrderService {
 
             // Calculate return path
             List<org.example.cw3ilp.api.model.RestrictedArea> restrictedAreas =
-                ilpDataService.getAllRestrictedAreas();
+                noFlyZoneService.getZones();
 
             List<org.example.cw3ilp.api.model.LngLatAlt> returnPath =
                 pathfinderService.findPath(currentLocation, servicePointLocation, restrictedAreas);
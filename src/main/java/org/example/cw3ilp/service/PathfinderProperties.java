@@ -0,0 +1,75 @@
+package org.example.cw3ilp.service;
+
+import org.example.cw3ilp.service.pathfinding.DistanceKernel;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Settings of the {@link PathfinderService}, bound from the {@code pathfinder.*} properties.
+ * Properties left unset take the values of {@link #defaults()}
+ *
+ * @param strategy search strategy of findPath calls that name none; other engines are opt-in
+ * @param distance distance formula of goal tests and distance estimates
+ * @param raster   whether restricted areas are rasterized in the background
+ * @param cache    size of the flight-path cache, 0 to disable it
+ * @param anytime  time budget of an anytime search when the caller gives none, 0 for no limit
+ * @param search   most positions one lattice search may hold before it gives up; ASTAR is not capped
+ */
+@ConfigurationProperties("pathfinder")
+public record PathfinderProperties(
+        @DefaultValue("ASTAR") SearchStrategy strategy,
+        @DefaultValue("HAVERSINE") DistanceKernel distance,
+        @DefaultValue Raster raster,
+        @DefaultValue Cache cache,
+        @DefaultValue Anytime anytime,
+        @DefaultValue Search search) {
+
+    /**
+     * @return the settings used when no {@code pathfinder.*} property is set
+     */
+    public static PathfinderProperties defaults() {
+        return new PathfinderProperties(SearchStrategy.ASTAR, DistanceKernel.HAVERSINE,
+                new Raster(true), new Cache(1024), new Anytime(2000), new Search(1_000_000));
+    }
+
+    public PathfinderProperties withStrategy(SearchStrategy strategy) {
+        return new PathfinderProperties(strategy, distance, raster, cache, anytime, search);
+    }
+
+    public PathfinderProperties withDistance(DistanceKernel distance) {
+        return new PathfinderProperties(strategy, distance, raster, cache, anytime, search);
+    }
+
+    public PathfinderProperties withRasterEnabled(boolean enabled) {
+        return new PathfinderProperties(strategy, distance, new Raster(enabled), cache, anytime, search);
+    }
+
+    public PathfinderProperties withCacheSize(int size) {
+        return new PathfinderProperties(strategy, distance, raster, new Cache(size), anytime, search);
+    }
+
+    public PathfinderProperties withAnytimeBudgetMs(long budgetMs) {
+        return new PathfinderProperties(strategy, distance, raster, cache, new Anytime(budgetMs), search);
+    }
+
+    public PathfinderProperties withMaxNodes(int maxNodes) {
+        return new PathfinderProperties(strategy, distance, raster, cache, anytime, new Search(maxNodes));
+    }
+
+    /** {@code pathfinder.raster.*} */
+    public record Raster(@DefaultValue("true") boolean enabled) {
+    }
+
+    /** {@code pathfinder.cache.*} */
+    public record Cache(@DefaultValue("1024") int size) {
+    }
+
+    /** {@code pathfinder.anytime.*} */
+    public record Anytime(@DefaultValue("2000") long budgetMs) {
+    }
+
+    /** {@code pathfinder.search.*} */
+    public record Search(@DefaultValue("1000000") int maxNodes) {
+    }
+}
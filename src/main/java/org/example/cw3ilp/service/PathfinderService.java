@@ -1,34 +1,110 @@
 package org.example.cw3ilp.service;
 
-import org.example.cw3ilp.api.model.LngLat;
+import jakarta.annotation.PreDestroy;
 import org.example.cw3ilp.api.model.LngLatAlt;
 import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.geometry.ClusterGraph;
+import org.example.cw3ilp.service.geometry.FreeSpaceComponents;
+import org.example.cw3ilp.service.geometry.VisibilityHeuristic;
+import org.example.cw3ilp.service.geometry.ZoneSnapshot;
+import org.example.cw3ilp.service.geometry.ZoneSnapshotCache;
+import org.example.cw3ilp.service.pathfinding.Airspace;
+import org.example.cw3ilp.service.pathfinding.AnytimePath;
+import org.example.cw3ilp.service.pathfinding.BidirectionalLatticeAStar;
+import org.example.cw3ilp.service.pathfinding.CatchmentMap;
+import org.example.cw3ilp.service.pathfinding.CatchmentStore;
+import org.example.cw3ilp.service.pathfinding.DistanceKernel;
+import org.example.cw3ilp.service.pathfinding.EquirectangularDistance;
+import org.example.cw3ilp.service.pathfinding.GoalTest;
+import org.example.cw3ilp.service.pathfinding.Heuristic;
+import org.example.cw3ilp.service.pathfinding.LatticeAStar;
+import org.example.cw3ilp.service.pathfinding.LatticeSteps;
+import org.example.cw3ilp.service.pathfinding.LocalPathRepair;
+import org.example.cw3ilp.service.pathfinding.PathCache;
+import org.example.cw3ilp.service.pathfinding.RestartingLatticeAStar;
+import org.example.cw3ilp.service.pathfinding.SearchBudget;
+import org.example.cw3ilp.service.pathfinding.SearchStats;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.DoubleBinaryOperator;
 
 @Service
 public class PathfinderService {
 
     private static final Logger logger = LoggerFactory.getLogger(PathfinderService.class);
 
-    private final RegionService regionService;
     private final DistanceService distanceService;
 
     // Movement constants
     private static final int NUM_DIRECTIONS = 16;
     private static final double STEP_SIZE = 0.00015;
+    private static final int MAX_ITERATIONS = 10000000;
 
+    /** Iterations of the object-based A* between two budget checks (a power of two) */
+    private static final int BUDGET_CHECK_INTERVAL = 1024;
 
-    public PathfinderService(RegionService regionService, DistanceService distanceService) {
-        this.regionService = regionService;
+    /** Steps the catchment map reaches beyond the service points' bounding box */
+    private static final int CATCHMENT_MARGIN = 400;
+
+    /** Reusable lattice search workspaces - one per request thread */
+    private static final ThreadLocal<LatticeAStar> LATTICE_WORKSPACE = ThreadLocal.withInitial(LatticeAStar::new);
+    private static final ThreadLocal<BidirectionalLatticeAStar> BIDIRECTIONAL_WORKSPACE =
+            ThreadLocal.withInitial(BidirectionalLatticeAStar::new);
+    private static final ThreadLocal<RestartingLatticeAStar> ANYTIME_WORKSPACE =
+            ThreadLocal.withInitial(RestartingLatticeAStar::new);
+    private static final ThreadLocal<LocalPathRepair> REPAIR_WORKSPACE = ThreadLocal.withInitial(LocalPathRepair::new);
+
+    private final SearchStrategy defaultStrategy;
+
+    /** Time budget of an {@link SearchStrategy#ANYTIME_ASTAR} search without explicit budget, 0 for none */
+    private final long anytimeBudgetMillis;
+
+    /** Prepared outlines, spatial index and optional raster of the most recent restricted-area set */
+    private final ZoneSnapshotCache zoneSnapshots;
+
+    /** Recently computed paths, keyed by snapped endpoints and zone fingerprint */
+    private final PathCache pathCache;
+
+    /** Which service point reaches each cell first, filled in the background */
+    private final CatchmentStore catchments = new CatchmentStore(CATCHMENT_MARGIN);
+
+    /** Distance formula of goal tests and distance estimates */
+    private final DistanceKernel distanceKernel;
+
+    /**
+     * Most positions one lattice search may hold before it gives up, bounding its memory.
+     * The object-based ASTAR keeps its iteration limit only
+     */
+    private final int maxSearchNodes;
+
+    /** Told the cost of every search that ran, cache hits excluded */
+    private final List<Consumer<SearchStats>> searchListeners = new CopyOnWriteArrayList<>();
+
+    public PathfinderService(DistanceService distanceService, PathfinderProperties properties) {
         this.distanceService = distanceService;
+        this.defaultStrategy = properties.strategy();
+        this.anytimeBudgetMillis = properties.anytime().budgetMs();
+        this.zoneSnapshots = new ZoneSnapshotCache(properties.raster().enabled());
+        this.pathCache = new PathCache(properties.cache().size());
+        this.distanceKernel = properties.distance();
+        this.maxSearchNodes = properties.search().maxNodes();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        zoneSnapshots.close();
+        catchments.close();
     }
 
     /**
-     * Calculate Euclidean distance between two points (in degrees)
+     * Calculate distance between two points (in degrees) with the configured distance kernel
      */
     public double calculateDistance(LngLatAlt from, LngLatAlt to) {
         if (from == null || to == null ||
@@ -38,9 +114,10 @@ public class PathfinderService {
             return Double.MAX_VALUE;
         }
 
-        LngLat fromLngLat = new LngLat(from.getLng(), from.getLat());
-        LngLat toLngLat = new LngLat(to.getLng(), to.getLat());
-        return distanceService.computeDistance(fromLngLat, toLngLat);
+        if (distanceKernel == DistanceKernel.EQUIRECTANGULAR) {
+            return EquirectangularDistance.distance(from.getLng(), from.getLat(), to.getLng(), to.getLat());
+        }
+        return distanceService.computeDistance(from.getLng(), from.getLat(), to.getLng(), to.getLat());
     }
 
     /**
@@ -53,9 +130,7 @@ public class PathfinderService {
             return false;
         }
 
-        LngLat fromLngLat = new LngLat(from.getLng(), from.getLat());
-        LngLat toLngLat = new LngLat(to.getLng(), to.getLat());
-        return distanceService.computeCloseness(fromLngLat, toLngLat);
+        return isClose(from.getLng(), from.getLat(), to.getLng(), to.getLat());
     }
 
     /**
@@ -71,15 +146,13 @@ public class PathfinderService {
             return null;
         }
 
-        double angle = direction * 22.5;
-        LngLat currentLngLat = new LngLat(current.getLng(), current.getLat());
-        LngLat nextLngLat = distanceService.computeNextPosition(currentLngLat, angle);
-
-        return new LngLatAlt(nextLngLat.getLng(), nextLngLat.getLat(), null);
+        return new LngLatAlt(LatticeSteps.nextLng(current.getLng(), direction),
+                LatticeSteps.nextLat(current.getLat(), direction), null);
     }
 
     /**
-     * Check if a point is inside any restricted area
+     * Check if a point is inside any restricted area, answered by the zones' spatial index
+     * (or raster once built)
      * Ignores altitude - treats all restricted areas as no-fly zones
      */
     public boolean isInNoFlyZone(LngLatAlt point, List<RestrictedArea> zones) {
@@ -92,17 +165,12 @@ public class PathfinderService {
             return true;
         }
 
-        for (RestrictedArea zone : zones) {
-            List<LngLat> vertices = convertToLngLat(zone.getVertices());
-            if (vertices != null && regionService.isInside(vertices, point.getLng(), point.getLat())) {
-                return true;
-            }
-        }
-        return false;
+        return zoneSnapshots.get(zones).getAirspace().isBlocked(point.getLng(), point.getLat());
     }
 
     /**
-     * Check if a line segment crosses any restricted area
+     * Check if a line segment crosses any restricted area, answered by the zones' spatial index
+     * (or raster once built)
      * Ignores altitude - treats all restricted areas as no-fly zones
      */
     public boolean crossesNoFlyZone(LngLatAlt from, LngLatAlt to, List<RestrictedArea> zones) {
@@ -117,20 +185,256 @@ public class PathfinderService {
             return true;
         }
 
-        for (RestrictedArea zone : zones) {
-            List<LngLat> vertices = convertToLngLat(zone.getVertices());
-            if (lineIntersectsPolygon(from, to, vertices)) {
-                return true;
-            }
+        return zoneSnapshots.get(zones).getAirspace().isSegmentBlocked(
+                from.getLng(), from.getLat(), to.getLng(), to.getLat());
+    }
+
+    /**
+     * Check whether a flight from one point could end close to another, without searching.
+     * False if either point is invalid or in a restricted area, or restricted areas wall the
+     * goal off from the start (known once {@link #prepareZones} completes); true does not
+     * guarantee that a path exists
+     */
+    public boolean isReachable(LngLatAlt from, LngLatAlt to, List<RestrictedArea> zones) {
+        if (from == null || from.getLng() == null || from.getLat() == null
+                || to == null || to.getLng() == null || to.getLat() == null) {
+            logger.warn("Cannot check reachability with null coordinates");
+            return false;
         }
-        return false;
+
+        ZoneSnapshot snapshot = zoneSnapshots.get(zones);
+        Airspace airspace = snapshot.getAirspace();
+        return !airspace.isBlocked(from.getLng(), from.getLat())
+                && !airspace.isBlocked(to.getLng(), to.getLat())
+                && !isWalledOff(snapshot, from.getLng(), from.getLat(), to.getLng(), to.getLat());
     }
 
     /**
-     * Find optimal path from start to goal using A* algorithm with pruning
+     * Find optimal path from start to goal using the configured search strategy
      * Returns null if no path exists or inputs are invalid
      */
     public List<LngLatAlt> findPath(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones) {
+        return findPath(start, goal, zones, defaultStrategy);
+    }
+
+    /**
+     * Find optimal path from start to goal using the configured search strategy, giving up once
+     * the budget is cancelled or runs out. Returns null if no path was found
+     */
+    public List<LngLatAlt> findPath(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                    SearchBudget budget) {
+        return findPath(start, goal, zones, defaultStrategy, budget);
+    }
+
+    /**
+     * Find optimal path from start to goal with an explicit search strategy
+     * Returns null if no path exists or inputs are invalid
+     */
+    public List<LngLatAlt> findPath(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                    SearchStrategy strategy) {
+        return findPath(start, goal, zones, strategy, null);
+    }
+
+    private List<LngLatAlt> findPath(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                     SearchStrategy strategy, SearchBudget budget) {
+        if (strategy == SearchStrategy.ANYTIME_ASTAR) {
+            SearchBudget callerBudget = budget != null ? budget : SearchBudget.unlimited();
+            SearchBudget anytimeBudget = callerBudget.isUnlimited()
+                    ? callerBudget.within(anytimeBudgetMillis) : callerBudget;
+            return findPathWithinBudget(start, goal, zones, anytimeBudget).getPath();
+        }
+        if (start == null || start.getLng() == null || start.getLat() == null
+                || goal == null || goal.getLng() == null || goal.getLat() == null) {
+            return search(start, goal, zones, strategy, budget);
+        }
+
+        double goalLng = goal.getLng();
+        double goalLat = goal.getLat();
+        long fingerprint = zoneSnapshots.get(zones).getFingerprint();
+
+        List<LngLatAlt> cached = pathCache.get(start.getLng(), start.getLat(), goalLng, goalLat, fingerprint, strategy,
+                goalTest(goalLng, goalLat));
+        if (cached != null) {
+            logger.debug("Path cache hit from ({}, {}) to ({}, {})", start.getLng(), start.getLat(), goalLng, goalLat);
+            return cached;
+        }
+
+        // a search cut short by the budget finds nothing, and nothing is cached
+        List<LngLatAlt> path = search(start, goal, zones, strategy, budget);
+        pathCache.put(start.getLng(), start.getLat(), goalLng, goalLat, fingerprint, strategy, path);
+        return path;
+    }
+
+    /**
+     * Find the best path the anytime search reaches before the budget runs out or is cancelled.
+     * Only paths of searches that ran to completion are cached
+     */
+    public AnytimePath findPathWithinBudget(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                            SearchBudget budget) {
+        if (start == null || start.getLng() == null || start.getLat() == null) {
+            logger.error("Invalid start position: {}", start);
+            return AnytimePath.none(true, 0);
+        }
+        if (goal == null || goal.getLng() == null || goal.getLat() == null) {
+            logger.error("Invalid goal position: {}", goal);
+            return AnytimePath.none(true, 0);
+        }
+
+        double goalLng = goal.getLng();
+        double goalLat = goal.getLat();
+        ZoneSnapshot snapshot = zoneSnapshots.get(zones);
+        GoalTest goalTest = goalTest(goalLng, goalLat);
+
+        List<LngLatAlt> cached = pathCache.get(start.getLng(), start.getLat(), goalLng, goalLat,
+                snapshot.getFingerprint(), SearchStrategy.ANYTIME_ASTAR, goalTest);
+        if (cached != null) {
+            double lowerBound = RestartingLatticeAStar.minimumMoves(start.getLng(), start.getLat(), goalLng, goalLat);
+            return new AnytimePath(cached, RestartingLatticeAStar.bound(cached, lowerBound), true, 0);
+        }
+
+        logger.info("Finding anytime path from ({}, {}) to ({}, {}) within {}",
+                start.getLng(), start.getLat(), goalLng, goalLat,
+                budget.isUnlimited() ? "no time limit" : budget.getRemaining().toMillis() + " ms");
+
+        SearchStats stats = new SearchStats(SearchStrategy.ANYTIME_ASTAR);
+        AnytimePath result = searchWithinBudget(start, goal, snapshot, goalTest, budget, stats);
+        publish(stats, result.isFound());
+
+        if (result.isFound() && result.isComplete()) {
+            pathCache.put(start.getLng(), start.getLat(), goalLng, goalLat, snapshot.getFingerprint(),
+                    SearchStrategy.ANYTIME_ASTAR, result.getPath());
+        }
+        return result;
+    }
+
+    /**
+     * Build the snapshot of the given zones and label its free-space components in the
+     * background, so walled-off goals are ruled out without searching once it completes
+     *
+     * @return completes when the snapshot's background work has run
+     */
+    public CompletableFuture<Void> prepareZones(List<RestrictedArea> zones) {
+        return zoneSnapshots.prepare(zones).thenApply(snapshot -> null);
+    }
+
+    /**
+     * Fill the catchment map of the given origins (the service points) in the background.
+     * Once it is ready, {@link #getCatchment} gives the origin reaching each point in the
+     * fewest moves without searching
+     *
+     * @param origins the origins, in the order the map's owners index; null entries are skipped
+     * @return completes with the map, or with {@code null} if it could not be filled
+     */
+    public CompletableFuture<CatchmentMap> prepareCatchment(List<LngLatAlt> origins, List<RestrictedArea> zones) {
+        if (origins == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        ZoneSnapshot snapshot = zoneSnapshots.get(zones);
+        double[] lngs = originLngs(origins);
+        double[] lats = originLats(origins);
+        return catchments.prepare(CatchmentStore.key(snapshot.getFingerprint(), lngs, lats), lngs, lats,
+                snapshot.getAirspace());
+    }
+
+    /**
+     * @return the ready catchment map of the given origins under the zones, or null until
+     * {@link #prepareCatchment} has filled it
+     */
+    public CatchmentMap getCatchment(List<LngLatAlt> origins, List<RestrictedArea> zones) {
+        if (origins == null) {
+            return null;
+        }
+        long fingerprint = zoneSnapshots.get(zones).getFingerprint();
+        return catchments.get(CatchmentStore.key(fingerprint, originLngs(origins), originLats(origins)));
+    }
+
+    private static double[] originLngs(List<LngLatAlt> origins) {
+        double[] lngs = new double[origins.size()];
+        for (int k = 0; k < lngs.length; k++) {
+            LngLatAlt origin = origins.get(k);
+            lngs[k] = origin != null && origin.getLng() != null && origin.getLat() != null ? origin.getLng() : Double.NaN;
+        }
+        return lngs;
+    }
+
+    private static double[] originLats(List<LngLatAlt> origins) {
+        double[] lats = new double[origins.size()];
+        for (int k = 0; k < lats.length; k++) {
+            LngLatAlt origin = origins.get(k);
+            lats[k] = origin != null && origin.getLng() != null && origin.getLat() != null ? origin.getLat() : Double.NaN;
+        }
+        return lats;
+    }
+
+    /**
+     * Repair a flight path from waypoint {@code from} onwards after the restricted areas changed.
+     * Only the moves that became blocked are searched again, plus legs near {@code clearedZones}
+     * (zones lifted since the path was planned), which may get shorter. Returns the new waypoints
+     * starting with the one at {@code from} - equal to the old ones if nothing had to change - or
+     * null if the drone is in a restricted area or cannot reach one of its stops
+     */
+    public List<LngLatAlt> repairPath(List<LngLatAlt> path, int from, List<RestrictedArea> zones,
+                                      List<RestrictedArea> clearedZones) {
+        if (path == null || from < 0 || from >= path.size()) {
+            logger.error("Invalid path position {} to repair from", from);
+            return null;
+        }
+
+        ZoneSnapshot snapshot = zoneSnapshots.get(zones);
+        Airspace airspace = snapshot.getAirspace();
+        LocalPathRepair repair = REPAIR_WORKSPACE.get();
+        List<LngLatAlt> repaired = repair.repair(path, from, airspace, boundingBoxes(clearedZones),
+                (fromLng, fromLat, toLng, toLat) -> findLeg(fromLng, fromLat, toLng, toLat, snapshot),
+                this::isClose);
+
+        if (repaired == null) {
+            logger.warn("Could not repair path from waypoint {} after {} searches", from, repair.getSearches());
+            return null;
+        }
+        logger.info("Repaired path from waypoint {}: {} waypoints, {} moves reused, {} searches",
+                from, repaired.size(), repair.getReusedMoves(), repair.getSearches());
+        return repaired;
+    }
+
+    /**
+     * @return the flight-path cache in front of {@link #findPath}, for metrics
+     */
+    public PathCache getPathCache() {
+        return pathCache;
+    }
+
+    /**
+     * Register a listener told the cost of every findPath and findPathWithinBudget search once
+     * it finishes, on the searching thread. Paths served from the cache are not searches
+     */
+    public void addSearchListener(Consumer<SearchStats> listener) {
+        searchListeners.add(listener);
+    }
+
+    private List<LngLatAlt> search(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                   SearchStrategy strategy, SearchBudget budget) {
+        SearchStats stats = new SearchStats(strategy);
+        List<LngLatAlt> path = strategy == SearchStrategy.ASTAR
+                ? findPathAStar(start, goal, zones, budget, stats)
+                : findPathOnLattice(start, goal, zones, strategy, budget, stats);
+        publish(stats, path != null);
+        return path;
+    }
+
+    private void publish(SearchStats stats, boolean found) {
+        stats.finish(found);
+        for (Consumer<SearchStats> listener : searchListeners) {
+            listener.accept(stats);
+        }
+    }
+
+    /**
+     * Find optimal path from start to goal using A* algorithm with pruning
+     * Returns null if no path exists, inputs are invalid or the budget ({@code null} for none) ran out
+     */
+    private List<LngLatAlt> findPathAStar(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                          SearchBudget budget, SearchStats stats) {
         // Validate inputs & log
         if (start == null || start.getLng() == null || start.getLat() == null) {
             logger.error("Invalid start position: {}", start);
@@ -144,14 +448,21 @@ public class PathfinderService {
         logger.info("Finding path from ({}, {}) to ({}, {})",
                 start.getLng(), start.getLat(), goal.getLng(), goal.getLat());
 
-        if (isInNoFlyZone(start, zones)) {
+        // resolved once, so neighbours are checked without looking the zones up again
+        ZoneSnapshot snapshot = zoneSnapshots.get(zones);
+        Airspace airspace = snapshot.getAirspace();
+        if (airspace.isBlocked(start.getLng(), start.getLat())) {
             logger.warn("Start position is in restricted area");
             return null;
         }
-        if (isInNoFlyZone(goal, zones)) {
+        if (airspace.isBlocked(goal.getLng(), goal.getLat())) {
             logger.warn("Goal position is in restricted area");
             return null;
         }
+        if (isWalledOff(snapshot, start.getLng(), start.getLat(), goal.getLng(), goal.getLat())) {
+            logger.warn("Goal position is walled off from the start by restricted areas");
+            return null;
+        }
 
         // A* data structures
         PriorityQueue<Node> openSet = new PriorityQueue<>(Comparator.comparingDouble(n -> n.fScore));
@@ -161,17 +472,26 @@ public class PathfinderService {
         LngLatAlt safeStart = new LngLatAlt(start.getLng(), start.getLat(), null);
         String startKey = positionKey(safeStart);
 
-        double initialH = calculateDistance(safeStart, goal);
+        GoalTest goalTest = goalTest(goal.getLng(), goal.getLat());
+        DoubleBinaryOperator distanceToGoal = distanceToGoal(goal.getLng(), goal.getLat());
+
+        double initialH = distanceToGoal.applyAsDouble(safeStart.getLng(), safeStart.getLat());
         Node startNode = new Node(safeStart, null, 0, initialH);
         openSet.add(startNode);
         bestGScore.put(startKey, 0.0);
 
-        int bestDirection = calculateBestDirection(start, goal);
+        int[] directionOrder = LatticeSteps.directionOrder(calculateBestDirection(start, goal));
 
         int iterations = 0;
-        int maxIterations = 10000000;
-
-        while (!openSet.isEmpty() && iterations < maxIterations) {
+        int peakOpenSize = 0;
+
+        while (!openSet.isEmpty() && iterations < MAX_ITERATIONS) {
+            if (budget != null && (iterations & (BUDGET_CHECK_INTERVAL - 1)) == 0 && budget.isExhausted()) {
+                stats.addRun(iterations, peakOpenSize, closedSet.size());
+                stats.limitReached();
+                logger.warn("No path found after {} iterations (search budget exhausted)", iterations);
+                return null;
+            }
             iterations++;
 
             Node current = openSet.poll();
@@ -182,13 +502,12 @@ public class PathfinderService {
             }
             closedSet.add(currentKey);
 
-            if (isCloseEnough(current.position, goal)) {
+            if (goalTest.isReached(current.position.getLng(), current.position.getLat())) {
+                stats.addRun(iterations, peakOpenSize, closedSet.size());
                 logger.info("Path found in {} iterations, {} moves", iterations, (int) current.gScore);
                 return reconstructPath(current);
             }
 
-            int[] directionOrder = getDirectionOrder(bestDirection);
-
             for (int direction : directionOrder) {
                 LngLatAlt neighbor = getNextPosition(current.position, direction);
                 if (neighbor == null) continue;
@@ -198,8 +517,11 @@ public class PathfinderService {
                 if (closedSet.contains(neighborKey)) continue;
                 if (neighborKey.startsWith("invalid")) continue;
 
-                if (isInNoFlyZone(neighbor, zones)) continue;
-                if (crossesNoFlyZone(current.position, neighbor, zones)) continue;
+                stats.countGeometryCheck();
+                if (airspace.isBlocked(neighbor.getLng(), neighbor.getLat())) continue;
+                stats.countGeometryCheck();
+                if (airspace.isSegmentBlocked(current.position.getLng(), current.position.getLat(),
+                        neighbor.getLng(), neighbor.getLat())) continue;
 
                 double tentativeG = current.gScore + 1;
 
@@ -210,167 +532,336 @@ public class PathfinderService {
 
                 bestGScore.put(neighborKey, tentativeG);
 
-                double h = calculateDistance(neighbor, goal);
-                if (h == Double.MAX_VALUE) continue;
+                double h = distanceToGoal.applyAsDouble(neighbor.getLng(), neighbor.getLat());
 
                 Node neighborNode = new Node(neighbor, current, tentativeG, h);
                 openSet.add(neighborNode);
             }
+            peakOpenSize = Math.max(peakOpenSize, openSet.size());
         }
 
+        stats.addRun(iterations, peakOpenSize, closedSet.size());
+        if (!openSet.isEmpty()) {
+            stats.limitReached();
+        }
         logger.warn("No path found after {} iterations", iterations);
         return null;
     }
 
     /**
-     * Calculate the best direction (0-15) from start toward goal
+     * Find a path with the allocation-free lattice engine.
+     * Same validation and output contract as the object-based A*
      */
-    private int calculateBestDirection(LngLatAlt from, LngLatAlt to) {
-        double dLng = to.getLng() - from.getLng();
-        double dLat = to.getLat() - from.getLat();
+    private List<LngLatAlt> findPathOnLattice(LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones,
+                                              SearchStrategy strategy, SearchBudget budget, SearchStats stats) {
+        if (start == null || start.getLng() == null || start.getLat() == null) {
+            logger.error("Invalid start position: {}", start);
+            return null;
+        }
+        if (goal == null || goal.getLng() == null || goal.getLat() == null) {
+            logger.error("Invalid goal position: {}", goal);
+            return null;
+        }
 
-        double angle = Math.atan2(dLat, dLng);
-        if (angle < 0) angle += 2 * Math.PI;
+        logger.info("Finding lattice path from ({}, {}) to ({}, {})",
+                start.getLng(), start.getLat(), goal.getLng(), goal.getLat());
 
-        return (int) Math.round(angle / (Math.PI / 8)) % 16;
+        ZoneSnapshot snapshot = zoneSnapshots.get(zones);
+        Airspace airspace = stats.count(snapshot.getAirspace());
+        double goalLng = goal.getLng();
+        double goalLat = goal.getLat();
+
+        if (airspace.isBlocked(start.getLng(), start.getLat())) {
+            logger.warn("Start position is in restricted area");
+            return null;
+        }
+        if (airspace.isBlocked(goalLng, goalLat)) {
+            logger.warn("Goal position is in restricted area");
+            return null;
+        }
+        if (isWalledOff(snapshot, start.getLng(), start.getLat(), goalLng, goalLat)) {
+            logger.warn("Goal position is walled off from the start by restricted areas");
+            return null;
+        }
+
+        GoalTest goalTest = goalTest(goalLng, goalLat);
+        int[] directionOrder = LatticeSteps.directionOrder(calculateBestDirection(start, goal));
+
+        if (strategy == SearchStrategy.HIERARCHICAL_ASTAR) {
+            ClusterGraph.Route route = snapshot.getClusterGraph().route(start.getLng(), start.getLat(),
+                    goalLng, goalLat, LatticeAStar.goalRadius(goalLat));
+            List<LngLatAlt> refined = route != null
+                    ? refineRoute(route, start, goal, goalTest, airspace, budget, stats) : null;
+            if (refined != null) {
+                return refined;
+            }
+            logger.debug("No cluster route to refine, searching the whole lattice");
+        }
+
+        List<LngLatAlt> path;
+        int expansions;
+        int peakOpenSize;
+        int closedCount;
+        boolean nodeLimitReached;
+        if (strategy == SearchStrategy.BIDIRECTIONAL_ASTAR) {
+            BidirectionalLatticeAStar engine = BIDIRECTIONAL_WORKSPACE.get();
+            engine.setNodeLimit(maxSearchNodes);
+            path = engine.search(start.getLng(), start.getLat(), goalLng, goalLat,
+                    directionOrder, LatticeSteps.directionOrder(calculateBestDirection(goal, start)),
+                    airspace, goalTest, budget, MAX_ITERATIONS);
+            expansions = engine.getExpansions();
+            peakOpenSize = engine.getPeakOpenSize();
+            closedCount = engine.getClosedCount();
+            nodeLimitReached = engine.isNodeLimitReached();
+        } else {
+            Heuristic heuristic = null;
+            if (strategy == SearchStrategy.VISIBILITY_ASTAR) {
+                heuristic = VisibilityHeuristic.forGoal(snapshot.getVisibilityGraph(), snapshot.getIndex(),
+                        goalLng, goalLat, LatticeAStar.goalRadius(goalLat));
+                if (heuristic == null) {
+                    logger.debug("No visibility heuristic for this goal, using straight-line distance");
+                }
+            }
+
+            LatticeAStar engine = latticeWorkspace();
+            path = engine.search(start.getLng(), start.getLat(), goalLng, goalLat,
+                    directionOrder, airspace, goalTest, heuristic, budget, MAX_ITERATIONS);
+            expansions = engine.getExpansions();
+            peakOpenSize = engine.getPeakOpenSize();
+            closedCount = engine.getClosedCount();
+            nodeLimitReached = engine.isNodeLimitReached();
+        }
+
+        boolean budgetExhausted = path == null && budget != null && budget.isExhausted();
+        stats.addRun(expansions, peakOpenSize, closedCount);
+        if (nodeLimitReached || budgetExhausted || expansions >= MAX_ITERATIONS) {
+            stats.limitReached();
+        }
+        if (path == null) {
+            logger.warn("No path found after {} iterations{}", expansions,
+                    nodeLimitReached ? " (node limit reached)" : budgetExhausted ? " (search budget exhausted)" : "");
+            return null;
+        }
+
+        logger.info("Path found in {} iterations, {} moves", expansions, path.size() - 1);
+        return path;
     }
 
     /**
-     * Get directions ordered by proximity to best direction
-     * This helps A* explore promising directions first
+     * Follow an abstract cluster route at step resolution: one short lattice search to each
+     * entrance in turn, confined to the route's corridor, then the last one to the goal
+     *
+     * @return the path, or null if a stretch cannot be refined inside the corridor
      */
-    private int[] getDirectionOrder(int bestDirection) {
-        int[] order = new int[NUM_DIRECTIONS];
-
-        order[0] = bestDirection;
-        for (int i = 1; i < NUM_DIRECTIONS; i++) {
-            int offset = (i + 1) / 2;
-            if (i % 2 == 1) {
-                order[i] = (bestDirection + offset) % NUM_DIRECTIONS;
-            } else {
-                order[i] = (bestDirection - offset + NUM_DIRECTIONS) % NUM_DIRECTIONS;
+    private List<LngLatAlt> refineRoute(ClusterGraph.Route route, LngLatAlt start, LngLatAlt goal,
+                                        GoalTest goalTest, Airspace airspace, SearchBudget budget,
+                                        SearchStats stats) {
+        Airspace corridor = route.corridor(airspace);
+        LatticeAStar engine = latticeWorkspace();
+        double radiusSquared = STEP_SIZE * STEP_SIZE;
+
+        List<LngLatAlt> path = new ArrayList<>();
+        path.add(new LngLatAlt(start.getLng(), start.getLat(), null));
+        int expansions = 0;
+
+        for (int i = 0; i <= route.getWaypointCount(); i++) {
+            LngLatAlt from = path.getLast();
+            boolean last = i == route.getWaypointCount();
+            LngLatAlt to = last ? goal : new LngLatAlt(route.waypointX(i), route.waypointY(i), null);
+            double toLng = to.getLng();
+            double toLat = to.getLat();
+
+            List<LngLatAlt> stretch = engine.search(from.getLng(), from.getLat(), toLng, toLat,
+                    LatticeSteps.directionOrder(calculateBestDirection(from, to)), corridor,
+                    last ? goalTest : (lng, lat) -> (lng - toLng) * (lng - toLng) + (lat - toLat) * (lat - toLat) <= radiusSquared,
+                    null, budget, MAX_ITERATIONS);
+            expansions += engine.getExpansions();
+            stats.addRun(engine.getExpansions(), engine.getPeakOpenSize(), engine.getClosedCount());
+            if (stretch == null) {
+                return null;
             }
+            path.addAll(stretch.subList(1, stretch.size()));
         }
 
-        return order;
+        logger.info("Path found through {} cluster entrances in {} iterations, {} moves",
+                route.getWaypointCount(), expansions, path.size() - 1);
+        return path;
     }
 
     /**
-     * Convert LngLatAlt list to LngLat list for RegionService
+     * Run the anytime search for findPathWithinBudget once the cache has missed
      */
-    private List<LngLat> convertToLngLat(List<LngLatAlt> vertices) {
-        if (vertices == null || vertices.isEmpty()) {
-            return null;
+    private AnytimePath searchWithinBudget(LngLatAlt start, LngLatAlt goal, ZoneSnapshot snapshot,
+                                           GoalTest goalTest, SearchBudget budget, SearchStats stats) {
+        double goalLng = goal.getLng();
+        double goalLat = goal.getLat();
+        Airspace airspace = stats.count(snapshot.getAirspace());
+        if (airspace.isBlocked(start.getLng(), start.getLat())) {
+            logger.warn("Start position is in restricted area");
+            return AnytimePath.none(true, 0);
+        }
+        if (airspace.isBlocked(goalLng, goalLat)) {
+            logger.warn("Goal position is in restricted area");
+            return AnytimePath.none(true, 0);
+        }
+        if (isWalledOff(snapshot, start.getLng(), start.getLat(), goalLng, goalLat)) {
+            logger.warn("Goal position is walled off from the start by restricted areas");
+            return AnytimePath.none(true, 0);
         }
 
-        List<LngLat> result = new ArrayList<>(vertices.size());
-        for (LngLatAlt vertex : vertices) {
-            if (vertex != null && vertex.getLng() != null && vertex.getLat() != null) {
-                result.add(new LngLat(vertex.getLng(), vertex.getLat()));
-            }
+        RestartingLatticeAStar engine = ANYTIME_WORKSPACE.get();
+        engine.setNodeLimit(maxSearchNodes);
+        AnytimePath result = engine.search(start.getLng(), start.getLat(), goalLng, goalLat,
+                LatticeSteps.directionOrder(calculateBestDirection(start, goal)), airspace, goalTest, budget, MAX_ITERATIONS);
+        stats.addRun(result.getExpansions(), engine.getPeakOpenSize(), engine.getClosedCount());
+        if (!result.isComplete()) {
+            stats.limitReached();
+        }
+
+        if (!result.isFound()) {
+            logger.warn("No path found after {} iterations{}", result.getExpansions(),
+                    result.isComplete() ? "" : engine.isNodeLimitReached() ? " (node limit reached)" : " (budget exhausted)");
+            return result;
         }
+
+        logger.info("Path found in {} iterations, {} moves, at most {} times the shortest{}",
+                result.getExpansions(), result.getPath().size() - 1, result.getSuboptimalityBound(),
+                result.isComplete() ? "" : " (budget exhausted)");
         return result;
     }
 
     /**
-     * Reconstruct path from A* result
+     * Lattice search between two points of an already prepared airspace, for path repair
      */
-    private List<LngLatAlt> reconstructPath(Node endNode) {
-        List<LngLatAlt> path = new ArrayList<>();
-        Node current = endNode;
-
-        while (current != null) {
-            path.add(current.position);
-            current = current.parent;
+    private List<LngLatAlt> findLeg(double fromLng, double fromLat, double toLng, double toLat, ZoneSnapshot snapshot) {
+        Airspace airspace = snapshot.getAirspace();
+        if (airspace.isBlocked(toLng, toLat) || isWalledOff(snapshot, fromLng, fromLat, toLng, toLat)) {
+            return null;
         }
 
-        Collections.reverse(path);
-        return path;
+        int bestDirection = calculateBestDirection(new LngLatAlt(fromLng, fromLat, null), new LngLatAlt(toLng, toLat, null));
+        return latticeWorkspace().search(fromLng, fromLat, toLng, toLat, LatticeSteps.directionOrder(bestDirection),
+                airspace, goalTest(toLng, toLat), MAX_ITERATIONS);
     }
 
     /**
-     * Create unique key for position (for HashMap/Set)
+     * Whether the snapshot's free-space components prove that no flight from the start ends
+     * close to the goal, which is answered without searching. Never waits for the components:
+     * until the background task has labelled them every goal may be reached
      */
-    private String positionKey(LngLatAlt pos) {
-        if (pos == null || pos.getLng() == null || pos.getLat() == null) {
-            logger.warn("Cannot create position key for invalid position: {}", pos);
-            return "invalid-" + System.nanoTime();
-        }
+    private boolean isWalledOff(ZoneSnapshot snapshot, double startLng, double startLat, double goalLng, double goalLat) {
+        FreeSpaceComponents components = snapshot.getComponents();
+        return components != null
+                && !components.mayReach(startLng, startLat, goalLng, goalLat, LatticeAStar.goalRadius(goalLat));
+    }
 
-        long lngKey = Math.round(pos.getLng() / STEP_SIZE);
-        long latKey = Math.round(pos.getLat() / STEP_SIZE);
-        return lngKey + "," + latKey;
+    /**
+     * @return this thread's lattice workspace, capped at the configured node limit
+     */
+    private LatticeAStar latticeWorkspace() {
+        LatticeAStar engine = LATTICE_WORKSPACE.get();
+        engine.setNodeLimit(maxSearchNodes);
+        return engine;
     }
 
     /**
-     * Check if line segment intersects polygon
+     * @return the zones' bounding boxes as {@code minLng, minLat, maxLng, maxLat} quadruples
      */
-    private boolean lineIntersectsPolygon(LngLatAlt from, LngLatAlt to, List<LngLat> vertices) {
-        if (vertices == null || vertices.size() < 3) {
-            return false;
+    private static double[] boundingBoxes(List<RestrictedArea> zones) {
+        if (zones == null) {
+            return new double[0];
         }
 
-        if (regionService.isInside(vertices, from.getLng(), from.getLat()) ||
-                regionService.isInside(vertices, to.getLng(), to.getLat())) {
-            return true;
+        double[] boxes = new double[zones.size() * 4];
+        int count = 0;
+        for (RestrictedArea zone : zones) {
+            if (zone == null || zone.getVertices() == null || zone.getVertices().isEmpty()) {
+                continue;
+            }
+            double minLng = Double.POSITIVE_INFINITY, minLat = Double.POSITIVE_INFINITY;
+            double maxLng = Double.NEGATIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+            for (LngLatAlt vertex : zone.getVertices()) {
+                minLng = Math.min(minLng, vertex.getLng());
+                minLat = Math.min(minLat, vertex.getLat());
+                maxLng = Math.max(maxLng, vertex.getLng());
+                maxLat = Math.max(maxLat, vertex.getLat());
+            }
+            boxes[count++] = minLng;
+            boxes[count++] = minLat;
+            boxes[count++] = maxLng;
+            boxes[count++] = maxLat;
         }
+        return Arrays.copyOf(boxes, count);
+    }
 
-        int n = vertices.size();
-        for (int i = 0; i < n; i++) {
-            LngLat v1 = vertices.get(i);
-            LngLat v2 = vertices.get((i + 1) % n);
+    /**
+     * Closeness to a fixed goal, with cos(latitude) taken once for the equirectangular kernel
+     */
+    private GoalTest goalTest(double goalLng, double goalLat) {
+        if (distanceKernel == DistanceKernel.EQUIRECTANGULAR) {
+            return EquirectangularDistance.around(goalLng, goalLat)::isClose;
+        }
+        return (lng, lat) -> distanceService.computeCloseness(lng, lat, goalLng, goalLat);
+    }
 
-            if (segmentsIntersect(from, to, v1, v2)) {
-                return true;
-            }
+    /**
+     * Distance to a fixed goal, as the object-based A* heuristic
+     */
+    private DoubleBinaryOperator distanceToGoal(double goalLng, double goalLat) {
+        if (distanceKernel == DistanceKernel.EQUIRECTANGULAR) {
+            return EquirectangularDistance.around(goalLng, goalLat)::distance;
         }
+        return (lng, lat) -> distanceService.computeDistance(lng, lat, goalLng, goalLat);
+    }
 
-        return false;
+    private boolean isClose(double lng, double lat, double targetLng, double targetLat) {
+        if (distanceKernel == DistanceKernel.EQUIRECTANGULAR) {
+            return EquirectangularDistance.isClose(lng, lat, targetLng, targetLat);
+        }
+        return distanceService.computeCloseness(lng, lat, targetLng, targetLat);
     }
 
     /**
-     * Check if two line segments intersect
+     * Calculate the best direction (0-15) from start toward goal
      */
-    private boolean segmentsIntersect(LngLatAlt p1, LngLatAlt p2, LngLat p3, LngLat p4) {
-        double d1 = direction(p3.getLng(), p3.getLat(), p4.getLng(), p4.getLat(),
-                p1.getLng(), p1.getLat());
-        double d2 = direction(p3.getLng(), p3.getLat(), p4.getLng(), p4.getLat(),
-                p2.getLng(), p2.getLat());
-        double d3 = direction(p1.getLng(), p1.getLat(), p2.getLng(), p2.getLat(),
-                p3.getLng(), p3.getLat());
-        double d4 = direction(p1.getLng(), p1.getLat(), p2.getLng(), p2.getLat(),
-                p4.getLng(), p4.getLat());
-
-        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) &&
-                ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
-            return true;
-        }
+    private int calculateBestDirection(LngLatAlt from, LngLatAlt to) {
+        double dLng = to.getLng() - from.getLng();
+        double dLat = to.getLat() - from.getLat();
 
-        if (d1 == 0 && onSegment(p3.getLng(), p3.getLat(), p4.getLng(), p4.getLat(),
-                p1.getLng(), p1.getLat())) return true;
-        if (d2 == 0 && onSegment(p3.getLng(), p3.getLat(), p4.getLng(), p4.getLat(),
-                p2.getLng(), p2.getLat())) return true;
-        if (d3 == 0 && onSegment(p1.getLng(), p1.getLat(), p2.getLng(), p2.getLat(),
-                p3.getLng(), p3.getLat())) return true;
-        if (d4 == 0 && onSegment(p1.getLng(), p1.getLat(), p2.getLng(), p2.getLat(),
-                p4.getLng(), p4.getLat())) return true;
+        double angle = Math.atan2(dLat, dLng);
+        if (angle < 0) angle += 2 * Math.PI;
 
-        return false;
+        return (int) Math.round(angle / (Math.PI / 8)) % 16;
     }
 
     /**
-     * Calculate direction (cross product)
+     * Reconstruct path from A* result
      */
-    private double direction(double x1, double y1, double x2, double y2, double x3, double y3) {
-        return (x3 - x1) * (y2 - y1) - (x2 - x1) * (y3 - y1);
+    private List<LngLatAlt> reconstructPath(Node endNode) {
+        List<LngLatAlt> path = new ArrayList<>();
+        Node current = endNode;
+
+        while (current != null) {
+            path.add(current.position);
+            current = current.parent;
+        }
+
+        Collections.reverse(path);
+        return path;
     }
 
     /**
-     * Check if point (px, py) is on line segment (x1,y1)-(x2,y2)
+     * Create unique key for position (for HashMap/Set)
      */
-    private boolean onSegment(double x1, double y1, double x2, double y2, double px, double py) {
-        return px >= Math.min(x1, x2) && px <= Math.max(x1, x2) &&
-                py >= Math.min(y1, y2) && py <= Math.max(y1, y2);
+    private String positionKey(LngLatAlt pos) {
+        if (pos == null || pos.getLng() == null || pos.getLat() == null) {
+            logger.warn("Cannot create position key for invalid position: {}", pos);
+            return "invalid-" + System.nanoTime();
+        }
+
+        long lngKey = Math.round(pos.getLng() / STEP_SIZE);
+        long latKey = Math.round(pos.getLat() / STEP_SIZE);
+        return lngKey + "," + latKey;
     }
 
     /**
@@ -1,5 +1,7 @@
 package org.example.cw3ilp.service;
 import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.service.geometry.ColumnKernels;
+import org.example.cw3ilp.service.geometry.PreparedPolygon;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -15,6 +17,9 @@ import java.util.List;
 @Service
 public class RegionService {
 
+    /** Batch kernels; SIMD when the JVM runs with the vector module */
+    private final ColumnKernels kernels = ColumnKernels.preferred();
+
     /**
      * @param vertices a list of {@link LngLat} objects representing the polygon's vertices.
      *                 The last vertex should close the polygon by connecting with the starting vertex.
@@ -49,4 +54,36 @@ public class RegionService {
         // if counter odd, point is inside
         return counter % 2 == 1;
     }
+
+    /**
+     * Ray-cast against a {@link PreparedPolygon}. Same edges and result as
+     * {@link #isInside(List, double, double)} on the equivalent vertex list,
+     * without touching any objects, and testing only the edges that span the
+     * point's latitude. The vertex-list form stays as the reference implementation.
+     *
+     * @param polygon the prepared polygon; its last vertex should close the ring
+     * @param xp the longitude of the point
+     * @param yp the latitude of the point
+     * @return {@code true} if the point lies inside or on the border of the polygon.
+     * otherwise, {@code false}
+     */
+    public boolean isInside(PreparedPolygon polygon, double xp, double yp){
+        return polygon.contains(xp, yp);
+    }
+
+    /**
+     * Batch form of {@link #isInside(PreparedPolygon, double, double)} for the points
+     * ({@code xs[i]}, {@code ys[i]}), on {@link ColumnKernels#preferred()}
+     *
+     * @param out receives whether each point is inside; at least as long as the inputs
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void isInside(PreparedPolygon polygon, double[] xs, double[] ys, boolean[] out){
+        int n = xs.length;
+        if (ys.length != n || out.length < n) {
+            throw new IllegalArgumentException("Batch arrays must all have the same length");
+        }
+
+        kernels.contains(polygon, xs, ys, out, n);
+    }
 }
@@ -0,0 +1,122 @@
+package org.example.cw3ilp.service;
+
+import org.example.cw3ilp.api.model.DronesAvailability;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.pathfinding.CatchmentMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks the service point a delivery flies from, the same way for every planner.
+ * <p>
+ *     Once the service points' {@link CatchmentMap} is ready, the service point is the one
+ *     reaching the delivery in the fewest moves, read off the map. The map is filled in the
+ *     background and never waited for: until it is ready, and wherever it does not cover the
+ *     delivery, the nearest service point that restricted areas do not wall off from it is
+ *     used instead.
+ * </p>
+ */
+@Service
+public class ServicePointAssigner {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServicePointAssigner.class);
+
+    private final PathfinderService pathfinderService;
+    private final DistanceService distanceService;
+
+    public ServicePointAssigner(PathfinderService pathfinderService, DistanceService distanceService) {
+        this.pathfinderService = pathfinderService;
+        this.distanceService = distanceService;
+    }
+
+    /**
+     * Find the service point a delivery should fly from
+     *
+     * @return the service point, or null if none can reach the delivery
+     */
+    public DronesAvailability.ServicePoint assign(LngLatAlt deliveryLocation,
+                                                  List<DronesAvailability.ServicePoint> servicePoints,
+                                                  List<RestrictedArea> restrictedAreas) {
+        if (servicePoints == null || servicePoints.isEmpty()) {
+            return null;
+        }
+        return assign(deliveryLocation, servicePoints, restrictedAreas, readyCatchment(servicePoints, restrictedAreas));
+    }
+
+    /**
+     * Catchment map of the service points under the zones if it is already filled, otherwise
+     * start filling it in the background without waiting. Callers assigning many deliveries
+     * fetch it once and pass it to each {@link #assign(LngLatAlt, List, List, CatchmentMap) assign}
+     * call, so every delivery of a plan is assigned the same way
+     *
+     * @return the map, or null until it has been filled
+     */
+    public CatchmentMap readyCatchment(List<DronesAvailability.ServicePoint> servicePoints,
+                                       List<RestrictedArea> restrictedAreas) {
+        List<LngLatAlt> locations = new ArrayList<>(servicePoints.size());
+        for (DronesAvailability.ServicePoint sp : servicePoints) {
+            locations.add(sp.getLocation());
+        }
+
+        CatchmentMap catchment = pathfinderService.getCatchment(locations, restrictedAreas);
+        if (catchment == null) {
+            pathfinderService.prepareCatchment(locations, restrictedAreas);
+        }
+        return catchment;
+    }
+
+    /**
+     * Find the service point a delivery should fly from. With a catchment map this is the
+     * service point reaching the delivery in the fewest moves, read off the map. Otherwise it is
+     * the nearest one that restricted areas do not wall off from it: service points are tried
+     * nearest first, so reachability is only checked until one passes
+     *
+     * @param catchment the map from {@link #readyCatchment}, or null if it is not ready
+     * @return the service point, or null if none can reach the delivery
+     */
+    public DronesAvailability.ServicePoint assign(LngLatAlt deliveryLocation,
+                                                  List<DronesAvailability.ServicePoint> servicePoints,
+                                                  List<RestrictedArea> restrictedAreas,
+                                                  CatchmentMap catchment) {
+        if (deliveryLocation == null || deliveryLocation.getLng() == null || deliveryLocation.getLat() == null
+                || servicePoints == null || servicePoints.isEmpty()) {
+            return null;
+        }
+
+        logger.info("Finding closest service point for delivery at ({}, {})",
+                deliveryLocation.getLng(), deliveryLocation.getLat());
+
+        if (catchment != null && catchment.getOriginCount() == servicePoints.size()) {
+            int owner = catchment.ownerAt(deliveryLocation.getLng(), deliveryLocation.getLat());
+            // a cell can be reached next to a zone while the delivery itself lies inside it
+            if (owner != CatchmentMap.UNREACHED && !pathfinderService.isInNoFlyZone(deliveryLocation, restrictedAreas)) {
+                DronesAvailability.ServicePoint closest = servicePoints.get(owner);
+                logger.info("  -> CLOSEST: {} with {} moves (catchment map)", closest.getName(),
+                        catchment.movesAt(deliveryLocation.getLng(), deliveryLocation.getLat()));
+                return closest;
+            }
+        }
+
+        DronesAvailability.ServicePoint closest = distanceService.getServicePointIndex(servicePoints)
+                .nearest(deliveryLocation.getLng(), deliveryLocation.getLat(), sp -> {
+                    if (pathfinderService.isReachable(sp.getLocation(), deliveryLocation, restrictedAreas)) {
+                        return true;
+                    }
+                    logger.warn("  Service point {} cannot reach the delivery - restricted areas in the way",
+                            sp.getName());
+                    return false;
+                });
+
+        if (closest != null) {
+            logger.info("  -> CLOSEST: {} with distance {}", closest.getName(),
+                    pathfinderService.calculateDistance(closest.getLocation(), deliveryLocation));
+        }
+
+        return closest;
+    }
+}
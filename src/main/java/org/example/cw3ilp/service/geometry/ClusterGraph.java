@@ -0,0 +1,454 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.service.pathfinding.Airspace;
+import org.example.cw3ilp.service.pathfinding.LatticeAStar;
+import org.example.cw3ilp.service.pathfinding.LatticeDistance;
+import org.example.cw3ilp.service.pathfinding.LatticeKeys;
+import org.example.cw3ilp.service.pathfinding.LatticeSteps;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Abstract cluster graph for hierarchical (HPA*) path planning over one restricted-area snapshot.
+ * <p>
+ *     The plane is cut into square clusters of {@link #CLUSTER_STEPS} x {@link #CLUSTER_STEPS}
+ *     lattice steps. Along every border between two clusters the free stretches (sampled at
+ *     step resolution) each get one <i>entrance</i> in their middle, and inside a cluster the
+ *     entrances are connected by their move counts: the {@link LatticeDistance lattice norm} for
+ *     a cluster no zone touches, a lattice search confined to the cluster otherwise. Borders and
+ *     clusters are worked out on first use and kept for the life of the snapshot, so they are
+ *     invalidated together with it.
+ * </p>
+ * <p>
+ *     {@link #route} searches the entrance graph from start to goal. The resulting {@link Route}
+ *     lists the entrances to pass and offers the clusters it runs through, widened by one
+ *     cluster, as an {@link Airspace} that blocks everything else - step-resolution searches
+ *     then only refine the route from entrance to entrance inside that corridor.
+ *     Instances are thread-safe.
+ * </p>
+ */
+public final class ClusterGraph {
+
+    static final int CLUSTER_STEPS = 24;
+
+    /** Clusters searched beyond the box spanned by start and goal */
+    static final int SEARCH_MARGIN = 4;
+
+    private static final double STEP = LatticeKeys.STEP_SIZE;
+    private static final double CLUSTER_SIZE = CLUSTER_STEPS * STEP;
+
+    /** Expansion limit of a search inside one cluster - it has fewer nodes than this */
+    private static final int CLUSTER_SEARCH_LIMIT = 4 * (CLUSTER_STEPS + 2) * (CLUSTER_STEPS + 2);
+
+    /** Directions in index order; cluster searches are short enough not to need a better order */
+    private static final int[] DIRECTIONS = new int[LatticeSteps.NUM_DIRECTIONS];
+
+    static {
+        Arrays.setAll(DIRECTIONS, direction -> direction);
+    }
+
+    private static final ThreadLocal<LatticeAStar> CLUSTER_SEARCH = ThreadLocal.withInitial(LatticeAStar::new);
+
+    private final RestrictedAreaIndex index;
+
+    /** Entrances per border, keyed by cluster key and side (0 = east, 1 = north) */
+    private final Map<Long, List<Entrance>> borders = new ConcurrentHashMap<>();
+    private final Map<Long, Cluster> clusters = new ConcurrentHashMap<>();
+
+    public ClusterGraph(RestrictedAreaIndex index) {
+        this.index = index;
+    }
+
+    /**
+     * A point on a cluster border where the drone can cross into the neighbouring cluster
+     */
+    static final class Entrance {
+        final double x;
+        final double y;
+        final long[] clusterKeys;
+
+        Entrance(double x, double y, long firstCluster, long secondCluster) {
+            this.x = x;
+            this.y = y;
+            this.clusterKeys = new long[]{firstCluster, secondCluster};
+        }
+    }
+
+    /**
+     * The entrances on a cluster's four borders and the moves between each pair of them
+     */
+    static final class Cluster {
+        final List<Entrance> entrances;
+        final double[] moves;
+        final boolean clear;
+
+        Cluster(List<Entrance> entrances, double[] moves, boolean clear) {
+            this.entrances = entrances;
+            this.moves = moves;
+            this.clear = clear;
+        }
+
+        double moves(int from, int to) {
+            return moves[from * entrances.size() + to];
+        }
+    }
+
+    /**
+     * An abstract route: the entrances to pass from start to goal and the clusters in between
+     */
+    public static final class Route {
+        private final double[] xs;
+        private final double[] ys;
+        private final List<Long> clusters;
+
+        Route(List<Entrance> entrances, List<Long> clusters) {
+            this.xs = new double[entrances.size()];
+            this.ys = new double[entrances.size()];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = entrances.get(i).x;
+                ys[i] = entrances.get(i).y;
+            }
+            this.clusters = clusters;
+        }
+
+        public int getWaypointCount() {
+            return xs.length;
+        }
+
+        public double waypointX(int i) {
+            return xs[i];
+        }
+
+        public double waypointY(int i) {
+            return ys[i];
+        }
+
+        /**
+         * @return {@code airspace} with everything outside the route's clusters, widened by one, blocked
+         */
+        public Airspace corridor(Airspace airspace) {
+            return new Corridor(clusters, airspace);
+        }
+    }
+
+    /**
+     * Search the entrance graph from start to goal
+     *
+     * @param goalRadius widest distance at which the goal test passes
+     * @return the route, or {@code null} if start and goal are neighbouring clusters or
+     * no abstract route was found - the caller then searches without one
+     */
+    public Route route(double startX, double startY, double goalX, double goalY, double goalRadius) {
+        int startCx = cell(startX), startCy = cell(startY);
+        int goalCx = cell(goalX), goalCy = cell(goalY);
+        if (Math.abs(startCx - goalCx) <= 1 && Math.abs(startCy - goalCy) <= 1) {
+            return null;
+        }
+
+        int minCx = Math.min(startCx, goalCx) - SEARCH_MARGIN;
+        int minCy = Math.min(startCy, goalCy) - SEARCH_MARGIN;
+        int maxCx = Math.max(startCx, goalCx) + SEARCH_MARGIN;
+        int maxCy = Math.max(startCy, goalCy) + SEARCH_MARGIN;
+
+        long startCluster = LatticeKeys.pack(startCx, startCy);
+        long goalCluster = LatticeKeys.pack(goalCx, goalCy);
+        double[] toGoal = movesToPoint(cluster(goalCx, goalCy), goalCx, goalCy, goalX, goalY, goalRadius);
+        double[] fromStart = movesToPoint(cluster(startCx, startCy), startCx, startCy, startX, startY, STEP);
+
+        // A* over the entrances, guided by the lattice norm to the goal
+        Map<Entrance, Double> best = new HashMap<>();
+        Map<Entrance, Entrance> parent = new HashMap<>();
+        Map<Entrance, Long> via = new HashMap<>();
+        PriorityQueue<double[]> open = new PriorityQueue<>((a, b) -> Double.compare(a[0], b[0]));
+        List<Entrance> byId = new ArrayList<>();
+
+        Cluster first = cluster(startCx, startCy);
+        for (int i = 0; i < first.entrances.size(); i++) {
+            if (fromStart[i] < Double.POSITIVE_INFINITY) {
+                relax(first.entrances.get(i), null, startCluster, fromStart[i], goalX, goalY, best, parent, via, open, byId);
+            }
+        }
+
+        Entrance reached = null;
+        double bestTotal = Double.POSITIVE_INFINITY;
+        while (!open.isEmpty()) {
+            double[] top = open.poll();
+            if (top[0] >= bestTotal) {
+                break;
+            }
+            Entrance entrance = byId.get((int) top[2]);
+            double g = top[1];
+            if (g > best.get(entrance)) {
+                continue;
+            }
+
+            for (long clusterKey : entrance.clusterKeys) {
+                int cx = LatticeKeys.lngIndexOf(clusterKey);
+                int cy = LatticeKeys.latIndexOf(clusterKey);
+                if (cx < minCx || cx > maxCx || cy < minCy || cy > maxCy) {
+                    continue;
+                }
+
+                Cluster cluster = cluster(cx, cy);
+                int from = cluster.entrances.indexOf(entrance);
+                if (clusterKey == goalCluster && g + toGoal[from] < bestTotal) {
+                    bestTotal = g + toGoal[from];
+                    reached = entrance;
+                }
+                for (int to = 0; to < cluster.entrances.size(); to++) {
+                    double moves = cluster.moves(from, to);
+                    if (to != from && moves < Double.POSITIVE_INFINITY) {
+                        relax(cluster.entrances.get(to), entrance, clusterKey, g + moves, goalX, goalY,
+                                best, parent, via, open, byId);
+                    }
+                }
+            }
+        }
+
+        if (reached == null) {
+            return null;
+        }
+
+        List<Entrance> entrances = new ArrayList<>();
+        List<Long> route = new ArrayList<>();
+        route.add(goalCluster);
+        for (Entrance e = reached; e != null; e = parent.get(e)) {
+            entrances.add(e);
+            route.add(via.get(e));
+        }
+        Collections.reverse(entrances);
+        return new Route(entrances, route);
+    }
+
+    private static void relax(Entrance entrance, Entrance from, long viaCluster, double g, double goalX, double goalY,
+                              Map<Entrance, Double> best, Map<Entrance, Entrance> parent, Map<Entrance, Long> via,
+                              PriorityQueue<double[]> open, List<Entrance> byId) {
+        Double known = best.get(entrance);
+        if (known != null && known <= g) {
+            return;
+        }
+        best.put(entrance, g);
+        parent.put(entrance, from);
+        via.put(entrance, viaCluster);
+        byId.add(entrance);
+        double h = LatticeDistance.moves(goalX - entrance.x, goalY - entrance.y);
+        open.add(new double[]{g + h, g, byId.size() - 1});
+    }
+
+    /**
+     * @return number of clusters worked out so far
+     */
+    public int getClusterCount() {
+        return clusters.size();
+    }
+
+    Cluster cluster(int cx, int cy) {
+        return clusters.computeIfAbsent(LatticeKeys.pack(cx, cy), key -> buildCluster(cx, cy));
+    }
+
+    private Cluster buildCluster(int cx, int cy) {
+        List<Entrance> entrances = new ArrayList<>();
+        entrances.addAll(border(cx, cy, 0));
+        entrances.addAll(border(cx, cy, 1));
+        entrances.addAll(border(cx - 1, cy, 0));
+        entrances.addAll(border(cx, cy - 1, 1));
+
+        double minX = cx * CLUSTER_SIZE, minY = cy * CLUSTER_SIZE;
+        boolean clear = index.isBoxClear(minX, minY, minX + CLUSTER_SIZE, minY + CLUSTER_SIZE);
+
+        int n = entrances.size();
+        double[] moves = new double[n * n];
+        for (int a = 0; a < n; a++) {
+            for (int b = a + 1; b < n; b++) {
+                Entrance from = entrances.get(a);
+                Entrance to = entrances.get(b);
+                double cost = clear
+                        ? LatticeDistance.moves(to.x - from.x, to.y - from.y)
+                        : searchInside(cx, cy, from.x, from.y, to.x, to.y, STEP);
+                moves[a * n + b] = cost;
+                moves[b * n + a] = cost;
+            }
+        }
+        return new Cluster(entrances, moves, clear);
+    }
+
+    /**
+     * Moves from each entrance of the cluster to a point inside it
+     */
+    private double[] movesToPoint(Cluster cluster, int cx, int cy, double x, double y, double radius) {
+        double[] moves = new double[cluster.entrances.size()];
+        for (int i = 0; i < moves.length; i++) {
+            Entrance entrance = cluster.entrances.get(i);
+            moves[i] = cluster.clear
+                    ? Math.max(0, LatticeDistance.moves(x - entrance.x, y - entrance.y) - LatticeDistance.maxMoves(radius))
+                    : searchInside(cx, cy, entrance.x, entrance.y, x, y, radius);
+        }
+        return moves;
+    }
+
+    /**
+     * Lattice search confined to one cluster (and a step around it, so its borders are reachable)
+     */
+    private double searchInside(int cx, int cy, double fromX, double fromY, double toX, double toY, double radius) {
+        double minX = cx * CLUSTER_SIZE - STEP, minY = cy * CLUSTER_SIZE - STEP;
+        double maxX = minX + CLUSTER_SIZE + 2 * STEP, maxY = minY + CLUSTER_SIZE + 2 * STEP;
+        Airspace inside = new Airspace() {
+            @Override
+            public boolean isBlocked(double x, double y) {
+                return x < minX || x > maxX || y < minY || y > maxY || index.isBlocked(x, y);
+            }
+
+            @Override
+            public boolean isSegmentBlocked(double x1, double y1, double x2, double y2) {
+                return index.isSegmentBlocked(x1, y1, x2, y2);
+            }
+        };
+
+        double radiusSquared = radius * radius;
+        LatticeAStar engine = CLUSTER_SEARCH.get();
+        List<LngLatAlt> path = engine.search(fromX, fromY, toX, toY, DIRECTIONS, inside,
+                (x, y) -> (x - toX) * (x - toX) + (y - toY) * (y - toY) <= radiusSquared,
+                null, CLUSTER_SEARCH_LIMIT);
+        return path != null ? path.size() - 1 : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Entrances on the east (side 0) or north (side 1) border of a cluster
+     */
+    private List<Entrance> border(int cx, int cy, int side) {
+        long key = LatticeKeys.pack(cx, cy) * 2 + side;
+        return borders.computeIfAbsent(key, k -> side == 0
+                ? buildBorder(cx, cy, cx + 1, cy, (cx + 1) * CLUSTER_SIZE, cy * CLUSTER_SIZE, true)
+                : buildBorder(cx, cy, cx, cy + 1, cx * CLUSTER_SIZE, (cy + 1) * CLUSTER_SIZE, false));
+    }
+
+    /**
+     * One entrance in the middle of every free stretch of the border
+     */
+    private List<Entrance> buildBorder(int cx, int cy, int nx, int ny, double x0, double y0, boolean vertical) {
+        long here = LatticeKeys.pack(cx, cy);
+        long there = LatticeKeys.pack(nx, ny);
+        List<Entrance> entrances = new ArrayList<>(2);
+
+        int runStart = -1;
+        for (int k = 0; k < CLUSTER_STEPS; k++) {
+            boolean crossable = isCrossable(x0, y0, k, vertical);
+            if (runStart >= 0 && (!crossable || isAlongBlocked(x0, y0, k, vertical))) {
+                entrances.add(entrance(x0, y0, runStart, k - 1, vertical, here, there));
+                runStart = -1;
+            }
+            if (crossable && runStart < 0) {
+                runStart = k;
+            }
+        }
+        if (runStart >= 0) {
+            entrances.add(entrance(x0, y0, runStart, CLUSTER_STEPS - 1, vertical, here, there));
+        }
+        return entrances;
+    }
+
+    private static Entrance entrance(double x0, double y0, int firstSample, int lastSample, boolean vertical,
+                                     long here, long there) {
+        double offset = ((firstSample + lastSample) / 2.0 + 0.5) * STEP;
+        return vertical
+                ? new Entrance(x0, y0 + offset, here, there)
+                : new Entrance(x0 + offset, y0, here, there);
+    }
+
+    /**
+     * @return {@code true} if a move straight across the border at sample {@code k} is free
+     */
+    private boolean isCrossable(double x0, double y0, int k, boolean vertical) {
+        double offset = (k + 0.5) * STEP;
+        return vertical
+                ? !index.isSegmentBlocked(x0 - STEP / 2, y0 + offset, x0 + STEP / 2, y0 + offset)
+                : !index.isSegmentBlocked(x0 + offset, y0 - STEP / 2, x0 + offset, y0 + STEP / 2);
+    }
+
+    /**
+     * @return {@code true} if the border between sample {@code k - 1} and {@code k} is cut by a zone
+     */
+    private boolean isAlongBlocked(double x0, double y0, int k, boolean vertical) {
+        double from = (k - 0.5) * STEP;
+        double to = (k + 0.5) * STEP;
+        return vertical
+                ? index.isSegmentBlocked(x0, y0 + from, x0, y0 + to)
+                : index.isSegmentBlocked(x0 + from, y0, x0 + to, y0);
+    }
+
+    private static int cell(double coordinate) {
+        return (int) Math.floor(coordinate / CLUSTER_SIZE);
+    }
+
+    /**
+     * The clusters of an abstract route widened by one cluster, over the search airspace
+     */
+    static final class Corridor implements Airspace {
+        private final Airspace airspace;
+        private final int minCx;
+        private final int minCy;
+        private final int width;
+        private final int height;
+        private final boolean[] open;
+
+        Corridor(List<Long> route, Airspace airspace) {
+            this.airspace = airspace;
+            int loX = Integer.MAX_VALUE, loY = Integer.MAX_VALUE, hiX = Integer.MIN_VALUE, hiY = Integer.MIN_VALUE;
+            for (long key : route) {
+                loX = Math.min(loX, LatticeKeys.lngIndexOf(key));
+                loY = Math.min(loY, LatticeKeys.latIndexOf(key));
+                hiX = Math.max(hiX, LatticeKeys.lngIndexOf(key));
+                hiY = Math.max(hiY, LatticeKeys.latIndexOf(key));
+            }
+            this.minCx = loX - 1;
+            this.minCy = loY - 1;
+            this.width = hiX - loX + 3;
+            this.height = hiY - loY + 3;
+            this.open = new boolean[width * height];
+
+            for (long key : route) {
+                int x = LatticeKeys.lngIndexOf(key) - minCx;
+                int y = LatticeKeys.latIndexOf(key) - minCy;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        open[(y + dy) * width + x + dx] = true;
+                    }
+                }
+            }
+        }
+
+        int getClusterCount() {
+            int count = 0;
+            for (boolean cluster : open) {
+                if (cluster) {
+                    count++;
+                }
+            }
+            return count;
+        }
+
+        @Override
+        public boolean isBlocked(double lng, double lat) {
+            return !contains(lng, lat) || airspace.isBlocked(lng, lat);
+        }
+
+        @Override
+        public boolean isSegmentBlocked(double fromLng, double fromLat, double toLng, double toLat) {
+            return !contains(toLng, toLat) || airspace.isSegmentBlocked(fromLng, fromLat, toLng, toLat);
+        }
+
+        private boolean contains(double lng, double lat) {
+            int x = cell(lng) - minCx;
+            int y = cell(lat) - minCy;
+            return x >= 0 && x < width && y >= 0 && y < height && open[y * width + x];
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.example.cw3ilp.service.geometry;
+
+/**
+ * Batch kernels over {@code double[]} coordinate columns: distances for many position pairs
+ * and point-in-polygon for many points at once.
+ * <p>
+ *     {@link #preferred()} uses the {@code jdk.incubator.vector} SIMD implementation when it was
+ *     built (the {@code vector} Maven profile) and the JVM was started with
+ *     {@code --add-modules jdk.incubator.vector}, and the scalar loops otherwise. Point-in-polygon answers are the same either way. Vector distances use the
+ *     vector trigonometry and may differ from the scalar ones in the last bit or two.
+ * </p>
+ */
+public interface ColumnKernels {
+
+    /**
+     * Haversine distances, as {@code DistanceService.computeDistance}: {@code out[i]} is the
+     * distance from ({@code lng1[i]}, {@code lat1[i]}) to ({@code lng2[i]}, {@code lat2[i]}) in degrees
+     *
+     * @param n number of pairs, starting at index 0
+     */
+    void haversine(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int n);
+
+    /**
+     * Equirectangular distances with the cosine taken at each pair's mean latitude, as
+     * {@code EquirectangularDistance.distance}
+     *
+     * @param n number of pairs, starting at index 0
+     */
+    void equirectangular(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int n);
+
+    /**
+     * {@link PreparedPolygon#contains} for the points ({@code xs[i]}, {@code ys[i]})
+     *
+     * @param n number of points, starting at index 0
+     */
+    void contains(PreparedPolygon polygon, double[] xs, double[] ys, boolean[] out, int n);
+
+    /**
+     * @return {@code true} for the SIMD implementation
+     */
+    boolean isVectorized();
+
+    /**
+     * @return the plain loops, always available
+     */
+    static ColumnKernels scalar() {
+        return ScalarColumnKernels.INSTANCE;
+    }
+
+    /**
+     * @return the SIMD kernels if the vector module is loaded, the scalar ones otherwise
+     */
+    static ColumnKernels preferred() {
+        return VectorColumnKernelsLoader.PREFERRED;
+    }
+}
@@ -0,0 +1,253 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.service.pathfinding.LatticeKeys;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Connected components of the free airspace, labelled on step-sized cells laid out as in
+ * {@link NoFlyRaster}.
+ * <p>
+ *     A cell is blocked only if it lies wholly inside one zone - no edge of that zone touches
+ *     it and its centre is inside - so cells where zones overlap count as blocked too. Every
+ *     other cell is free and joined to all 8 neighbours. That over-approximates the free space
+ *     and its connections, so two positions in different components are genuinely separated:
+ *     no flight between them exists, whatever the moves. The converse does not hold; positions
+ *     in one component may still be unreachable through gaps narrower than a move.
+ * </p>
+ * <p>
+ *     The cells cover the zones' bounding box plus a one-cell margin of free cells, so the
+ *     border and everything outside it form the single unbounded component {@link #OUTSIDE}.
+ *     Other components are pockets enclosed by zones.
+ * </p>
+ */
+public final class FreeSpaceComponents {
+
+    /** Label of cells wholly inside a zone */
+    public static final int BLOCKED = -1;
+
+    /** Label of the free space around the zones, including everything outside the cells */
+    public static final int OUTSIDE = 0;
+
+    private static final double STEP = LatticeKeys.STEP_SIZE;
+
+    /** Cells are grown by this fraction of a step when testing edges, as in {@link NoFlyRaster} */
+    private static final double EDGE_TOLERANCE = 1e-6;
+
+    /** Refuse to label envelopes above this many cells (4 bytes per cell) */
+    static final long MAX_CELLS = 16L * 1024 * 1024;
+
+    private static final int UNSEEN = -2;
+
+    private final int minI;
+    private final int minJ;
+    private final int width;
+    private final int height;
+    private final int[] labels;
+    private final int componentCount;
+
+    private FreeSpaceComponents(int minI, int minJ, int width, int height, int[] labels, int componentCount) {
+        this.minI = minI;
+        this.minJ = minJ;
+        this.width = width;
+        this.height = height;
+        this.labels = labels;
+        this.componentCount = componentCount;
+    }
+
+    /**
+     * Label the free space around a set of zones
+     *
+     * @return the components, or {@code null} if there are no zones or the envelope has more
+     * than {@link #MAX_CELLS} cells
+     */
+    public static FreeSpaceComponents label(List<PreparedPolygon> polygons) {
+        if (polygons.isEmpty()) {
+            return null;
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (PreparedPolygon polygon : polygons) {
+            minX = Math.min(minX, polygon.getMinX());
+            minY = Math.min(minY, polygon.getMinY());
+            maxX = Math.max(maxX, polygon.getMaxX());
+            maxY = Math.max(maxY, polygon.getMaxY());
+        }
+        int minI = LatticeKeys.lngIndex(minX) - 1;
+        int minJ = LatticeKeys.latIndex(minY) - 1;
+        int width = LatticeKeys.lngIndex(maxX) + 1 - minI + 1;
+        int height = LatticeKeys.latIndex(maxY) + 1 - minJ + 1;
+        if ((long) width * height > MAX_CELLS) {
+            return null;
+        }
+
+        int[] labels = new int[width * height];
+        Arrays.fill(labels, UNSEEN);
+        for (PreparedPolygon polygon : polygons) {
+            markInterior(polygon, labels, minI, minJ, width);
+        }
+
+        int[] stack = new int[64];
+        // the margin is free and touches the unbounded outside
+        for (int di = 0; di < width; di++) {
+            stack = flood(labels, width, height, di, stack, OUTSIDE);
+            stack = flood(labels, width, height, (height - 1) * width + di, stack, OUTSIDE);
+        }
+        for (int dj = 0; dj < height; dj++) {
+            stack = flood(labels, width, height, dj * width, stack, OUTSIDE);
+            stack = flood(labels, width, height, dj * width + width - 1, stack, OUTSIDE);
+        }
+
+        int next = OUTSIDE + 1;
+        for (int cell = 0; cell < labels.length; cell++) {
+            if (labels[cell] == UNSEEN) {
+                stack = flood(labels, width, height, cell, stack, next++);
+            }
+        }
+
+        return new FreeSpaceComponents(minI, minJ, width, height, labels, next);
+    }
+
+    /**
+     * @return the component of the cell holding the position, or {@link #BLOCKED}
+     */
+    public int componentAt(double lng, double lat) {
+        return labelOf(LatticeKeys.lngIndex(lng), LatticeKeys.latIndex(lat));
+    }
+
+    /**
+     * Whether a flight from one position can end within {@code radius} of another. {@code false}
+     * is a proof: every cell reaching into that disc lies in another component than the start.
+     *
+     * @param radius planar distance (degrees) at which the destination counts as reached
+     */
+    public boolean mayReach(double fromLng, double fromLat, double toLng, double toLat, double radius) {
+        int from = componentAt(fromLng, fromLat);
+        if (from == BLOCKED) {
+            return false;
+        }
+
+        // a cell reaches into the disc if its centre is within the radius plus half its diagonal
+        double reach = radius + STEP * Math.sqrt(0.5);
+        double reachSquared = reach * reach;
+        int iFrom = LatticeKeys.lngIndex(toLng - reach), iTo = LatticeKeys.lngIndex(toLng + reach);
+        int jFrom = LatticeKeys.latIndex(toLat - reach), jTo = LatticeKeys.latIndex(toLat + reach);
+        for (int i = iFrom; i <= iTo; i++) {
+            double dx = i * STEP - toLng;
+            for (int j = jFrom; j <= jTo; j++) {
+                double dy = j * STEP - toLat;
+                if (dx * dx + dy * dy <= reachSquared && labelOf(i, j) == from) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return number of components, {@link #OUTSIDE} included
+     */
+    public int getComponentCount() {
+        return componentCount;
+    }
+
+    private int labelOf(int i, int j) {
+        int di = i - minI;
+        int dj = j - minJ;
+        if (di < 0 || dj < 0 || di >= width || dj >= height) {
+            return OUTSIDE;
+        }
+        return labels[dj * width + di];
+    }
+
+    /**
+     * Mark the cells lying wholly inside one polygon: those its edges do not touch whose
+     * centre is inside it
+     */
+    private static void markInterior(PreparedPolygon polygon, int[] labels, int minI, int minJ, int width) {
+        int iFrom = LatticeKeys.lngIndex(polygon.getMinX()), iTo = LatticeKeys.lngIndex(polygon.getMaxX());
+        int jFrom = LatticeKeys.latIndex(polygon.getMinY()), jTo = LatticeKeys.latIndex(polygon.getMaxY());
+        int boxWidth = iTo - iFrom + 1;
+        boolean[] touched = new boolean[boxWidth * (jTo - jFrom + 1)];
+
+        double half = STEP / 2 + STEP * EDGE_TOLERANCE;
+        for (int e = 0; e < polygon.getEdgeCount(); e++) {
+            double x1 = polygon.edgeX1(e), y1 = polygon.edgeY1(e);
+            double x2 = polygon.edgeX2(e), y2 = polygon.edgeY2(e);
+            int eiFrom = Math.max(iFrom, LatticeKeys.lngIndex(Math.min(x1, x2)) - 1);
+            int eiTo = Math.min(iTo, LatticeKeys.lngIndex(Math.max(x1, x2)) + 1);
+            int ejFrom = Math.max(jFrom, LatticeKeys.latIndex(Math.min(y1, y2)) - 1);
+            int ejTo = Math.min(jTo, LatticeKeys.latIndex(Math.max(y1, y2)) + 1);
+            for (int i = eiFrom; i <= eiTo; i++) {
+                double cx = i * STEP;
+                for (int j = ejFrom; j <= ejTo; j++) {
+                    double cy = j * STEP;
+                    if (Segments.touchesBox(x1, y1, x2, y2, cx - half, cy - half, cx + half, cy + half)) {
+                        touched[(j - jFrom) * boxWidth + (i - iFrom)] = true;
+                    }
+                }
+            }
+        }
+
+        for (int j = jFrom; j <= jTo; j++) {
+            for (int i = iFrom; i <= iTo; i++) {
+                if (!touched[(j - jFrom) * boxWidth + (i - iFrom)] && contains(polygon, i * STEP, j * STEP)) {
+                    labels[(j - minJ) * width + (i - minI)] = BLOCKED;
+                }
+            }
+        }
+    }
+
+    /**
+     * Even-odd ray cast over the polygon's edges, as in {@code RegionService.isInside}
+     */
+    private static boolean contains(PreparedPolygon polygon, double xp, double yp) {
+        boolean inside = false;
+        for (int e = 0; e < polygon.getEdgeCount(); e++) {
+            double y1 = polygon.edgeY1(e);
+            double y2 = polygon.edgeY2(e);
+            if ((yp < y1) != (yp < y2)) {
+                double x1 = polygon.edgeX1(e);
+                double xIntersection = x1 + ((yp - y1) / (y2 - y1) * (polygon.edgeX2(e) - x1));
+                if (xIntersection > xp) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Give {@code label} to the unseen cell and every unseen cell 8-connected to it
+     *
+     * @return the work stack, possibly grown
+     */
+    private static int[] flood(int[] labels, int width, int height, int seed, int[] stack, int label) {
+        if (labels[seed] != UNSEEN) {
+            return stack;
+        }
+        labels[seed] = label;
+        stack[0] = seed;
+        int size = 1;
+
+        while (size > 0) {
+            int cell = stack[--size];
+            int di = cell % width;
+            int dj = cell / width;
+            for (int nj = Math.max(0, dj - 1); nj <= Math.min(height - 1, dj + 1); nj++) {
+                for (int ni = Math.max(0, di - 1); ni <= Math.min(width - 1, di + 1); ni++) {
+                    int neighbour = nj * width + ni;
+                    if (labels[neighbour] != UNSEEN) continue;
+                    labels[neighbour] = label;
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, stack.length * 2);
+                    }
+                    stack[size++] = neighbour;
+                }
+            }
+        }
+        return stack;
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.service.pathfinding.Airspace;
+import org.example.cw3ilp.service.pathfinding.LatticeKeys;
+
+/**
+ * Occupancy bitmap of a restricted-area snapshot at drone-step resolution.
+ * <p>
+ *     Cell (i, j) is the square of side {@link LatticeKeys#STEP_SIZE} centred on lattice
+ *     point (i * STEP, j * STEP), so a position falls in the same cell as its lattice key.
+ *     Each cell is classified once:
+ * </p>
+ * <ul>
+ *     <li><b>boundary</b> - a zone edge touches the cell; queries fall back to the exact index</li>
+ *     <li><b>blocked</b> - the whole cell lies inside a zone</li>
+ *     <li><b>clear</b> - the whole cell lies outside every zone</li>
+ * </ul>
+ * <p>
+ *     The bitmap covers the zones' bounding box plus a one-cell margin; everything outside it
+ *     is clear. Answers are identical to the {@link RestrictedAreaIndex} it was built from.
+ * </p>
+ */
+public final class NoFlyRaster implements Airspace {
+
+    private static final double STEP = LatticeKeys.STEP_SIZE;
+
+    /** Cells are grown by this fraction of a step when testing edges, to absorb rounding */
+    private static final double EDGE_TOLERANCE = 1e-6;
+
+    /** Refuse to rasterize envelopes above this many cells (~8 MB per bit layer) */
+    static final long MAX_CELLS = 64L * 1024 * 1024;
+
+    private final RestrictedAreaIndex exact;
+    private final int minI;
+    private final int minJ;
+    private final int width;
+    private final int height;
+    private final long[] blocked;
+    private final long[] boundary;
+
+    private NoFlyRaster(RestrictedAreaIndex exact, int minI, int minJ, int width, int height) {
+        this.exact = exact;
+        this.minI = minI;
+        this.minJ = minJ;
+        this.width = width;
+        this.height = height;
+        int words = (int) (((long) width * height + 63) >>> 6);
+        this.blocked = new long[words];
+        this.boundary = new long[words];
+    }
+
+    /**
+     * Rasterize an index. Returns {@code null} for an empty index or an envelope
+     * larger than {@link #MAX_CELLS}, in which case the index should be used directly.
+     */
+    public static NoFlyRaster build(RestrictedAreaIndex index) {
+        if (index.getPolygonCount() == 0) {
+            return null;
+        }
+
+        int minI = LatticeKeys.lngIndex(index.getMinX()) - 1;
+        int maxI = LatticeKeys.lngIndex(index.getMaxX()) + 1;
+        int minJ = LatticeKeys.latIndex(index.getMinY()) - 1;
+        int maxJ = LatticeKeys.latIndex(index.getMaxY()) + 1;
+        long cells = (long) (maxI - minI + 1) * (maxJ - minJ + 1);
+        if (cells > MAX_CELLS) {
+            return null;
+        }
+
+        NoFlyRaster raster = new NoFlyRaster(index, minI, minJ, maxI - minI + 1, maxJ - minJ + 1);
+        raster.markBoundaries();
+        raster.fillInteriors();
+        return raster;
+    }
+
+    /**
+     * @return approximate heap footprint of the bit layers in bytes
+     */
+    public long getSizeBytes() {
+        return (blocked.length + boundary.length) * 8L;
+    }
+
+    public long getCellCount() {
+        return (long) width * height;
+    }
+
+    @Override
+    public boolean isBlocked(double lng, double lat) {
+        int cell = cellOf(LatticeKeys.lngIndex(lng), LatticeKeys.latIndex(lat));
+        if (cell < 0) {
+            return false;
+        }
+        if (test(boundary, cell)) {
+            return exact.isBlocked(lng, lat);
+        }
+        return test(blocked, cell);
+    }
+
+    @Override
+    public boolean isSegmentBlocked(double fromLng, double fromLat, double toLng, double toLat) {
+        int fromI = LatticeKeys.lngIndex(fromLng), toI = LatticeKeys.lngIndex(toLng);
+        int fromJ = LatticeKeys.latIndex(fromLat), toJ = LatticeKeys.latIndex(toLat);
+
+        int fromCell = cellOf(fromI, fromJ);
+        int toCell = cellOf(toI, toJ);
+        if ((fromCell >= 0 && !test(boundary, fromCell) && test(blocked, fromCell))
+                || (toCell >= 0 && !test(boundary, toCell) && test(blocked, toCell))) {
+            return true;
+        }
+
+        // Every cell under the segment's bounding box clear -> the move cannot touch a zone
+        boolean allClear = true;
+        for (int i = Math.min(fromI, toI); i <= Math.max(fromI, toI) && allClear; i++) {
+            for (int j = Math.min(fromJ, toJ); j <= Math.max(fromJ, toJ); j++) {
+                int cell = cellOf(i, j);
+                if (cell >= 0 && (test(boundary, cell) || test(blocked, cell))) {
+                    allClear = false;
+                    break;
+                }
+            }
+        }
+        return !allClear && exact.isSegmentBlocked(fromLng, fromLat, toLng, toLat);
+    }
+
+    private void markBoundaries() {
+        double grow = STEP * EDGE_TOLERANCE;
+        for (int e = 0; e < exact.getEdgeCount(); e++) {
+            double x1 = exact.edgeX1(e), y1 = exact.edgeY1(e);
+            double x2 = exact.edgeX2(e), y2 = exact.edgeY2(e);
+
+            int iFrom = LatticeKeys.lngIndex(Math.min(x1, x2)) - 1, iTo = LatticeKeys.lngIndex(Math.max(x1, x2)) + 1;
+            int jFrom = LatticeKeys.latIndex(Math.min(y1, y2)) - 1, jTo = LatticeKeys.latIndex(Math.max(y1, y2)) + 1;
+            for (int i = iFrom; i <= iTo; i++) {
+                for (int j = jFrom; j <= jTo; j++) {
+                    int cell = cellOf(i, j);
+                    if (cell < 0) continue;
+                    double cx = i * STEP, cy = j * STEP;
+                    double half = STEP / 2 + grow;
+                    if (Segments.touchesBox(x1, y1, x2, y2, cx - half, cy - half, cx + half, cy + half)) {
+                        set(boundary, cell);
+                    }
+                }
+            }
+        }
+    }
+
+    private void fillInteriors() {
+        for (int dj = 0; dj < height; dj++) {
+            double cy = (minJ + dj) * STEP;
+            for (int di = 0; di < width; di++) {
+                int cell = dj * width + di;
+                if (test(boundary, cell)) continue;
+                // no edge touches this cell, so its centre decides for the whole cell
+                if (exact.isBlocked((minI + di) * STEP, cy)) {
+                    set(blocked, cell);
+                }
+            }
+        }
+    }
+
+    private int cellOf(int i, int j) {
+        int di = i - minI;
+        int dj = j - minJ;
+        if (di < 0 || dj < 0 || di >= width || dj >= height) {
+            return -1;
+        }
+        return dj * width + di;
+    }
+
+    private static boolean test(long[] bits, int cell) {
+        return (bits[cell >>> 6] & (1L << cell)) != 0;
+    }
+
+    private static void set(long[] bits, int cell) {
+        bits[cell >>> 6] |= 1L << cell;
+    }
+}
@@ -0,0 +1,319 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Immutable, allocation-free form of one restricted area's outline.
+ * <p>
+ *     Vertices are kept exactly as listed (null vertices dropped, no ring closing), so
+ *     {@code RegionService.isInside} and {@link Segments#intersect} over the edges give
+ *     the same answers as they do for the {@code List<LngLat>} form. Edge {@code e}
+ *     runs from vertex {@code e} to vertex {@code (e + 1) % n} and is stored flat as
+ *     {@code x1, y1, x2, y2}.
+ * </p>
+ * <p>
+ *     {@link #contains} answers point queries from latitude slabs: the distinct vertex
+ *     latitudes cut the polygon into horizontal bands, and each band lists the edges that
+ *     overlap it. A query binary-searches its band and ray-casts only those edges, so it
+ *     costs O(log n + k) for the k edges at its latitude instead of O(n). Slabs are kept to
+ *     {@value #MAX_SLAB_ENTRIES_PER_EDGE} entries per edge on average; jagged outlines whose
+ *     edges cross many latitudes use every second, fourth, ... latitude as a bound instead,
+ *     so a band may also list some edges that miss the query's latitude.
+ * </p>
+ */
+public final class PreparedPolygon {
+
+    private static final int MAX_SLAB_ENTRIES_PER_EDGE = 32;
+
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] edges;
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    // Slab s covers latitudes [slabY[s], slabY[s + 1]), and its ray-cast edges are
+    // slabEdges[slabStart[s]] .. slabEdges[slabStart[s + 1] - 1]; slabY is null without slabs
+    private final double[] slabY;
+    private final int[] slabStart;
+    private final int[] slabEdges;
+
+    private PreparedPolygon(double[] xs, double[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+
+        int n = xs.length;
+        edges = new double[n * 4];
+        double loX = Double.POSITIVE_INFINITY, loY = Double.POSITIVE_INFINITY;
+        double hiX = Double.NEGATIVE_INFINITY, hiY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            int j = (i + 1) % n;
+            edges[i * 4] = xs[i];
+            edges[i * 4 + 1] = ys[i];
+            edges[i * 4 + 2] = xs[j];
+            edges[i * 4 + 3] = ys[j];
+
+            loX = Math.min(loX, xs[i]);
+            hiX = Math.max(hiX, xs[i]);
+            loY = Math.min(loY, ys[i]);
+            hiY = Math.max(hiY, ys[i]);
+        }
+        minX = loX;
+        minY = loY;
+        maxX = hiX;
+        maxY = hiY;
+
+        // distinct vertex latitudes bound the slabs (+ 0.0 folds -0.0 into 0.0, as the ray cast's < does);
+        // if that would take too many entries, every second, fourth, ... latitude is kept instead
+        double[] distinct = Arrays.stream(ys).map(y -> y + 0.0).sorted().distinct().toArray();
+        boolean finite = Arrays.stream(ys).allMatch(Double::isFinite);
+        double[] bounds = null;
+        long entries = 0;
+        for (int every = 1; finite && (distinct.length - 1) / every >= 1; every *= 2) {
+            double[] candidate = everyNth(distinct, every);
+            entries = slabEntries(candidate);
+            if (entries <= (long) MAX_SLAB_ENTRIES_PER_EDGE * n) {
+                bounds = candidate;
+                break;
+            }
+        }
+
+        if (bounds == null) {
+            slabY = null;
+            slabStart = null;
+            slabEdges = null;
+            return;
+        }
+
+        int slabs = bounds.length - 1;
+        int[] start = new int[slabs + 1];
+        for (int e = 0; e < n - 1; e++) {
+            for (int slab = firstSlab(bounds, e); slab < lastSlab(bounds, e); slab++) {
+                start[slab + 1]++;
+            }
+        }
+        for (int slab = 0; slab < slabs; slab++) {
+            start[slab + 1] += start[slab];
+        }
+        int[] fill = Arrays.copyOf(start, slabs);
+        int[] slabbed = new int[(int) entries];
+        for (int e = 0; e < n - 1; e++) {
+            for (int slab = firstSlab(bounds, e); slab < lastSlab(bounds, e); slab++) {
+                slabbed[fill[slab]++] = e;
+            }
+        }
+        slabY = bounds;
+        slabStart = start;
+        slabEdges = slabbed;
+    }
+
+    /**
+     * @return every {@code every}-th value, always including the last
+     */
+    private static double[] everyNth(double[] sorted, int every) {
+        double[] kept = new double[(sorted.length - 2) / every + 2];
+        for (int i = 0; i < kept.length - 1; i++) {
+            kept[i] = sorted[i * every];
+        }
+        kept[kept.length - 1] = sorted[sorted.length - 1];
+        return kept;
+    }
+
+    private long slabEntries(double[] bounds) {
+        long entries = 0;
+        for (int e = 0; e < xs.length - 1; e++) {
+            entries += lastSlab(bounds, e) - firstSlab(bounds, e);
+        }
+        return entries;
+    }
+
+    /**
+     * @return the slab holding the edge's lower end
+     */
+    private int firstSlab(double[] bounds, int edge) {
+        int slab = Arrays.binarySearch(bounds, Math.min(ys[edge], ys[edge + 1]) + 0.0);
+        return slab >= 0 ? slab : -slab - 2;
+    }
+
+    /**
+     * @return the bound at or above the edge's upper end, one past its last slab
+     */
+    private int lastSlab(double[] bounds, int edge) {
+        int slab = Arrays.binarySearch(bounds, Math.max(ys[edge], ys[edge + 1]) + 0.0);
+        return slab >= 0 ? slab : -slab - 1;
+    }
+
+    /**
+     * @return the prepared outline, or {@code null} if the area has no usable vertices
+     */
+    public static PreparedPolygon of(RestrictedArea zone) {
+        if (zone == null || zone.getVertices() == null || zone.getVertices().isEmpty()) {
+            return null;
+        }
+
+        List<LngLatAlt> vertices = zone.getVertices();
+        double[] xs = new double[vertices.size()];
+        double[] ys = new double[vertices.size()];
+        int n = 0;
+        for (LngLatAlt vertex : vertices) {
+            if (vertex != null && vertex.getLng() != null && vertex.getLat() != null) {
+                xs[n] = vertex.getLng();
+                ys[n] = vertex.getLat();
+                n++;
+            }
+        }
+        return new PreparedPolygon(Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+
+    /**
+     * @return the prepared outline of a region's vertex list, or {@code null} if it has no usable vertices
+     */
+    public static PreparedPolygon of(List<LngLat> vertices) {
+        if (vertices == null || vertices.isEmpty()) {
+            return null;
+        }
+
+        double[] xs = new double[vertices.size()];
+        double[] ys = new double[vertices.size()];
+        int n = 0;
+        for (LngLat vertex : vertices) {
+            if (vertex != null && vertex.getLng() != null && vertex.getLat() != null) {
+                xs[n] = vertex.getLng();
+                ys[n] = vertex.getLat();
+                n++;
+            }
+        }
+        return new PreparedPolygon(Arrays.copyOf(xs, n), Arrays.copyOf(ys, n));
+    }
+
+    public int getVertexCount() {
+        return xs.length;
+    }
+
+    public double x(int vertex) {
+        return xs[vertex];
+    }
+
+    public double y(int vertex) {
+        return ys[vertex];
+    }
+
+    public int getEdgeCount() {
+        return xs.length;
+    }
+
+    public double edgeX1(int edge) {
+        return edges[edge * 4];
+    }
+
+    public double edgeY1(int edge) {
+        return edges[edge * 4 + 1];
+    }
+
+    public double edgeX2(int edge) {
+        return edges[edge * 4 + 2];
+    }
+
+    public double edgeY2(int edge) {
+        return edges[edge * 4 + 3];
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    /**
+     * Even-odd ray cast of {@code RegionService.isInside}: the same edges (every edge but the
+     * closing one) and the same arithmetic, so the answers are identical, but only the edges
+     * spanning {@code yp} are tested.
+     *
+     * @return {@code true} if the point lies inside or on the border of the polygon
+     */
+    public boolean contains(double xp, double yp) {
+        // no edge can straddle a latitude outside the bounding box (or NaN)
+        if (!(yp >= minY && yp < maxY)) {
+            return false;
+        }
+        if (slabY == null) {
+            return scan(xp, yp);
+        }
+
+        int slab = Arrays.binarySearch(slabY, yp + 0.0);
+        if (slab < 0) {
+            slab = -slab - 2;
+        }
+
+        int counter = 0;
+        for (int k = slabStart[slab]; k < slabStart[slab + 1]; k++) {
+            int e = slabEdges[k];
+            if ((yp < edgeY1(e)) != (yp < edgeY2(e)) && crossesRightOf(e, xp, yp)) {
+                counter++;
+            }
+        }
+        return counter % 2 == 1;
+    }
+
+    /**
+     * Bulk {@link #contains} for the points ({@code lng[i]}, {@code lat[i]})
+     *
+     * @param out bit {@code i} is set if point {@code i} is inside and cleared otherwise
+     * @throws IllegalArgumentException if the arrays differ in length
+     */
+    public void containsAll(double[] lng, double[] lat, BitSet out) {
+        if (lng.length != lat.length) {
+            throw new IllegalArgumentException("Longitude and latitude arrays must have the same length");
+        }
+        for (int i = 0; i < lng.length; i++) {
+            out.set(i, contains(lng[i], lat[i]));
+        }
+    }
+
+    private boolean scan(double xp, double yp) {
+        int counter = 0;
+        for (int e = 0; e < xs.length - 1; e++) {
+            double y1 = edgeY1(e);
+            double y2 = edgeY2(e);
+            if ((yp < y1) != (yp < y2) && crossesRightOf(e, xp, yp)) {
+                counter++;
+            }
+        }
+        return counter % 2 == 1;
+    }
+
+    /**
+     * @return {@code true} if the edge, which must span {@code yp}, crosses that latitude east of {@code xp}
+     */
+    private boolean crossesRightOf(int edge, double xp, double yp) {
+        double x1 = edgeX1(edge);
+        double y1 = edgeY1(edge);
+        double xIntersection = x1 + ((yp - y1) / (edgeY2(edge) - y1) * (edgeX2(edge) - x1));
+        return xIntersection > xp;
+    }
+
+    /**
+     * @return {@code true} if the box (x1,y1)-(x2,y2), in any corner order, overlaps the bounding box
+     */
+    public boolean boundsOverlap(double x1, double y1, double x2, double y2) {
+        return Math.max(x1, x2) >= minX && Math.min(x1, x2) <= maxX
+                && Math.max(y1, y2) >= minY && Math.min(y1, y2) <= maxY;
+    }
+}
@@ -0,0 +1,383 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.pathfinding.Airspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform-grid index over a restricted-area snapshot.
+ * <p>
+ *     Every polygon is registered in the grid cells its bounding box covers, and every
+ *     edge in the cells its own bounding box covers. A point query only ray-casts the
+ *     polygons registered in its cell, and a segment query only tests the edges registered
+ *     in the cells the segment spans - a drone move is far shorter than a cell, so that is
+ *     at most four cells.
+ * </p>
+ * <p>
+ *     Results match {@code RegionService.isInside} and an edge-by-edge {@link Segments}
+ *     test of every polygon, for closed polygons; {@code PathfinderService.isInNoFlyZone}
+ *     and {@code crossesNoFlyZone} are answered by this index. Open rings are closed by repeating the first vertex, and
+ *     polygons with fewer than three vertices are ignored.
+ *     Instances are immutable and safe to share between request threads.
+ * </p>
+ */
+public final class RestrictedAreaIndex implements Airspace {
+
+    /** Grid cells per polygon edge, before clamping to {@link #MAX_CELLS} */
+    private static final int CELLS_PER_EDGE = 4;
+    private static final int MAX_CELLS = 1 << 16;
+
+    // Polygons: closed rings in flat coordinate arrays, plus bounding boxes
+    private final double[][] ringX;
+    private final double[][] ringY;
+    private final double[] minX;
+    private final double[] minY;
+    private final double[] maxX;
+    private final double[] maxY;
+
+    // Non-degenerate edges of every polygon
+    private final double[] edgeX1;
+    private final double[] edgeY1;
+    private final double[] edgeX2;
+    private final double[] edgeY2;
+
+    // Grid over the union of the polygon bounding boxes (CSR layout)
+    private final double originX;
+    private final double originY;
+    private final double cellWidth;
+    private final double cellHeight;
+    private final int columns;
+    private final int rows;
+    private final int[] cellPolygonStart;
+    private final int[] cellPolygons;
+    private final int[] cellEdgeStart;
+    private final int[] cellEdges;
+
+    private RestrictedAreaIndex(List<double[][]> rings) {
+        int polygonCount = rings.size();
+        ringX = new double[polygonCount][];
+        ringY = new double[polygonCount][];
+        minX = new double[polygonCount];
+        minY = new double[polygonCount];
+        maxX = new double[polygonCount];
+        maxY = new double[polygonCount];
+
+        double allMinX = Double.POSITIVE_INFINITY, allMinY = Double.POSITIVE_INFINITY;
+        double allMaxX = Double.NEGATIVE_INFINITY, allMaxY = Double.NEGATIVE_INFINITY;
+        int edgeCount = 0;
+
+        for (int p = 0; p < polygonCount; p++) {
+            ringX[p] = rings.get(p)[0];
+            ringY[p] = rings.get(p)[1];
+            minX[p] = min(ringX[p]);
+            maxX[p] = max(ringX[p]);
+            minY[p] = min(ringY[p]);
+            maxY[p] = max(ringY[p]);
+            allMinX = Math.min(allMinX, minX[p]);
+            allMaxX = Math.max(allMaxX, maxX[p]);
+            allMinY = Math.min(allMinY, minY[p]);
+            allMaxY = Math.max(allMaxY, maxY[p]);
+            edgeCount += ringX[p].length - 1;
+        }
+
+        // Flatten edges, skipping zero-length ones (e.g. the closing vertex repeated)
+        double[] x1 = new double[edgeCount], y1 = new double[edgeCount];
+        double[] x2 = new double[edgeCount], y2 = new double[edgeCount];
+        int edges = 0;
+        for (int p = 0; p < polygonCount; p++) {
+            for (int i = 0; i < ringX[p].length - 1; i++) {
+                if (ringX[p][i] == ringX[p][i + 1] && ringY[p][i] == ringY[p][i + 1]) continue;
+                x1[edges] = ringX[p][i];
+                y1[edges] = ringY[p][i];
+                x2[edges] = ringX[p][i + 1];
+                y2[edges] = ringY[p][i + 1];
+                edges++;
+            }
+        }
+        edgeX1 = Arrays.copyOf(x1, edges);
+        edgeY1 = Arrays.copyOf(y1, edges);
+        edgeX2 = Arrays.copyOf(x2, edges);
+        edgeY2 = Arrays.copyOf(y2, edges);
+
+        // Size the grid so there are a few cells per edge, keeping cells roughly square
+        if (polygonCount == 0) {
+            allMinX = allMinY = 0;
+            allMaxX = allMaxY = 1;
+        }
+        double width = Math.max(allMaxX - allMinX, 1e-9);
+        double height = Math.max(allMaxY - allMinY, 1e-9);
+        int targetCells = Math.max(1, Math.min(MAX_CELLS, edges * CELLS_PER_EDGE));
+        double cellSize = Math.sqrt(width * height / targetCells);
+        columns = Math.max(1, Math.min(MAX_CELLS, (int) Math.ceil(width / cellSize)));
+        rows = Math.max(1, Math.min(MAX_CELLS / columns, (int) Math.ceil(height / cellSize)));
+        originX = allMinX;
+        originY = allMinY;
+        cellWidth = width / columns;
+        cellHeight = height / rows;
+
+        int cellCount = columns * rows;
+
+        // Polygons by bounding box, edges by their own bounding box
+        int[][] polygonCells = bucket(cellCount, polygonCount, (p, cells) ->
+                forEachCell(minX[p], minY[p], maxX[p], maxY[p], cells));
+        cellPolygonStart = polygonCells[0];
+        cellPolygons = polygonCells[1];
+
+        int[][] edgeCells = bucket(cellCount, edges, (e, cells) ->
+                forEachCell(Math.min(edgeX1[e], edgeX2[e]), Math.min(edgeY1[e], edgeY2[e]),
+                        Math.max(edgeX1[e], edgeX2[e]), Math.max(edgeY1[e], edgeY2[e]), cells));
+        cellEdgeStart = edgeCells[0];
+        cellEdges = edgeCells[1];
+    }
+
+    /**
+     * Build an index for a restricted-area snapshot
+     */
+    public static RestrictedAreaIndex build(List<RestrictedArea> zones) {
+        List<double[][]> rings = new ArrayList<>();
+        if (zones != null) {
+            for (RestrictedArea zone : zones) {
+                double[][] ring = closedRing(zone);
+                if (ring != null) {
+                    rings.add(ring);
+                }
+            }
+        }
+        return new RestrictedAreaIndex(rings);
+    }
+
+    public int getPolygonCount() {
+        return ringX.length;
+    }
+
+    public int getEdgeCount() {
+        return edgeX1.length;
+    }
+
+    double getMinX() {
+        return originX;
+    }
+
+    double getMinY() {
+        return originY;
+    }
+
+    double getMaxX() {
+        return originX + columns * cellWidth;
+    }
+
+    double getMaxY() {
+        return originY + rows * cellHeight;
+    }
+
+    double edgeX1(int edge) {
+        return edgeX1[edge];
+    }
+
+    double edgeY1(int edge) {
+        return edgeY1[edge];
+    }
+
+    double edgeX2(int edge) {
+        return edgeX2[edge];
+    }
+
+    double edgeY2(int edge) {
+        return edgeY2[edge];
+    }
+
+    @Override
+    public boolean isBlocked(double lng, double lat) {
+        int cell = cellOf(lng, lat);
+        if (cell < 0) {
+            return false;
+        }
+
+        for (int i = cellPolygonStart[cell]; i < cellPolygonStart[cell + 1]; i++) {
+            int p = cellPolygons[i];
+            if (lng < minX[p] || lng > maxX[p] || lat < minY[p] || lat > maxY[p]) continue;
+            if (contains(ringX[p], ringY[p], lng, lat)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean isSegmentBlocked(double fromLng, double fromLat, double toLng, double toLat) {
+        if (isBlocked(fromLng, fromLat) || isBlocked(toLng, toLat)) {
+            return true;
+        }
+
+        double segMinX = Math.min(fromLng, toLng), segMaxX = Math.max(fromLng, toLng);
+        double segMinY = Math.min(fromLat, toLat), segMaxY = Math.max(fromLat, toLat);
+        if (segMaxX < originX || segMaxY < originY
+                || segMinX > originX + columns * cellWidth || segMinY > originY + rows * cellHeight) {
+            return false;
+        }
+
+        for (int row = row(segMinY); row <= row(segMaxY); row++) {
+            for (int col = column(segMinX); col <= column(segMaxX); col++) {
+                int cell = row * columns + col;
+                for (int i = cellEdgeStart[cell]; i < cellEdgeStart[cell + 1]; i++) {
+                    int e = cellEdges[i];
+                    if (Segments.intersect(fromLng, fromLat, toLng, toLat,
+                            edgeX1[e], edgeY1[e], edgeX2[e], edgeY2[e])) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return {@code true} if no zone edge touches the box and the box is not inside a zone,
+     * i.e. every point of the box is free and sees every other point of it
+     */
+    public boolean isBoxClear(double boxMinX, double boxMinY, double boxMaxX, double boxMaxY) {
+        if (isBlocked((boxMinX + boxMaxX) / 2, (boxMinY + boxMaxY) / 2)) {
+            return false;
+        }
+        if (boxMaxX < originX || boxMaxY < originY
+                || boxMinX > originX + columns * cellWidth || boxMinY > originY + rows * cellHeight) {
+            return true;
+        }
+
+        for (int row = row(boxMinY); row <= row(boxMaxY); row++) {
+            for (int col = column(boxMinX); col <= column(boxMaxX); col++) {
+                int cell = row * columns + col;
+                for (int i = cellEdgeStart[cell]; i < cellEdgeStart[cell + 1]; i++) {
+                    int e = cellEdges[i];
+                    if (Segments.touchesBox(edgeX1[e], edgeY1[e], edgeX2[e], edgeY2[e],
+                            boxMinX, boxMinY, boxMaxX, boxMaxY)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Even-odd ray cast over a closed ring, as in {@code RegionService.isInside}
+     */
+    static boolean contains(double[] xs, double[] ys, double xp, double yp) {
+        int counter = 0;
+        for (int i = 0; i < xs.length - 1; i++) {
+            double y1 = ys[i];
+            double y2 = ys[i + 1];
+            if ((yp < y1) != (yp < y2)) {
+                double x1 = xs[i];
+                double xIntersection = x1 + ((yp - y1) / (y2 - y1) * (xs[i + 1] - x1));
+                if (xIntersection > xp) {
+                    counter++;
+                }
+            }
+        }
+        return counter % 2 == 1;
+    }
+
+    /**
+     * @return the zone's vertices as {x[], y[]} with the ring closed, or {@code null} if unusable
+     */
+    static double[][] closedRing(RestrictedArea zone) {
+        if (zone == null || zone.getVertices() == null) {
+            return null;
+        }
+
+        List<LngLatAlt> vertices = zone.getVertices();
+        double[] xs = new double[vertices.size() + 1];
+        double[] ys = new double[vertices.size() + 1];
+        int n = 0;
+        for (LngLatAlt vertex : vertices) {
+            if (vertex != null && vertex.getLng() != null && vertex.getLat() != null) {
+                xs[n] = vertex.getLng();
+                ys[n] = vertex.getLat();
+                n++;
+            }
+        }
+        if (n == 0) {
+            return null;
+        }
+        if (xs[0] != xs[n - 1] || ys[0] != ys[n - 1]) {
+            xs[n] = xs[0];
+            ys[n] = ys[0];
+            n++;
+        }
+        // a closed ring needs at least three distinct corners
+        if (n < 4) {
+            return null;
+        }
+        return new double[][]{Arrays.copyOf(xs, n), Arrays.copyOf(ys, n)};
+    }
+
+    private int cellOf(double x, double y) {
+        double cx = (x - originX) / cellWidth;
+        double cy = (y - originY) / cellHeight;
+        if (cx < 0 || cy < 0 || cx > columns || cy > rows) {
+            return -1;
+        }
+        return Math.min((int) cy, rows - 1) * columns + Math.min((int) cx, columns - 1);
+    }
+
+    private void forEachCell(double x1, double y1, double x2, double y2, IntConsumer cells) {
+        for (int row = row(y1); row <= row(y2); row++) {
+            for (int col = column(x1); col <= column(x2); col++) {
+                cells.accept(row * columns + col);
+            }
+        }
+    }
+
+    /**
+     * Group items by grid cell in compressed-row form: items of cell c are
+     * {@code list[start[c]] .. list[start[c + 1] - 1]}
+     *
+     * @return {start, list}
+     */
+    private static int[][] bucket(int cellCount, int items, BiConsumer<Integer, IntConsumer> cellsOfItem) {
+        int[] start = new int[cellCount + 1];
+        for (int item = 0; item < items; item++) {
+            cellsOfItem.accept(item, cell -> start[cell + 1]++);
+        }
+        for (int c = 0; c < cellCount; c++) {
+            start[c + 1] += start[c];
+        }
+
+        int[] list = new int[start[cellCount]];
+        int[] fill = Arrays.copyOf(start, cellCount);
+        for (int item = 0; item < items; item++) {
+            final int current = item;
+            cellsOfItem.accept(item, cell -> list[fill[cell]++] = current);
+        }
+        return new int[][]{start, list};
+    }
+
+    private int column(double x) {
+        int col = (int) Math.floor((x - originX) / cellWidth);
+        return Math.max(0, Math.min(columns - 1, col));
+    }
+
+    private int row(double y) {
+        int row = (int) Math.floor((y - originY) / cellHeight);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private static double min(double[] values) {
+        double result = Double.POSITIVE_INFINITY;
+        for (double v : values) result = Math.min(result, v);
+        return result;
+    }
+
+    private static double max(double[] values) {
+        double result = Double.NEGATIVE_INFINITY;
+        for (double v : values) result = Math.max(result, v);
+        return result;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.cw3ilp.service.geometry;
+
+/**
+ * Plain-loop {@link ColumnKernels}, and the fallback of the vector ones
+ */
+final class ScalarColumnKernels implements ColumnKernels {
+
+    static final ScalarColumnKernels INSTANCE = new ScalarColumnKernels();
+
+    /** Earth's radius in meters (mean radius), as in {@code DistanceService} */
+    static final double EARTH_RADIUS_METERS = 6371000.0;
+
+    /** Approximate meters per degree of latitude, as in {@code DistanceService} */
+    static final double METERS_PER_DEGREE = 111000.0;
+
+    /** Haversine's degree of arc in its distance units, as in {@code EquirectangularDistance} */
+    static final double SCALE = EARTH_RADIUS_METERS * Math.PI / 180.0 / METERS_PER_DEGREE;
+
+    private ScalarColumnKernels() {
+    }
+
+    @Override
+    public void haversine(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int n) {
+        haversine(lng1, lat1, lng2, lat2, out, 0, n);
+    }
+
+    @Override
+    public void equirectangular(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int n) {
+        equirectangular(lng1, lat1, lng2, lat2, out, 0, n);
+    }
+
+    @Override
+    public void contains(PreparedPolygon polygon, double[] xs, double[] ys, boolean[] out, int n) {
+        contains(polygon, xs, ys, out, 0, n);
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return false;
+    }
+
+    // Range forms, for the vector kernels' tails
+
+    static void haversine(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            // same arithmetic as DistanceService.computeDistance
+            double lat1Rad = Math.toRadians(lat1[i]);
+            double lat2Rad = Math.toRadians(lat2[i]);
+            double deltaLat = Math.toRadians(lat2[i] - lat1[i]);
+            double deltaLng = Math.toRadians(lng2[i] - lng1[i]);
+
+            double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2) +
+                       Math.cos(lat1Rad) * Math.cos(lat2Rad) *
+                       Math.sin(deltaLng / 2) * Math.sin(deltaLng / 2);
+            double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+            out[i] = EARTH_RADIUS_METERS * c / METERS_PER_DEGREE;
+        }
+    }
+
+    static void equirectangular(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out,
+                                int from, int to) {
+        for (int i = from; i < to; i++) {
+            double dLng = (lng2[i] - lng1[i]) * Math.cos(Math.toRadians((lat1[i] + lat2[i]) * 0.5));
+            double dLat = lat2[i] - lat1[i];
+            out[i] = Math.sqrt(dLng * dLng + dLat * dLat) * SCALE;
+        }
+    }
+
+    static void contains(PreparedPolygon polygon, double[] xs, double[] ys, boolean[] out, int from, int to) {
+        for (int i = from; i < to; i++) {
+            out[i] = polygon.contains(xs[i], ys[i]);
+        }
+    }
+}
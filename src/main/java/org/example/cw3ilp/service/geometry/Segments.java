@@ -0,0 +1,77 @@
+package org.example.cw3ilp.service.geometry;
+
+/**
+ * Primitive segment predicates shared by the prepared geometry classes.
+ * <p>
+ *     Orientation test with collinear handling, so touching a zone border counts as crossing it.
+ * </p>
+ */
+public final class Segments {
+
+    private Segments() {
+    }
+
+    /**
+     * @return {@code true} if segment (x1,y1)-(x2,y2) intersects or touches segment (x3,y3)-(x4,y4)
+     */
+    public static boolean intersect(double x1, double y1, double x2, double y2,
+                                    double x3, double y3, double x4, double y4) {
+        double d1 = direction(x3, y3, x4, y4, x1, y1);
+        double d2 = direction(x3, y3, x4, y4, x2, y2);
+        double d3 = direction(x1, y1, x2, y2, x3, y3);
+        double d4 = direction(x1, y1, x2, y2, x4, y4);
+
+        if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) &&
+                ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0))) {
+            return true;
+        }
+
+        if (d1 == 0 && onSegment(x3, y3, x4, y4, x1, y1)) return true;
+        if (d2 == 0 && onSegment(x3, y3, x4, y4, x2, y2)) return true;
+        if (d3 == 0 && onSegment(x1, y1, x2, y2, x3, y3)) return true;
+        return d4 == 0 && onSegment(x1, y1, x2, y2, x4, y4);
+    }
+
+    /**
+     * Cross product of (x2-x1, y2-y1) and (x3-x1, y3-y1), sign flipped as in the original A*
+     */
+    public static double direction(double x1, double y1, double x2, double y2, double x3, double y3) {
+        return (x3 - x1) * (y2 - y1) - (x2 - x1) * (y3 - y1);
+    }
+
+    /**
+     * Check if point (px, py) is within the bounding box of segment (x1,y1)-(x2,y2)
+     */
+    public static boolean onSegment(double x1, double y1, double x2, double y2, double px, double py) {
+        return px >= Math.min(x1, x2) && px <= Math.max(x1, x2) &&
+                py >= Math.min(y1, y2) && py <= Math.max(y1, y2);
+    }
+
+    /**
+     * Liang-Barsky clip of segment (x1,y1)-(x2,y2) against an axis-aligned box
+     *
+     * @return {@code true} if any part of the segment lies inside or on the box
+     */
+    public static boolean touchesBox(double x1, double y1, double x2, double y2,
+                                     double minX, double minY, double maxX, double maxY) {
+        double t0 = 0, t1 = 1;
+        double dx = x2 - x1, dy = y2 - y1;
+        double[] p = {-dx, dx, -dy, dy};
+        double[] q = {x1 - minX, maxX - x1, y1 - minY, maxY - y1};
+        for (int k = 0; k < 4; k++) {
+            if (p[k] == 0) {
+                if (q[k] < 0) return false;
+            } else {
+                double t = q[k] / p[k];
+                if (p[k] < 0) {
+                    if (t > t1) return false;
+                    if (t > t0) t0 = t;
+                } else {
+                    if (t < t0) return false;
+                    if (t < t1) t1 = t;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,359 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.DronesAvailability;
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Immutable KD-tree over the service points, for nearest, k-nearest and radius queries.
+ * <p>
+ *     Points are placed on the unit sphere, where the straight-line (chord) distance grows
+ *     with the great-circle angle. The tree's Euclidean order is therefore the Haversine
+ *     order of {@code DistanceService.computeDistance}, with no projection error. Equal
+ *     distances go to the point listed first, as in a linear scan. Service points without
+ *     a location are left out.
+ * </p>
+ * <p>
+ *     The tree is implicit: each range of the point arrays is split at its middle element
+ *     on the axis of widest spread, which is recorded in {@link #axes}.
+ * </p>
+ */
+public final class ServicePointIndex {
+
+    /** Radians of arc in one degree of distance: meters per degree over Earth's radius, as in {@code DistanceService} */
+    private static final double RADIANS_PER_DEGREE_OF_DISTANCE = 111000.0 / 6371000.0;
+
+    private final long fingerprint;
+
+    // Tree order; listIndex is the position in the source list, for ties
+    private final DronesAvailability.ServicePoint[] points;
+    private final int[] listIndex;
+    private final double[] xs;
+    private final double[] ys;
+    private final double[] zs;
+    private final byte[] axes;
+
+    private ServicePointIndex(long fingerprint, DronesAvailability.ServicePoint[] points, int[] listIndex,
+                              double[] xs, double[] ys, double[] zs, byte[] axes) {
+        this.fingerprint = fingerprint;
+        this.points = points;
+        this.listIndex = listIndex;
+        this.xs = xs;
+        this.ys = ys;
+        this.zs = zs;
+        this.axes = axes;
+    }
+
+    public static ServicePointIndex build(List<DronesAvailability.ServicePoint> servicePoints) {
+        return build(servicePoints, fingerprint(servicePoints));
+    }
+
+    static ServicePointIndex build(List<DronesAvailability.ServicePoint> servicePoints, long fingerprint) {
+        List<Integer> located = new ArrayList<>();
+        if (servicePoints != null) {
+            for (int i = 0; i < servicePoints.size(); i++) {
+                if (hasLocation(servicePoints.get(i))) {
+                    located.add(i);
+                }
+            }
+        }
+
+        int n = located.size();
+        double[][] coordinates = new double[3][n];
+        for (int k = 0; k < n; k++) {
+            LngLatAlt location = servicePoints.get(located.get(k)).getLocation();
+            toSphere(location.getLng(), location.getLat(), coordinates, k);
+        }
+
+        Integer[] order = new Integer[n];
+        for (int k = 0; k < n; k++) {
+            order[k] = k;
+        }
+        byte[] axes = new byte[n];
+        split(order, 0, n, coordinates, axes);
+
+        DronesAvailability.ServicePoint[] points = new DronesAvailability.ServicePoint[n];
+        int[] listIndex = new int[n];
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        double[] zs = new double[n];
+        for (int node = 0; node < n; node++) {
+            int k = order[node];
+            listIndex[node] = located.get(k);
+            points[node] = servicePoints.get(listIndex[node]);
+            xs[node] = coordinates[0][k];
+            ys[node] = coordinates[1][k];
+            zs[node] = coordinates[2][k];
+        }
+        return new ServicePointIndex(fingerprint, points, listIndex, xs, ys, zs, axes);
+    }
+
+    /**
+     * Content hash of a service-point list: ids and locations in order
+     */
+    public static long fingerprint(List<DronesAvailability.ServicePoint> servicePoints) {
+        long hash = 0xcbf29ce484222325L;
+        if (servicePoints == null) {
+            return hash;
+        }
+
+        for (DronesAvailability.ServicePoint servicePoint : servicePoints) {
+            hash = mix(hash, 0x5E7F);
+            if (servicePoint == null) {
+                continue;
+            }
+            hash = mix(hash, servicePoint.getId() != null ? servicePoint.getId() : -1);
+            if (hasLocation(servicePoint)) {
+                hash = mix(hash, Double.doubleToLongBits(servicePoint.getLocation().getLng()));
+                hash = mix(hash, Double.doubleToLongBits(servicePoint.getLocation().getLat()));
+            }
+        }
+        return hash;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return service points in the index, those with a location
+     */
+    public int size() {
+        return points.length;
+    }
+
+    /**
+     * @return the closest service point, or {@code null} if the index is empty
+     */
+    public DronesAvailability.ServicePoint nearest(double lng, double lat) {
+        List<DronesAvailability.ServicePoint> nearest = nearest(lng, lat, 1);
+        return nearest.isEmpty() ? null : nearest.getFirst();
+    }
+
+    /**
+     * @return the closest service point that {@code accept} allows, or {@code null} if none does;
+     * candidates are offered nearest first, and only until one is accepted
+     */
+    public DronesAvailability.ServicePoint nearest(double lng, double lat,
+                                                   Predicate<DronesAvailability.ServicePoint> accept) {
+        int offered = 0;
+        for (int k = Math.min(4, size()); offered < size(); k = Math.min(k * 2, size())) {
+            // the k nearest start with the k/2 nearest already offered
+            List<DronesAvailability.ServicePoint> candidates = nearest(lng, lat, k);
+            for (int i = offered; i < candidates.size(); i++) {
+                if (accept.test(candidates.get(i))) {
+                    return candidates.get(i);
+                }
+            }
+            offered = candidates.size();
+        }
+        return null;
+    }
+
+    /**
+     * @return up to {@code k} service points, nearest first
+     */
+    public List<DronesAvailability.ServicePoint> nearest(double lng, double lat, int k) {
+        int limit = Math.min(Math.max(k, 0), size());
+        if (limit == 0) {
+            return List.of();
+        }
+
+        Query query = new Query(lng, lat, limit);
+        nearest(query, 0, size());
+
+        List<DronesAvailability.ServicePoint> result = new ArrayList<>(query.found);
+        for (int i = 0; i < query.found; i++) {
+            result.add(points[query.nodes[i]]);
+        }
+        return result;
+    }
+
+    /**
+     * @param radius greatest distance, in the degree units of {@code DistanceService.computeDistance}
+     * @return the service points within {@code radius}, nearest first
+     */
+    public List<DronesAvailability.ServicePoint> within(double lng, double lat, double radius) {
+        if (radius < 0 || size() == 0) {
+            return List.of();
+        }
+
+        // chord length of the radius' great-circle angle, capped at the sphere's diameter
+        double angle = Math.min(radius * RADIANS_PER_DEGREE_OF_DISTANCE, Math.PI);
+        double chord = 2 * Math.sin(angle / 2);
+
+        Query query = new Query(lng, lat, size());
+        within(query, 0, size(), chord * chord);
+
+        Integer[] found = new Integer[query.found];
+        for (int i = 0; i < query.found; i++) {
+            found[i] = i;
+        }
+        Arrays.sort(found, Comparator.<Integer>comparingDouble(i -> query.distances[i])
+                .thenComparingInt(i -> listIndex[query.nodes[i]]));
+
+        List<DronesAvailability.ServicePoint> result = new ArrayList<>(found.length);
+        for (Integer i : found) {
+            result.add(points[query.nodes[i]]);
+        }
+        return result;
+    }
+
+    private void nearest(Query query, int lo, int hi) {
+        if (lo >= hi) {
+            return;
+        }
+        int node = (lo + hi) >>> 1;
+        query.offer(node, squaredChord(query, node), listIndex[node]);
+
+        double diff = query.coordinate(axes[node]) - coordinate(axes[node], node);
+        boolean leftFirst = diff < 0;
+        nearest(query, leftFirst ? lo : node + 1, leftFirst ? node : hi);
+        // the far side can only hold points at least |diff| away; equal distances may still win a tie
+        if (!query.isFull() || diff * diff <= query.worst()) {
+            nearest(query, leftFirst ? node + 1 : lo, leftFirst ? hi : node);
+        }
+    }
+
+    private void within(Query query, int lo, int hi, double limit) {
+        if (lo >= hi) {
+            return;
+        }
+        int node = (lo + hi) >>> 1;
+        double squared = squaredChord(query, node);
+        if (squared <= limit) {
+            query.nodes[query.found] = node;
+            query.distances[query.found++] = squared;
+        }
+
+        double diff = query.coordinate(axes[node]) - coordinate(axes[node], node);
+        if (diff < 0 || diff * diff <= limit) {
+            within(query, lo, node, limit);
+        }
+        if (diff >= 0 || diff * diff <= limit) {
+            within(query, node + 1, hi, limit);
+        }
+    }
+
+    private double squaredChord(Query query, int node) {
+        double dx = query.x - xs[node];
+        double dy = query.y - ys[node];
+        double dz = query.z - zs[node];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private double coordinate(int axis, int node) {
+        return axis == 0 ? xs[node] : axis == 1 ? ys[node] : zs[node];
+    }
+
+    /**
+     * Order {@code order[lo, hi)} so its middle element splits the rest on the widest axis
+     */
+    private static void split(Integer[] order, int lo, int hi, double[][] coordinates, byte[] axes) {
+        if (hi - lo <= 0) {
+            return;
+        }
+
+        int axis = 0;
+        double widest = -1;
+        for (int a = 0; a < 3; a++) {
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i++) {
+                min = Math.min(min, coordinates[a][order[i]]);
+                max = Math.max(max, coordinates[a][order[i]]);
+            }
+            if (max - min > widest) {
+                widest = max - min;
+                axis = a;
+            }
+        }
+
+        double[] values = coordinates[axis];
+        Arrays.sort(order, lo, hi, Comparator.comparingDouble(k -> values[k]));
+        int node = (lo + hi) >>> 1;
+        axes[node] = (byte) axis;
+        split(order, lo, node, coordinates, axes);
+        split(order, node + 1, hi, coordinates, axes);
+    }
+
+    private static void toSphere(double lng, double lat, double[][] coordinates, int k) {
+        double lngRad = Math.toRadians(lng);
+        double latRad = Math.toRadians(lat);
+        coordinates[0][k] = Math.cos(latRad) * Math.cos(lngRad);
+        coordinates[1][k] = Math.cos(latRad) * Math.sin(lngRad);
+        coordinates[2][k] = Math.sin(latRad);
+    }
+
+    private static boolean hasLocation(DronesAvailability.ServicePoint servicePoint) {
+        return servicePoint != null && servicePoint.getLocation() != null
+                && servicePoint.getLocation().getLng() != null && servicePoint.getLocation().getLat() != null;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+
+    /**
+     * Query point and its best nodes so far, kept sorted by (distance, list position)
+     */
+    private static final class Query {
+        private final double x;
+        private final double y;
+        private final double z;
+        private final int[] nodes;
+        private final double[] distances;
+        private final int[] ranks;
+        private int found;
+
+        Query(double lng, double lat, int capacity) {
+            double[][] coordinates = new double[3][1];
+            toSphere(lng, lat, coordinates, 0);
+            x = coordinates[0][0];
+            y = coordinates[1][0];
+            z = coordinates[2][0];
+            nodes = new int[capacity];
+            distances = new double[capacity];
+            ranks = new int[capacity];
+        }
+
+        double coordinate(int axis) {
+            return axis == 0 ? x : axis == 1 ? y : z;
+        }
+
+        boolean isFull() {
+            return found == nodes.length;
+        }
+
+        double worst() {
+            return distances[found - 1];
+        }
+
+        void offer(int node, double distance, int rank) {
+            if (isFull() && !before(distance, rank, distances[found - 1], ranks[found - 1])) {
+                return;
+            }
+            int i = isFull() ? found - 1 : found++;
+            while (i > 0 && before(distance, rank, distances[i - 1], ranks[i - 1])) {
+                nodes[i] = nodes[i - 1];
+                distances[i] = distances[i - 1];
+                ranks[i] = ranks[i - 1];
+                i--;
+            }
+            nodes[i] = node;
+            distances[i] = distance;
+            ranks[i] = rank;
+        }
+
+        private static boolean before(double distance, int rank, double otherDistance, int otherRank) {
+            return distance < otherDistance || (distance == otherDistance && rank < otherRank);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.DronesAvailability;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Holds the {@link ServicePointIndex} for the most recently seen service-point list.
+ * <p>
+ *     The same list instance is recognised by identity, and a re-fetched list with the same
+ *     ids and locations by its fingerprint. Anything else rebuilds the index.
+ * </p>
+ */
+public final class ServicePointIndexCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ServicePointIndexCache.class);
+
+    private volatile Entry current;
+
+    public ServicePointIndex get(List<DronesAvailability.ServicePoint> servicePoints) {
+        Entry entry = current;
+        if (entry != null && entry.servicePoints == servicePoints) {
+            return entry.index;
+        }
+
+        long fingerprint = ServicePointIndex.fingerprint(servicePoints);
+        if (entry != null && entry.index.getFingerprint() == fingerprint) {
+            current = new Entry(servicePoints, entry.index);
+            return entry.index;
+        }
+
+        ServicePointIndex index = ServicePointIndex.build(servicePoints, fingerprint);
+        current = new Entry(servicePoints, index);
+        logger.info("Built service point index {}: {} service points",
+                Long.toHexString(fingerprint), index.size());
+        return index;
+    }
+
+    private static final class Entry {
+        private final List<DronesAvailability.ServicePoint> servicePoints;
+        private final ServicePointIndex index;
+
+        Entry(List<DronesAvailability.ServicePoint> servicePoints, ServicePointIndex index) {
+            this.servicePoints = servicePoints;
+            this.index = index;
+        }
+    }
+}
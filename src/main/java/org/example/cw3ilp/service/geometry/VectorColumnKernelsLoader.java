@@ -0,0 +1,29 @@
+package org.example.cw3ilp.service.geometry;
+
+/**
+ * Picks {@link ColumnKernels#preferred()} once. {@code VectorColumnKernels} lives in
+ * {@code src/main/vector} and is only compiled by the {@code vector} Maven profile, so it is
+ * loaded by name, and only when the module is there; otherwise the scalar kernels are used.
+ */
+final class VectorColumnKernelsLoader {
+
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    static final ColumnKernels PREFERRED = load();
+
+    private VectorColumnKernelsLoader() {
+    }
+
+    private static ColumnKernels load() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            return ColumnKernels.scalar();
+        }
+        try {
+            return (ColumnKernels) Class.forName(VectorColumnKernelsLoader.class.getPackageName() + ".VectorColumnKernels")
+                    .getDeclaredConstructor()
+                    .newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return ColumnKernels.scalar();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.service.pathfinding.LatticeDistance;
+
+import java.util.Arrays;
+
+/**
+ * Visibility graph over the corners of a restricted-area snapshot.
+ * <p>
+ *     Two corners are connected when the straight line between them does not pass through
+ *     the inside of any zone; running along or touching a border is allowed. Lengths are
+ *     measured in {@link LatticeDistance lattice moves}. Straight lines are shortest under
+ *     that norm and a shortest route around the zones can always be bent at corners, so a
+ *     Dijkstra over this graph gives the least number of moves of any obstacle-avoiding
+ *     route - a lower bound for a drone path, which may not even touch a border.
+ * </p>
+ * <p>
+ *     Building is quadratic in corners times edges, so snapshots above {@link #MAX_VERTICES}
+ *     corners are not given a graph. Instances are immutable and thread-safe.
+ * </p>
+ */
+public final class VisibilityGraph {
+
+    static final int MAX_VERTICES = 400;
+
+    /** Points closer than this to an edge count as on it */
+    private static final double ON_EDGE_TOLERANCE = 1e-12;
+
+    private final RestrictedAreaIndex index;
+    private final double[] vertexX;
+    private final double[] vertexY;
+    private final double[] weights;
+
+    private VisibilityGraph(RestrictedAreaIndex index, double[] vertexX, double[] vertexY) {
+        this.index = index;
+        this.vertexX = vertexX;
+        this.vertexY = vertexY;
+
+        int n = vertexX.length;
+        weights = new double[n * n];
+        Arrays.fill(weights, Double.POSITIVE_INFINITY);
+        for (int a = 0; a < n; a++) {
+            weights[a * n + a] = 0;
+            for (int b = a + 1; b < n; b++) {
+                if (isVisible(vertexX[a], vertexY[a], vertexX[b], vertexY[b])) {
+                    double length = LatticeDistance.moves(vertexX[b] - vertexX[a], vertexY[b] - vertexY[a]);
+                    weights[a * n + b] = length;
+                    weights[b * n + a] = length;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the graph, or {@code null} if the snapshot has no zones or too many corners
+     */
+    public static VisibilityGraph build(RestrictedAreaIndex index) {
+        int edges = index.getEdgeCount();
+        if (edges == 0 || edges > MAX_VERTICES) {
+            return null;
+        }
+
+        // every corner starts exactly one non-degenerate edge
+        double[] xs = new double[edges];
+        double[] ys = new double[edges];
+        for (int e = 0; e < edges; e++) {
+            xs[e] = index.edgeX1(e);
+            ys[e] = index.edgeY1(e);
+        }
+        return new VisibilityGraph(index, xs, ys);
+    }
+
+    public int getVertexCount() {
+        return vertexX.length;
+    }
+
+    public double x(int vertex) {
+        return vertexX[vertex];
+    }
+
+    public double y(int vertex) {
+        return vertexY[vertex];
+    }
+
+    /**
+     * Shortest obstacle-avoiding distance (moves) from every corner to a target point
+     *
+     * @return distances indexed by corner, {@code +Infinity} where the target cannot be reached
+     */
+    public double[] distancesTo(double targetX, double targetY) {
+        int n = vertexX.length;
+        double[] distance = new double[n];
+        boolean[] done = new boolean[n];
+
+        for (int v = 0; v < n; v++) {
+            distance[v] = isVisible(vertexX[v], vertexY[v], targetX, targetY)
+                    ? LatticeDistance.moves(targetX - vertexX[v], targetY - vertexY[v])
+                    : Double.POSITIVE_INFINITY;
+        }
+
+        // dense Dijkstra - the graph is small and mostly connected
+        for (int round = 0; round < n; round++) {
+            int best = -1;
+            for (int v = 0; v < n; v++) {
+                if (!done[v] && (best < 0 || distance[v] < distance[best])) {
+                    best = v;
+                }
+            }
+            if (best < 0 || distance[best] == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            done[best] = true;
+
+            for (int v = 0; v < n; v++) {
+                double through = distance[best] + weights[best * n + v];
+                if (through < distance[v]) {
+                    distance[v] = through;
+                }
+            }
+        }
+        return distance;
+    }
+
+    /**
+     * @return {@code true} if the segment does not pass through the inside of any zone
+     */
+    public boolean isVisible(double x1, double y1, double x2, double y2) {
+        for (int e = 0; e < index.getEdgeCount(); e++) {
+            if (crossesProperly(x1, y1, x2, y2, index.edgeX1(e), index.edgeY1(e), index.edgeX2(e), index.edgeY2(e))) {
+                return false;
+            }
+        }
+
+        // without a proper crossing the midpoint decides; a midpoint on a border is a segment running along it
+        double midX = (x1 + x2) / 2;
+        double midY = (y1 + y2) / 2;
+        return !index.isBlocked(midX, midY) || isOnAnyEdge(midX, midY);
+    }
+
+    /**
+     * @return {@code true} if some edge passes within {@code radius} of the point
+     */
+    public boolean hasEdgeWithin(double x, double y, double radius) {
+        for (int e = 0; e < index.getEdgeCount(); e++) {
+            if (distanceToEdge(x, y, e) <= radius) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isOnAnyEdge(double x, double y) {
+        return hasEdgeWithin(x, y, ON_EDGE_TOLERANCE);
+    }
+
+    private double distanceToEdge(double x, double y, int e) {
+        double x1 = index.edgeX1(e), y1 = index.edgeY1(e);
+        double dx = index.edgeX2(e) - x1, dy = index.edgeY2(e) - y1;
+        double t = ((x - x1) * dx + (y - y1) * dy) / (dx * dx + dy * dy);
+        t = Math.max(0, Math.min(1, t));
+        return Math.hypot(x - (x1 + t * dx), y - (y1 + t * dy));
+    }
+
+    /**
+     * Strict crossing: each segment has the other's endpoints strictly on opposite sides
+     */
+    private static boolean crossesProperly(double x1, double y1, double x2, double y2,
+                                           double x3, double y3, double x4, double y4) {
+        double d1 = Segments.direction(x3, y3, x4, y4, x1, y1);
+        double d2 = Segments.direction(x3, y3, x4, y4, x2, y2);
+        double d3 = Segments.direction(x1, y1, x2, y2, x3, y3);
+        double d4 = Segments.direction(x1, y1, x2, y2, x4, y4);
+        return ((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0))
+                && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0));
+    }
+}
@@ -0,0 +1,168 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.service.pathfinding.Heuristic;
+import org.example.cw3ilp.service.pathfinding.LatticeDistance;
+import org.example.cw3ilp.service.pathfinding.LatticeKeys;
+
+import java.util.Arrays;
+
+/**
+ * Obstacle-aware A* heuristic for one goal, backed by a {@link VisibilityGraph}.
+ * <p>
+ *     Distances are in {@link LatticeDistance lattice moves}, which alone is already tighter
+ *     than the straight line in steps. The plane is also cut into blocks of {@link #BLOCK_STEPS} x {@link #BLOCK_STEPS} lattice steps.
+ *     For a block that no zone edge touches, the exact shortest obstacle-avoiding distance from
+ *     its centre to the goal is computed once (straight line if the goal is visible, otherwise
+ *     via the nearest visible corner) and remembered. A position in that block is at least
+ *     that distance, less its own distance to the centre, away from the goal - the block is
+ *     free, so the centre is in sight. Blocks touching a zone fall back to the straight line.
+ * </p>
+ * <p>
+ *     The goal radius (converted to the most moves it can take) is subtracted as in the
+ *     default heuristic. That is only a valid bound
+ *     when the goal's closeness disc is free of zone edges, so {@link #forGoal} declines goals
+ *     closer than that to a zone. One instance serves one search and is not thread-safe.
+ * </p>
+ */
+public final class VisibilityHeuristic implements Heuristic {
+
+    static final int BLOCK_STEPS = 8;
+
+    private static final double STEP = LatticeKeys.STEP_SIZE;
+    private static final double BLOCK_SIZE = BLOCK_STEPS * STEP;
+
+    /** Absorbs rounding in the orientation tests so the bound never overestimates (moves) */
+    private static final double SLACK = 1e-6;
+
+    private final VisibilityGraph graph;
+    private final RestrictedAreaIndex index;
+    private final double goalX;
+    private final double goalY;
+    private final double goalMoves;
+    private final double[] cornerDistance;
+
+    /** Sentinel for an empty slot in the block table - no real block packs to it */
+    private static final long NO_BLOCK = Long.MIN_VALUE;
+
+    // Block key -> centre-to-goal moves (NaN for blocks touching a zone), open addressing
+    private long[] blockKeys = new long[256];
+    private double[] blockValues = new double[256];
+    private int blockCount;
+
+    private VisibilityHeuristic(VisibilityGraph graph, RestrictedAreaIndex index,
+                                double goalX, double goalY, double goalRadius) {
+        this.graph = graph;
+        this.index = index;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.goalMoves = LatticeDistance.maxMoves(goalRadius);
+        this.cornerDistance = graph.distancesTo(goalX, goalY);
+        Arrays.fill(blockKeys, NO_BLOCK);
+    }
+
+    /**
+     * @param goalRadius widest planar distance at which the goal test can succeed
+     * @return the heuristic, or {@code null} if there is no graph or a zone edge lies within the goal radius
+     */
+    public static VisibilityHeuristic forGoal(VisibilityGraph graph, RestrictedAreaIndex index,
+                                              double goalLng, double goalLat, double goalRadius) {
+        if (graph == null || graph.hasEdgeWithin(goalLng, goalLat, goalRadius)) {
+            return null;
+        }
+        return new VisibilityHeuristic(graph, index, goalLng, goalLat, goalRadius);
+    }
+
+    @Override
+    public double estimate(double lng, double lat) {
+        double bound = LatticeDistance.moves(goalX - lng, goalY - lat);
+
+        long blockX = (long) Math.floor(lng / BLOCK_SIZE);
+        long blockY = (long) Math.floor(lat / BLOCK_SIZE);
+        double centreDistance = blockDistance(blockX, blockY);
+
+        if (!Double.isNaN(centreDistance)) {
+            double centreX = (blockX + 0.5) * BLOCK_SIZE;
+            double centreY = (blockY + 0.5) * BLOCK_SIZE;
+            bound = Math.max(bound, centreDistance - LatticeDistance.moves(centreX - lng, centreY - lat) - SLACK);
+        }
+
+        double moves = bound - goalMoves;
+        return moves > 0 ? moves : 0;
+    }
+
+    private double blockDistance(long blockX, long blockY) {
+        long key = (blockX << 32) | (blockY & 0xFFFFFFFFL);
+        int mask = blockKeys.length - 1;
+        int i = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+        while (blockKeys[i] != NO_BLOCK) {
+            if (blockKeys[i] == key) {
+                return blockValues[i];
+            }
+            i = (i + 1) & mask;
+        }
+
+        double value = centreDistance(blockX, blockY);
+        blockKeys[i] = key;
+        blockValues[i] = value;
+        if (++blockCount * 2 > blockKeys.length) {
+            growBlocks();
+        }
+        return value;
+    }
+
+    private void growBlocks() {
+        long[] oldKeys = blockKeys;
+        double[] oldValues = blockValues;
+        blockKeys = new long[oldKeys.length * 2];
+        blockValues = new double[oldKeys.length * 2];
+        Arrays.fill(blockKeys, NO_BLOCK);
+
+        int mask = blockKeys.length - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] == NO_BLOCK) continue;
+            int i = Long.hashCode(oldKeys[j] * 0x9E3779B97F4A7C15L) & mask;
+            while (blockKeys[i] != NO_BLOCK) {
+                i = (i + 1) & mask;
+            }
+            blockKeys[i] = oldKeys[j];
+            blockValues[i] = oldValues[j];
+        }
+    }
+
+    private double centreDistance(long blockX, long blockY) {
+        double minX = blockX * BLOCK_SIZE, minY = blockY * BLOCK_SIZE;
+        if (!index.isBoxClear(minX, minY, minX + BLOCK_SIZE, minY + BLOCK_SIZE)) {
+            return Double.NaN;
+        }
+
+        double centreX = minX + BLOCK_SIZE / 2;
+        double centreY = minY + BLOCK_SIZE / 2;
+        if (graph.isVisible(centreX, centreY, goalX, goalY)) {
+            return LatticeDistance.moves(goalX - centreX, goalY - centreY);
+        }
+
+        // try corners in order of the route length through them; the first visible one is the shortest route
+        int n = graph.getVertexCount();
+        double[] viaCorner = new double[n];
+        for (int v = 0; v < n; v++) {
+            viaCorner[v] = LatticeDistance.moves(graph.x(v) - centreX, graph.y(v) - centreY) + cornerDistance[v];
+        }
+        for (int tried = 0; tried < n; tried++) {
+            int best = 0;
+            for (int v = 1; v < n; v++) {
+                if (viaCorner[v] < viaCorner[best]) {
+                    best = v;
+                }
+            }
+            if (viaCorner[best] == Double.POSITIVE_INFINITY) {
+                break;
+            }
+            if (graph.isVisible(centreX, centreY, graph.x(best), graph.y(best))) {
+                return viaCorner[best];
+            }
+            viaCorner[best] = Double.POSITIVE_INFINITY;
+        }
+        // goal unreachable in the graph - keep the straight-line bound
+        return Double.NaN;
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+
+import java.util.List;
+
+/**
+ * Content hash of a restricted-area set.
+ * <p>
+ *     The ILP service returns a fresh list on every fetch, so list identity alone
+ *     cannot tell whether the zones actually changed. Two sets with the same
+ *     vertices in the same order produce the same fingerprint.
+ * </p>
+ */
+public final class ZoneFingerprint {
+
+    private ZoneFingerprint() {
+    }
+
+    public static long of(List<RestrictedArea> zones) {
+        long hash = 0xcbf29ce484222325L;
+        if (zones == null) {
+            return hash;
+        }
+
+        for (RestrictedArea zone : zones) {
+            hash = mix(hash, 0x5A0E);
+            if (zone == null || zone.getVertices() == null) {
+                continue;
+            }
+            for (LngLatAlt vertex : zone.getVertices()) {
+                if (vertex == null || vertex.getLng() == null || vertex.getLat() == null) {
+                    continue;
+                }
+                hash = mix(hash, Double.doubleToLongBits(vertex.getLng()));
+                hash = mix(hash, Double.doubleToLongBits(vertex.getLat()));
+            }
+        }
+        return hash;
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+}
@@ -0,0 +1,165 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.RestrictedArea;
+
+import org.example.cw3ilp.service.pathfinding.Airspace;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Prepared geometry for one restricted-area set, built once and shared by every search
+ * that runs against the same zones.
+ * <p>
+ *     Holds the zones' {@link PreparedPolygon outlines} in list order for the per-zone
+ *     checks, and the exact {@link RestrictedAreaIndex} for searches.
+ * </p>
+ * <p>
+ *     The index is available immediately. A {@link NoFlyRaster}
+ *     can be attached later (typically from a background thread); once published it is
+ *     returned by {@link #getAirspace()} to every subsequent search. The
+ *     {@link FreeSpaceComponents free-space components} are labelled once, by
+ *     {@link #labelComponents()} from a background thread; until then {@link #getComponents()}
+ *     returns {@code null} rather than making a search wait for them.
+ * </p>
+ */
+public final class ZoneSnapshot {
+
+    private final long fingerprint;
+    private final List<PreparedPolygon> polygons;
+    private final RestrictedAreaIndex index;
+    private volatile NoFlyRaster raster;
+    private volatile VisibilityGraph visibilityGraph;
+    private volatile boolean visibilityGraphBuilt;
+    private volatile ClusterGraph clusterGraph;
+    private volatile FreeSpaceComponents components;
+    private volatile boolean componentsLabelled;
+    private final Object visibilityGraphLock = new Object();
+    private final Object clusterGraphLock = new Object();
+    private final Object componentsLock = new Object();
+
+    private ZoneSnapshot(long fingerprint, List<PreparedPolygon> polygons, RestrictedAreaIndex index) {
+        this.fingerprint = fingerprint;
+        this.polygons = polygons;
+        this.index = index;
+    }
+
+    public static ZoneSnapshot build(List<RestrictedArea> zones, long fingerprint) {
+        List<PreparedPolygon> polygons = new ArrayList<>();
+        if (zones != null) {
+            for (RestrictedArea zone : zones) {
+                PreparedPolygon polygon = PreparedPolygon.of(zone);
+                if (polygon != null) {
+                    polygons.add(polygon);
+                }
+            }
+        }
+        return new ZoneSnapshot(fingerprint, Collections.unmodifiableList(polygons), RestrictedAreaIndex.build(zones));
+    }
+
+    /**
+     * @return content hash of the zone set, see {@link ZoneFingerprint}
+     */
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * @return prepared outline of every zone with usable vertices, in zone order
+     */
+    public List<PreparedPolygon> getPolygons() {
+        return polygons;
+    }
+
+    public RestrictedAreaIndex getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the raster, or {@code null} while it is being built or if the zones were not rasterized
+     */
+    public NoFlyRaster getRaster() {
+        return raster;
+    }
+
+    /**
+     * @return the fastest ready view of the zones - the raster once built, the exact index until then
+     */
+    public Airspace getAirspace() {
+        NoFlyRaster ready = raster;
+        return ready != null ? ready : index;
+    }
+
+    /**
+     * Visibility graph over the zone corners, built on first use
+     *
+     * @return the graph, or {@code null} if the snapshot has no zones or too many corners
+     */
+    public VisibilityGraph getVisibilityGraph() {
+        if (!visibilityGraphBuilt) {
+            synchronized (visibilityGraphLock) {
+                if (!visibilityGraphBuilt) {
+                    visibilityGraph = VisibilityGraph.build(index);
+                    visibilityGraphBuilt = true;
+                }
+            }
+        }
+        return visibilityGraph;
+    }
+
+    /**
+     * Cluster graph for hierarchical planning, created on first use and filled in as searches
+     * reach new clusters
+     */
+    public ClusterGraph getClusterGraph() {
+        if (clusterGraph == null) {
+            synchronized (clusterGraphLock) {
+                if (clusterGraph == null) {
+                    clusterGraph = new ClusterGraph(index);
+                }
+            }
+        }
+        return clusterGraph;
+    }
+
+    /**
+     * Connected components of the free airspace, without waiting for them to be labelled
+     *
+     * @return the components, or {@code null} until {@link #labelComponents()} has run, if the
+     *         snapshot has no zones, or if it is too large to label
+     */
+    public FreeSpaceComponents getComponents() {
+        return components;
+    }
+
+    /**
+     * Label the free-space components and publish them, once. Safe to call from any thread;
+     * a second caller waits for the first and gets the same components.
+     *
+     * @return the components, or {@code null} if the snapshot has no zones or is too large to label
+     */
+    public FreeSpaceComponents labelComponents() {
+        if (!componentsLabelled) {
+            synchronized (componentsLock) {
+                if (!componentsLabelled) {
+                    components = FreeSpaceComponents.label(polygons);
+                    componentsLabelled = true;
+                }
+            }
+        }
+        return components;
+    }
+
+    /**
+     * Build the raster and publish it. Safe to call from any thread; searches already
+     * running keep the view they started with.
+     *
+     * @return the published raster, or {@code null} if the zone envelope is too large to rasterize
+     */
+    public NoFlyRaster rasterize() {
+        NoFlyRaster built = NoFlyRaster.build(index);
+        raster = built;
+        return built;
+    }
+}
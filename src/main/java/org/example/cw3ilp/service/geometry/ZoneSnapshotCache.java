@@ -0,0 +1,215 @@
+package org.example.cw3ilp.service.geometry;
+
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Holds the {@link ZoneSnapshot ZoneSnapshots} of the most recently used restricted-area sets.
+ * <p>
+ *     Snapshots are keyed by {@link ZoneFingerprint}, so a re-fetched list with the same content
+ *     reuses the existing snapshot and a list changed in place gets a new one. The list looked
+ *     up last is remembered with the zone objects it held, so asking again with the same list
+ *     holding the same zones skips the fingerprint and the lock; only editing a zone's vertices
+ *     in place goes unnoticed by this shortcut. Up to
+ *     {@link #CAPACITY} zone sets are kept, least recently used first out, so callers
+ *     alternating between zone sets do not rebuild each other's snapshots.
+ * </p>
+ * <p>
+ *     Each new snapshot labels its {@link FreeSpaceComponents free-space components} in the
+ *     background, so reachability checks against a changed zone set answer without a search.
+ *     With rasterization enabled it then rasterizes too, and is served from its exact index
+ *     until the raster is published. The work runs on one background thread, one snapshot at a
+ *     time, and snapshots evicted before their turn are skipped.
+ * </p>
+ */
+public final class ZoneSnapshotCache implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ZoneSnapshotCache.class);
+
+    /** Zone sets kept at once */
+    static final int CAPACITY = 4;
+
+    private final boolean rasterize;
+
+    private final ExecutorService background = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "zone-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /** Guarded by itself; iterates least recently used first */
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            if (size() <= CAPACITY) {
+                return false;
+            }
+            eldest.getValue().evicted = true;
+            return true;
+        }
+    };
+
+    /** The list looked up last, the zones it held then, and its entry */
+    private volatile Recent recent;
+
+    public ZoneSnapshotCache() {
+        this(false);
+    }
+
+    public ZoneSnapshotCache(boolean rasterize) {
+        this.rasterize = rasterize;
+    }
+
+    public ZoneSnapshot get(List<RestrictedArea> zones) {
+        return entry(zones).snapshot;
+    }
+
+    /**
+     * @return completes with the zones' snapshot once its background work has run or been skipped
+     */
+    public CompletableFuture<ZoneSnapshot> prepare(List<RestrictedArea> zones) {
+        return entry(zones).prepared;
+    }
+
+    /**
+     * Stop the background thread; snapshots not yet prepared stay without components or raster
+     */
+    @Override
+    public void close() {
+        background.shutdownNow();
+    }
+
+    private Entry entry(List<RestrictedArea> zones) {
+        Recent last = recent;
+        if (last != null && last.matches(zones)) {
+            return last.entry;
+        }
+
+        long fingerprint = ZoneFingerprint.of(zones);
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(fingerprint);
+            if (entry != null) {
+                recent = Recent.of(zones, entry);
+                return entry;
+            }
+            entry = new Entry(ZoneSnapshot.build(zones, fingerprint));
+            entries.put(fingerprint, entry);
+        }
+        recent = Recent.of(zones, entry);
+
+        ZoneSnapshot snapshot = entry.snapshot;
+        logger.info("Built restricted-area snapshot {}: {} polygons, {} edges",
+                Long.toHexString(fingerprint),
+                snapshot.getIndex().getPolygonCount(), snapshot.getIndex().getEdgeCount());
+        schedule(entry);
+        return entry;
+    }
+
+    private void schedule(Entry entry) {
+        try {
+            background.execute(() -> {
+                try {
+                    if (!entry.evicted) {
+                        labelComponents(entry.snapshot);
+                    }
+                    if (rasterize && !entry.evicted) {
+                        rasterize(entry.snapshot);
+                    }
+                    if (entry.evicted) {
+                        logger.debug("Skipped background work of evicted snapshot {}",
+                                Long.toHexString(entry.snapshot.getFingerprint()));
+                    }
+                } finally {
+                    entry.prepared.complete(entry.snapshot);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            entry.prepared.complete(entry.snapshot);
+        }
+    }
+
+    private static void labelComponents(ZoneSnapshot snapshot) {
+        try {
+            long startNanos = System.nanoTime();
+            FreeSpaceComponents components = snapshot.labelComponents();
+            if (components == null) {
+                logger.info("Snapshot {} not labelled - zone envelope too large or empty",
+                        Long.toHexString(snapshot.getFingerprint()));
+                return;
+            }
+            logger.info("Labelled snapshot {}: {} free-space components in {} ms",
+                    Long.toHexString(snapshot.getFingerprint()), components.getComponentCount(),
+                    (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Failed to label snapshot {}", Long.toHexString(snapshot.getFingerprint()), e);
+        }
+    }
+
+    private static void rasterize(ZoneSnapshot snapshot) {
+        try {
+            long startNanos = System.nanoTime();
+            NoFlyRaster raster = snapshot.rasterize();
+            if (raster == null) {
+                logger.info("Snapshot {} not rasterized - zone envelope too large or empty",
+                        Long.toHexString(snapshot.getFingerprint()));
+                return;
+            }
+            logger.info("Rasterized snapshot {}: {} cells, {} KB in {} ms",
+                    Long.toHexString(snapshot.getFingerprint()), raster.getCellCount(),
+                    raster.getSizeBytes() / 1024, (System.nanoTime() - startNanos) / 1_000_000);
+        } catch (RuntimeException e) {
+            logger.error("Failed to rasterize snapshot {}", Long.toHexString(snapshot.getFingerprint()), e);
+        }
+    }
+
+    /**
+     * @param members the zone objects the list held when it was looked up
+     */
+    private record Recent(List<RestrictedArea> zones, RestrictedArea[] members, Entry entry) {
+
+        static Recent of(List<RestrictedArea> zones, Entry entry) {
+            return new Recent(zones, zones != null ? zones.toArray(new RestrictedArea[0]) : null, entry);
+        }
+
+        /**
+         * @return {@code true} if {@code other} is the same list, still holding the same zone objects
+         */
+        boolean matches(List<RestrictedArea> other) {
+            if (other != zones || entry.evicted) {
+                return false;
+            }
+            if (other == null) {
+                return true;
+            }
+            if (other.size() != members.length) {
+                return false;
+            }
+            for (int i = 0; i < members.length; i++) {
+                if (other.get(i) != members[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Entry {
+        private final ZoneSnapshot snapshot;
+        private final CompletableFuture<ZoneSnapshot> prepared = new CompletableFuture<>();
+        private volatile boolean evicted;
+
+        Entry(ZoneSnapshot snapshot) {
+            this.snapshot = snapshot;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Primitive no-fly queries used by the lattice search engines.
+ * <p>
+ *     Implementations are built once per search (or per restricted-area snapshot)
+ *     so that the inner loop never allocates position objects.
+ * </p>
+ */
+public interface Airspace {
+
+    /** Airspace with no restricted areas */
+    Airspace OPEN = new Airspace() {
+        @Override
+        public boolean isBlocked(double lng, double lat) {
+            return false;
+        }
+
+        @Override
+        public boolean isSegmentBlocked(double fromLng, double fromLat, double toLng, double toLat) {
+            return false;
+        }
+    };
+
+    /**
+     * @return {@code true} if the point lies inside any restricted area
+     */
+    boolean isBlocked(double lng, double lat);
+
+    /**
+     * @return {@code true} if the straight move between the two points touches any restricted area
+     */
+    boolean isSegmentBlocked(double fromLng, double fromLat, double toLng, double toLat);
+}
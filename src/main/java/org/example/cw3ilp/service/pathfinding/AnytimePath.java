@@ -0,0 +1,66 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.List;
+
+/**
+ * Best path an anytime search found within its budget.
+ * <p>
+ *     The path has at most {@link #getSuboptimalityBound()} times as many moves as the
+ *     shortest possible flight, so a bound of {@code 1.0} means it is shortest.
+ *     {@link #isComplete()} is {@code false} when the budget ran out before the search's
+ *     last pass - the path may then still improve with more time, and without a path the
+ *     goal may still be reachable.
+ * </p>
+ */
+public final class AnytimePath {
+
+    private final List<LngLatAlt> path;
+    private final double suboptimalityBound;
+    private final boolean complete;
+    private final int expansions;
+
+    public AnytimePath(List<LngLatAlt> path, double suboptimalityBound, boolean complete, int expansions) {
+        this.path = path;
+        this.suboptimalityBound = path != null ? suboptimalityBound : Double.POSITIVE_INFINITY;
+        this.complete = complete;
+        this.expansions = expansions;
+    }
+
+    /**
+     * @return a result without path
+     */
+    public static AnytimePath none(boolean complete, int expansions) {
+        return new AnytimePath(null, Double.POSITIVE_INFINITY, complete, expansions);
+    }
+
+    /**
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> getPath() {
+        return path;
+    }
+
+    public boolean isFound() {
+        return path != null;
+    }
+
+    /**
+     * @return upper bound on path moves divided by shortest-path moves, {@code +Infinity} without path
+     */
+    public double getSuboptimalityBound() {
+        return suboptimalityBound;
+    }
+
+    public boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * @return node expansions over all passes of the search
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+}
@@ -0,0 +1,332 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.example.cw3ilp.service.pathfinding.LatticeSteps.DX;
+import static org.example.cw3ilp.service.pathfinding.LatticeSteps.DY;
+import static org.example.cw3ilp.service.pathfinding.LatticeSteps.NUM_DIRECTIONS;
+
+/**
+ * Bidirectional A* over the 16-direction step lattice.
+ * <p>
+ *     One search grows from the start towards the goal and one from the goal towards the
+ *     start, always expanding the side with the smaller open set. The two searches live on
+ *     different lattices (each anchored at its own origin), so they never share positions;
+ *     they <i>meet</i> when an expanded node lies within the closeness radius of a node of
+ *     the other search.
+ * </p>
+ * <p>
+ *     At a meeting point {@code f} (forward) / {@code b} (backward) the backward moves from
+ *     {@code b} to the goal are replayed from {@code f}. Every replayed move is re-checked
+ *     against the airspace, and the joined path is accepted only if its last position passes
+ *     the goal test - so the result is always a valid sequence of 16-direction
+ *     {@code STEP_SIZE} moves. The first valid join wins; the path is not guaranteed to be
+ *     the shortest. Like {@link LatticeAStar}, one instance is a reusable, non-thread-safe
+ *     workspace.
+ * </p>
+ */
+public final class BidirectionalLatticeAStar {
+
+    private static final double STEP_SIZE = LatticeKeys.STEP_SIZE;
+
+    /** Expansions between two budget checks (a power of two) */
+    private static final int BUDGET_CHECK_INTERVAL = 1024;
+
+    private final LatticeNodeTable forward = new LatticeNodeTable();
+    private final LatticeNodeTable backward = new LatticeNodeTable();
+    private final IndexedMinHeap forwardOpen = new IndexedMinHeap();
+    private final IndexedMinHeap backwardOpen = new IndexedMinHeap();
+
+    // Positions of the backward chain replayed from the meeting point
+    private double[] joinLng = new double[64];
+    private double[] joinLat = new double[64];
+
+    private int expansions;
+    private int peakOpenSize;
+
+    private int nodeLimit = Integer.MAX_VALUE;
+    private boolean nodeLimitReached;
+
+    /**
+     * Find a path from start to a position accepted by {@code goalTest}
+     *
+     * @param forwardOrder  order in which directions are tried from the start side
+     * @param backwardOrder order in which directions are tried from the goal side
+     * @param maxIterations maximum number of node expansions, both sides combined
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> search(double startLng, double startLat,
+                                  double goalLng, double goalLat,
+                                  int[] forwardOrder, int[] backwardOrder,
+                                  Airspace airspace,
+                                  GoalTest goalTest,
+                                  int maxIterations) {
+        return search(startLng, startLat, goalLng, goalLat, forwardOrder, backwardOrder, airspace, goalTest,
+                null, maxIterations);
+    }
+
+    /**
+     * Find a path from start to a position accepted by {@code goalTest}, stopped early once the
+     * budget runs out
+     *
+     * @param budget deadline and cancellation, checked every {@value #BUDGET_CHECK_INTERVAL} expansions;
+     *               {@code null} for none
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> search(double startLng, double startLat,
+                                  double goalLng, double goalLat,
+                                  int[] forwardOrder, int[] backwardOrder,
+                                  Airspace airspace,
+                                  GoalTest goalTest,
+                                  SearchBudget budget,
+                                  int maxIterations) {
+        forward.clear();
+        backward.clear();
+        forwardOpen.clear();
+        backwardOpen.clear();
+        expansions = 0;
+        peakOpenSize = 0;
+        nodeLimitReached = false;
+
+        double meetRadius = LatticeAStar.goalRadius(goalLat);
+        int reachCells = (int) Math.ceil(meetRadius / STEP_SIZE);
+
+        int startSlot = forward.add(LatticeKeys.key(startLng, startLat), startLng, startLat, 0, LatticeNodeTable.NO_SLOT);
+        double startH = LatticeAStar.heuristic(startLng, startLat, goalLng, goalLat, meetRadius);
+        forwardOpen.push(startSlot, startH, startH);
+
+        int goalSlot = backward.add(LatticeKeys.key(goalLng, goalLat), goalLng, goalLat, 0, LatticeNodeTable.NO_SLOT);
+        double goalH = LatticeAStar.heuristic(goalLng, goalLat, startLng, startLat, 0);
+        backwardOpen.push(goalSlot, goalH, goalH);
+
+        while (!forwardOpen.isEmpty() && !backwardOpen.isEmpty() && expansions < maxIterations) {
+            if (budget != null && (expansions & (BUDGET_CHECK_INTERVAL - 1)) == 0 && budget.isExhausted()) {
+                return null;
+            }
+            if (forward.size() + backward.size() >= nodeLimit) {
+                nodeLimitReached = true;
+                return null;
+            }
+            expansions++;
+
+            if (forwardOpen.size() <= backwardOpen.size()) {
+                int current = forwardOpen.poll();
+                forward.close(current);
+
+                if (goalTest.isReached(forward.lng(current), forward.lat(current))) {
+                    return forwardPath(current, 0);
+                }
+                List<LngLatAlt> joined = meetFromForward(current, reachCells, meetRadius, airspace, goalTest);
+                if (joined != null) {
+                    return joined;
+                }
+                expand(forward, forwardOpen, current, forwardOrder, goalLng, goalLat, meetRadius, airspace);
+            } else {
+                int current = backwardOpen.poll();
+                backward.close(current);
+
+                List<LngLatAlt> joined = meetFromBackward(current, reachCells, meetRadius, airspace, goalTest);
+                if (joined != null) {
+                    return joined;
+                }
+                expand(backward, backwardOpen, current, backwardOrder, startLng, startLat, 0, airspace);
+            }
+
+            int openSize = forwardOpen.size() + backwardOpen.size();
+            if (openSize > peakOpenSize) {
+                peakOpenSize = openSize;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Cap the lattice positions a search may hold, both sides combined; a search that reaches it gives up. The node
+     * table keeps its capacity between searches, so this also bounds the workspace's memory
+     *
+     * @param nodeLimit maximum number of nodes, {@link Integer#MAX_VALUE} for no cap
+     */
+    public void setNodeLimit(int nodeLimit) {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Node limit must be positive, got: " + nodeLimit);
+        }
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * @return {@code true} if the last search gave up because it reached the node limit
+     */
+    public boolean isNodeLimitReached() {
+        return nodeLimitReached;
+    }
+
+    /**
+     * @return node expansions performed by the last search, both sides combined
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return largest combined open-set size reached during the last search
+     */
+    public int getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    /**
+     * @return number of distinct lattice positions discovered by the last search, both sides combined
+     */
+    public int getNodeCount() {
+        return forward.size() + backward.size();
+    }
+
+    /**
+     * @return number of distinct lattice positions closed by the last search, both sides combined
+     */
+    public int getClosedCount() {
+        return forward.closedCount() + backward.closedCount();
+    }
+
+    private void expand(LatticeNodeTable nodes, IndexedMinHeap open, int current, int[] directionOrder,
+                        double targetLng, double targetLat, double targetRadius, Airspace airspace) {
+        double currentLng = nodes.lng(current);
+        double currentLat = nodes.lat(current);
+        double tentativeG = nodes.g(current) + 1;
+
+        for (int direction : directionOrder) {
+            double nextLng = currentLng + DX[direction];
+            double nextLat = currentLat + DY[direction];
+            long nextKey = LatticeKeys.key(nextLng, nextLat);
+
+            int slot = nodes.find(nextKey);
+            if (slot != LatticeNodeTable.NO_SLOT
+                    && (nodes.isClosed(slot) || tentativeG >= nodes.g(slot))) {
+                continue;
+            }
+
+            if (airspace.isBlocked(nextLng, nextLat)) continue;
+            if (airspace.isSegmentBlocked(currentLng, currentLat, nextLng, nextLat)) continue;
+
+            if (slot == LatticeNodeTable.NO_SLOT) {
+                slot = nodes.add(nextKey, nextLng, nextLat, tentativeG, current);
+            } else {
+                nodes.improve(slot, nextLng, nextLat, tentativeG, current);
+            }
+            nodes.setDirection(slot, direction);
+
+            double h = LatticeAStar.heuristic(nextLng, nextLat, targetLng, targetLat, targetRadius);
+            open.push(slot, tentativeG + h, h);
+        }
+    }
+
+    private List<LngLatAlt> meetFromForward(int forwardSlot, int reachCells, double meetRadius,
+                                            Airspace airspace, GoalTest goalTest) {
+        double lng = forward.lng(forwardSlot);
+        double lat = forward.lat(forwardSlot);
+        int lngIndex = LatticeKeys.lngIndex(lng);
+        int latIndex = LatticeKeys.latIndex(lat);
+
+        for (int i = lngIndex - reachCells; i <= lngIndex + reachCells; i++) {
+            for (int j = latIndex - reachCells; j <= latIndex + reachCells; j++) {
+                int backwardSlot = backward.find(LatticeKeys.pack(i, j));
+                if (backwardSlot != LatticeNodeTable.NO_SLOT
+                        && within(lng, lat, backward.lng(backwardSlot), backward.lat(backwardSlot), meetRadius)) {
+                    List<LngLatAlt> joined = join(forwardSlot, backwardSlot, airspace, goalTest);
+                    if (joined != null) {
+                        return joined;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<LngLatAlt> meetFromBackward(int backwardSlot, int reachCells, double meetRadius,
+                                             Airspace airspace, GoalTest goalTest) {
+        double lng = backward.lng(backwardSlot);
+        double lat = backward.lat(backwardSlot);
+        int lngIndex = LatticeKeys.lngIndex(lng);
+        int latIndex = LatticeKeys.latIndex(lat);
+
+        for (int i = lngIndex - reachCells; i <= lngIndex + reachCells; i++) {
+            for (int j = latIndex - reachCells; j <= latIndex + reachCells; j++) {
+                int forwardSlot = forward.find(LatticeKeys.pack(i, j));
+                if (forwardSlot != LatticeNodeTable.NO_SLOT
+                        && within(lng, lat, forward.lng(forwardSlot), forward.lat(forwardSlot), meetRadius)) {
+                    List<LngLatAlt> joined = join(forwardSlot, backwardSlot, airspace, goalTest);
+                    if (joined != null) {
+                        return joined;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Replay the backward chain from {@code backwardSlot} to the goal, starting at the forward node
+     *
+     * @return the joined path, or {@code null} if a replayed move is blocked or misses the goal
+     */
+    private List<LngLatAlt> join(int forwardSlot, int backwardSlot, Airspace airspace, GoalTest goalTest) {
+        double lng = forward.lng(forwardSlot);
+        double lat = forward.lat(forwardSlot);
+        int moves = 0;
+
+        for (int slot = backwardSlot; backward.parent(slot) != LatticeNodeTable.NO_SLOT; slot = backward.parent(slot)) {
+            // the backward search reached this node by moving in direction d, so walk back the opposite way
+            int direction = (backward.direction(slot) + NUM_DIRECTIONS / 2) % NUM_DIRECTIONS;
+            double nextLng = lng + DX[direction];
+            double nextLat = lat + DY[direction];
+
+            if (airspace.isBlocked(nextLng, nextLat)
+                    || airspace.isSegmentBlocked(lng, lat, nextLng, nextLat)) {
+                return null;
+            }
+
+            if (moves == joinLng.length) {
+                joinLng = Arrays.copyOf(joinLng, moves * 2);
+                joinLat = Arrays.copyOf(joinLat, moves * 2);
+            }
+            joinLng[moves] = nextLng;
+            joinLat[moves] = nextLat;
+            moves++;
+            lng = nextLng;
+            lat = nextLat;
+
+            if (goalTest.isReached(lng, lat)) {
+                return forwardPath(forwardSlot, moves);
+            }
+        }
+
+        return goalTest.isReached(lng, lat) ? forwardPath(forwardSlot, moves) : null;
+    }
+
+    /**
+     * @return the forward chain from start to {@code endSlot}, followed by the first {@code joinMoves} replayed positions
+     */
+    private List<LngLatAlt> forwardPath(int endSlot, int joinMoves) {
+        List<LngLatAlt> path = new ArrayList<>();
+        for (int slot = endSlot; slot != LatticeNodeTable.NO_SLOT; slot = forward.parent(slot)) {
+            path.add(new LngLatAlt(forward.lng(slot), forward.lat(slot), null));
+        }
+        Collections.reverse(path);
+        for (int i = 0; i < joinMoves; i++) {
+            path.add(new LngLatAlt(joinLng[i], joinLat[i], null));
+        }
+        return path;
+    }
+
+    private static boolean within(double lng1, double lat1, double lng2, double lat2, double radius) {
+        double dLng = lng1 - lng2;
+        double dLat = lat1 - lat2;
+        return dLng * dLng + dLat * dLat <= radius * radius;
+    }
+}
@@ -0,0 +1,232 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Which of several origins (the service points) reaches each lattice cell in the fewest moves,
+ * flood-filled once so assigning a point to its nearest origin is an array lookup.
+ * <p>
+ *     The map covers the origins' bounding box plus {@code margin} steps on every side and is
+ *     filled breadth-first from all origins at once with the lattice engines' moves and airspace
+ *     checks. A cell belongs to the origin that reaches it first, so a zone between a point and
+ *     the geometrically nearest origin hands the point to whichever origin can fly round it
+ *     soonest. Ties go to the origin listed first; of the positions an origin reaches a cell
+ *     with, the one furthest from it is kept, which leaves the most room for the moves after it.
+ * </p>
+ * <p>
+ *     Paths that would have to leave the map to get round a zone are not found, and counts can
+ *     differ from a lattice search by a few moves either way. A cell takes 4 bytes; the map is
+ *     immutable once filled and safe to share between threads.
+ * </p>
+ */
+public final class CatchmentMap {
+
+    /** Owner and moves returned for cells no origin reached */
+    public static final int UNREACHED = -1;
+
+    /** Most origins a map can hold */
+    public static final int MAX_ORIGINS = Short.MAX_VALUE;
+
+    /** Refuse to fill maps above this many cells */
+    static final long MAX_CELLS = 16L * 1024 * 1024;
+
+    private static final int NUM_DIRECTIONS = LatticeSteps.NUM_DIRECTIONS;
+
+    private static final char NO_MOVES = 0xFFFF;
+
+    private final int minI;
+    private final int minJ;
+    private final int width;
+    private final int height;
+    private final short[] owners;
+    private final char[] moves;
+    private final int originCount;
+
+    private CatchmentMap(int minI, int minJ, int width, int height, int originCount) {
+        this.minI = minI;
+        this.minJ = minJ;
+        this.width = width;
+        this.height = height;
+        this.owners = new short[width * height];
+        this.moves = new char[width * height];
+        this.originCount = originCount;
+    }
+
+    /**
+     * Flood-fill the map from the origins
+     *
+     * @param originLngs longitudes of the origins; an origin with a NaN coordinate is skipped
+     *                   but keeps its place, so owners stay indices into the caller's list
+     * @param margin     steps the map reaches beyond the origins' bounding box
+     * @throws IllegalArgumentException if there are too many origins, the margin is not positive,
+     *                                  or the map would exceed {@link #MAX_CELLS}
+     */
+    public static CatchmentMap compute(double[] originLngs, double[] originLats, int margin, Airspace airspace) {
+        if (originLngs.length != originLats.length) {
+            throw new IllegalArgumentException("Origin coordinate arrays differ in length: "
+                    + originLngs.length + " and " + originLats.length);
+        }
+        if (originLngs.length > MAX_ORIGINS) {
+            throw new IllegalArgumentException("At most " + MAX_ORIGINS + " origins, got: " + originLngs.length);
+        }
+        if (margin < 1) {
+            throw new IllegalArgumentException("Map margin must be positive, got: " + margin);
+        }
+
+        int minI = Integer.MAX_VALUE;
+        int minJ = Integer.MAX_VALUE;
+        int maxI = Integer.MIN_VALUE;
+        int maxJ = Integer.MIN_VALUE;
+        for (int k = 0; k < originLngs.length; k++) {
+            if (!isUsable(originLngs[k], originLats[k])) continue;
+            int i = LatticeKeys.lngIndex(originLngs[k]);
+            int j = LatticeKeys.latIndex(originLats[k]);
+            minI = Math.min(minI, i);
+            minJ = Math.min(minJ, j);
+            maxI = Math.max(maxI, i);
+            maxJ = Math.max(maxJ, j);
+        }
+        if (minI > maxI) {
+            return new CatchmentMap(0, 0, 0, 0, originLngs.length);
+        }
+
+        long width = (long) maxI - minI + 1 + 2L * margin;
+        long height = (long) maxJ - minJ + 1 + 2L * margin;
+        if (width * height > MAX_CELLS) {
+            throw new IllegalArgumentException("Map of " + width + " x " + height + " cells exceeds "
+                    + MAX_CELLS + " cells");
+        }
+
+        CatchmentMap map = new CatchmentMap(minI - margin, minJ - margin, (int) width, (int) height,
+                originLngs.length);
+        map.fill(originLngs, originLats, airspace);
+        return map;
+    }
+
+    /**
+     * Origin reaching the cell holding a point in the fewest moves
+     *
+     * @return the origin's index, or {@link #UNREACHED} if the cell is outside the map or was not reached
+     */
+    public int ownerAt(double lng, double lat) {
+        int cell = cellOf(LatticeKeys.lngIndex(lng), LatticeKeys.latIndex(lat));
+        return cell < 0 || moves[cell] == NO_MOVES ? UNREACHED : owners[cell];
+    }
+
+    /**
+     * Moves from the owning origin to the cell holding a point
+     *
+     * @return the moves, or {@link #UNREACHED} if the cell is outside the map or was not reached
+     */
+    public int movesAt(double lng, double lat) {
+        int cell = cellOf(LatticeKeys.lngIndex(lng), LatticeKeys.latIndex(lat));
+        return cell < 0 || moves[cell] == NO_MOVES ? UNREACHED : moves[cell];
+    }
+
+    /**
+     * @return number of origins the map was filled from, skipped ones included
+     */
+    public int getOriginCount() {
+        return originCount;
+    }
+
+    public int getCellCount() {
+        return owners.length;
+    }
+
+    public long getSizeBytes() {
+        return (long) owners.length * (Short.BYTES + Character.BYTES);
+    }
+
+    /**
+     * Breadth-first flood fill from every origin at once
+     */
+    private void fill(double[] originLngs, double[] originLats, Airspace airspace) {
+        int cellCount = owners.length;
+        Arrays.fill(moves, NO_MOVES);
+
+        // positions are only needed while a cell is on the frontier
+        int[] queue = new int[cellCount];
+        double[] lngs = new double[cellCount];
+        double[] lats = new double[cellCount];
+        int tail = 0;
+
+        for (int k = 0; k < originLngs.length; k++) {
+            double originLng = originLngs[k];
+            double originLat = originLats[k];
+            if (!isUsable(originLng, originLat) || airspace.isBlocked(originLng, originLat)) continue;
+            int cell = cellOf(LatticeKeys.lngIndex(originLng), LatticeKeys.latIndex(originLat));
+            // origins sharing a cell go to the one listed first
+            if (moves[cell] != NO_MOVES) continue;
+            moves[cell] = 0;
+            owners[cell] = (short) k;
+            lngs[cell] = originLng;
+            lats[cell] = originLat;
+            queue[tail++] = cell;
+        }
+
+        int head = 0;
+        while (head < tail) {
+            int current = queue[head++];
+            double currentLng = lngs[current];
+            double currentLat = lats[current];
+            int nextMoves = moves[current] + 1;
+            if (nextMoves == NO_MOVES) continue;
+            int owner = owners[current];
+
+            for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+                double nextLng = currentLng + LatticeSteps.DX[direction];
+                double nextLat = currentLat + LatticeSteps.DY[direction];
+                int next = cellOf(LatticeKeys.lngIndex(nextLng), LatticeKeys.latIndex(nextLat));
+                if (next < 0) continue;
+                // cells of the layer being filled still go to an earlier origin or a position further out
+                boolean unreached = moves[next] == NO_MOVES;
+                if (!unreached && !takesOver(next, nextMoves, owner, nextLng, nextLat, lngs[next], lats[next],
+                        originLngs[owner], originLats[owner])) continue;
+
+                if (airspace.isBlocked(nextLng, nextLat)) continue;
+                if (airspace.isSegmentBlocked(currentLng, currentLat, nextLng, nextLat)) continue;
+
+                moves[next] = (char) nextMoves;
+                owners[next] = (short) owner;
+                lngs[next] = nextLng;
+                lats[next] = nextLat;
+                if (unreached) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true} if reaching an already reached cell this way replaces how it was reached
+     */
+    private boolean takesOver(int cell, int cellMoves, int owner, double lng, double lat,
+                              double knownLng, double knownLat, double originLng, double originLat) {
+        if (moves[cell] != cellMoves) {
+            return false;
+        }
+        int known = owners[cell];
+        if (owner != known) {
+            return owner < known;
+        }
+        double dLng = lng - originLng;
+        double dLat = lat - originLat;
+        double knownDLng = knownLng - originLng;
+        double knownDLat = knownLat - originLat;
+        return dLng * dLng + dLat * dLat > knownDLng * knownDLng + knownDLat * knownDLat;
+    }
+
+    private int cellOf(int i, int j) {
+        int column = i - minI;
+        int row = j - minJ;
+        if (column < 0 || row < 0 || column >= width || row >= height) {
+            return -1;
+        }
+        return row * width + column;
+    }
+
+    private static boolean isUsable(double lng, double lat) {
+        return Double.isFinite(lng) && Double.isFinite(lat);
+    }
+}
@@ -0,0 +1,142 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * The {@link CatchmentMap CatchmentMaps} of the service points under the most recently used zones.
+ * <p>
+ *     A map is keyed by {@link #key} - the zones' fingerprint mixed with the origins - and filled
+ *     on a background thread of its own, one map at a time, so filling never holds up the shared
+ *     pool. Until it is ready {@link #get} returns {@code null} and callers pick the nearest
+ *     origin as usual. Up to {@link #CAPACITY} maps are kept, least recently used first out, so
+ *     callers alternating between zone sets do not refill each other's maps.
+ * </p>
+ */
+public final class CatchmentStore implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatchmentStore.class);
+
+    /** Maps kept at once */
+    static final int CAPACITY = 4;
+
+    private final int margin;
+
+    private final ExecutorService background = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "catchment-map");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Map<Long, CompletableFuture<CatchmentMap>> pending = new ConcurrentHashMap<>();
+
+    /** Guarded by itself; iterates least recently used first */
+    private final Map<Long, CatchmentMap> ready = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, CatchmentMap> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    public CatchmentStore(int margin) {
+        if (margin < 1) {
+            throw new IllegalArgumentException("Map margin must be positive, got: " + margin);
+        }
+        this.margin = margin;
+    }
+
+    /**
+     * @param fingerprint hash of the zones the airspace is built from
+     * @return key of the map filled from these origins under those zones
+     */
+    public static long key(long fingerprint, double[] originLngs, double[] originLats) {
+        long hash = mix(fingerprint, originLngs.length);
+        for (int k = 0; k < originLngs.length; k++) {
+            hash = mix(hash, Double.doubleToLongBits(originLngs[k]));
+            hash = mix(hash, Double.doubleToLongBits(originLats[k]));
+        }
+        return hash;
+    }
+
+    /**
+     * @return the ready map for a key, or {@code null}
+     */
+    public CatchmentMap get(long key) {
+        synchronized (ready) {
+            return ready.get(key);
+        }
+    }
+
+    /**
+     * Start filling the map for a key unless it is ready or already being filled
+     *
+     * @param airspace the zones the key's fingerprint was taken of
+     * @return completes with the map, or with {@code null} if it could not be filled or the
+     *         store is closed
+     */
+    public CompletableFuture<CatchmentMap> prepare(long key, double[] originLngs, double[] originLats,
+                                                   Airspace airspace) {
+        CatchmentMap map = get(key);
+        if (map != null) {
+            return CompletableFuture.completedFuture(map);
+        }
+        CompletableFuture<CatchmentMap> future = new CompletableFuture<>();
+        CompletableFuture<CatchmentMap> running = pending.putIfAbsent(key, future);
+        if (running != null) {
+            return running;
+        }
+        try {
+            background.execute(() -> {
+                try {
+                    future.complete(fill(key, originLngs, originLats, airspace));
+                } finally {
+                    pending.remove(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            pending.remove(key, future);
+            future.complete(null);
+        }
+        return future;
+    }
+
+    /**
+     * Stop the background thread; maps still being filled complete with {@code null}
+     */
+    @Override
+    public void close() {
+        background.shutdownNow();
+        pending.values().forEach(future -> future.complete(null));
+    }
+
+    private CatchmentMap fill(long key, double[] originLngs, double[] originLats, Airspace airspace) {
+        try {
+            long startNanos = System.nanoTime();
+            CatchmentMap map = CatchmentMap.compute(originLngs, originLats, margin, airspace);
+            logger.info("Filled catchment map {} for {} service points: {} cells, {} KB in {} ms",
+                    Long.toHexString(key), map.getOriginCount(), map.getCellCount(),
+                    map.getSizeBytes() / 1024, (System.nanoTime() - startNanos) / 1_000_000);
+            synchronized (ready) {
+                ready.put(key, map);
+            }
+            return map;
+        } catch (RuntimeException e) {
+            logger.error("Failed to fill catchment map {}", Long.toHexString(key), e);
+            return null;
+        }
+    }
+
+    private static long mix(long hash, long value) {
+        hash ^= value;
+        hash *= 0x100000001b3L;
+        return hash ^ (hash >>> 29);
+    }
+}
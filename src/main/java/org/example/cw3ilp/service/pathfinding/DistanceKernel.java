@@ -0,0 +1,13 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Distance formula {@code PathfinderService} uses for goal tests and distance estimates.
+ */
+public enum DistanceKernel {
+
+    /** Great-circle Haversine distance, as served by the public distance API */
+    HAVERSINE,
+
+    /** Flat-earth approximation with cos(latitude) taken once per goal - see {@link EquirectangularDistance} */
+    EQUIRECTANGULAR
+}
@@ -0,0 +1,253 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Flight path stored as its origin plus one 4-bit direction code per move.
+ * <p>
+ *     Almost every waypoint of a flight path is one of the 16 {@link LatticeSteps moves} from the
+ *     one before, so it is written as that move's direction code, two codes to a byte. The few
+ *     waypoints that are not are listed as markers before the codes: a hover repeats the previous
+ *     waypoint and a jump gives its position in full (e.g. the off-lattice delivery point at the
+ *     end of a customer path). A waypoint is only written as a move if stepping from the previous
+ *     one reproduces it exactly, so decoding gives back the same doubles.
+ * </p>
+ * <p>
+ *     Codes layout (big-endian): version byte, hover count, hover indices, jump count, jumps as
+ *     (index, lng, lat), then the packed direction codes, high nibble first. {@link #toBytes()}
+ *     prefixes the origin and waypoint count so the path can be stored on its own.
+ * </p>
+ */
+public final class EncodedPath {
+
+    private static final byte VERSION = 1;
+
+    /** Bytes of the origin and waypoint count in front of the codes in {@link #toBytes()} */
+    private static final int HEADER_BYTES = 8 + 8 + 4;
+
+    private static final int JUMP_BYTES = 4 + 8 + 8;
+
+    private final double originLng;
+    private final double originLat;
+    private final int waypoints;
+    private final byte[] codes;
+
+    private EncodedPath(double originLng, double originLat, int waypoints, byte[] codes) {
+        this.originLng = originLng;
+        this.originLat = originLat;
+        this.waypoints = waypoints;
+        this.codes = codes;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the path is empty or has a waypoint without coordinates
+     */
+    public static EncodedPath encode(List<LngLatAlt> path) {
+        if (path == null || path.isEmpty()) {
+            throw new IllegalArgumentException("Cannot encode an empty path");
+        }
+
+        int[] directions = new int[path.size()];
+        List<Integer> hovers = new ArrayList<>();
+        List<Integer> jumps = new ArrayList<>();
+        int moves = 0;
+
+        LngLatAlt previous = requireCoordinates(path.getFirst(), 0);
+        for (int i = 1; i < path.size(); i++) {
+            LngLatAlt waypoint = requireCoordinates(path.get(i), i);
+            double lng = waypoint.getLng();
+            double lat = waypoint.getLat();
+            double prevLng = previous.getLng();
+            double prevLat = previous.getLat();
+
+            int direction = LatticeSteps.directionOf(lng - prevLng, lat - prevLat);
+            if (lng == prevLng && lat == prevLat) {
+                hovers.add(i);
+            } else if (direction >= 0 && LatticeSteps.nextLng(prevLng, direction) == lng
+                    && LatticeSteps.nextLat(prevLat, direction) == lat) {
+                directions[moves++] = direction;
+            } else {
+                jumps.add(i);
+            }
+            previous = waypoint;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 4 + 4 * hovers.size() + 4 + JUMP_BYTES * jumps.size()
+                + (moves + 1) / 2);
+        buffer.put(VERSION);
+        buffer.putInt(hovers.size());
+        for (int index : hovers) {
+            buffer.putInt(index);
+        }
+        buffer.putInt(jumps.size());
+        for (int index : jumps) {
+            buffer.putInt(index);
+            buffer.putDouble(path.get(index).getLng());
+            buffer.putDouble(path.get(index).getLat());
+        }
+        for (int i = 0; i < moves; i += 2) {
+            int high = directions[i] << 4;
+            int low = i + 1 < moves ? directions[i + 1] : 0;
+            buffer.put((byte) (high | low));
+        }
+
+        LngLatAlt origin = path.getFirst();
+        return new EncodedPath(origin.getLng(), origin.getLat(), path.size(), buffer.array());
+    }
+
+    /**
+     * @param waypoints client-supplied count, checked against the length of the codes before anything is allocated
+     * @param codes the Base64 codes of {@link #getCodesBase64()}
+     * @throws IllegalArgumentException if the codes are not valid Base64 or do not describe the path
+     */
+    public static EncodedPath of(double originLng, double originLat, int waypoints, String codes) {
+        byte[] bytes = Base64.getDecoder().decode(codes);
+        EncodedPath encoded = new EncodedPath(originLng, originLat, waypoints, bytes);
+        encoded.decode();
+        return encoded;
+    }
+
+    /**
+     * @param bytes a path written by {@link #toBytes()}
+     * @throws IllegalArgumentException if the bytes are not an encoded path
+     */
+    public static EncodedPath fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Malformed encoded path: too short");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        double originLng = buffer.getDouble();
+        double originLat = buffer.getDouble();
+        int waypoints = buffer.getInt();
+        byte[] codes = new byte[buffer.remaining()];
+        buffer.get(codes);
+
+        EncodedPath encoded = new EncodedPath(originLng, originLat, waypoints, codes);
+        encoded.decode();
+        return encoded;
+    }
+
+    /**
+     * @return the waypoints, bit for bit those that were encoded (altitude is not kept)
+     * @throws IllegalArgumentException if the codes do not describe a path of {@link #getWaypoints()} waypoints
+     */
+    public List<LngLatAlt> decode() {
+        // every waypoint after the origin takes at least a nibble of the codes
+        if (waypoints < 1 || waypoints - 1L > 2L * codes.length) {
+            throw new IllegalArgumentException("Malformed encoded path: " + waypoints + " waypoints");
+        }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(codes);
+            if (buffer.get() != VERSION) {
+                throw new IllegalArgumentException("Malformed encoded path: unknown version");
+            }
+            int[] hovers = readIndices(buffer, 0);
+            int[] jumps = readIndices(buffer, JUMP_BYTES - 4);
+            int moves = waypoints - 1 - hovers.length - jumps.length;
+            if (moves < 0 || buffer.remaining() != (moves + 1) / 2) {
+                throw new IllegalArgumentException("Malformed encoded path: codes do not match "
+                        + waypoints + " waypoints");
+            }
+            int codesStart = buffer.position();
+
+            List<LngLatAlt> path = new ArrayList<>(waypoints);
+            double lng = originLng;
+            double lat = originLat;
+            path.add(new LngLatAlt(lng, lat, null));
+
+            int nextHover = 0;
+            int nextJump = 0;
+            int move = 0;
+            for (int i = 1; i < waypoints; i++) {
+                if (nextHover < hovers.length && hovers[nextHover] == i) {
+                    nextHover++;
+                } else if (nextJump < jumps.length && jumps[nextJump] == i) {
+                    int at = jumpOffset(hovers.length, nextJump++);
+                    lng = buffer.getDouble(at + 4);
+                    lat = buffer.getDouble(at + 12);
+                } else {
+                    int packed = codes[codesStart + move / 2] & 0xFF;
+                    int direction = move % 2 == 0 ? packed >>> 4 : packed & 0x0F;
+                    move++;
+                    lng = LatticeSteps.nextLng(lng, direction);
+                    lat = LatticeSteps.nextLat(lat, direction);
+                }
+                path.add(new LngLatAlt(lng, lat, null));
+            }
+
+            if (nextHover != hovers.length || nextJump != jumps.length) {
+                throw new IllegalArgumentException("Malformed encoded path: marker indices out of order");
+            }
+            return path;
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed encoded path: truncated", e);
+        }
+    }
+
+    /**
+     * @return origin, waypoint count and codes, for storing the path on its own
+     */
+    public byte[] toBytes() {
+        return ByteBuffer.allocate(HEADER_BYTES + codes.length)
+                .putDouble(originLng)
+                .putDouble(originLat)
+                .putInt(waypoints)
+                .put(codes)
+                .array();
+    }
+
+    public double getOriginLng() {
+        return originLng;
+    }
+
+    public double getOriginLat() {
+        return originLat;
+    }
+
+    public int getWaypoints() {
+        return waypoints;
+    }
+
+    /**
+     * @return the markers and packed direction codes as Base64, for JSON
+     */
+    public String getCodesBase64() {
+        return Base64.getEncoder().encodeToString(codes);
+    }
+
+    /**
+     * Read a count and that many indices, each followed by {@code skip} bytes
+     */
+    private int[] readIndices(ByteBuffer buffer, int skip) {
+        int count = buffer.getInt();
+        if (count < 0 || count >= waypoints || count > buffer.remaining() / (4 + skip)) {
+            throw new IllegalArgumentException("Malformed encoded path: " + count + " markers");
+        }
+        int[] indices = new int[count];
+        for (int i = 0; i < count; i++) {
+            indices[i] = buffer.getInt();
+            if (indices[i] < 1 || indices[i] >= waypoints || (i > 0 && indices[i] <= indices[i - 1])) {
+                throw new IllegalArgumentException("Malformed encoded path: marker index " + indices[i]);
+            }
+            buffer.position(buffer.position() + skip);
+        }
+        return indices;
+    }
+
+    private static int jumpOffset(int hoverCount, int jump) {
+        return 1 + 4 + 4 * hoverCount + 4 + jump * JUMP_BYTES;
+    }
+
+    private static LngLatAlt requireCoordinates(LngLatAlt waypoint, int index) {
+        if (waypoint == null || waypoint.getLng() == null || waypoint.getLat() == null) {
+            throw new IllegalArgumentException("Waypoint " + index + " has no coordinates");
+        }
+        return waypoint;
+    }
+}
@@ -0,0 +1,10 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Decides whether a lattice position is close enough to the goal to stop searching.
+ */
+@FunctionalInterface
+public interface GoalTest {
+
+    boolean isReached(double lng, double lat);
+}
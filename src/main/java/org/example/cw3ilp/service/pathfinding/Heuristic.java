@@ -0,0 +1,11 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Lower bound on the number of moves left to reach the goal from a position.
+ * Must never overestimate, or the lattice search may return a longer path than necessary.
+ */
+@FunctionalInterface
+public interface Heuristic {
+
+    double estimate(double lng, double lat);
+}
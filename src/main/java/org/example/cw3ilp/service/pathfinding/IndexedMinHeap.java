@@ -0,0 +1,171 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Binary min-heap of node slots with O(log n) decrease-key.
+ * <p>
+ *     Entries are ordered by a primary priority (f-score) and, on ties,
+ *     by a secondary priority (h-score) so deeper nodes are expanded first.
+ *     The heap position of every slot is tracked, so an improved node is moved
+ *     in place instead of being pushed a second time.
+ * </p>
+ */
+public final class IndexedMinHeap {
+
+    private static final int ABSENT = -1;
+
+    private int[] heap;
+    private int size;
+
+    // indexed by slot
+    private int[] positions;
+    private double[] primary;
+    private double[] secondary;
+
+    public IndexedMinHeap() {
+        heap = new int[1 << 10];
+        positions = new int[1 << 12];
+        primary = new double[1 << 12];
+        secondary = new double[1 << 12];
+        Arrays.fill(positions, ABSENT);
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = ABSENT;
+        }
+        size = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int slot) {
+        return slot < positions.length && positions[slot] != ABSENT;
+    }
+
+    public double peekPriority() {
+        return primary[heap[0]];
+    }
+
+    /**
+     * Inserts a slot, or updates its priority if it is already queued
+     */
+    public void push(int slot, double priority, double tieBreak) {
+        ensureSlotCapacity(slot + 1);
+        int pos = positions[slot];
+        primary[slot] = priority;
+        secondary[slot] = tieBreak;
+
+        if (pos != ABSENT) {
+            siftUp(pos);
+            siftDown(positions[slot]);
+            return;
+        }
+
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        heap[size] = slot;
+        positions[slot] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * Removes and returns the slot with the lowest priority
+     */
+    public int poll() {
+        int top = heap[0];
+        positions[top] = ABSENT;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    /**
+     * Removes an arbitrary slot from the heap
+     */
+    public void remove(int slot) {
+        int pos = positions[slot];
+        if (pos == ABSENT) {
+            return;
+        }
+        positions[slot] = ABSENT;
+        size--;
+        if (pos != size) {
+            int moved = heap[size];
+            heap[pos] = moved;
+            positions[moved] = pos;
+            siftUp(pos);
+            siftDown(positions[moved]);
+        }
+    }
+
+    private boolean less(int a, int b) {
+        if (primary[a] != primary[b]) {
+            return primary[a] < primary[b];
+        }
+        return secondary[a] < secondary[b];
+    }
+
+    private void siftUp(int pos) {
+        int slot = heap[pos];
+        while (pos > 0) {
+            int parentPos = (pos - 1) >>> 1;
+            int parentSlot = heap[parentPos];
+            if (!less(slot, parentSlot)) {
+                break;
+            }
+            heap[pos] = parentSlot;
+            positions[parentSlot] = pos;
+            pos = parentPos;
+        }
+        heap[pos] = slot;
+        positions[slot] = pos;
+    }
+
+    private void siftDown(int pos) {
+        int slot = heap[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            int right = child + 1;
+            if (right < size && less(heap[right], heap[child])) {
+                child = right;
+            }
+            if (!less(heap[child], slot)) {
+                break;
+            }
+            heap[pos] = heap[child];
+            positions[heap[pos]] = pos;
+            pos = child;
+        }
+        heap[pos] = slot;
+        positions[slot] = pos;
+    }
+
+    private void ensureSlotCapacity(int slots) {
+        if (slots <= positions.length) {
+            return;
+        }
+        int capacity = positions.length;
+        while (capacity < slots) {
+            capacity *= 2;
+        }
+        int oldLength = positions.length;
+        positions = Arrays.copyOf(positions, capacity);
+        Arrays.fill(positions, oldLength, capacity, ABSENT);
+        primary = Arrays.copyOf(primary, capacity);
+        secondary = Arrays.copyOf(secondary, capacity);
+    }
+}
@@ -0,0 +1,296 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Allocation-free A* over the 16-direction step lattice.
+ * <p>
+ *     Positions are identified by their packed {@link LatticeKeys lattice key}, node data lives
+ *     in a {@link LatticeNodeTable} and the open set is an {@link IndexedMinHeap}, so an
+ *     expansion touches only primitive arrays. One instance is a reusable workspace and is
+ *     <b>not</b> thread-safe - callers keep one per thread.
+ * </p>
+ * <p>
+ *     The default heuristic is the planar distance to the goal in moves, less the widest
+ *     radius at which the goal test can succeed, so it stays admissible and consistent and
+ *     the move count of the returned path is the same as the original engine's. A custom
+ *     {@link Heuristic} only needs to be admissible: a closed node is reopened when a
+ *     shorter way to it turns up.
+ * </p>
+ * <p>
+ *     For anytime use the heuristic can be inflated by a weight {@code w >= 1}, which trades
+ *     path length (at most {@code w} times the shortest) for far fewer expansions, nodes that
+ *     cannot beat a known path are pruned, and the search stops early when its
+ *     {@link SearchBudget} runs out.
+ * </p>
+ */
+public final class LatticeAStar {
+
+    public static final int NUM_DIRECTIONS = LatticeSteps.NUM_DIRECTIONS;
+
+    private static final double STEP_SIZE = LatticeKeys.STEP_SIZE;
+
+    /** Expansions between two budget checks (a power of two) */
+    private static final int BUDGET_CHECK_INTERVAL = 1024;
+
+    private final LatticeNodeTable nodes = new LatticeNodeTable();
+    private final IndexedMinHeap open = new IndexedMinHeap();
+
+    private int expansions;
+    private int peakOpenSize;
+    private boolean truncated;
+
+    private int nodeLimit = Integer.MAX_VALUE;
+    private boolean nodeLimitReached;
+
+    /**
+     * Find a path from start to a position accepted by {@code goalTest}
+     *
+     * @param directionOrder order in which the 16 directions are tried at every node
+     * @param maxIterations  maximum number of node expansions
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> search(double startLng, double startLat,
+                                  double goalLng, double goalLat,
+                                  int[] directionOrder,
+                                  Airspace airspace,
+                                  GoalTest goalTest,
+                                  int maxIterations) {
+        return search(startLng, startLat, goalLng, goalLat, directionOrder, airspace, goalTest, null, maxIterations);
+    }
+
+    /**
+     * Find a path from start to a position accepted by {@code goalTest}, guided by a custom heuristic
+     *
+     * @param heuristic admissible estimate of the moves left, or {@code null} for the planar default
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> search(double startLng, double startLat,
+                                  double goalLng, double goalLat,
+                                  int[] directionOrder,
+                                  Airspace airspace,
+                                  GoalTest goalTest,
+                                  Heuristic heuristic,
+                                  int maxIterations) {
+        return search(startLng, startLat, goalLng, goalLat, directionOrder, airspace, goalTest, heuristic,
+                null, maxIterations);
+    }
+
+    /**
+     * Find a path from start to a position accepted by {@code goalTest}, guided by a custom heuristic
+     * and stopped early once the budget runs out
+     *
+     * @param heuristic admissible estimate of the moves left, or {@code null} for the planar default
+     * @param budget    deadline and cancellation, checked every {@value #BUDGET_CHECK_INTERVAL} expansions;
+     *                  {@code null} for none
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> search(double startLng, double startLat,
+                                  double goalLng, double goalLat,
+                                  int[] directionOrder,
+                                  Airspace airspace,
+                                  GoalTest goalTest,
+                                  Heuristic heuristic,
+                                  SearchBudget budget,
+                                  int maxIterations) {
+        return search(startLng, startLat, goalLng, goalLat, directionOrder, airspace, goalTest, heuristic,
+                1.0, Double.POSITIVE_INFINITY, budget, maxIterations);
+    }
+
+    /**
+     * Weighted, bounded search for anytime use: nodes are ordered by {@code g + weight * h}, and
+     * nodes that cannot lead to a path of fewer than {@code costBound} moves are never queued.
+     * With a weight above 1 closed nodes are not reopened, so the heuristic must be consistent
+     * for the result to stay within {@code weight} times the shortest path.
+     *
+     * @param weight    heuristic inflation, at least 1
+     * @param costBound only paths with fewer moves are returned, {@code +Infinity} for no bound
+     * @param budget    deadline and cancellation, checked every {@value #BUDGET_CHECK_INTERVAL} expansions;
+     *                  {@code null} for none
+     * @return the path including start and the reached goal position, or {@code null} if none was found
+     */
+    public List<LngLatAlt> search(double startLng, double startLat,
+                                  double goalLng, double goalLat,
+                                  int[] directionOrder,
+                                  Airspace airspace,
+                                  GoalTest goalTest,
+                                  Heuristic heuristic,
+                                  double weight,
+                                  double costBound,
+                                  SearchBudget budget,
+                                  int maxIterations) {
+        if (weight < 1) {
+            throw new IllegalArgumentException("Heuristic weight must be at least 1, got: " + weight);
+        }
+
+        nodes.clear();
+        open.clear();
+        expansions = 0;
+        peakOpenSize = 0;
+        truncated = false;
+        nodeLimitReached = false;
+
+        boolean reopen = heuristic != null && weight == 1.0;
+        double goalRadius = goalRadius(goalLat);
+
+        int startSlot = nodes.add(LatticeKeys.key(startLng, startLat), startLng, startLat, 0, LatticeNodeTable.NO_SLOT);
+        double startH = heuristic != null
+                ? heuristic.estimate(startLng, startLat)
+                : heuristic(startLng, startLat, goalLng, goalLat, goalRadius);
+        if (startH >= costBound) {
+            return null;
+        }
+        open.push(startSlot, weight * startH, startH);
+
+        while (!open.isEmpty() && expansions < maxIterations) {
+            if (budget != null && (expansions & (BUDGET_CHECK_INTERVAL - 1)) == 0 && budget.isExhausted()) {
+                truncated = true;
+                return null;
+            }
+            if (nodes.size() >= nodeLimit) {
+                truncated = true;
+                nodeLimitReached = true;
+                return null;
+            }
+            expansions++;
+
+            int current = open.poll();
+            nodes.close(current);
+
+            double currentLng = nodes.lng(current);
+            double currentLat = nodes.lat(current);
+
+            if (goalTest.isReached(currentLng, currentLat)) {
+                return reconstructPath(current);
+            }
+
+            double tentativeG = nodes.g(current) + 1;
+
+            for (int direction : directionOrder) {
+                double nextLng = currentLng + LatticeSteps.DX[direction];
+                double nextLat = currentLat + LatticeSteps.DY[direction];
+                long nextKey = LatticeKeys.key(nextLng, nextLat);
+
+                int slot = nodes.find(nextKey);
+                if (slot != LatticeNodeTable.NO_SLOT
+                        && (tentativeG >= nodes.g(slot) || (nodes.isClosed(slot) && !reopen))) {
+                    continue;
+                }
+
+                double h = heuristic != null
+                        ? heuristic.estimate(nextLng, nextLat)
+                        : heuristic(nextLng, nextLat, goalLng, goalLat, goalRadius);
+                if (tentativeG + h >= costBound) continue;
+
+                if (airspace.isBlocked(nextLng, nextLat)) continue;
+                if (airspace.isSegmentBlocked(currentLng, currentLat, nextLng, nextLat)) continue;
+
+                if (slot == LatticeNodeTable.NO_SLOT) {
+                    slot = nodes.add(nextKey, nextLng, nextLat, tentativeG, current);
+                } else if (nodes.isClosed(slot)) {
+                    // only reachable with a custom heuristic
+                    slot = nodes.reopen(nextKey, nextLng, nextLat, tentativeG, current);
+                } else {
+                    nodes.improve(slot, nextLng, nextLat, tentativeG, current);
+                }
+                open.push(slot, tentativeG + weight * h, h);
+            }
+
+            if (open.size() > peakOpenSize) {
+                peakOpenSize = open.size();
+            }
+        }
+
+        truncated = !open.isEmpty();
+        return null;
+    }
+
+    /**
+     * Cap the lattice positions a search may hold; a search that reaches it gives up. The node
+     * table keeps its capacity between searches, so this also bounds the workspace's memory
+     *
+     * @param nodeLimit maximum number of nodes, {@link Integer#MAX_VALUE} for no cap
+     */
+    public void setNodeLimit(int nodeLimit) {
+        if (nodeLimit < 1) {
+            throw new IllegalArgumentException("Node limit must be positive, got: " + nodeLimit);
+        }
+        this.nodeLimit = nodeLimit;
+    }
+
+    /**
+     * @return {@code true} if the last search gave up because it reached the node limit
+     */
+    public boolean isNodeLimitReached() {
+        return nodeLimitReached;
+    }
+
+    /**
+     * @return node expansions performed by the last search
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return largest open-set size reached during the last search
+     */
+    public int getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    /**
+     * @return number of distinct lattice positions discovered by the last search
+     */
+    public int getNodeCount() {
+        return nodes.size();
+    }
+
+    /**
+     * @return number of distinct lattice positions closed by the last search
+     */
+    public int getClosedCount() {
+        return nodes.closedCount();
+    }
+
+    /**
+     * @return {@code true} if the last search gave up on the iteration limit or budget
+     * before finding a path or running out of nodes to expand
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * Widest planar distance (degrees) at which the Haversine closeness test can still pass.
+     * A degree of longitude shrinks by cos(lat), so the radius grows by 1/cos(lat);
+     * one extra degree of latitude covers the search drifting north of the goal.
+     */
+    public static double goalRadius(double goalLat) {
+        double lat = Math.min(89.0, Math.abs(goalLat) + 1.0);
+        return STEP_SIZE / Math.cos(Math.toRadians(lat));
+    }
+
+    /**
+     * Remaining moves to the goal: planar distance in steps, less the goal radius
+     */
+    static double heuristic(double lng, double lat, double goalLng, double goalLat, double goalRadius) {
+        double dLng = goalLng - lng;
+        double dLat = goalLat - lat;
+        double distance = Math.sqrt(dLng * dLng + dLat * dLat) - goalRadius;
+        return distance > 0 ? distance / STEP_SIZE : 0;
+    }
+
+    private List<LngLatAlt> reconstructPath(int endSlot) {
+        List<LngLatAlt> path = new ArrayList<>();
+        for (int slot = endSlot; slot != LatticeNodeTable.NO_SLOT; slot = nodes.parent(slot)) {
+            path.add(new LngLatAlt(nodes.lng(slot), nodes.lat(slot), null));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+}
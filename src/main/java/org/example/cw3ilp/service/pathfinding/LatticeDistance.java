@@ -0,0 +1,50 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Move-count norm of the 16-direction lattice.
+ * <p>
+ *     One move covers {@link LatticeKeys#STEP_SIZE} along one of 16 headings 22.5 degrees apart,
+ *     so the displacements reachable in one move span a regular 16-gon. The least number of
+ *     moves (fractional) needed to cover a displacement is its norm with respect to that
+ *     polygon: up to ~2% more than the straight-line distance in steps, depending on how far
+ *     the heading is from a lattice direction. It satisfies the triangle inequality and never
+ *     exceeds the real move count, so it is an admissible, consistent A* heuristic.
+ * </p>
+ */
+public final class LatticeDistance {
+
+    private static final double STEP_SIZE = LatticeKeys.STEP_SIZE;
+
+    // Facet normals of the 16-gon in the first octant, at 11.25 and 33.75 degrees
+    private static final double COS_A = Math.cos(Math.toRadians(11.25));
+    private static final double SIN_A = Math.sin(Math.toRadians(11.25));
+    private static final double COS_B = Math.cos(Math.toRadians(33.75));
+    private static final double SIN_B = Math.sin(Math.toRadians(33.75));
+
+    /** Distance from the 16-gon's centre to its facets, in degrees */
+    private static final double APOTHEM = STEP_SIZE * COS_A;
+
+    private LatticeDistance() {
+    }
+
+    /**
+     * @return least number of moves covering the displacement (dx, dy) in degrees
+     */
+    public static double moves(double dx, double dy) {
+        double ax = Math.abs(dx);
+        double ay = Math.abs(dy);
+        if (ay > ax) {
+            double swap = ax;
+            ax = ay;
+            ay = swap;
+        }
+        return Math.max(ax * COS_A + ay * SIN_A, ax * COS_B + ay * SIN_B) / APOTHEM;
+    }
+
+    /**
+     * @return the most moves a displacement of planar length {@code distance} can need
+     */
+    public static double maxMoves(double distance) {
+        return distance / APOTHEM;
+    }
+}
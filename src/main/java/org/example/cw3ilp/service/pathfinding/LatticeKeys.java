@@ -0,0 +1,43 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Packs the rounded lng/lat lattice indices of a position into a single {@code long}.
+ * <p>
+ *     Two positions share a key when they round to the same multiple of
+ *     {@link #STEP_SIZE}, which is the same rule the original A* used for its
+ *     {@code "lngKey,latKey"} strings. The longitude index sits in the high 32 bits
+ *     and the latitude index in the low 32 bits.
+ * </p>
+ */
+public final class LatticeKeys {
+
+    /** Lattice spacing in degrees - one drone move */
+    public static final double STEP_SIZE = 0.00015;
+
+    private LatticeKeys() {
+    }
+
+    public static long key(double lng, double lat) {
+        return pack(lngIndex(lng), latIndex(lat));
+    }
+
+    public static long pack(int lngIndex, int latIndex) {
+        return ((long) lngIndex << 32) | (latIndex & 0xFFFFFFFFL);
+    }
+
+    public static int lngIndex(double lng) {
+        return (int) Math.round(lng / STEP_SIZE);
+    }
+
+    public static int latIndex(double lat) {
+        return (int) Math.round(lat / STEP_SIZE);
+    }
+
+    public static int lngIndexOf(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int latIndexOf(long key) {
+        return (int) key;
+    }
+}
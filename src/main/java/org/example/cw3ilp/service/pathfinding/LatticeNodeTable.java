@@ -0,0 +1,248 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import java.util.Arrays;
+
+/**
+ * Search nodes stored in parallel primitive arrays, addressed by slot number.
+ * <p>
+ *     Lattice keys are mapped to slots with an open-addressing (linear probing) table.
+ *     Table entries are stamped with a generation counter so {@link #clear()} is O(1)
+ *     and a table can be reused across searches without re-allocating.
+ * </p>
+ */
+public final class LatticeNodeTable {
+
+    /** Slot value used for "no parent" */
+    public static final int NO_SLOT = -1;
+
+    private static final int INITIAL_SLOTS = 1 << 12;
+
+    // Per-slot node data
+    private long[] keys;
+    private double[] lng;
+    private double[] lat;
+    private double[] g;
+    private int[] parent;
+    private byte[] direction;
+    private boolean[] closed;
+    private int size;
+    private int closedCount;
+
+    // Open-addressing index: lattice key -> slot
+    private long[] indexKeys;
+    private int[] indexSlots;
+    private int[] indexStamps;
+    private int stamp = 1;
+    private int mask;
+
+    public LatticeNodeTable() {
+        allocateSlots(INITIAL_SLOTS);
+        allocateIndex(INITIAL_SLOTS * 2);
+    }
+
+    /**
+     * Forget every node while keeping the allocated arrays
+     */
+    public void clear() {
+        size = 0;
+        closedCount = 0;
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(indexStamps, 0);
+            stamp = 1;
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return number of distinct keys whose node is closed; a reopened key counts once
+     */
+    public int closedCount() {
+        return closedCount;
+    }
+
+    /**
+     * @return the slot holding {@code key}, or {@link #NO_SLOT} if it was never added
+     */
+    public int find(long key) {
+        int i = hash(key) & mask;
+        while (indexStamps[i] == stamp) {
+            if (indexKeys[i] == key) {
+                return indexSlots[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return NO_SLOT;
+    }
+
+    /**
+     * Adds a new node. The caller must have checked with {@link #find(long)} that the key is absent.
+     *
+     * @return the slot of the new node
+     */
+    public int add(long key, double nodeLng, double nodeLat, double nodeG, int parentSlot) {
+        if (size == keys.length) {
+            allocateSlots(keys.length * 2);
+        }
+        if ((size + 1) * 2 > indexKeys.length) {
+            rehash(indexKeys.length * 2);
+        }
+
+        int slot = size++;
+        keys[slot] = key;
+        lng[slot] = nodeLng;
+        lat[slot] = nodeLat;
+        g[slot] = nodeG;
+        parent[slot] = parentSlot;
+        closed[slot] = false;
+
+        insertIndex(key, slot);
+        return slot;
+    }
+
+    /**
+     * Reopens a closed node that was reached more cheaply: the key moves to a new slot, so the
+     * old one - still the parent of the nodes expanded from it - keeps its position
+     *
+     * @return the slot now holding {@code key}
+     */
+    public int reopen(long key, double nodeLng, double nodeLat, double nodeG, int parentSlot) {
+        if (size == keys.length) {
+            allocateSlots(keys.length * 2);
+        }
+
+        int slot = size++;
+        keys[slot] = key;
+        lng[slot] = nodeLng;
+        lat[slot] = nodeLat;
+        g[slot] = nodeG;
+        parent[slot] = parentSlot;
+        closed[slot] = false;
+
+        int i = hash(key) & mask;
+        while (indexKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        if (closed[indexSlots[i]]) {
+            closedCount--;
+        }
+        indexSlots[i] = slot;
+        return slot;
+    }
+
+    /**
+     * Records a cheaper way of reaching an open node
+     */
+    public void improve(int slot, double nodeLng, double nodeLat, double nodeG, int parentSlot) {
+        if (closed[slot]) {
+            closedCount--;
+        }
+        lng[slot] = nodeLng;
+        lat[slot] = nodeLat;
+        g[slot] = nodeG;
+        parent[slot] = parentSlot;
+        closed[slot] = false;
+    }
+
+    public long key(int slot) {
+        return keys[slot];
+    }
+
+    public double lng(int slot) {
+        return lng[slot];
+    }
+
+    public double lat(int slot) {
+        return lat[slot];
+    }
+
+    public double g(int slot) {
+        return g[slot];
+    }
+
+    public int parent(int slot) {
+        return parent[slot];
+    }
+
+    /**
+     * @return the direction (0-15) of the move from the parent, as recorded by {@link #setDirection}
+     */
+    public int direction(int slot) {
+        return direction[slot];
+    }
+
+    public void setDirection(int slot, int moveDirection) {
+        direction[slot] = (byte) moveDirection;
+    }
+
+    public boolean isClosed(int slot) {
+        return closed[slot];
+    }
+
+    public void close(int slot) {
+        if (!closed[slot]) {
+            closed[slot] = true;
+            closedCount++;
+        }
+    }
+
+    private void insertIndex(long key, int slot) {
+        int i = hash(key) & mask;
+        // a reopened key is re-inserted for its newer slot, which then replaces the older one
+        while (indexStamps[i] == stamp && indexKeys[i] != key) {
+            i = (i + 1) & mask;
+        }
+        indexKeys[i] = key;
+        indexSlots[i] = slot;
+        indexStamps[i] = stamp;
+    }
+
+    private void rehash(int capacity) {
+        allocateIndex(capacity);
+        for (int slot = 0; slot < size; slot++) {
+            insertIndex(keys[slot], slot);
+        }
+    }
+
+    private void allocateIndex(int capacity) {
+        indexKeys = new long[capacity];
+        indexSlots = new int[capacity];
+        indexStamps = new int[capacity];
+        mask = capacity - 1;
+    }
+
+    private void allocateSlots(int capacity) {
+        if (keys == null) {
+            keys = new long[capacity];
+            lng = new double[capacity];
+            lat = new double[capacity];
+            g = new double[capacity];
+            parent = new int[capacity];
+            direction = new byte[capacity];
+            closed = new boolean[capacity];
+            return;
+        }
+        keys = Arrays.copyOf(keys, capacity);
+        lng = Arrays.copyOf(lng, capacity);
+        lat = Arrays.copyOf(lat, capacity);
+        g = Arrays.copyOf(g, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        direction = Arrays.copyOf(direction, capacity);
+        closed = Arrays.copyOf(closed, capacity);
+    }
+
+    /**
+     * Murmur3 finaliser - spreads neighbouring lattice keys across the table
+     */
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
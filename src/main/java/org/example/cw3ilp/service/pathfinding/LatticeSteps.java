@@ -0,0 +1,98 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * The 16 drone moves as precomputed offsets, shared by every engine that steps the lattice.
+ * <p>
+ *     Direction {@code d} is the heading {@code d * 22.5} degrees anticlockwise from East. Its
+ *     offsets are computed once, with the same expression {@code DistanceService.computeNextPosition}
+ *     always used ({@code STEP * cos(toRadians(angle))}), so a position stepped through this
+ *     table is bit for bit the one the original code produced and stored paths stay valid.
+ * </p>
+ * <p>
+ *     The direction orders handed to the searches - the best heading first, then its
+ *     neighbours alternating either side - are built once per best direction and shared;
+ *     callers must not modify them.
+ * </p>
+ */
+public final class LatticeSteps {
+
+    public static final int NUM_DIRECTIONS = 16;
+
+    /** Angle between two neighbouring directions, in degrees */
+    public static final double ANGLE_STEP = 22.5;
+
+    private static final double STEP_SIZE = LatticeKeys.STEP_SIZE;
+
+    static final double[] DX = new double[NUM_DIRECTIONS];
+    static final double[] DY = new double[NUM_DIRECTIONS];
+
+    private static final int[][] DIRECTION_ORDERS = new int[NUM_DIRECTIONS][];
+
+    static {
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            double angleRad = Math.toRadians(direction * ANGLE_STEP);
+            DX[direction] = STEP_SIZE * Math.cos(angleRad);
+            DY[direction] = STEP_SIZE * Math.sin(angleRad);
+        }
+
+        for (int best = 0; best < NUM_DIRECTIONS; best++) {
+            int[] order = new int[NUM_DIRECTIONS];
+            order[0] = best;
+            for (int i = 1; i < NUM_DIRECTIONS; i++) {
+                int offset = (i + 1) / 2;
+                if (i % 2 == 1) {
+                    order[i] = (best + offset) % NUM_DIRECTIONS;
+                } else {
+                    order[i] = (best - offset + NUM_DIRECTIONS) % NUM_DIRECTIONS;
+                }
+            }
+            DIRECTION_ORDERS[best] = order;
+        }
+    }
+
+    private LatticeSteps() {
+    }
+
+    /**
+     * @return longitude offset of one move in the direction
+     */
+    public static double dx(int direction) {
+        return DX[direction];
+    }
+
+    /**
+     * @return latitude offset of one move in the direction
+     */
+    public static double dy(int direction) {
+        return DY[direction];
+    }
+
+    public static double nextLng(double lng, int direction) {
+        return lng + DX[direction];
+    }
+
+    public static double nextLat(double lat, int direction) {
+        return lat + DY[direction];
+    }
+
+    /**
+     * @return the direction whose move is the displacement {@code (dx, dy)} to within
+     * {@code 1e-9} of a step, or -1 if it is not a single move
+     */
+    public static int directionOf(double dx, double dy) {
+        for (int direction = 0; direction < NUM_DIRECTIONS; direction++) {
+            if (Math.abs(dx - DX[direction]) < 1e-9 * STEP_SIZE && Math.abs(dy - DY[direction]) < 1e-9 * STEP_SIZE) {
+                return direction;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the 16 directions, the given one first and then alternately either side of it;
+     * a shared array that must not be modified
+     */
+    public static int[] directionOrder(int bestDirection) {
+        return DIRECTION_ORDERS[bestDirection];
+    }
+}
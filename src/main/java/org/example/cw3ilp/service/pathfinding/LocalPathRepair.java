@@ -0,0 +1,245 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incremental repair of a flight path after the restricted areas change.
+ * <p>
+ *     A flight path is a run of legs, each ending at a <i>stop</i>: a waypoint the drone hovers
+ *     at (it is repeated in the path) or the last waypoint. Every leg is replayed move by move
+ *     from where the drone actually is. A move that has become blocked starts a detour search
+ *     to the first waypoint after which the original leg is clear again, and the rest of the
+ *     leg is replayed from the end of the detour - so only the stretch around a new zone is
+ *     searched again, and a path no new zone touches comes back unchanged. Legs passing near a
+ *     zone that was lifted are searched again in full and replaced if that is shorter.
+ * </p>
+ * <p>
+ *     A detour keeps the rest of the old leg, so the repaired leg can be longer than a fresh
+ *     plan around the new zone would be; the next full plan for the flight straightens it out.
+ * </p>
+ * <p>
+ *     Every replayed move is re-checked against the airspace. A leg ends with the short move
+ *     onto its stop as soon as it comes within closeness of it - the way delivery paths join
+ *     their target - so stops never move and an unaffected leg keeps its waypoints exactly.
+ *     One instance is a reusable, non-thread-safe workspace.
+ * </p>
+ */
+public final class LocalPathRepair {
+
+    /** Waypoints this close to a lifted zone's bounding box mark a leg that may get shorter */
+    private static final double CLEARED_MARGIN = 4 * LatticeKeys.STEP_SIZE;
+
+    /**
+     * Path search used for detours
+     */
+    @FunctionalInterface
+    public interface LegSearch {
+
+        /**
+         * @return path from the first point to a position close to the second, including both, or {@code null}
+         */
+        List<LngLatAlt> find(double fromLng, double fromLat, double toLng, double toLat);
+    }
+
+    /**
+     * The closeness test flight paths were planned with
+     */
+    @FunctionalInterface
+    public interface Closeness {
+
+        boolean isClose(double lng, double lat, double targetLng, double targetLat);
+    }
+
+    private int searches;
+    private int reusedMoves;
+
+    /**
+     * Repair the part of a flight path from waypoint {@code from} onwards
+     *
+     * @param clearedBounds bounding boxes of zones lifted since the path was planned, as
+     *                      {@code minLng, minLat, maxLng, maxLat} quadruples; empty for none
+     * @return the repaired waypoints starting with the one at {@code from}, or {@code null}
+     * if the drone is in a restricted area or a stop can no longer be reached
+     */
+    public List<LngLatAlt> repair(List<LngLatAlt> path, int from, Airspace airspace, double[] clearedBounds,
+                                  LegSearch legSearch, Closeness closeness) {
+        searches = 0;
+        reusedMoves = 0;
+
+        LngLatAlt first = path.get(from);
+        if (airspace.isBlocked(first.getLng(), first.getLat())) {
+            return null;
+        }
+
+        List<LngLatAlt> repaired = new ArrayList<>(path.size() - from);
+        repaired.add(first);
+
+        int legStart = from;
+        int last = path.size() - 1;
+        while (legStart < last) {
+            if (isHover(path.get(legStart), path.get(legStart + 1))) {
+                // hover where the previous leg actually ended
+                repaired.add(repaired.getLast());
+                reusedMoves++;
+                legStart++;
+                continue;
+            }
+
+            int stop = legStart + 1;
+            while (stop < last && !isHover(path.get(stop), path.get(stop + 1))) {
+                stop++;
+            }
+            if (!repairLeg(path, legStart, stop, airspace, clearedBounds, legSearch, closeness, repaired)) {
+                return null;
+            }
+            legStart = stop;
+        }
+        return repaired;
+    }
+
+    /**
+     * @return detour searches run by the last repair
+     */
+    public int getSearches() {
+        return searches;
+    }
+
+    /**
+     * @return moves of the last repaired path kept or replayed from the original path
+     */
+    public int getReusedMoves() {
+        return reusedMoves;
+    }
+
+    /**
+     * Append the repaired moves of the leg from {@code legStart} to {@code stop}
+     *
+     * @return {@code false} if the stop cannot be reached
+     */
+    private boolean repairLeg(List<LngLatAlt> path, int legStart, int stop, Airspace airspace, double[] clearedBounds,
+                              LegSearch legSearch, Closeness closeness, List<LngLatAlt> repaired) {
+        LngLatAlt target = path.get(stop);
+        double targetLng = target.getLng();
+        double targetLat = target.getLat();
+        if (airspace.isBlocked(targetLng, targetLat)) {
+            return false;
+        }
+
+        // first waypoint from which the original leg is clear all the way to the stop
+        int clearFrom = legStart;
+        for (int i = legStart + 1; i <= stop; i++) {
+            if (isMoveBlocked(path.get(i - 1), path.get(i), airspace)) {
+                clearFrom = i;
+            }
+        }
+
+        LngLatAlt current = repaired.getLast();
+        if (passesNear(path, legStart, stop, clearedBounds)) {
+            List<LngLatAlt> fresh = search(legSearch, current, targetLng, targetLat);
+            if (fresh != null && fresh.size() < stop - legStart) {
+                appendTail(repaired, fresh);
+                return join(repaired, target, airspace);
+            }
+        }
+
+        int next = legStart + 1;
+        while (next <= stop && !closeness.isClose(current.getLng(), current.getLat(), targetLng, targetLat)) {
+            LngLatAlt previous = path.get(next - 1);
+            LngLatAlt original = path.get(next);
+
+            // still on the original path: keep its waypoints bit for bit
+            LngLatAlt moved = samePosition(current, previous)
+                    ? original
+                    : new LngLatAlt(current.getLng() + (original.getLng() - previous.getLng()),
+                                    current.getLat() + (original.getLat() - previous.getLat()), null);
+
+            if (!isMoveBlocked(current, moved, airspace)) {
+                repaired.add(moved);
+                reusedMoves++;
+                current = moved;
+                next++;
+                continue;
+            }
+
+            int rejoin = Math.max(next, clearFrom);
+            if (rejoin >= stop) {
+                break;
+            }
+            LngLatAlt rejoinPoint = path.get(rejoin);
+            List<LngLatAlt> detour = search(legSearch, current, rejoinPoint.getLng(), rejoinPoint.getLat());
+            if (detour == null) {
+                break;
+            }
+            appendTail(repaired, detour);
+            current = repaired.getLast();
+            next = rejoin + 1;
+        }
+
+        if (!closeness.isClose(current.getLng(), current.getLat(), targetLng, targetLat)) {
+            List<LngLatAlt> rest = search(legSearch, current, targetLng, targetLat);
+            if (rest == null) {
+                return false;
+            }
+            appendTail(repaired, rest);
+        }
+        return join(repaired, target, airspace);
+    }
+
+    private List<LngLatAlt> search(LegSearch legSearch, LngLatAlt from, double toLng, double toLat) {
+        searches++;
+        return legSearch.find(from.getLng(), from.getLat(), toLng, toLat);
+    }
+
+    /**
+     * Finish a leg with the short move onto its target
+     */
+    private static boolean join(List<LngLatAlt> repaired, LngLatAlt target, Airspace airspace) {
+        LngLatAlt current = repaired.getLast();
+        if (samePosition(current, target)) {
+            return true;
+        }
+        if (airspace.isSegmentBlocked(current.getLng(), current.getLat(), target.getLng(), target.getLat())) {
+            return false;
+        }
+        repaired.add(target);
+        return true;
+    }
+
+    private static void appendTail(List<LngLatAlt> repaired, List<LngLatAlt> searched) {
+        repaired.addAll(searched.subList(1, searched.size()));
+    }
+
+    private static boolean isMoveBlocked(LngLatAlt from, LngLatAlt to, Airspace airspace) {
+        return airspace.isBlocked(to.getLng(), to.getLat())
+                || airspace.isSegmentBlocked(from.getLng(), from.getLat(), to.getLng(), to.getLat());
+    }
+
+    /**
+     * @return {@code true} if a waypoint of the leg lies near one of the boxes
+     */
+    private static boolean passesNear(List<LngLatAlt> path, int legStart, int stop, double[] boxes) {
+        for (int box = 0; box < boxes.length; box += 4) {
+            for (int i = legStart; i <= stop; i++) {
+                double lng = path.get(i).getLng();
+                double lat = path.get(i).getLat();
+                if (lng >= boxes[box] - CLEARED_MARGIN && lng <= boxes[box + 2] + CLEARED_MARGIN
+                        && lat >= boxes[box + 1] - CLEARED_MARGIN && lat <= boxes[box + 3] + CLEARED_MARGIN) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static boolean isHover(LngLatAlt a, LngLatAlt b) {
+        return samePosition(a, b);
+    }
+
+    private static boolean samePosition(LngLatAlt a, LngLatAlt b) {
+        return a.getLng().doubleValue() == b.getLng().doubleValue()
+                && a.getLat().doubleValue() == b.getLat().doubleValue();
+    }
+}
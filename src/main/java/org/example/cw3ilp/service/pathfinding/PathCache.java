@@ -0,0 +1,137 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded LRU cache of computed flight paths.
+ * <p>
+ *     Entries are keyed by the {@link LatticeKeys lattice cell} of the start and goal, the
+ *     restricted-area fingerprint and the search strategy. Because a path is only valid from
+ *     its exact first position, a cached path is returned only when it starts exactly at the
+ *     requested start and ends within closeness range of the requested goal - anything else
+ *     in the same cells counts as a miss and is replaced by the fresh result.
+ * </p>
+ * <p>
+ *     Paths are copied on the way in and out, so callers may freely modify the positions
+ *     they receive. Thread-safe.
+ * </p>
+ */
+public final class PathCache {
+
+    private final int capacity;
+    private final Map<Key, List<LngLatAlt>> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity maximum number of cached paths; {@code 0} disables caching
+     */
+    public PathCache(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Path cache capacity must not be negative, got: " + capacity);
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<LngLatAlt>> eldest) {
+                if (size() > PathCache.this.capacity) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up a path from start to a position accepted by {@code goalTest}
+     *
+     * @return a copy of the cached path, or {@code null} on a miss
+     */
+    public List<LngLatAlt> get(double startLng, double startLat, double goalLng, double goalLat,
+                               long zoneFingerprint, SearchStrategy strategy, GoalTest goalTest) {
+        if (capacity == 0) {
+            return null;
+        }
+
+        List<LngLatAlt> path;
+        synchronized (entries) {
+            path = entries.get(new Key(startLng, startLat, goalLng, goalLat, zoneFingerprint, strategy));
+        }
+
+        if (path != null) {
+            LngLatAlt first = path.getFirst();
+            LngLatAlt last = path.getLast();
+            if (first.getLng() == startLng && first.getLat() == startLat
+                    && goalTest.isReached(last.getLng(), last.getLat())) {
+                hits.increment();
+                return copy(path);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public void put(double startLng, double startLat, double goalLng, double goalLat,
+                    long zoneFingerprint, SearchStrategy strategy, List<LngLatAlt> path) {
+        if (capacity == 0 || path == null || path.isEmpty()) {
+            return;
+        }
+
+        List<LngLatAlt> stored = copy(path);
+        synchronized (entries) {
+            entries.put(new Key(startLng, startLat, goalLng, goalLat, zoneFingerprint, strategy), stored);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private static List<LngLatAlt> copy(List<LngLatAlt> path) {
+        List<LngLatAlt> result = new ArrayList<>(path.size());
+        for (LngLatAlt position : path) {
+            result.add(new LngLatAlt(position.getLng(), position.getLat(), position.getAlt()));
+        }
+        return result;
+    }
+
+    private record Key(long startKey, long goalKey, long zoneFingerprint, SearchStrategy strategy) {
+        Key(double startLng, double startLat, double goalLng, double goalLat,
+            long zoneFingerprint, SearchStrategy strategy) {
+            this(LatticeKeys.key(startLng, startLat), LatticeKeys.key(goalLng, goalLat), zoneFingerprint, strategy);
+        }
+    }
+}
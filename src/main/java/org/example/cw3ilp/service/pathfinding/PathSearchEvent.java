@@ -0,0 +1,45 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * JFR event for a slow path search, committed by {@link SearchStats#finish(boolean)}.
+ * <p>
+ *     Only searches lasting at least the threshold are recorded; a recording can change it
+ *     with {@code org.example.cw3ilp.PathSearch#threshold=...}.
+ * </p>
+ */
+@Name("org.example.cw3ilp.PathSearch")
+@Label("Path Search")
+@Category({"Medi-Drone", "Pathfinding"})
+@Description("A findPath call slower than the threshold, with its search counters")
+@Threshold("100 ms")
+final class PathSearchEvent extends jdk.jfr.Event {
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Outcome")
+    String outcome;
+
+    @Label("Expansions")
+    int expansions;
+
+    @Label("Peak Open Set")
+    int peakOpenSize;
+
+    @Label("Closed Set")
+    int closedSize;
+
+    @Label("Geometry Checks")
+    long geometryChecks;
+
+    @Label("Allocated")
+    @DataAmount
+    long allocatedBytes;
+}
@@ -0,0 +1,140 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+
+import java.util.List;
+
+/**
+ * Anytime search over the step lattice by restarting weighted A*.
+ * <p>
+ *     A first pass with a strongly inflated heuristic finds a path quickly; every further
+ *     pass lowers the weight and only looks for paths with fewer moves than the best one so
+ *     far, until the pass with weight 1 has run, a pass runs out of positions without finding
+ *     one, or the {@link SearchBudget} runs out. Each pass
+ *     starts from scratch: unlike ARA*, nothing is carried over between passes, so a later pass
+ *     expands again what earlier ones already had.
+ * </p>
+ * <p>
+ *     A pass that empties its open set without a path has searched every position that could
+ *     still lead to a shorter one under the admissible cost cut: either the goal is unreachable
+ *     or the best path so far cannot be beaten, and the remaining weights are skipped. Lattice
+ *     positions are merged by cell, so a path's length alone proves nothing, and the
+ *     suboptimality bound is therefore taken against a lower bound that holds for any flight:
+ *     the {@link LatticeDistance lattice norm} of the displacement, less the goal radius.
+ *     Around zones the bound stays above 1 even for the best path. Passes use the planar
+ *     default heuristic, which is consistent. One instance is a reusable, non-thread-safe
+ *     workspace.
+ * </p>
+ */
+public final class RestartingLatticeAStar {
+
+    /** Heuristic weights of the successive passes, ending with plain A* */
+    static final double[] WEIGHTS = {3.0, 2.0, 1.5, 1.2, 1.0};
+
+    private final LatticeAStar engine = new LatticeAStar();
+
+    private int passes;
+    private int peakOpenSize;
+    private int closedCount;
+
+    /**
+     * Find the best path from start to a position accepted by {@code goalTest} within the budget
+     *
+     * @param directionOrder order in which the 16 directions are tried at every node
+     * @param maxIterations  maximum number of node expansions per pass
+     */
+    public AnytimePath search(double startLng, double startLat,
+                              double goalLng, double goalLat,
+                              int[] directionOrder,
+                              Airspace airspace,
+                              GoalTest goalTest,
+                              SearchBudget budget,
+                              int maxIterations) {
+        passes = 0;
+        peakOpenSize = 0;
+        closedCount = 0;
+        int expansions = 0;
+        List<LngLatAlt> best = null;
+        double lowerBound = minimumMoves(startLng, startLat, goalLng, goalLat);
+
+        for (double weight : WEIGHTS) {
+            double costBound = best != null ? best.size() - 1 : Double.POSITIVE_INFINITY;
+            List<LngLatAlt> path = engine.search(startLng, startLat, goalLng, goalLat,
+                    directionOrder, airspace, goalTest, null, weight, costBound, budget, maxIterations);
+            passes++;
+            expansions += engine.getExpansions();
+            peakOpenSize = Math.max(peakOpenSize, engine.getPeakOpenSize());
+            closedCount += engine.getClosedCount();
+
+            if (path != null) {
+                best = path;
+                if (path.size() - 1 <= lowerBound) {
+                    break;
+                }
+            } else if (engine.isTruncated()) {
+                return new AnytimePath(best, bound(best, lowerBound), false, expansions);
+            } else {
+                // ran dry under the bound: the goal is unreachable, or nothing beats best
+                break;
+            }
+        }
+
+        return new AnytimePath(best, bound(best, lowerBound), true, expansions);
+    }
+
+    /**
+     * Cap the lattice positions of every pass, see {@link LatticeAStar#setNodeLimit(int)}
+     */
+    public void setNodeLimit(int nodeLimit) {
+        engine.setNodeLimit(nodeLimit);
+    }
+
+    /**
+     * @return {@code true} if the last search was cut short by the node limit
+     */
+    public boolean isNodeLimitReached() {
+        return engine.isNodeLimitReached();
+    }
+
+    /**
+     * @return weighted passes run by the last search, including an interrupted one
+     */
+    public int getPasses() {
+        return passes;
+    }
+
+    /**
+     * @return largest open-set size any pass of the last search reached
+     */
+    public int getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    /**
+     * @return positions closed by the passes of the last search, summed over the passes
+     */
+    public int getClosedCount() {
+        return closedCount;
+    }
+
+    /**
+     * Fewest moves any flight from start needs to pass the goal test, ignoring zones (at least 1)
+     */
+    public static double minimumMoves(double startLng, double startLat, double goalLng, double goalLat) {
+        double moves = LatticeDistance.moves(goalLng - startLng, goalLat - startLat)
+                - LatticeDistance.maxMoves(LatticeAStar.goalRadius(goalLat));
+        // move counts are whole numbers; the tolerance absorbs rounding in the norm
+        return Math.max(1, Math.ceil(moves - 1e-9));
+    }
+
+    /**
+     * @return path moves over the lower bound, 1 for a path that needs no move
+     */
+    public static double bound(List<LngLatAlt> path, double lowerBound) {
+        if (path == null) {
+            return Double.POSITIVE_INFINITY;
+        }
+        int moves = path.size() - 1;
+        return moves == 0 ? 1.0 : Math.max(1.0, moves / lowerBound);
+    }
+}
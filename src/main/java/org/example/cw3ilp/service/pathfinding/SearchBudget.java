@@ -0,0 +1,98 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import java.time.Duration;
+
+/**
+ * Wall-clock deadline and cancellation flag for one path request.
+ * <p>
+ *     Searches poll {@link #isExhausted()} every few hundred expansions and stop with their
+ *     best result so far once it returns {@code true}. A budget is exhausted when its deadline
+ *     has passed, when {@link #cancel()} has been called on it or on the budget it was derived
+ *     from with {@link #within} (from any thread), or when the thread running the search has
+ *     been interrupted. One budget may be shared by all the searches of a request, so the
+ *     deadline covers the request as a whole.
+ * </p>
+ */
+public final class SearchBudget {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final long deadlineNanos;
+    private final SearchBudget parent;
+    private volatile boolean cancelled;
+
+    private SearchBudget(long deadlineNanos, SearchBudget parent) {
+        this.deadlineNanos = deadlineNanos;
+        this.parent = parent;
+    }
+
+    /**
+     * @return a budget expiring {@code timeout} from now
+     */
+    public static SearchBudget of(Duration timeout) {
+        if (timeout.isNegative()) {
+            throw new IllegalArgumentException("Search budget must not be negative, got: " + timeout);
+        }
+        return new SearchBudget(System.nanoTime() + timeout.toNanos(), null);
+    }
+
+    /**
+     * @return a budget expiring {@code millis} milliseconds from now, or an unlimited one if {@code millis} is 0
+     */
+    public static SearchBudget ofMillis(long millis) {
+        return millis == 0 ? unlimited() : of(Duration.ofMillis(millis));
+    }
+
+    /**
+     * @return a budget without deadline that can still be cancelled
+     */
+    public static SearchBudget unlimited() {
+        return new SearchBudget(NO_DEADLINE, null);
+    }
+
+    /**
+     * @return a budget expiring {@code millis} milliseconds from now at the latest, or with this one if that is
+     * sooner or {@code millis} is 0, and exhausted whenever this one is
+     */
+    public SearchBudget within(long millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Search budget must not be negative, got: " + millis + " ms");
+        }
+        long deadline = millis == 0 ? deadlineNanos : System.nanoTime() + Duration.ofMillis(millis).toNanos();
+        if (deadlineNanos != NO_DEADLINE && deadlineNanos - deadline < 0) {
+            deadline = deadlineNanos;
+        }
+        return new SearchBudget(deadline, this);
+    }
+
+    public boolean isUnlimited() {
+        return deadlineNanos == NO_DEADLINE;
+    }
+
+    /**
+     * Ask every search using this budget to stop at its next check
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || (parent != null && parent.isCancelled());
+    }
+
+    public boolean isExhausted() {
+        return isCancelled()
+                || Thread.currentThread().isInterrupted()
+                || (deadlineNanos != NO_DEADLINE && System.nanoTime() - deadlineNanos >= 0);
+    }
+
+    /**
+     * @return time left before the deadline, zero once it has passed, or {@code null} if unlimited
+     */
+    public Duration getRemaining() {
+        if (isUnlimited()) {
+            return null;
+        }
+        return Duration.ofNanos(Math.max(0, deadlineNanos - System.nanoTime()));
+    }
+}
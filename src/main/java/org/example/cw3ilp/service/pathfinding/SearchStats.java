@@ -0,0 +1,185 @@
+package org.example.cw3ilp.service.pathfinding;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cost of one path search, from the first check to the returned path.
+ * <p>
+ *     The service creates one per search, the engines' counters are added as the search
+ *     runs, and {@link #finish(boolean)} settles the outcome, wall time and allocation.
+ *     Searches slower than the {@link PathSearchEvent} threshold are also recorded as a
+ *     JFR event while a recording is running.
+ * </p>
+ * <p>
+ *     Allocated bytes are those of the calling thread, which runs every engine. They read as
+ *     0 where the JVM cannot measure them.
+ * </p>
+ */
+public final class SearchStats {
+
+    public enum Outcome {
+        /** A path was returned */
+        FOUND,
+        /** The goal or start is unusable, or the search ran out of positions */
+        UNREACHABLE,
+        /** The search gave up on its iteration limit, node limit or time budget */
+        BUDGET_EXCEEDED
+    }
+
+    private static final com.sun.management.ThreadMXBean THREADS = allocationCounter();
+
+    private final SearchStrategy strategy;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+    private final PathSearchEvent event = new PathSearchEvent();
+    private final LongAdder geometryChecks = new LongAdder();
+
+    private int expansions;
+    private int peakOpenSize;
+    private int closedSize;
+    private boolean limitReached;
+
+    private Outcome outcome;
+    private long wallNanos;
+    private long allocatedBytes;
+
+    public SearchStats(SearchStrategy strategy) {
+        this.strategy = strategy;
+        this.startAllocatedBytes = threadAllocatedBytes();
+        this.startNanos = System.nanoTime();
+        event.begin();
+    }
+
+    /**
+     * @return the airspace, counting every query made through it as a geometry check
+     */
+    public Airspace count(Airspace airspace) {
+        return new Airspace() {
+            @Override
+            public boolean isBlocked(double lng, double lat) {
+                geometryChecks.increment();
+                return airspace.isBlocked(lng, lat);
+            }
+
+            @Override
+            public boolean isSegmentBlocked(double fromLng, double fromLat, double toLng, double toLat) {
+                geometryChecks.increment();
+                return airspace.isSegmentBlocked(fromLng, fromLat, toLng, toLat);
+            }
+        };
+    }
+
+    /**
+     * Count a geometry check made outside a counted {@link Airspace}
+     */
+    public void countGeometryCheck() {
+        geometryChecks.increment();
+    }
+
+    /**
+     * Add the counters of one engine run; a search may run several
+     *
+     * @param closedSize positions closed by the run
+     */
+    public void addRun(int expansions, int peakOpenSize, int closedSize) {
+        this.expansions += expansions;
+        this.peakOpenSize = Math.max(this.peakOpenSize, peakOpenSize);
+        this.closedSize += closedSize;
+    }
+
+    /**
+     * Mark the search as cut short by a limit or budget rather than out of positions
+     */
+    public void limitReached() {
+        limitReached = true;
+    }
+
+    /**
+     * Settle the outcome, wall time and allocation, and commit the JFR event if it is due
+     *
+     * @param found whether the search returns a path
+     */
+    public void finish(boolean found) {
+        wallNanos = System.nanoTime() - startNanos;
+        allocatedBytes = Math.max(0, threadAllocatedBytes() - startAllocatedBytes);
+        outcome = found ? Outcome.FOUND : limitReached ? Outcome.BUDGET_EXCEEDED : Outcome.UNREACHABLE;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.strategy = strategy.name();
+            event.outcome = outcome.name();
+            event.expansions = expansions;
+            event.peakOpenSize = peakOpenSize;
+            event.closedSize = closedSize;
+            event.geometryChecks = getGeometryChecks();
+            event.allocatedBytes = allocatedBytes;
+            event.commit();
+        }
+    }
+
+    public SearchStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return how the search ended, or {@code null} before {@link #finish(boolean)}
+     */
+    public Outcome getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * @return node expansions over all engine runs
+     */
+    public int getExpansions() {
+        return expansions;
+    }
+
+    /**
+     * @return largest open-set size any engine run reached
+     */
+    public int getPeakOpenSize() {
+        return peakOpenSize;
+    }
+
+    /**
+     * @return positions closed over all engine runs
+     */
+    public int getClosedSize() {
+        return closedSize;
+    }
+
+    /**
+     * @return point and segment queries against the restricted areas
+     */
+    public long getGeometryChecks() {
+        return geometryChecks.sum();
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return bytes allocated during the search, by the calling thread and the threads working for it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return bytes the current thread has allocated so far, or 0 if the JVM cannot measure them
+     */
+    static long threadAllocatedBytes() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled()) {
+            return threads;
+        }
+        return null;
+    }
+}
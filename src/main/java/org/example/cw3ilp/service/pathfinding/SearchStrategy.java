@@ -0,0 +1,25 @@
+package org.example.cw3ilp.service.pathfinding;
+
+/**
+ * Search engine used by {@code PathfinderService.findPath}.
+ */
+public enum SearchStrategy {
+
+    /** Original object-based A* (String keys, boxed scores, one Node per expansion) */
+    ASTAR,
+
+    /** A* over packed lattice keys with primitive maps and an indexed heap */
+    LATTICE_ASTAR,
+
+    /** Lattice A* from both ends at once, joined where the frontiers meet - not always shortest */
+    BIDIRECTIONAL_ASTAR,
+
+    /** Lattice A* guided by shortest distances around the zones from a visibility graph */
+    VISIBILITY_ASTAR,
+
+    /** Weighted lattice A* that tightens its weight until its time budget runs out - shortest only if it finishes */
+    ANYTIME_ASTAR,
+
+    /** Abstract search over a cluster graph of the zones, refined by lattice A* inside the chosen corridor - not always shortest */
+    HIERARCHICAL_ASTAR
+}
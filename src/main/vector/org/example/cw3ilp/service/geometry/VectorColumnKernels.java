@@ -0,0 +1,110 @@
+package org.example.cw3ilp.service.geometry;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import static org.example.cw3ilp.service.geometry.ScalarColumnKernels.EARTH_RADIUS_METERS;
+import static org.example.cw3ilp.service.geometry.ScalarColumnKernels.METERS_PER_DEGREE;
+import static org.example.cw3ilp.service.geometry.ScalarColumnKernels.SCALE;
+
+/**
+ * {@link ColumnKernels} on {@code jdk.incubator.vector}, one lane per pair or point; the
+ * tail that does not fill a vector runs the scalar loop.
+ * <p>
+ *     Only loaded through {@link VectorColumnKernelsLoader}. The ray cast keeps the scalar
+ *     arithmetic lane by lane, so its answers are identical; it tests every edge for every
+ *     point, which beats the slab lookup only for small polygons, so larger ones go to
+ *     {@link PreparedPolygon#contains} point by point.
+ * </p>
+ */
+final class VectorColumnKernels implements ColumnKernels {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /** Most ray-cast edges a polygon may have for the all-edges vector ray cast */
+    static final int MAX_VECTOR_EDGES = 16;
+
+    private static final double DEGREES_TO_RADIANS = Math.PI / 180.0;
+
+    @Override
+    public void haversine(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int n) {
+        int bound = SPECIES.loopBound(n);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector x1 = DoubleVector.fromArray(SPECIES, lng1, i);
+            DoubleVector y1 = DoubleVector.fromArray(SPECIES, lat1, i);
+            DoubleVector x2 = DoubleVector.fromArray(SPECIES, lng2, i);
+            DoubleVector y2 = DoubleVector.fromArray(SPECIES, lat2, i);
+
+            DoubleVector lat1Rad = y1.mul(DEGREES_TO_RADIANS);
+            DoubleVector lat2Rad = y2.mul(DEGREES_TO_RADIANS);
+            DoubleVector sinHalfLat = y2.sub(y1).mul(DEGREES_TO_RADIANS).div(2).lanewise(VectorOperators.SIN);
+            DoubleVector sinHalfLng = x2.sub(x1).mul(DEGREES_TO_RADIANS).div(2).lanewise(VectorOperators.SIN);
+
+            DoubleVector a = sinHalfLat.mul(sinHalfLat).add(
+                    lat1Rad.lanewise(VectorOperators.COS).mul(lat2Rad.lanewise(VectorOperators.COS))
+                            .mul(sinHalfLng).mul(sinHalfLng));
+            DoubleVector c = a.sqrt().lanewise(VectorOperators.ATAN2, a.neg().add(1).sqrt()).mul(2);
+
+            c.mul(EARTH_RADIUS_METERS).div(METERS_PER_DEGREE).intoArray(out, i);
+        }
+        ScalarColumnKernels.haversine(lng1, lat1, lng2, lat2, out, bound, n);
+    }
+
+    @Override
+    public void equirectangular(double[] lng1, double[] lat1, double[] lng2, double[] lat2, double[] out, int n) {
+        int bound = SPECIES.loopBound(n);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector x1 = DoubleVector.fromArray(SPECIES, lng1, i);
+            DoubleVector y1 = DoubleVector.fromArray(SPECIES, lat1, i);
+            DoubleVector x2 = DoubleVector.fromArray(SPECIES, lng2, i);
+            DoubleVector y2 = DoubleVector.fromArray(SPECIES, lat2, i);
+
+            DoubleVector cosLat = y1.add(y2).mul(0.5).mul(DEGREES_TO_RADIANS).lanewise(VectorOperators.COS);
+            DoubleVector dLng = x2.sub(x1).mul(cosLat);
+            DoubleVector dLat = y2.sub(y1);
+            dLng.mul(dLng).add(dLat.mul(dLat)).sqrt().mul(SCALE).intoArray(out, i);
+        }
+        ScalarColumnKernels.equirectangular(lng1, lat1, lng2, lat2, out, bound, n);
+    }
+
+    @Override
+    public void contains(PreparedPolygon polygon, double[] xs, double[] ys, boolean[] out, int n) {
+        int edges = polygon.getVertexCount() - 1;
+        if (edges > MAX_VECTOR_EDGES) {
+            ScalarColumnKernels.contains(polygon, xs, ys, out, 0, n);
+            return;
+        }
+
+        int bound = SPECIES.loopBound(n);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector xp = DoubleVector.fromArray(SPECIES, xs, i);
+            DoubleVector yp = DoubleVector.fromArray(SPECIES, ys, i);
+
+            // even-odd: flip the lanes whose rightward ray crosses the edge
+            VectorMask<Double> inside = SPECIES.maskAll(false);
+            for (int e = 0; e < edges; e++) {
+                double x1 = polygon.edgeX1(e);
+                double y1 = polygon.edgeY1(e);
+                double x2 = polygon.edgeX2(e);
+                double y2 = polygon.edgeY2(e);
+
+                VectorMask<Double> straddles = yp.lt(y1).eq(yp.lt(y2)).not();
+                if (!straddles.anyTrue()) {
+                    continue;
+                }
+                DoubleVector xIntersection = yp.sub(y1).div(y2 - y1).mul(x2 - x1).add(x1);
+                VectorMask<Double> crosses = straddles.and(xIntersection.compare(VectorOperators.GT, xp));
+                inside = inside.eq(crosses).not();
+            }
+            inside.intoArray(out, i);
+        }
+        ScalarColumnKernels.contains(polygon, xs, ys, out, bound, n);
+    }
+
+    @Override
+    public boolean isVectorized() {
+        return true;
+    }
+}
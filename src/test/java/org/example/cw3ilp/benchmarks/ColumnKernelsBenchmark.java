@@ -0,0 +1,111 @@
+package org.example.cw3ilp.benchmarks;
+
+import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.service.geometry.ColumnKernels;
+import org.example.cw3ilp.service.geometry.PreparedPolygon;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH comparison of the scalar and vector {@link ColumnKernels} over 100k pairs / points.
+ * Not a unit test; run {@link #main} with the test classpath (see README).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class ColumnKernelsBenchmark {
+
+    private static final int SIZE = 100_000;
+
+    @Param({"scalar", "vector"})
+    public String kernels;
+
+    /** Vertices of the test polygon: a small no-fly zone or a detailed boundary */
+    @Param({"6", "2000"})
+    public int vertices;
+
+    private ColumnKernels columnKernels;
+    private PreparedPolygon polygon;
+    private double[] lng1;
+    private double[] lat1;
+    private double[] lng2;
+    private double[] lat2;
+    private double[] distances;
+    private boolean[] inside;
+
+    @Setup
+    public void setUp() {
+        columnKernels = kernels.equals("vector") ? ColumnKernels.preferred() : ColumnKernels.scalar();
+        if (kernels.equals("vector") && !columnKernels.isVectorized()) {
+            throw new IllegalStateException("Vector kernels not loaded - build with -Pvector");
+        }
+
+        Random random = new Random(42);
+        lng1 = new double[SIZE];
+        lat1 = new double[SIZE];
+        lng2 = new double[SIZE];
+        lat2 = new double[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            lng1[i] = -3.30 + random.nextDouble() * 0.2;
+            lat1[i] = 55.90 + random.nextDouble() * 0.1;
+            lng2[i] = -3.30 + random.nextDouble() * 0.2;
+            lat2[i] = 55.90 + random.nextDouble() * 0.1;
+        }
+        distances = new double[SIZE];
+        inside = new boolean[SIZE];
+
+        List<LngLat> outline = new ArrayList<>();
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double radius = 0.04 * (0.7 + 0.2 * Math.sin(5 * angle));
+            outline.add(new LngLat(-3.20 + radius * Math.cos(angle), 55.95 + radius * Math.sin(angle)));
+        }
+        outline.add(outline.getFirst());
+        polygon = PreparedPolygon.of(outline);
+    }
+
+    @Benchmark
+    public double[] haversine() {
+        columnKernels.haversine(lng1, lat1, lng2, lat2, distances, SIZE);
+        return distances;
+    }
+
+    @Benchmark
+    public double[] equirectangular() {
+        columnKernels.equirectangular(lng1, lat1, lng2, lat2, distances, SIZE);
+        return distances;
+    }
+
+    @Benchmark
+    public boolean[] contains() {
+        columnKernels.contains(polygon, lng1, lat1, inside, SIZE);
+        return inside;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(ColumnKernelsBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
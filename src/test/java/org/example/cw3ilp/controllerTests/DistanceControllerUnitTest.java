@@ -19,6 +19,11 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.when;
 
 
@@ -39,6 +44,8 @@ public class DistanceControllerUnitTest {
     @MockitoBean
     private NextPositionRequest nextPositionRequest;
 
+    private final DistanceService realDistanceService = new DistanceService();
+
     // -----------------------------------------------
     // TEST endpoint - /distanceTo
     // -----------------------------------------------
@@ -360,5 +367,147 @@ public class DistanceControllerUnitTest {
                 .andExpect(status().isBadRequest());
     }
 
-}
+    // -----------------------------------------------
+    // TEST endpoints - /distanceTo/batch, /isCloseTo/batch, /nextPosition/batch
+    // -----------------------------------------------
+
+    private BatchDistanceRequest batchDistanceRequest(double[] lng1, double[] lat1, double[] lng2, double[] lat2) {
+        BatchDistanceRequest request = new BatchDistanceRequest();
+        request.setLng1(lng1);
+        request.setLat1(lat1);
+        request.setLng2(lng2);
+        request.setLat2(lat2);
+        return request;
+    }
+
+    @Test
+    @DisplayName("Batch distances match the single-pair distance for each pair")
+    void distanceToBatch_validPairs_returnsArray() throws Exception {
+        double[] lng1 = {-3.192473, -3.192473, -3.190000};
+        double[] lat1 = {55.946233, 55.946233, 55.945000};
+        double[] lng2 = {-3.192473, -3.192473, -3.189000};
+        double[] lat2 = {55.946233, 55.942617, 55.945000};
+        BatchDistanceRequest request = batchDistanceRequest(lng1, lat1, lng2, lat2);
+
+        // Run the batch on the real service so its results can be checked value by value
+        doAnswer(invocation -> {
+            realDistanceService.computeDistances(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4));
+            return null;
+        }).when(distanceService).computeDistances(any(double[].class), any(double[].class),
+                any(double[].class), any(double[].class), any(double[].class));
+
+        mockMvc.perform(post("/api/v1/distanceTo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0]").value(0.0))
+                .andExpect(jsonPath("$[1]").value(realDistanceService.computeDistance(lng1[1], lat1[1], lng2[1], lat2[1])))
+                .andExpect(jsonPath("$[2]").value(realDistanceService.computeDistance(lng1[2], lat1[2], lng2[2], lat2[2])));
+    }
+
+    @Test
+    @DisplayName("Batch closeness matches the single-pair answer for each pair")
+    void isCloseToBatch_validPairs_returnsArray() throws Exception {
+        // Same point, far apart, just inside the threshold, just beyond it
+        double[] lng1 = {-3.192473, -3.190000, -3.185000, -3.185000};
+        double[] lat1 = {55.946233, 55.945000, 55.944000, 55.944000};
+        double[] lng2 = {-3.192473, -3.189000, -3.185000, -3.185000};
+        double[] lat2 = {55.946233, 55.945000, 55.944100, 55.944160};
+        BatchDistanceRequest request = batchDistanceRequest(lng1, lat1, lng2, lat2);
+
+        doAnswer(invocation -> {
+            realDistanceService.computeCloseness(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2), invocation.getArgument(3), invocation.getArgument(4));
+            return null;
+        }).when(distanceService).computeCloseness(any(double[].class), any(double[].class),
+                any(double[].class), any(double[].class), any(boolean[].class));
+
+        mockMvc.perform(post("/api/v1/isCloseTo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0]").value(true))
+                .andExpect(jsonPath("$[1]").value(false))
+                .andExpect(jsonPath("$[2]").value(true))
+                .andExpect(jsonPath("$[3]").value(false));
+
+        // The last two pairs straddle the threshold for the single-pair check too
+        assertTrue(realDistanceService.computeCloseness(lng1[2], lat1[2], lng2[2], lat2[2]));
+        assertFalse(realDistanceService.computeCloseness(lng1[3], lat1[3], lng2[3], lat2[3]));
+    }
+
+    @Test
+    @DisplayName("Batch arrays of different lengths should return 400")
+    void distanceToBatch_unequalArrays_returns400() throws Exception {
+        BatchDistanceRequest request = batchDistanceRequest(
+                new double[] {-3.192473, -3.190000}, new double[] {55.946233},
+                new double[] {-3.192473, -3.189000}, new double[] {55.942617, 55.945000});
+
+        mockMvc.perform(post("/api/v1/distanceTo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Batch with a missing array should return 400")
+    void isCloseToBatch_nullArray_returns400() throws Exception {
+        BatchDistanceRequest request = batchDistanceRequest(
+                new double[] {-3.192473}, new double[] {55.946233}, new double[] {-3.192473}, null);
 
+        mockMvc.perform(post("/api/v1/isCloseTo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Batch with an out-of-range position should return 400")
+    void distanceToBatch_invalidPosition_returns400() throws Exception {
+        BatchDistanceRequest request = batchDistanceRequest(
+                new double[] {-3.192473, 200.0}, new double[] {55.946233, 55.945000},
+                new double[] {-3.192473, -3.189000}, new double[] {55.942617, 55.945000});
+
+        mockMvc.perform(post("/api/v1/distanceTo/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Batch next positions return parallel lng and lat arrays")
+    void nextPositionBatch_validInput_returnsPositions() throws Exception {
+        BatchNextPositionRequest request = new BatchNextPositionRequest();
+        request.setLng(new double[] {-3.192473, -3.190000});
+        request.setLat(new double[] {55.946233, 55.945000});
+        request.setAngle(new double[] {0.0, 112.5});
+
+        mockMvc.perform(post("/api/v1/nextPosition/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lng.length()").value(2))
+                .andExpect(jsonPath("$.lat.length()").value(2));
+    }
+
+    @Test
+    @DisplayName("Batch next positions with a disallowed angle should return 400")
+    void nextPositionBatch_invalidAngle_returns400() throws Exception {
+        BatchNextPositionRequest request = new BatchNextPositionRequest();
+        request.setLng(new double[] {-3.192473, -3.190000});
+        request.setLat(new double[] {55.946233, 55.945000});
+        request.setAngle(new double[] {0.0, 10.0});
+
+        doThrow(new IllegalArgumentException("Invalid angle"))
+                .when(distanceService).computeNextPositions(any(), any(), any(), any(), any());
+
+        mockMvc.perform(post("/api/v1/nextPosition/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+}
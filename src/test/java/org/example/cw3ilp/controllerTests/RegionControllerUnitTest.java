@@ -6,6 +6,7 @@ import org.example.cw3ilp.api.dto.*;
 import org.example.cw3ilp.api.model.LngLat;
 import org.example.cw3ilp.api.model.Region;
 import org.example.cw3ilp.service.RegionService;
+import org.example.cw3ilp.service.geometry.PreparedPolygon;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -20,6 +21,8 @@ import static org.mockito.ArgumentMatchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 
 import java.util.List;
@@ -41,6 +44,8 @@ public class RegionControllerUnitTest {
     @MockitoBean
     private RegionService regionService;
 
+    private final RegionService realRegionService = new RegionService();
+
     // -----------------------------------------------
     // TEST endpoint - /isInRegion
     // -----------------------------------------------
@@ -332,4 +337,78 @@ public class RegionControllerUnitTest {
                         .content(objectMapper.writeValueAsString(request)))
                 .andExpect(status().isBadRequest());
     }
+
+    // -----------------------------------------------
+    // TEST endpoint - /isInRegion/batch
+    // -----------------------------------------------
+
+    private BatchRegionRequest batchRegionRequest(List<LngLat> vertices, double[] lng, double[] lat) {
+        BatchRegionRequest request = new BatchRegionRequest();
+        request.setRegion(new Region("test_region", vertices));
+        request.setLng(lng);
+        request.setLat(lat);
+        return request;
+    }
+
+    private List<LngLat> squareVertices() {
+        return Arrays.asList(
+                new LngLat(-3.192, 55.946),
+                new LngLat(-3.192, 55.947),
+                new LngLat(-3.191, 55.947),
+                new LngLat(-3.191, 55.946),
+                new LngLat(-3.192, 55.946));
+    }
+
+    @Test
+    @DisplayName("Batch points match the single-point answer for each point")
+    void isInRegionBatch_validPoints_returnsArray() throws Exception {
+        // Centre, left edge, far outside, outside to the left
+        double[] lng = {-3.1915, -3.192, -3.185, -3.200};
+        double[] lat = {55.9465, 55.9465, 55.950, 55.943};
+        BatchRegionRequest request = batchRegionRequest(squareVertices(), lng, lat);
+
+        // Run the batch on the real service so its results can be checked value by value
+        doAnswer(invocation -> {
+            realRegionService.isInside(invocation.getArgument(0), invocation.getArgument(1),
+                    invocation.getArgument(2), invocation.getArgument(3));
+            return null;
+        }).when(regionService).isInside(any(PreparedPolygon.class), any(double[].class),
+                any(double[].class), any(boolean[].class));
+
+        mockMvc.perform(post("/api/v1/isInRegion/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(4))
+                .andExpect(jsonPath("$[0]").value(realRegionService.isInside(squareVertices(), lng[0], lat[0])))
+                .andExpect(jsonPath("$[1]").value(realRegionService.isInside(squareVertices(), lng[1], lat[1])))
+                .andExpect(jsonPath("$[2]").value(realRegionService.isInside(squareVertices(), lng[2], lat[2])))
+                .andExpect(jsonPath("$[3]").value(realRegionService.isInside(squareVertices(), lng[3], lat[3])))
+                .andExpect(jsonPath("$[0]").value(true))
+                .andExpect(jsonPath("$[2]").value(false));
+    }
+
+    @Test
+    @DisplayName("Batch against an open polygon should return 400 BAD")
+    void isInRegionBatch_openPolygon_returns400() throws Exception {
+        BatchRegionRequest request = batchRegionRequest(squareVertices().subList(0, 4),
+                new double[] {-3.1915}, new double[] {55.9465});
+
+        mockMvc.perform(post("/api/v1/isInRegion/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("Batch with unequal point arrays should return 400 BAD")
+    void isInRegionBatch_unequalArrays_returns400() throws Exception {
+        BatchRegionRequest request = batchRegionRequest(squareVertices(),
+                new double[] {-3.1915, -3.185}, new double[] {55.9465});
+
+        mockMvc.perform(post("/api/v1/isInRegion/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isBadRequest());
+    }
 }
@@ -0,0 +1,84 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.geometry.ClusterGraph;
+import org.example.cw3ilp.service.geometry.RestrictedAreaIndex;
+import org.example.cw3ilp.service.pathfinding.Airspace;
+import org.example.cw3ilp.service.pathfinding.LatticeAStar;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ClusterGraphUnitTest {
+
+    // A tall wall between the two test points
+    private RestrictedAreaIndex createWall() {
+        RestrictedArea wall = new RestrictedArea();
+        wall.setName("Wall");
+        wall.setVertices(List.of(
+                new LngLatAlt(-3.1900, 55.9300, 0.0),
+                new LngLatAlt(-3.1890, 55.9300, 0.0),
+                new LngLatAlt(-3.1890, 55.9500, 0.0),
+                new LngLatAlt(-3.1900, 55.9500, 0.0),
+                new LngLatAlt(-3.1900, 55.9300, 0.0)));
+        return RestrictedAreaIndex.build(List.of(wall));
+    }
+
+    @Test
+    @DisplayName("Start and goal in neighbouring clusters need no abstract route")
+    void route_neighbouringClusters_returnsNull() {
+        ClusterGraph graph = new ClusterGraph(createWall());
+
+        assertNull(graph.route(-3.2000, 55.9600, -3.1990, 55.9605, LatticeAStar.goalRadius(55.9605)));
+    }
+
+    @Test
+    @DisplayName("Abstract route around the wall passes entrances north or south of it")
+    void route_behindWall_goesAroundEnd() {
+        RestrictedAreaIndex index = createWall();
+        ClusterGraph graph = new ClusterGraph(index);
+
+        ClusterGraph.Route route = graph.route(-3.1950, 55.9450, -3.1840, 55.9450, LatticeAStar.goalRadius(55.9450));
+
+        assertNotNull(route);
+        assertTrue(route.getWaypointCount() > 0);
+        boolean passesEnd = false;
+        for (int i = 0; i < route.getWaypointCount(); i++) {
+            assertFalse(index.isBlocked(route.waypointX(i), route.waypointY(i)));
+            if (route.waypointY(i) < 55.9300 || route.waypointY(i) > 55.9500) {
+                passesEnd = true;
+            }
+        }
+        assertTrue(passesEnd);
+    }
+
+    @Test
+    @DisplayName("Corridor blocks the plane outside the route's clusters")
+    void corridor_farFromRoute_isBlocked() {
+        ClusterGraph graph = new ClusterGraph(createWall());
+        ClusterGraph.Route route = graph.route(-3.2100, 55.9700, -3.1700, 55.9700, LatticeAStar.goalRadius(55.9700));
+        assertNotNull(route);
+
+        Airspace corridor = route.corridor(Airspace.OPEN);
+
+        assertFalse(corridor.isBlocked(-3.1900, 55.9700));
+        assertTrue(corridor.isBlocked(-3.1900, 55.9000));
+    }
+
+    @Test
+    @DisplayName("Clusters are worked out once and reused by later routes")
+    void route_repeated_reusesClusters() {
+        ClusterGraph graph = new ClusterGraph(createWall());
+
+        graph.route(-3.1950, 55.9450, -3.1840, 55.9450, LatticeAStar.goalRadius(55.9450));
+        int clusters = graph.getClusterCount();
+        graph.route(-3.1950, 55.9450, -3.1840, 55.9450, LatticeAStar.goalRadius(55.9450));
+
+        assertTrue(clusters > 0);
+        assertEquals(clusters, graph.getClusterCount());
+    }
+}
@@ -1,7 +1,13 @@
 package org.example.cw3ilp.serviceTests;
 
+import org.example.cw3ilp.api.model.DronesAvailability;
 import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.api.model.LngLatAlt;
 import org.example.cw3ilp.service.DistanceService;
+import org.example.cw3ilp.service.geometry.ColumnKernels;
+import org.example.cw3ilp.service.geometry.ServicePointIndex;
+import org.example.cw3ilp.service.pathfinding.DistanceKernel;
+import org.example.cw3ilp.service.pathfinding.EquirectangularDistance;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -9,6 +15,9 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 public class DistanceServiceUnitTest {
@@ -323,4 +332,252 @@ public class DistanceServiceUnitTest {
         assertEquals(55.946233, next2.getLat(), 1e-10);
     }
 
+    // Step table must reproduce the original cos/sin step exactly
+    @ParameterizedTest
+    @ValueSource(doubles = {0.0, 22.5, 45.0, 67.5, 90.0, 112.5, 135.0, 157.5,
+            180.0, 202.5, 225.0, 247.5, 270.0, 292.5, 315.0, 337.5})
+    @DisplayName("computeNextPosition should match the cos/sin step bit for bit")
+    void computeNextPosition_allAngles_matchesTrigonometricStep(double angle) {
+        LngLat start = new LngLat(-3.192473, 55.946233);
+        double angleRad = Math.toRadians(angle);
+
+        LngLat next = distanceService.computeNextPosition(start, angle);
+
+        assertEquals(-3.192473 + 0.00015 * Math.cos(angleRad), next.getLng(), 0.0);
+        assertEquals(55.946233 + 0.00015 * Math.sin(angleRad), next.getLat(), 0.0);
+    }
+
+    // --------------------------------------------
+    // TEST equirectangular kernel against Haversine
+    // --------------------------------------------
+
+    @ParameterizedTest
+    @CsvSource({
+            "-3.186358, 55.944680, -3.177320, 55.981660",
+            "-3.250000, 55.900000, -3.150000, 55.990000",
+            "-3.192473, 55.946233, -3.192000, 55.946500"
+    })
+    @DisplayName("Equirectangular distance stays within 0.05% of Haversine over the service area")
+    void equirectangular_serviceArea_matchesHaversine(double lng1, double lat1, double lng2, double lat2) {
+        double haversine = distanceService.computeDistance(lng1, lat1, lng2, lat2);
+
+        assertEquals(haversine, EquirectangularDistance.around(lng2, lat2).distance(lng1, lat1), haversine * 5e-4);
+        assertEquals(haversine, EquirectangularDistance.distance(lng1, lat1, lng2, lat2), haversine * 5e-4);
+    }
+
+    @Test
+    @DisplayName("Equirectangular closeness agrees with Haversine around the threshold")
+    void equirectangular_isClose_matchesHaversine() {
+        double goalLng = -3.186358;
+        double goalLat = 55.944680;
+        EquirectangularDistance kernel = EquirectangularDistance.around(goalLng, goalLat);
+
+        for (double lng = goalLng - 0.0004; lng <= goalLng + 0.0004; lng += 0.0000137) {
+            for (double lat = goalLat - 0.0002; lat <= goalLat + 0.0002; lat += 0.0000071) {
+                boolean haversine = distanceService.computeCloseness(lng, lat, goalLng, goalLat);
+                assertEquals(haversine, kernel.isClose(lng, lat), "(" + lng + ", " + lat + ")");
+                assertEquals(haversine, EquirectangularDistance.isClose(lng, lat, goalLng, goalLat));
+            }
+        }
+    }
+
+    // --------------------------------------------
+    // TEST batch kernels against the single-pair forms
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Batch distance and closeness match the single-pair results")
+    void computeDistances_batch_matchesSinglePair() {
+        double[] lng1 = {-3.192473, -3.190000, -3.186358, -3.185000};
+        double[] lat1 = {55.946233, 55.945000, 55.944680, 55.944000};
+        double[] lng2 = {-3.192473, -3.189000, -3.186300, -3.185000};
+        double[] lat2 = {55.942617, 55.945000, 55.944700, 55.944000};
+
+        double[] distances = new double[lng1.length];
+        boolean[] close = new boolean[lng1.length];
+        distanceService.computeDistances(lng1, lat1, lng2, lat2, distances);
+        distanceService.computeCloseness(lng1, lat1, lng2, lat2, close);
+
+        for (int i = 0; i < lng1.length; i++) {
+            // the vector kernels may differ in the last bits
+            assertEquals(distanceService.computeDistance(lng1[i], lat1[i], lng2[i], lat2[i]), distances[i], 1e-15);
+            assertEquals(distanceService.computeCloseness(lng1[i], lat1[i], lng2[i], lat2[i]), close[i]);
+        }
+        assertTrue(close[2]);
+        assertFalse(close[0]);
+    }
+
+    @Test
+    @DisplayName("Batch next positions match the single-position results exactly")
+    void computeNextPositions_batch_matchesSinglePosition() {
+        int n = 16;
+        double[] lng = new double[n];
+        double[] lat = new double[n];
+        double[] angles = new double[n];
+        for (int i = 0; i < n; i++) {
+            lng[i] = -3.192473 + i * 0.0001;
+            lat[i] = 55.946233;
+            angles[i] = i * 22.5;
+        }
+
+        double[] nextLng = new double[n];
+        double[] nextLat = new double[n];
+        distanceService.computeNextPositions(lng, lat, angles, nextLng, nextLat);
+
+        for (int i = 0; i < n; i++) {
+            LngLat next = distanceService.computeNextPosition(new LngLat(lng[i], lat[i]), angles[i]);
+            assertEquals(next.getLng(), nextLng[i], 0.0);
+            assertEquals(next.getLat(), nextLat[i], 0.0);
+        }
+    }
+
+    @Test
+    @DisplayName("Batch next positions reject a disallowed angle and unequal arrays")
+    void computeNextPositions_invalidBatch_throwsException() {
+        double[] lng = {-3.192473, -3.190000};
+        double[] lat = {55.946233, 55.945000};
+        double[] out = new double[2];
+
+        assertThrows(IllegalArgumentException.class,
+                () -> distanceService.computeNextPositions(lng, lat, new double[] {0.0, 10.0}, out, out));
+        assertThrows(IllegalArgumentException.class,
+                () -> distanceService.computeNextPositions(lng, lat, new double[] {0.0}, out, out));
+        assertThrows(IllegalArgumentException.class,
+                () -> distanceService.computeDistances(lng, lat, lng, new double[] {55.0}, out));
+    }
+
+    @Test
+    @DisplayName("Preferred distance kernels agree with the scalar ones, including the vector tail")
+    void columnKernels_preferred_matchesScalar() {
+        int n = 37; // not a multiple of any vector length
+        double[] lng1 = new double[n];
+        double[] lat1 = new double[n];
+        double[] lng2 = new double[n];
+        double[] lat2 = new double[n];
+        for (int i = 0; i < n; i++) {
+            lng1[i] = -3.25 + i * 0.003;
+            lat1[i] = 55.90 + i * 0.002;
+            lng2[i] = -3.15 - i * 0.001;
+            lat2[i] = 55.99 - i * 0.0025;
+        }
+
+        double[] scalar = new double[n];
+        double[] preferred = new double[n];
+        ColumnKernels.scalar().haversine(lng1, lat1, lng2, lat2, scalar, n);
+        ColumnKernels.preferred().haversine(lng1, lat1, lng2, lat2, preferred, n);
+        assertArrayEquals(scalar, preferred, 1e-15);
+
+        ColumnKernels.scalar().equirectangular(lng1, lat1, lng2, lat2, scalar, n);
+        distanceService.computeDistances(DistanceKernel.EQUIRECTANGULAR, lng1, lat1, lng2, lat2, preferred);
+        assertArrayEquals(scalar, preferred, 1e-15);
+        assertEquals(EquirectangularDistance.distance(lng1[5], lat1[5], lng2[5], lat2[5]), scalar[5], 0.0);
+    }
+
+    // --------------------------------------------
+    // TEST nearest service point index
+    // --------------------------------------------
+
+    private DronesAvailability.ServicePoint servicePoint(int id, Double lng, Double lat) {
+        DronesAvailability.ServicePoint servicePoint = new DronesAvailability.ServicePoint();
+        servicePoint.setId(id);
+        servicePoint.setName("sp" + id);
+        servicePoint.setLocation(lng == null ? null : new LngLatAlt(lng, lat, 0.0));
+        return servicePoint;
+    }
+
+    // A grid of depots around Edinburgh, one without a location
+    private List<DronesAvailability.ServicePoint> createServicePoints() {
+        List<DronesAvailability.ServicePoint> servicePoints = new ArrayList<>();
+        int id = 0;
+        for (int i = 0; i < 12; i++) {
+            for (int j = 0; j < 12; j++) {
+                servicePoints.add(servicePoint(id++, -3.30 + i * 0.01, 55.90 + j * 0.007));
+            }
+        }
+        servicePoints.add(servicePoint(id, null, null));
+        return servicePoints;
+    }
+
+    private DronesAvailability.ServicePoint linearNearest(List<DronesAvailability.ServicePoint> servicePoints,
+                                                          double lng, double lat) {
+        DronesAvailability.ServicePoint nearest = null;
+        double minDistance = Double.MAX_VALUE;
+        for (DronesAvailability.ServicePoint sp : servicePoints) {
+            if (sp.getLocation() == null) continue;
+            double distance = distanceService.computeDistance(sp.getLocation().getLng(), sp.getLocation().getLat(), lng, lat);
+            if (distance < minDistance) {
+                minDistance = distance;
+                nearest = sp;
+            }
+        }
+        return nearest;
+    }
+
+    @Test
+    @DisplayName("findNearestServicePoint matches a linear scan, skipping points without a location")
+    void findNearestServicePoint_grid_matchesLinearScan() {
+        List<DronesAvailability.ServicePoint> servicePoints = createServicePoints();
+
+        for (double lng = -3.32; lng <= -3.17; lng += 0.0037) {
+            for (double lat = 55.89; lat <= 55.99; lat += 0.0031) {
+                assertSame(linearNearest(servicePoints, lng, lat),
+                        distanceService.findNearestServicePoint(servicePoints, lng, lat));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Equally distant service points go to the one listed first")
+    void findNearestServicePoint_tie_returnsFirstListed() {
+        List<DronesAvailability.ServicePoint> servicePoints = List.of(
+                servicePoint(1, -3.19, 55.95),
+                servicePoint(2, -3.19, 55.95),
+                servicePoint(3, -3.18, 55.95));
+
+        assertEquals(1, distanceService.findNearestServicePoint(servicePoints, -3.191, 55.95).getId());
+        assertNull(distanceService.findNearestServicePoint(List.of(), -3.191, 55.95));
+    }
+
+    @Test
+    @DisplayName("k-nearest and radius queries return service points nearest first")
+    void findNearestServicePoints_grid_sortedByDistance() {
+        List<DronesAvailability.ServicePoint> servicePoints = createServicePoints();
+        double lng = -3.2433;
+        double lat = 55.9391;
+
+        List<DronesAvailability.ServicePoint> nearest = distanceService.findNearestServicePoints(servicePoints, lng, lat, 5);
+        assertEquals(5, nearest.size());
+        assertSame(linearNearest(servicePoints, lng, lat), nearest.getFirst());
+
+        List<DronesAvailability.ServicePoint> within = distanceService.findServicePointsWithin(servicePoints, lng, lat, 0.015);
+        long expected = servicePoints.stream()
+                .filter(sp -> sp.getLocation() != null)
+                .filter(sp -> distanceService.computeDistance(sp.getLocation().getLng(), sp.getLocation().getLat(), lng, lat) <= 0.015)
+                .count();
+        assertEquals(expected, within.size());
+        for (int i = 1; i < within.size(); i++) {
+            assertTrue(distance(within.get(i - 1), lng, lat) <= distance(within.get(i), lng, lat));
+        }
+        assertEquals(nearest, within.subList(0, 5));
+    }
+
+    private double distance(DronesAvailability.ServicePoint sp, double lng, double lat) {
+        return distanceService.computeDistance(sp.getLocation().getLng(), sp.getLocation().getLat(), lng, lat);
+    }
+
+    @Test
+    @DisplayName("Service point index is reused for a re-fetched list and rebuilt when a location changes")
+    void getServicePointIndex_changedList_rebuilds() {
+        List<DronesAvailability.ServicePoint> servicePoints = createServicePoints();
+        ServicePointIndex index = distanceService.getServicePointIndex(servicePoints);
+
+        assertEquals(144, index.size());
+        assertSame(index, distanceService.getServicePointIndex(new ArrayList<>(createServicePoints())));
+
+        List<DronesAvailability.ServicePoint> moved = createServicePoints();
+        moved.set(0, servicePoint(0, -3.10, 55.90));
+        ServicePointIndex rebuilt = distanceService.getServicePointIndex(moved);
+        assertNotSame(index, rebuilt);
+        assertEquals(0, rebuilt.nearest(-3.101, 55.90).getId());
+    }
 }
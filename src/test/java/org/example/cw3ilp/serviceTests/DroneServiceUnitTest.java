@@ -0,0 +1,281 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.dto.CalcDeliveryPathResponse;
+import org.example.cw3ilp.api.dto.MedDispatchRec;
+import org.example.cw3ilp.api.model.Availability;
+import org.example.cw3ilp.api.model.Capability;
+import org.example.cw3ilp.api.model.Drone;
+import org.example.cw3ilp.api.model.DronePath;
+import org.example.cw3ilp.api.model.DronesAvailability;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.Requirements;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.api.model.ServicePointDrones;
+import org.example.cw3ilp.service.DistanceService;
+import org.example.cw3ilp.service.DroneService;
+import org.example.cw3ilp.service.ILPDataService;
+import org.example.cw3ilp.service.NoFlyZoneService;
+import org.example.cw3ilp.service.PathfinderProperties;
+import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.ServicePointAssigner;
+import org.example.cw3ilp.service.pathfinding.SearchBudget;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.example.cw3ilp.serviceTests.ZoneFixtures.rectangleZone;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.when;
+
+public class DroneServiceUnitTest {
+
+    private static final LngLatAlt SOUTH_DEPOT = new LngLatAlt(-3.1863580788986368, 55.94468066708487, 0.0);
+    private static final LngLatAlt NORTH_DEPOT = new LngLatAlt(-3.1863580788986368, 55.9600, 0.0);
+    private static final LngLatAlt NORTH_DELIVERY = new LngLatAlt(-3.1850, 55.9590, 0.0);
+    private static final LngLatAlt SOUTH_DELIVERY = new LngLatAlt(-3.1880, 55.9455, 0.0);
+
+    private ILPDataService ilpDataService;
+    private PathfinderService pathfinderService;
+    private NoFlyZoneService noFlyZoneService;
+    private DroneService droneService;
+
+    @BeforeEach
+    void setUp() {
+        ilpDataService = mock(ILPDataService.class);
+        when(ilpDataService.getAllDrones()).thenReturn(List.of(drone("1"), drone("2")));
+        when(ilpDataService.getAllServicePoints()).thenReturn(List.of(
+                servicePoint(1, "South", SOUTH_DEPOT), servicePoint(2, "North", NORTH_DEPOT)));
+        when(ilpDataService.getAllRestrictedAreas()).thenReturn(new ArrayList<>());
+        when(ilpDataService.getAllServicePointDrones()).thenReturn(List.of(
+                servicePointDrones(1, "1"), servicePointDrones(2, "2")));
+        when(ilpDataService.getDroneAvailabilityMap()).thenReturn(Map.of(
+                "1", List.of(mondayMorning()), "2", List.of(mondayMorning())));
+
+        DistanceService distanceService = new DistanceService();
+        pathfinderService = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR)
+                        .withCacheSize(0).withAnytimeBudgetMs(0));
+
+        noFlyZoneService = new NoFlyZoneService(ilpDataService);
+
+        droneService = new DroneService(ilpDataService, 4);
+        ReflectionTestUtils.setField(droneService, "pathfinderService", pathfinderService);
+        ReflectionTestUtils.setField(droneService, "distanceService", distanceService);
+        ReflectionTestUtils.setField(droneService, "noFlyZoneService", noFlyZoneService);
+        ReflectionTestUtils.setField(droneService, "servicePointAssigner",
+                new ServicePointAssigner(pathfinderService, distanceService));
+    }
+
+    @AfterEach
+    void tearDown() {
+        droneService.shutdown();
+        pathfinderService.shutdown();
+    }
+
+    private static Drone drone(String id) {
+        return drone(id, 2000);
+    }
+
+    private static Drone drone(String id, int maxMoves) {
+        Capability capability = new Capability();
+        capability.setCooling(false);
+        capability.setHeating(false);
+        capability.setCapacity(10.0);
+        capability.setMaxMoves(maxMoves);
+        capability.setCostPerMove(0.01);
+        capability.setCostInitial(1.0);
+        capability.setCostFinal(1.0);
+
+        Drone drone = new Drone();
+        drone.setId(id);
+        drone.setName("Drone " + id);
+        drone.setCapability(capability);
+        return drone;
+    }
+
+    private static DronesAvailability.ServicePoint servicePoint(int id, String name, LngLatAlt location) {
+        DronesAvailability.ServicePoint servicePoint = new DronesAvailability.ServicePoint();
+        servicePoint.setId(id);
+        servicePoint.setName(name);
+        servicePoint.setLocation(location);
+        return servicePoint;
+    }
+
+    private static ServicePointDrones servicePointDrones(int servicePointId, String... droneIds) {
+        List<DronesAvailability> drones = new ArrayList<>();
+        for (String droneId : droneIds) {
+            DronesAvailability drone = new DronesAvailability();
+            drone.setId(droneId);
+            drones.add(drone);
+        }
+
+        ServicePointDrones servicePointDrones = new ServicePointDrones();
+        servicePointDrones.setServicePointId(servicePointId);
+        servicePointDrones.setDrones(drones);
+        return servicePointDrones;
+    }
+
+    private static Availability mondayMorning() {
+        Availability availability = new Availability();
+        availability.setDayOfWeek(DayOfWeek.MONDAY);
+        availability.setFrom(LocalTime.of(8, 0));
+        availability.setUntil(LocalTime.of(12, 0));
+        return availability;
+    }
+
+    private static MedDispatchRec dispatch(int id, LngLatAlt delivery) {
+        Requirements requirements = new Requirements();
+        requirements.setCapacity(1.0);
+
+        MedDispatchRec dispatch = new MedDispatchRec();
+        dispatch.setId(id);
+        dispatch.setDate("2025-01-06");
+        dispatch.setTime("10:00");
+        dispatch.setDelivery(delivery);
+        dispatch.setRequirements(requirements);
+        return dispatch;
+    }
+
+    // One dispatch near each depot, so every call plans two routes built concurrently
+    private List<MedDispatchRec> twoRouteDispatches() {
+        return List.of(
+                dispatch(1, SOUTH_DELIVERY),
+                dispatch(2, NORTH_DELIVERY));
+    }
+
+    // --------------------------------------------
+    // TEST calculateDeliveryPath - concurrent routes
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Drone paths of concurrently built routes come back in plan order")
+    void calculateDeliveryPath_twoRoutes_pathsInPlanOrder() {
+        CalcDeliveryPathResponse response = droneService.calculateDeliveryPath(twoRouteDispatches());
+
+        List<String> droneIds = response.getDronePaths().stream().map(DronePath::getDroneId).toList();
+        assertEquals(List.of("1", "2"), droneIds);
+        assertEquals(1, response.getDronePaths().get(0).getDeliveries().get(0).getDeliveryId());
+        assertEquals(2, response.getDronePaths().get(1).getDeliveries().get(0).getDeliveryId());
+    }
+
+    @Test
+    @DisplayName("Repeated requests give the same totals regardless of thread timing")
+    void calculateDeliveryPath_repeated_totalsDeterministic() {
+        CalcDeliveryPathResponse first = droneService.calculateDeliveryPath(twoRouteDispatches());
+
+        for (int i = 0; i < 5; i++) {
+            CalcDeliveryPathResponse again = droneService.calculateDeliveryPath(twoRouteDispatches());
+
+            assertEquals(first.getTotalMoves(), again.getTotalMoves());
+            assertEquals(first.getTotalCost(), again.getTotalCost());
+            assertEquals(first.getDronePaths(), again.getDronePaths());
+        }
+    }
+
+    @Test
+    @DisplayName("A failing route fails the request and cancels the routes still searching")
+    void calculateDeliveryPath_routeFails_propagatesAndCancelsBudget() {
+        PathfinderService failing = spy(pathfinderService);
+        doThrow(new IllegalStateException("Search failed"))
+                .when(failing).findPath(any(LngLatAlt.class), eq(NORTH_DELIVERY), anyList(), any(SearchBudget.class));
+        ReflectionTestUtils.setField(droneService, "pathfinderService", failing);
+        SearchBudget budget = SearchBudget.unlimited();
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class,
+                () -> droneService.calculateDeliveryPath(twoRouteDispatches(), budget));
+
+        assertEquals("Search failed", thrown.getMessage());
+        assertTrue(budget.isCancelled());
+    }
+
+    @Test
+    @DisplayName("A route whose detour takes it past the only drone's range is not flown")
+    void calculateDeliveryPath_detourPastRange_dropsDispatch() {
+        // about 12 moves each way in a straight line, so the planner accepts it for 40 moves
+        when(ilpDataService.getAllDrones()).thenReturn(List.of(drone("1", 40)));
+        when(ilpDataService.getAllServicePoints()).thenReturn(List.of(servicePoint(1, "South", SOUTH_DEPOT)));
+        when(ilpDataService.getAllServicePointDrones()).thenReturn(List.of(servicePointDrones(1, "1")));
+        // a wall between the south depot and its delivery, only passable far to the north or south
+        noFlyZoneService.addTemporaryZone(rectangleZone("Wall", -3.1875, 55.9380, -3.1870, 55.9520));
+
+        CalcDeliveryPathResponse response = droneService.calculateDeliveryPath(List.of(dispatch(1, SOUTH_DELIVERY)));
+
+        assertTrue(response.getDronePaths().isEmpty());
+        assertEquals(0, response.getTotalMoves());
+    }
+
+    @Test
+    @DisplayName("A dispatch dropped for a detour past its drone's range is re-planned on another drone")
+    void calculateDeliveryPath_detourPastRange_replansOnAnotherDrone() {
+        // drone 1 is tried first and accepts on the estimate, but cannot fly the detour
+        when(ilpDataService.getAllDrones()).thenReturn(List.of(drone("1", 40), drone("2")));
+        when(ilpDataService.getAllServicePoints()).thenReturn(List.of(servicePoint(1, "South", SOUTH_DEPOT)));
+        when(ilpDataService.getAllServicePointDrones()).thenReturn(List.of(servicePointDrones(1, "1", "2")));
+        noFlyZoneService.addTemporaryZone(rectangleZone("Wall", -3.1875, 55.9380, -3.1870, 55.9520));
+
+        CalcDeliveryPathResponse response = droneService.calculateDeliveryPath(List.of(dispatch(1, SOUTH_DELIVERY)));
+
+        assertEquals(1, response.getDronePaths().size());
+        assertEquals("2", response.getDronePaths().get(0).getDroneId());
+        assertTrue(response.getTotalMoves() > 40);
+    }
+
+    // --------------------------------------------
+    // TEST calculateDeliveryPath - temporary zones
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("A delivery planned after a temporary zone is added flies around it")
+    void calculateDeliveryPath_afterTemporaryZone_avoidsZone() {
+        // across the straight line from the south depot to its delivery
+        RestrictedArea zone = rectangleZone("Temporary", -3.1876, 55.9448, -3.1868, 55.9454);
+        List<MedDispatchRec> dispatches = List.of(dispatch(1, SOUTH_DELIVERY));
+        List<LngLatAlt> before = droneService.calculateDeliveryPath(dispatches)
+                .getDronePaths().getFirst().getDeliveries().getFirst().getFlightPath();
+
+        noFlyZoneService.addTemporaryZone(zone);
+        List<LngLatAlt> after = droneService.calculateDeliveryPath(dispatches)
+                .getDronePaths().getFirst().getDeliveries().getFirst().getFlightPath();
+
+        assertTrue(crossesZone(before, zone));
+        assertFalse(crossesZone(after, zone));
+    }
+
+    @Test
+    @DisplayName("Zones come back as the same list until a temporary zone changes them")
+    void getZones_unchanged_sameInstance() {
+        List<RestrictedArea> zones = noFlyZoneService.getZones();
+        assertSame(zones, noFlyZoneService.getZones());
+
+        noFlyZoneService.addTemporaryZone(rectangleZone("Temporary", -3.1876, 55.9448, -3.1868, 55.9454));
+        List<RestrictedArea> withTemporary = noFlyZoneService.getZones();
+
+        assertNotSame(zones, withTemporary);
+        assertEquals(1, withTemporary.size());
+        assertSame(withTemporary, noFlyZoneService.getZones());
+    }
+
+    private boolean crossesZone(List<LngLatAlt> path, RestrictedArea zone) {
+        for (int i = 1; i < path.size(); i++) {
+            if (pathfinderService.crossesNoFlyZone(path.get(i - 1), path.get(i), List.of(zone))) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.DistanceService;
+import org.example.cw3ilp.service.PathfinderProperties;
+import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.pathfinding.EncodedPath;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EncodedPathUnitTest {
+
+    private final PathfinderService pathfinderService = new PathfinderService(
+            new DistanceService(), PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR));
+
+    // Path round George Square, ending with the hovers over the (off-lattice) delivery point
+    private List<LngLatAlt> createDeliveryPath() {
+        RestrictedArea georgeSquare = new RestrictedArea();
+        georgeSquare.setName("George Square Area");
+        georgeSquare.setVertices(List.of(
+                new LngLatAlt(-3.190578818321228, 55.94402412577528, 0.0),
+                new LngLatAlt(-3.1899887323379517, 55.94284650540911, 0.0),
+                new LngLatAlt(-3.187097311019897, 55.94328811724263, 0.0),
+                new LngLatAlt(-3.187682032585144, 55.944477740393744, 0.0),
+                new LngLatAlt(-3.190578818321228, 55.94402412577528, 0.0)));
+        LngLatAlt target = new LngLatAlt(-3.1912, 55.9433, 0.0);
+
+        List<LngLatAlt> path = new ArrayList<>(pathfinderService.findPath(
+                new LngLatAlt(-3.1863580788986368, 55.94468066708487, 0.0), target, List.of(georgeSquare)));
+        path.add(target);
+        path.add(target);
+        path.add(target);
+        return path;
+    }
+
+    private void assertSameWaypoints(List<LngLatAlt> expected, List<LngLatAlt> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getLng(), actual.get(i).getLng(), 0.0, "waypoint " + i);
+            assertEquals(expected.get(i).getLat(), actual.get(i).getLat(), 0.0, "waypoint " + i);
+        }
+    }
+
+    @Test
+    @DisplayName("Decoding gives back every waypoint bit for bit, including hovers and the final jump")
+    void decode_deliveryPath_sameWaypoints() {
+        List<LngLatAlt> path = createDeliveryPath();
+
+        EncodedPath encoded = EncodedPath.encode(path);
+
+        assertEquals(path.size(), encoded.getWaypoints());
+        assertSameWaypoints(path, encoded.decode());
+    }
+
+    @Test
+    @DisplayName("Stored bytes and Base64 codes both decode to the same path")
+    void fromBytesAndOf_deliveryPath_sameWaypoints() {
+        List<LngLatAlt> path = createDeliveryPath();
+        EncodedPath encoded = EncodedPath.encode(path);
+
+        assertSameWaypoints(path, EncodedPath.fromBytes(encoded.toBytes()).decode());
+        assertSameWaypoints(path, EncodedPath.of(encoded.getOriginLng(), encoded.getOriginLat(),
+                encoded.getWaypoints(), encoded.getCodesBase64()).decode());
+    }
+
+    @Test
+    @DisplayName("Encoded path is over 20 times smaller than the waypoint list")
+    void encode_deliveryPath_muchSmallerThanWaypoints() {
+        List<LngLatAlt> path = createDeliveryPath();
+
+        StringBuilder json = new StringBuilder();
+        for (LngLatAlt waypoint : path) {
+            json.append("{\"lat\":").append(waypoint.getLat()).append(",\"lng\":").append(waypoint.getLng()).append("},");
+        }
+
+        assertTrue(EncodedPath.encode(path).toBytes().length * 20 < json.length());
+    }
+
+    @Test
+    @DisplayName("Codes that do not match the waypoint count are rejected")
+    void of_mismatchedCodes_throws() {
+        EncodedPath encoded = EncodedPath.encode(createDeliveryPath());
+
+        assertThrows(IllegalArgumentException.class, () -> EncodedPath.of(encoded.getOriginLng(),
+                encoded.getOriginLat(), encoded.getWaypoints() + 4, encoded.getCodesBase64()));
+        assertThrows(IllegalArgumentException.class, () -> EncodedPath.of(encoded.getOriginLng(),
+                encoded.getOriginLat(), encoded.getWaypoints(), Base64.getEncoder().encodeToString(new byte[]{1, 0})));
+        assertThrows(IllegalArgumentException.class, () -> EncodedPath.fromBytes(new byte[8]));
+    }
+
+    @Test
+    @DisplayName("Counts larger than the codes can hold are rejected before allocating")
+    void of_oversizedCounts_throws() {
+        // version, a marker count far beyond the 15 bytes that follow it
+        byte[] codes = ByteBuffer.allocate(20).put((byte) 1).putInt(38).array();
+
+        assertThrows(IllegalArgumentException.class, () -> EncodedPath.of(-3.19, 55.94,
+                Integer.MAX_VALUE, Base64.getEncoder().encodeToString(codes)));
+        assertThrows(IllegalArgumentException.class, () -> EncodedPath.of(-3.19, 55.94,
+                39, Base64.getEncoder().encodeToString(codes)));
+    }
+
+    @Test
+    @DisplayName("Empty paths cannot be encoded")
+    void encode_emptyPath_throws() {
+        assertThrows(IllegalArgumentException.class, () -> EncodedPath.encode(List.of()));
+    }
+}
@@ -0,0 +1,60 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.geometry.FreeSpaceComponents;
+import org.example.cw3ilp.service.geometry.ZoneFingerprint;
+import org.example.cw3ilp.service.geometry.ZoneSnapshot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.example.cw3ilp.serviceTests.ZoneFixtures.courtyardWalls;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreeSpaceComponentsUnitTest {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    @Test
+    @DisplayName("Free-space components separate a walled courtyard from the airspace around it")
+    void components_walledCourtyard_separateComponent() {
+        List<RestrictedArea> ring = courtyardWalls();
+        FreeSpaceComponents components = ZoneSnapshot.build(ring, ZoneFingerprint.of(ring)).labelComponents();
+        assertNotNull(components);
+
+        int courtyard = components.componentAt(-3.1900, 55.9450);
+        assertEquals(2, components.getComponentCount());
+        assertNotEquals(FreeSpaceComponents.OUTSIDE, courtyard);
+        assertNotEquals(FreeSpaceComponents.BLOCKED, courtyard);
+        assertEquals(FreeSpaceComponents.OUTSIDE, components.componentAt(-3.1950, 55.9450));
+        assertEquals(FreeSpaceComponents.OUTSIDE, components.componentAt(-3.1500, 55.9800));
+        assertEquals(FreeSpaceComponents.BLOCKED, components.componentAt(-3.1900, 55.94675));
+    }
+
+    @Test
+    @DisplayName("Reachability check rules out the courtyard from outside but not positions on the same side")
+    void components_mayReach_onlyWithinComponent() {
+        List<RestrictedArea> ring = courtyardWalls();
+        FreeSpaceComponents components = ZoneSnapshot.build(ring, ZoneFingerprint.of(ring)).labelComponents();
+        double radius = STEP_SIZE * 1.1;
+
+        assertFalse(components.mayReach(-3.1950, 55.9450, -3.1900, 55.9450, radius));
+        assertFalse(components.mayReach(-3.1900, 55.9450, -3.1950, 55.9450, radius));
+        assertTrue(components.mayReach(-3.1950, 55.9450, -3.1850, 55.9450, radius));
+        assertTrue(components.mayReach(-3.1905, 55.9445, -3.1895, 55.9455, radius));
+    }
+
+    @Test
+    @DisplayName("Components read before labelling are null instead of waiting, and published once labelled")
+    void components_beforeLabelling_nullWithoutWaiting() {
+        List<RestrictedArea> ring = courtyardWalls();
+        ZoneSnapshot snapshot = ZoneSnapshot.build(ring, ZoneFingerprint.of(ring));
+
+        assertNull(snapshot.getComponents());
+        FreeSpaceComponents labelled = snapshot.labelComponents();
+        assertNotNull(labelled);
+        assertSame(labelled, snapshot.getComponents());
+        assertSame(labelled, snapshot.labelComponents());
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.geometry.NoFlyRaster;
+import org.example.cw3ilp.service.geometry.RestrictedAreaIndex;
+import org.example.cw3ilp.service.geometry.ZoneFingerprint;
+import org.example.cw3ilp.service.geometry.ZoneSnapshot;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class NoFlyRasterUnitTest {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    private List<RestrictedArea> createZones() {
+        RestrictedArea georgeSquare = new RestrictedArea();
+        georgeSquare.setName("George Square Area");
+        georgeSquare.setVertices(List.of(
+                new LngLatAlt(-3.190578818321228, 55.94402412577528, 0.0),
+                new LngLatAlt(-3.1899887323379517, 55.94284650540911, 0.0),
+                new LngLatAlt(-3.187097311019897, 55.94328811724263, 0.0),
+                new LngLatAlt(-3.187682032585144, 55.944477740393744, 0.0),
+                new LngLatAlt(-3.190578818321228, 55.94402412577528, 0.0)));
+        return List.of(georgeSquare);
+    }
+
+    @Test
+    @DisplayName("Raster point and move queries match the exact index, on and off the lattice")
+    void raster_pointsAndMoves_matchIndex() {
+        RestrictedAreaIndex index = RestrictedAreaIndex.build(createZones());
+        NoFlyRaster raster = NoFlyRaster.build(index);
+        assertNotNull(raster);
+
+        for (double lng = -3.1915; lng <= -3.1860; lng += STEP_SIZE / 2) {
+            for (double lat = 55.9420; lat <= 55.9455; lat += STEP_SIZE / 3) {
+                assertEquals(index.isBlocked(lng, lat), raster.isBlocked(lng, lat), "point (" + lng + ", " + lat + ")");
+
+                for (int direction = 0; direction < 16; direction++) {
+                    double angle = Math.toRadians(direction * 22.5);
+                    double toLng = lng + STEP_SIZE * Math.cos(angle);
+                    double toLat = lat + STEP_SIZE * Math.sin(angle);
+                    assertEquals(index.isSegmentBlocked(lng, lat, toLng, toLat),
+                            raster.isSegmentBlocked(lng, lat, toLng, toLat));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Raster treats everything outside the zone envelope as clear")
+    void raster_outsideEnvelope_isClear() {
+        NoFlyRaster raster = NoFlyRaster.build(RestrictedAreaIndex.build(createZones()));
+
+        assertFalse(raster.isBlocked(-3.17732, 55.98166));
+        assertFalse(raster.isSegmentBlocked(-3.17732, 55.98166, -3.17717, 55.98166));
+        assertTrue(raster.isBlocked(-3.1889, 55.9437));
+    }
+
+    @Test
+    @DisplayName("An empty zone set is not rasterized")
+    void build_noZones_returnsNull() {
+        assertNull(NoFlyRaster.build(RestrictedAreaIndex.build(new ArrayList<>())));
+    }
+
+    @Test
+    @DisplayName("Snapshot serves the exact index until the raster is published")
+    void snapshot_rasterize_swapsAirspace() {
+        List<RestrictedArea> zones = createZones();
+        ZoneSnapshot snapshot = ZoneSnapshot.build(zones, ZoneFingerprint.of(zones));
+
+        assertSame(snapshot.getIndex(), snapshot.getAirspace());
+
+        NoFlyRaster raster = snapshot.rasterize();
+
+        assertNotNull(raster);
+        assertSame(raster, snapshot.getAirspace());
+    }
+}
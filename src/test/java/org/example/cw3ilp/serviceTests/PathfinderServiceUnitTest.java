@@ -0,0 +1,656 @@
+package org.example.cw3ilp.serviceTests;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.example.cw3ilp.api.config.PathSearchMetrics;
+import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.DistanceService;
+import org.example.cw3ilp.service.PathfinderProperties;
+import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.geometry.RestrictedAreaIndex;
+import org.example.cw3ilp.service.pathfinding.AnytimePath;
+import org.example.cw3ilp.service.pathfinding.CatchmentMap;
+import org.example.cw3ilp.service.pathfinding.DistanceKernel;
+import org.example.cw3ilp.service.pathfinding.LatticeNodeTable;
+import org.example.cw3ilp.service.pathfinding.LatticeSteps;
+import org.example.cw3ilp.service.pathfinding.PathCache;
+import org.example.cw3ilp.service.pathfinding.RestartingLatticeAStar;
+import org.example.cw3ilp.service.pathfinding.SearchBudget;
+import org.example.cw3ilp.service.pathfinding.SearchStats;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.example.cw3ilp.serviceTests.ZoneFixtures.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PathfinderServiceUnitTest {
+
+    private static final double STEP_SIZE = 0.00015;
+
+    private PathfinderService pathfinderService;
+    private DistanceService distanceService;
+
+    @BeforeEach
+    void setUp() {
+        distanceService = new DistanceService();
+        pathfinderService = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR)
+                        .withCacheSize(0).withAnytimeBudgetMs(0));
+    }
+
+    // George Square style zone sitting between Appleton Tower and the west of the city
+    private List<RestrictedArea> createZones() {
+        RestrictedArea georgeSquare = new RestrictedArea();
+        georgeSquare.setName("George Square Area");
+        georgeSquare.setId(1);
+        georgeSquare.setVertices(List.of(
+                new LngLatAlt(-3.190578818321228, 55.94402412577528, 0.0),
+                new LngLatAlt(-3.1899887323379517, 55.94284650540911, 0.0),
+                new LngLatAlt(-3.187097311019897, 55.94328811724263, 0.0),
+                new LngLatAlt(-3.187682032585144, 55.944477740393744, 0.0),
+                new LngLatAlt(-3.190578818321228, 55.94402412577528, 0.0)));
+        return List.of(georgeSquare);
+    }
+
+    private LngLatAlt appletonTower() {
+        return new LngLatAlt(-3.1863580788986368, 55.94468066708487, 0.0);
+    }
+
+    private LngLatAlt behindGeorgeSquare() {
+        return new LngLatAlt(-3.1912, 55.9433, 0.0);
+    }
+
+    private void assertValidPath(List<LngLatAlt> path, LngLatAlt start, LngLatAlt goal, List<RestrictedArea> zones) {
+        assertNotNull(path);
+        assertFalse(path.isEmpty());
+
+        assertEquals(start.getLng(), path.getFirst().getLng(), 1e-12);
+        assertEquals(start.getLat(), path.getFirst().getLat(), 1e-12);
+
+        for (int i = 1; i < path.size(); i++) {
+            LngLatAlt from = path.get(i - 1);
+            LngLatAlt to = path.get(i);
+            double dLng = to.getLng() - from.getLng();
+            double dLat = to.getLat() - from.getLat();
+            assertEquals(STEP_SIZE, Math.sqrt(dLng * dLng + dLat * dLat), 1e-9, "move " + i + " is not one step");
+            assertFalse(pathfinderService.crossesNoFlyZone(from, to, zones), "move " + i + " crosses a zone");
+        }
+
+        LngLatAlt end = path.getLast();
+        assertTrue(distanceService.computeCloseness(
+                new LngLat(end.getLng(), end.getLat()),
+                new LngLat(goal.getLng(), goal.getLat())));
+    }
+
+    // --------------------------------------------
+    // TEST findPath - all strategies
+    // --------------------------------------------
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("findPath around a restricted area returns a valid 16-direction path")
+    void findPath_aroundZone_returnsValidPath(SearchStrategy strategy) {
+        List<RestrictedArea> zones = createZones();
+
+        List<LngLatAlt> path = pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), zones, strategy);
+
+        assertValidPath(path, appletonTower(), behindGeorgeSquare(), zones);
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("findPath with goal inside a restricted area returns null")
+    void findPath_goalInZone_returnsNull(SearchStrategy strategy) {
+        LngLatAlt insideGeorgeSquare = new LngLatAlt(-3.1889, 55.9437, 0.0);
+
+        assertNull(pathfinderService.findPath(appletonTower(), insideGeorgeSquare, createZones(), strategy));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("findPath with null start returns null")
+    void findPath_nullStart_returnsNull(SearchStrategy strategy) {
+        assertNull(pathfinderService.findPath(null, behindGeorgeSquare(), createZones(), strategy));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("findPath with start already close to goal returns a single position")
+    void findPath_startAtGoal_returnsSinglePosition(SearchStrategy strategy) {
+        List<LngLatAlt> path = pathfinderService.findPath(appletonTower(), appletonTower(), new ArrayList<>(), strategy);
+
+        assertNotNull(path);
+        assertEquals(1, path.size());
+    }
+
+    // --------------------------------------------
+    // TEST configuration
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Unset pathfinder properties bind to the defaults")
+    void properties_unset_bindToDefaults() {
+        Binder binder = new Binder(new MapConfigurationPropertySource());
+
+        assertEquals(PathfinderProperties.defaults(), binder.bindOrCreate("pathfinder", PathfinderProperties.class));
+    }
+
+    @Test
+    @DisplayName("Nested pathfinder properties bind to their settings, the rest keep their defaults")
+    void properties_set_bindNestedSettings() {
+        Binder binder = new Binder(new MapConfigurationPropertySource(Map.of(
+                "pathfinder.strategy", "LATTICE_ASTAR",
+                "pathfinder.raster.enabled", "false",
+                "pathfinder.search.max-nodes", "5000")));
+
+        PathfinderProperties expected = PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR)
+                .withRasterEnabled(false).withMaxNodes(5000);
+        assertEquals(expected, binder.bindOrCreate("pathfinder", PathfinderProperties.class));
+    }
+
+    // --------------------------------------------
+    // TEST lattice engine
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Lattice engine finds a path no longer than the original A* on open terrain")
+    void findPath_latticeOpenTerrain_noLongerThanAStar() {
+        LngLatAlt start = appletonTower();
+        LngLatAlt goal = new LngLatAlt(-3.1813, 55.9480, 0.0);
+
+        List<LngLatAlt> reference = pathfinderService.findPath(start, goal, new ArrayList<>(), SearchStrategy.ASTAR);
+        List<LngLatAlt> lattice = pathfinderService.findPath(start, goal, new ArrayList<>(), SearchStrategy.LATTICE_ASTAR);
+
+        assertNotNull(reference);
+        assertNotNull(lattice);
+        assertTrue(lattice.size() <= reference.size());
+    }
+
+    @Test
+    @DisplayName("Lattice engine reuses its workspace across consecutive searches")
+    void findPath_latticeRepeatedSearch_returnsSamePath() {
+        List<RestrictedArea> zones = createZones();
+
+        List<LngLatAlt> first = pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), zones);
+        List<LngLatAlt> second = pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), zones);
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("Bidirectional search joins its frontiers into a valid path on a long open route")
+    void findPath_bidirectionalLongRoute_returnsValidPath() {
+        LngLatAlt start = appletonTower();
+        LngLatAlt goal = new LngLatAlt(-3.1700, 55.9600, 0.0);
+
+        List<LngLatAlt> path = pathfinderService.findPath(start, goal, createZones(), SearchStrategy.BIDIRECTIONAL_ASTAR);
+
+        assertValidPath(path, start, goal, createZones());
+    }
+
+    @Test
+    @DisplayName("Visibility-guided search keeps whole steps when it reopens nodes around long walls")
+    void findPath_visibilityReopensNodes_returnsValidPath() {
+        List<RestrictedArea> zones = new ArrayList<>(createZones());
+        zones.add(rectangleZone("Wall", -3.2005, 55.930, -3.1995, 55.960));
+        zones.add(rectangleZone("North arm", -3.2100, 55.9595, -3.1995, 55.9605));
+        zones.add(rectangleZone("South arm", -3.2100, 55.9295, -3.1995, 55.9305));
+        LngLatAlt start = new LngLatAlt(-3.186, 55.944, 0.0);
+        LngLatAlt goal = new LngLatAlt(-3.23, 55.975, 0.0);
+
+        List<LngLatAlt> path = pathfinderService.findPath(start, goal, zones, SearchStrategy.VISIBILITY_ASTAR);
+
+        assertValidPath(path, start, goal, zones);
+    }
+
+    @Test
+    @DisplayName("Hierarchical search refines its cluster route into a valid path out of a walled pocket")
+    void findPath_hierarchicalWalledPocket_returnsValidPath() {
+        List<RestrictedArea> zones = new ArrayList<>(createZones());
+        zones.add(rectangleZone("Wall", -3.2005, 55.930, -3.1995, 55.960));
+        zones.add(rectangleZone("North arm", -3.2100, 55.9595, -3.1995, 55.9605));
+        zones.add(rectangleZone("South arm", -3.2100, 55.9295, -3.1995, 55.9305));
+        LngLatAlt start = new LngLatAlt(-3.205, 55.945, 0.0);
+        LngLatAlt goal = new LngLatAlt(-3.185, 55.945, 0.0);
+
+        List<LngLatAlt> path = pathfinderService.findPath(start, goal, zones, SearchStrategy.HIERARCHICAL_ASTAR);
+
+        assertValidPath(path, start, goal, zones);
+    }
+
+    @Test
+    @DisplayName("getNextPosition steps exactly as the nextPosition endpoint does in all 16 directions")
+    void getNextPosition_allDirections_matchesComputeNextPosition() {
+        LngLatAlt start = appletonTower();
+
+        for (int direction = 0; direction < 16; direction++) {
+            LngLatAlt next = pathfinderService.getNextPosition(start, direction);
+            LngLat expected = distanceService.computeNextPosition(
+                    new LngLat(start.getLng(), start.getLat()), direction * 22.5);
+
+            assertEquals(expected.getLng(), next.getLng(), 0.0, "direction " + direction);
+            assertEquals(expected.getLat(), next.getLat(), 0.0, "direction " + direction);
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("findPath to a goal walled off by restricted areas returns null without searching")
+    void findPath_walledOffGoal_returnsNull(SearchStrategy strategy) {
+        List<RestrictedArea> zones = courtyardWalls();
+        LngLatAlt courtyard = new LngLatAlt(-3.1900, 55.9450, 0.0);
+        pathfinderService.prepareZones(zones).join();
+
+        assertNull(pathfinderService.findPath(appletonTower(), courtyard, zones, strategy));
+        assertNull(pathfinderService.findPath(courtyard, appletonTower(), zones, strategy));
+    }
+
+    @Test
+    @DisplayName("isReachable rules out walled-off and restricted points but not open ones")
+    void isReachable_courtyard_onlyFromInside() {
+        List<RestrictedArea> zones = courtyardWalls();
+        LngLatAlt courtyard = new LngLatAlt(-3.1900, 55.9450, 0.0);
+        pathfinderService.prepareZones(zones).join();
+
+        assertFalse(pathfinderService.isReachable(appletonTower(), courtyard, zones));
+        assertFalse(pathfinderService.isReachable(courtyard, appletonTower(), zones));
+        assertFalse(pathfinderService.isReachable(appletonTower(), new LngLatAlt(-3.1900, 55.94675, 0.0), zones));
+        assertFalse(pathfinderService.isReachable(null, courtyard, zones));
+        assertTrue(pathfinderService.isReachable(appletonTower(), new LngLatAlt(-3.1813, 55.9480, 0.0), zones));
+        assertTrue(pathfinderService.isReachable(courtyard, new LngLatAlt(-3.1910, 55.9460, 0.0), zones));
+    }
+
+    @Test
+    @DisplayName("Search gives up at the node limit instead of growing without bound")
+    void findPath_nodeLimitReached_returnsNull() {
+        PathfinderService bounded = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR).withMaxNodes(50));
+
+        assertNull(bounded.findPath(appletonTower(), behindGeorgeSquare(), createZones()));
+        assertNotNull(pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), createZones()));
+    }
+
+    @Test
+    @DisplayName("The default ASTAR search is not capped by the node limit, so long legs still resolve")
+    void findPath_defaultStrategyLongLeg_ignoresNodeLimit() {
+        PathfinderService defaults = new PathfinderService(distanceService,
+                PathfinderProperties.defaults());
+        PathfinderService lowLimit = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withMaxNodes(1000));
+        List<RestrictedArea> zones = createZones();
+        // about 160 moves west, past George Square
+        LngLatAlt farWest = new LngLatAlt(-3.2100, 55.9450, 0.0);
+
+        try {
+            assertValidPath(defaults.findPath(appletonTower(), farWest, zones), appletonTower(), farWest, zones);
+            assertValidPath(lowLimit.findPath(appletonTower(), farWest, zones), appletonTower(), farWest, zones);
+        } finally {
+            defaults.shutdown();
+            lowLimit.shutdown();
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("findPath with a cancelled budget stops without a path")
+    void findPath_cancelledBudget_returnsNull(SearchStrategy strategy) {
+        PathfinderService service = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withStrategy(strategy));
+        SearchBudget budget = SearchBudget.unlimited();
+        budget.cancel();
+
+        assertNull(service.findPath(appletonTower(), behindGeorgeSquare(), createZones(), budget));
+        assertNotNull(service.findPath(appletonTower(), behindGeorgeSquare(), createZones()));
+    }
+
+    // --------------------------------------------
+    // TEST anytime search
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Anytime search without time limit runs to completion with a valid path")
+    void findPathWithinBudget_unlimited_returnsCompleteResult() {
+        List<RestrictedArea> zones = createZones();
+
+        AnytimePath result = pathfinderService.findPathWithinBudget(
+                appletonTower(), behindGeorgeSquare(), zones, SearchBudget.unlimited());
+
+        assertTrue(result.isComplete());
+        assertTrue(result.getSuboptimalityBound() >= 1.0);
+        assertTrue(result.getSuboptimalityBound() < 1.5);
+        assertValidPath(result.getPath(), appletonTower(), behindGeorgeSquare(), zones);
+    }
+
+    @Test
+    @DisplayName("Anytime search on a straight open route proves its path shortest")
+    void findPathWithinBudget_openRoute_boundIsOne() {
+        LngLatAlt goal = new LngLatAlt(-3.1700, 55.9600, 0.0);
+
+        AnytimePath result = pathfinderService.findPathWithinBudget(
+                appletonTower(), goal, new ArrayList<>(), SearchBudget.ofMillis(5000));
+
+        assertTrue(result.isComplete());
+        assertEquals(1.0, result.getSuboptimalityBound());
+        assertValidPath(result.getPath(), appletonTower(), goal, new ArrayList<>());
+    }
+
+    @Test
+    @DisplayName("Anytime search stops lowering the weight once a pass finds nothing shorter")
+    void restartingSearch_detour_stopsAfterExhaustedPass() {
+        RestrictedAreaIndex wall = RestrictedAreaIndex.build(
+                List.of(rectangleZone("Wall", -3.1905, 55.9350, -3.1900, 55.9550)));
+        LngLatAlt start = new LngLatAlt(-3.1880, 55.9450, 0.0);
+        LngLatAlt goal = new LngLatAlt(-3.1930, 55.9460, 0.0);
+        RestartingLatticeAStar engine = new RestartingLatticeAStar();
+
+        AnytimePath result = engine.search(start.getLng(), start.getLat(), goal.getLng(), goal.getLat(),
+                LatticeSteps.directionOrder(0), wall,
+                (lng, lat) -> Math.hypot(lng - goal.getLng(), lat - goal.getLat()) < STEP_SIZE,
+                SearchBudget.unlimited(), 10_000_000);
+
+        assertTrue(result.isComplete());
+        assertTrue(result.getSuboptimalityBound() > 1.0);
+        // weight 3 finds the detour, weight 2 proves nothing shorter exists
+        assertEquals(2, engine.getPasses());
+    }
+
+    @Test
+    @DisplayName("Anytime search from inside a closed ring proves the goal unreachable in one pass")
+    void restartingSearch_unreachableGoal_stopsAfterOnePass() {
+        RestrictedAreaIndex ring = RestrictedAreaIndex.build(List.of(
+                rectangleZone("South", -3.1943, 55.9447, -3.1917, 55.9450),
+                rectangleZone("North", -3.1943, 55.9470, -3.1917, 55.9473),
+                rectangleZone("West", -3.1943, 55.9447, -3.1940, 55.9473),
+                rectangleZone("East", -3.1920, 55.9447, -3.1917, 55.9473)));
+        LngLatAlt start = new LngLatAlt(-3.1930, 55.9460, 0.0);
+        LngLatAlt goal = new LngLatAlt(-3.1880, 55.9450, 0.0);
+        RestartingLatticeAStar engine = new RestartingLatticeAStar();
+
+        AnytimePath result = engine.search(start.getLng(), start.getLat(), goal.getLng(), goal.getLat(),
+                LatticeSteps.directionOrder(0), ring,
+                (lng, lat) -> Math.hypot(lng - goal.getLng(), lat - goal.getLat()) < STEP_SIZE,
+                SearchBudget.unlimited(), 10_000_000);
+
+        assertFalse(result.isFound());
+        assertTrue(result.isComplete());
+        assertEquals(1, engine.getPasses());
+    }
+
+    @Test
+    @DisplayName("Anytime search with a cancelled budget stops without a path")
+    void findPathWithinBudget_cancelled_returnsIncomplete() {
+        SearchBudget budget = SearchBudget.unlimited();
+        budget.cancel();
+
+        AnytimePath result = pathfinderService.findPathWithinBudget(
+                appletonTower(), behindGeorgeSquare(), createZones(), budget);
+
+        assertFalse(result.isFound());
+        assertFalse(result.isComplete());
+        assertEquals(Double.POSITIVE_INFINITY, result.getSuboptimalityBound());
+    }
+
+    @Test
+    @DisplayName("Anytime search with goal inside a restricted area returns a complete empty result")
+    void findPathWithinBudget_goalInZone_returnsNoPath() {
+        LngLatAlt insideGeorgeSquare = new LngLatAlt(-3.1889, 55.9437, 0.0);
+
+        AnytimePath result = pathfinderService.findPathWithinBudget(
+                appletonTower(), insideGeorgeSquare, createZones(), SearchBudget.ofMillis(1000));
+
+        assertFalse(result.isFound());
+        assertTrue(result.isComplete());
+    }
+
+    // --------------------------------------------
+    // TEST path repair
+    // --------------------------------------------
+
+    // delivery flight as the simulator gets it: lattice path, then hovering on the target
+    private List<LngLatAlt> deliveryFlight(LngLatAlt target, List<RestrictedArea> zones) {
+        List<LngLatAlt> flight = new ArrayList<>(pathfinderService.findPath(appletonTower(), target, zones));
+        for (int i = 0; i < 3; i++) {
+            flight.add(target);
+        }
+        return flight;
+    }
+
+    @Test
+    @DisplayName("Path repair leaves a flight no new zone touches unchanged")
+    void repairPath_unaffected_returnsSameWaypoints() {
+        List<RestrictedArea> zones = createZones();
+        List<LngLatAlt> flight = deliveryFlight(behindGeorgeSquare(), zones);
+
+        List<LngLatAlt> repaired = pathfinderService.repairPath(flight, 4, zones, List.of());
+
+        assertEquals(flight.subList(4, flight.size()), repaired);
+    }
+
+    @Test
+    @DisplayName("Path repair detours around a new zone and still hovers on the target")
+    void repairPath_newZone_detoursAndKeepsTarget() {
+        List<RestrictedArea> zones = createZones();
+        LngLatAlt target = behindGeorgeSquare();
+        List<LngLatAlt> flight = deliveryFlight(target, zones);
+
+        List<RestrictedArea> withTemporary = new ArrayList<>(zones);
+        withTemporary.add(squareZone("Temporary", flight.get(flight.size() / 2), 0.0005));
+
+        List<LngLatAlt> repaired = pathfinderService.repairPath(flight, 4, withTemporary, List.of());
+
+        assertNotNull(repaired);
+        assertSame(flight.get(4), repaired.getFirst());
+        assertEquals(target, repaired.getLast());
+        assertEquals(target, repaired.get(repaired.size() - 3));
+
+        // lattice moves up to the target, then the short move onto it
+        List<LngLatAlt> lattice = repaired.subList(0, repaired.size() - 3);
+        assertValidPath(lattice, flight.get(4), target, withTemporary);
+        assertFalse(pathfinderService.crossesNoFlyZone(lattice.getLast(), target, withTemporary));
+    }
+
+    @Test
+    @DisplayName("Path repair gives up when the target is inside a new zone")
+    void repairPath_targetInNewZone_returnsNull() {
+        List<RestrictedArea> zones = createZones();
+        List<LngLatAlt> flight = deliveryFlight(behindGeorgeSquare(), zones);
+
+        List<RestrictedArea> withTemporary = new ArrayList<>(zones);
+        withTemporary.add(squareZone("Temporary", behindGeorgeSquare(), 0.0003));
+
+        assertNull(pathfinderService.repairPath(flight, 0, withTemporary, List.of()));
+    }
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("Equirectangular distance kernel gives valid paths with every strategy")
+    void findPath_equirectangularKernel_returnsValidPath(SearchStrategy strategy) {
+        PathfinderService equirectangular = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR)
+                        .withDistance(DistanceKernel.EQUIRECTANGULAR).withAnytimeBudgetMs(0));
+
+        List<LngLatAlt> path = equirectangular.findPath(appletonTower(), behindGeorgeSquare(), createZones(), strategy);
+
+        assertValidPath(path, appletonTower(), behindGeorgeSquare(), createZones());
+        assertEquals(pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), createZones(), strategy).size(),
+                path.size());
+    }
+
+    // --------------------------------------------
+    // TEST catchment map
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Catchment map hands a point behind a wall to the depot that flies round it sooner")
+    void catchment_wallBetweenPointAndNearestDepot_picksFewestMoves() throws Exception {
+        List<RestrictedArea> zones = List.of(rectangleZone("Wall", -3.1905, 55.9350, -3.1900, 55.9550));
+        LngLatAlt eastDepot = new LngLatAlt(-3.1890, 55.9450, 0.0);
+        LngLatAlt westDepot = new LngLatAlt(-3.1960, 55.9450, 0.0);
+        LngLatAlt delivery = new LngLatAlt(-3.1910, 55.9450, 0.0);
+        // a depot without a location keeps its place, so owners index the list
+        List<LngLatAlt> depots = Arrays.asList(eastDepot, null, westDepot);
+
+        CatchmentMap catchment = pathfinderService.prepareCatchment(depots, zones).get();
+
+        assertTrue(pathfinderService.calculateDistance(eastDepot, delivery)
+                < pathfinderService.calculateDistance(westDepot, delivery));
+        assertTrue(pathfinderService.isReachable(eastDepot, delivery, zones));
+        assertEquals(2, catchment.ownerAt(delivery.getLng(), delivery.getLat()));
+        assertEquals(0, catchment.ownerAt(-3.1895, 55.9450));
+        assertEquals(CatchmentMap.UNREACHED, catchment.ownerAt(-3.19025, 55.9450));
+
+        List<LngLatAlt> path = pathfinderService.findPath(westDepot, delivery, zones);
+        assertTrue(Math.abs(catchment.movesAt(delivery.getLng(), delivery.getLat()) - (path.size() - 1)) <= 2);
+        assertSame(catchment, pathfinderService.getCatchment(new ArrayList<>(depots), zones));
+    }
+
+    @Test
+    @DisplayName("Catchment lookup answers null until the map is prepared")
+    void getCatchment_notPrepared_returnsNull() {
+        assertNull(pathfinderService.getCatchment(List.of(appletonTower()), createZones()));
+    }
+
+    // --------------------------------------------
+    // TEST path cache
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Repeated findPath is served from the path cache as an independent copy")
+    void findPath_repeatedLeg_hitsCache() {
+        PathfinderService cached = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withCacheSize(8));
+        List<RestrictedArea> zones = createZones();
+
+        List<LngLatAlt> first = cached.findPath(appletonTower(), behindGeorgeSquare(), zones);
+        first.getFirst().setLng(0.0);
+        List<LngLatAlt> second = cached.findPath(appletonTower(), behindGeorgeSquare(), createZones());
+
+        PathCache cache = cached.getPathCache();
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertValidPath(second, appletonTower(), behindGeorgeSquare(), zones);
+    }
+
+    @Test
+    @DisplayName("Path cache misses when the restricted areas change")
+    void findPath_zonesChanged_missesCache() {
+        PathfinderService cached = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withCacheSize(8));
+
+        cached.findPath(appletonTower(), behindGeorgeSquare(), createZones());
+        cached.findPath(appletonTower(), behindGeorgeSquare(), new ArrayList<>());
+
+        assertEquals(0, cached.getPathCache().getHits());
+        assertEquals(2, cached.getPathCache().getMisses());
+    }
+
+    @Test
+    @DisplayName("Path cache evicts the least recently used leg beyond its capacity")
+    void findPath_beyondCapacity_evictsLeastRecentlyUsed() {
+        PathfinderService cached = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withCacheSize(1));
+        LngLatAlt other = new LngLatAlt(-3.1813, 55.9480, 0.0);
+
+        cached.findPath(appletonTower(), behindGeorgeSquare(), createZones());
+        cached.findPath(appletonTower(), other, createZones());
+        cached.findPath(appletonTower(), behindGeorgeSquare(), createZones());
+
+        PathCache cache = cached.getPathCache();
+        assertEquals(0, cache.getHits());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(1, cache.size());
+    }
+
+    // --------------------------------------------
+    // TEST search statistics
+    // --------------------------------------------
+
+    @ParameterizedTest
+    @EnumSource(SearchStrategy.class)
+    @DisplayName("Search listeners are told the cost of every search, but not of cache hits")
+    void findPath_withListener_reportsFoundSearch(SearchStrategy strategy) {
+        PathfinderService cached = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withCacheSize(8));
+        List<SearchStats> reported = new ArrayList<>();
+        cached.addSearchListener(reported::add);
+
+        cached.findPath(appletonTower(), behindGeorgeSquare(), createZones(), strategy);
+        cached.findPath(appletonTower(), behindGeorgeSquare(), createZones(), strategy);
+
+        assertEquals(1, reported.size());
+        SearchStats stats = reported.getFirst();
+        assertEquals(strategy, stats.getStrategy());
+        assertEquals(SearchStats.Outcome.FOUND, stats.getOutcome());
+        assertTrue(stats.getExpansions() > 0);
+        assertTrue(stats.getPeakOpenSize() > 0);
+        assertTrue(stats.getClosedSize() > 0);
+        assertTrue(stats.getGeometryChecks() > 0);
+        assertTrue(stats.getWallNanos() > 0);
+    }
+
+    @Test
+    @DisplayName("Search outcome tells a goal that cannot be reached from a search that gave up")
+    void findPath_withListener_reportsOutcome() {
+        PathfinderService bounded = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withStrategy(SearchStrategy.LATTICE_ASTAR).withMaxNodes(50));
+        List<SearchStats> reported = new ArrayList<>();
+        bounded.addSearchListener(reported::add);
+
+        bounded.findPath(appletonTower(), new LngLatAlt(-3.1890, 55.9437, 0.0), createZones());
+        bounded.findPath(appletonTower(), behindGeorgeSquare(), createZones());
+
+        assertEquals(SearchStats.Outcome.UNREACHABLE, reported.get(0).getOutcome());
+        assertEquals(SearchStats.Outcome.BUDGET_EXCEEDED, reported.get(1).getOutcome());
+    }
+
+    @Test
+    @DisplayName("Lattice node table counts each closed position once, and no longer once it is reopened")
+    void nodeTable_closeAndReopen_countsClosedPositions() {
+        LatticeNodeTable nodes = new LatticeNodeTable();
+        int first = nodes.add(1L, 0.0, 0.0, 0.0, LatticeNodeTable.NO_SLOT);
+        int second = nodes.add(2L, 0.0, 0.0, 1.0, first);
+
+        nodes.close(first);
+        nodes.close(first);
+        nodes.close(second);
+        assertEquals(2, nodes.closedCount());
+
+        nodes.reopen(2L, 0.0, 0.0, 0.5, first);
+        assertEquals(1, nodes.closedCount());
+
+        nodes.clear();
+        assertEquals(0, nodes.closedCount());
+    }
+
+    @Test
+    @DisplayName("Search metrics register their meters once and record every search into them")
+    void searchMetrics_registeredOnce_recordEverySearch() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        PathSearchMetrics metrics = new PathSearchMetrics(registry);
+        pathfinderService.addSearchListener(metrics);
+        int meterCount = registry.getMeters().size();
+
+        // the cache is disabled, so both calls search
+        pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), createZones(), SearchStrategy.LATTICE_ASTAR);
+        pathfinderService.findPath(appletonTower(), behindGeorgeSquare(), createZones(), SearchStrategy.LATTICE_ASTAR);
+
+        assertEquals(meterCount, registry.getMeters().size());
+        Timer found = registry.get("pathfinder.search")
+                .tags("strategy", "LATTICE_ASTAR", "outcome", "found")
+                .timer();
+        assertEquals(2, found.count());
+    }
+}
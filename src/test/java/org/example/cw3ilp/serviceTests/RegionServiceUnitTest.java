@@ -1,14 +1,20 @@
 package org.example.cw3ilp.serviceTests;
 
 import org.example.cw3ilp.api.model.LngLat;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
 import org.example.cw3ilp.service.RegionService;
+import org.example.cw3ilp.service.geometry.ColumnKernels;
+import org.example.cw3ilp.service.geometry.PreparedPolygon;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -194,5 +200,160 @@ public class RegionServiceUnitTest {
         assertFalse(result);
     }
 
+    // Prepared form
+    private PreparedPolygon prepare(List<LngLat> vertices) {
+        List<LngLatAlt> converted = new ArrayList<>();
+        for (LngLat vertex : vertices) {
+            converted.add(new LngLatAlt(vertex.getLng(), vertex.getLat(), 0.0));
+        }
+        RestrictedArea zone = new RestrictedArea();
+        zone.setVertices(converted);
+        return PreparedPolygon.of(zone);
+    }
+
+    @Test
+    @DisplayName("isInside on a prepared polygon matches the vertex-list version")
+    void isInside_preparedPolygon_matchesVertexList() {
+        for (List<LngLat> region : List.of(createSquareRegion(), createTriangleRegion())) {
+            PreparedPolygon prepared = prepare(region);
+
+            for (double xp = -3.1925; xp <= -3.1895; xp += 0.0001) {
+                for (double yp = 55.9455; yp <= 55.9475; yp += 0.0001) {
+                    assertEquals(regionService.isInside(region, xp, yp), regionService.isInside(prepared, xp, yp));
+                }
+            }
+            // vertices and edges are hit exactly
+            assertEquals(regionService.isInside(region, -3.192, 55.946), regionService.isInside(prepared, -3.192, 55.946));
+            assertEquals(regionService.isInside(region, -3.192, 55.9465), regionService.isInside(prepared, -3.192, 55.9465));
+        }
+    }
+
+    @Test
+    @DisplayName("Prepared polygon keeps vertex order and precomputes its bounding box")
+    void preparedPolygon_square_hasBoundsAndEdges() {
+        PreparedPolygon prepared = prepare(createSquareRegion());
+
+        assertEquals(5, prepared.getVertexCount());
+        assertEquals(5, prepared.getEdgeCount());
+        assertEquals(-3.192, prepared.getMinX());
+        assertEquals(-3.191, prepared.getMaxX());
+        assertEquals(55.946, prepared.getMinY());
+        assertEquals(55.947, prepared.getMaxY());
+        assertEquals(prepared.x(1), prepared.edgeX1(1));
+        assertEquals(prepared.x(2), prepared.edgeX2(1));
+        assertFalse(prepared.boundsOverlap(-3.195, 55.940, -3.194, 55.941));
+    }
+
+    @Test
+    @DisplayName("Batch isInside matches the vertex-list version point by point")
+    void isInside_batch_matchesVertexList() {
+        List<LngLat> region = createTriangleRegion();
+        double[] xs = new double[31 * 21];
+        double[] ys = new double[xs.length];
+        int n = 0;
+        for (int i = 0; i <= 30; i++) {
+            for (int j = 0; j <= 20; j++) {
+                xs[n] = -3.1925 + i * 0.0001;
+                ys[n] = 55.9455 + j * 0.0001;
+                n++;
+            }
+        }
+
+        boolean[] inside = new boolean[n];
+        regionService.isInside(PreparedPolygon.of(region), xs, ys, inside);
+
+        for (int k = 0; k < n; k++) {
+            assertEquals(regionService.isInside(region, xs[k], ys[k]), inside[k]);
+        }
+    }
+
+    // Latitude slabs
+    private List<LngLat> createWavyRegion(int vertices) {
+        List<LngLat> region = new ArrayList<>();
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            double radius = 0.001 * (0.7 + 0.2 * Math.sin(7 * angle) + 0.05 * Math.sin(53 * angle));
+            region.add(new LngLat(-3.1910 + radius * Math.cos(angle), 55.9465 + radius * Math.sin(angle)));
+        }
+        region.add(region.getFirst());
+        return region;
+    }
+
+    // Teeth reaching across almost every latitude, so the slabs have to be coarsened
+    private List<LngLat> createSawtoothRegion(int teeth) {
+        List<LngLat> region = new ArrayList<>();
+        for (int i = 0; i < teeth; i++) {
+            region.add(new LngLat(-3.1920 + i * 0.00001, i % 2 == 0 ? 55.9460 + i * 1e-7 : 55.9470 - i * 1e-7));
+        }
+        region.add(new LngLat(-3.1920 + teeth * 0.00001, 55.9455));
+        region.add(new LngLat(-3.1920, 55.9455));
+        region.add(region.getFirst());
+        return region;
+    }
+
+    @Test
+    @DisplayName("Slab lookup matches the vertex-list version on detailed and jagged polygons")
+    void contains_slabs_matchesVertexList() {
+        for (List<LngLat> region : List.of(createSquareRegion(), createWavyRegion(2000), createSawtoothRegion(400))) {
+            PreparedPolygon prepared = PreparedPolygon.of(region);
+
+            for (double xp = -3.1925; xp <= -3.1895; xp += 0.00003) {
+                for (double yp = 55.9450; yp <= 55.9480; yp += 0.00003) {
+                    assertEquals(regionService.isInside(region, xp, yp), prepared.contains(xp, yp));
+                }
+            }
+            // points level with a vertex sit exactly on a slab bound
+            for (LngLat vertex : region) {
+                assertEquals(regionService.isInside(region, vertex.getLng(), vertex.getLat()),
+                        prepared.contains(vertex.getLng(), vertex.getLat()));
+                assertEquals(regionService.isInside(region, -3.1912, vertex.getLat()),
+                        prepared.contains(-3.1912, vertex.getLat()));
+            }
+        }
+    }
 
+    @Test
+    @DisplayName("containsAll sets the bits of inside points and clears the rest")
+    void containsAll_mixedPoints_setsMatchingBits() {
+        PreparedPolygon prepared = PreparedPolygon.of(createSquareRegion());
+        double[] lng = {-3.1915, -3.185, -3.1918, -3.200};
+        double[] lat = {55.9465, 55.950, 55.9468, 55.943};
+
+        BitSet inside = new BitSet();
+        inside.set(0, 8);
+        prepared.containsAll(lng, lat, inside);
+
+        assertTrue(inside.get(0));
+        assertFalse(inside.get(1));
+        assertTrue(inside.get(2));
+        assertFalse(inside.get(3));
+        assertTrue(inside.get(4)); // beyond the batch, left alone
+        assertThrows(IllegalArgumentException.class,
+                () -> prepared.containsAll(lng, new double[] {55.9465}, inside));
+    }
+
+    @Test
+    @DisplayName("Preferred ray-cast kernel gives the same answers as the scalar one")
+    void columnKernels_preferredContains_matchesScalar() {
+        for (List<LngLat> region : List.of(createTriangleRegion(), createWavyRegion(200))) {
+            PreparedPolygon prepared = PreparedPolygon.of(region);
+            int n = 1003; // leaves a tail for the vector kernel
+            double[] xs = new double[n];
+            double[] ys = new double[n];
+            for (int i = 0; i < n; i++) {
+                xs[i] = -3.1925 + (i % 31) * 0.0001;
+                ys[i] = 55.9455 + (i / 31) * 0.0001;
+            }
+            // vertices are hit exactly
+            xs[7] = region.get(1).getLng();
+            ys[7] = region.get(1).getLat();
+
+            boolean[] scalar = new boolean[n];
+            boolean[] preferred = new boolean[n];
+            ColumnKernels.scalar().contains(prepared, xs, ys, scalar, n);
+            ColumnKernels.preferred().contains(prepared, xs, ys, preferred, n);
+
+            assertArrayEquals(scalar, preferred);
+        }
+    }
 }
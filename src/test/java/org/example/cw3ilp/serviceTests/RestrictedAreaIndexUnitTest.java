@@ -0,0 +1,116 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.DistanceService;
+import org.example.cw3ilp.service.PathfinderProperties;
+import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.geometry.RestrictedAreaIndex;
+import org.example.cw3ilp.service.pathfinding.SearchStrategy;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RestrictedAreaIndexUnitTest {
+
+    private PathfinderService pathfinderService;
+
+    @BeforeEach
+    void setUp() {
+        pathfinderService = new PathfinderService(new DistanceService(),
+                PathfinderProperties.defaults().withStrategy(SearchStrategy.ASTAR));
+    }
+
+    private RestrictedArea createZone(String name, double[][] corners) {
+        List<LngLatAlt> vertices = new ArrayList<>();
+        for (double[] corner : corners) {
+            vertices.add(new LngLatAlt(corner[0], corner[1], 0.0));
+        }
+        vertices.add(new LngLatAlt(corners[0][0], corners[0][1], 0.0));
+
+        RestrictedArea zone = new RestrictedArea();
+        zone.setName(name);
+        zone.setVertices(vertices);
+        return zone;
+    }
+
+    private List<RestrictedArea> createZones() {
+        return List.of(
+                createZone("George Square Area", new double[][]{
+                        {-3.190578818321228, 55.94402412577528},
+                        {-3.1899887323379517, 55.94284650540911},
+                        {-3.187097311019897, 55.94328811724263},
+                        {-3.187682032585144, 55.944477740393744}}),
+                createZone("Bayes Central Area", new double[][]{
+                        {-3.1876927614212036, 55.94520696732767},
+                        {-3.187555968761444, 55.9449621408666},
+                        {-3.186981976032257, 55.94505676722831},
+                        {-3.1872327625751495, 55.94536993377657}}));
+    }
+
+    @Test
+    @DisplayName("Index point queries match isInNoFlyZone across the zone area")
+    void isBlocked_gridOfPoints_matchesReference() {
+        List<RestrictedArea> zones = createZones();
+        RestrictedAreaIndex index = RestrictedAreaIndex.build(zones);
+
+        for (double lng = -3.1915; lng <= -3.1860; lng += 0.00007) {
+            for (double lat = 55.9425; lat <= 55.9460; lat += 0.00007) {
+                boolean expected = pathfinderService.isInNoFlyZone(new LngLatAlt(lng, lat, 0.0), zones);
+                assertEquals(expected, index.isBlocked(lng, lat), "point (" + lng + ", " + lat + ")");
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Index segment queries match crossesNoFlyZone for every direction")
+    void isSegmentBlocked_movesInAllDirections_matchesReference() {
+        List<RestrictedArea> zones = createZones();
+        RestrictedAreaIndex index = RestrictedAreaIndex.build(zones);
+
+        for (double lng = -3.1915; lng <= -3.1860; lng += 0.00011) {
+            for (double lat = 55.9425; lat <= 55.9460; lat += 0.00011) {
+                for (int direction = 0; direction < 16; direction++) {
+                    double angle = Math.toRadians(direction * 22.5);
+                    LngLatAlt from = new LngLatAlt(lng, lat, 0.0);
+                    LngLatAlt to = new LngLatAlt(lng + 0.00015 * Math.cos(angle), lat + 0.00015 * Math.sin(angle), 0.0);
+
+                    boolean expected = pathfinderService.crossesNoFlyZone(from, to, zones);
+                    assertEquals(expected, index.isSegmentBlocked(from.getLng(), from.getLat(), to.getLng(), to.getLat()));
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Points far from every zone are never blocked")
+    void isBlocked_pointOutsideGrid_returnsFalse() {
+        RestrictedAreaIndex index = RestrictedAreaIndex.build(createZones());
+
+        assertFalse(index.isBlocked(-3.17732, 55.98166));
+        assertFalse(index.isSegmentBlocked(-3.17732, 55.98166, -3.17717, 55.98166));
+    }
+
+    @Test
+    @DisplayName("Empty or null zone lists build an index that blocks nothing")
+    void build_noZones_blocksNothing() {
+        assertFalse(RestrictedAreaIndex.build(null).isBlocked(-3.1889, 55.9437));
+        assertEquals(0, RestrictedAreaIndex.build(new ArrayList<>()).getPolygonCount());
+    }
+
+    @Test
+    @DisplayName("Polygons with fewer than three vertices are ignored")
+    void build_degeneratePolygon_isIgnored() {
+        RestrictedArea line = new RestrictedArea();
+        line.setVertices(List.of(
+                new LngLatAlt(-3.19, 55.94, 0.0),
+                new LngLatAlt(-3.18, 55.95, 0.0)));
+
+        assertEquals(0, RestrictedAreaIndex.build(List.of(line)).getPolygonCount());
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.DronesAvailability;
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.DistanceService;
+import org.example.cw3ilp.service.PathfinderProperties;
+import org.example.cw3ilp.service.PathfinderService;
+import org.example.cw3ilp.service.ServicePointAssigner;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.example.cw3ilp.serviceTests.ZoneFixtures.rectangleZone;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ServicePointAssignerUnitTest {
+
+    private static final LngLatAlt DELIVERY = new LngLatAlt(-3.1880, 55.9455, 0.0);
+
+    private DistanceService distanceService;
+    private PathfinderService pathfinderService;
+    private ServicePointAssigner assigner;
+
+    @BeforeEach
+    void setUp() {
+        distanceService = new DistanceService();
+        pathfinderService = new PathfinderService(distanceService,
+                PathfinderProperties.defaults().withCacheSize(0));
+        assigner = new ServicePointAssigner(pathfinderService, distanceService);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pathfinderService.shutdown();
+    }
+
+    private static DronesAvailability.ServicePoint servicePoint(int id, double lng, double lat) {
+        DronesAvailability.ServicePoint servicePoint = new DronesAvailability.ServicePoint();
+        servicePoint.setId(id);
+        servicePoint.setName("Service point " + id);
+        servicePoint.setLocation(new LngLatAlt(lng, lat, 0.0));
+        return servicePoint;
+    }
+
+    /** The nearer service point has to fly round a long wall to reach the delivery */
+    private static List<DronesAvailability.ServicePoint> wallBetween() {
+        return List.of(
+                servicePoint(1, -3.1880, 55.9440),
+                servicePoint(2, -3.1880, 55.9480));
+    }
+
+    private static RestrictedArea wall() {
+        return rectangleZone("Wall", -3.1950, 55.9445, -3.1810, 55.9450);
+    }
+
+    // --------------------------------------------
+    // TEST assign
+    // --------------------------------------------
+
+    @Test
+    @DisplayName("Before the catchment map is ready a delivery goes to the nearest reachable service point without waiting")
+    void assign_coldCatchment_nearestReachableWithoutWaiting() {
+        List<DronesAvailability.ServicePoint> servicePoints = wallBetween();
+        List<RestrictedArea> zones = List.of(wall());
+
+        assertNull(assigner.readyCatchment(servicePoints, zones));
+        assertEquals(1, assigner.assign(DELIVERY, servicePoints, zones, null).getId());
+    }
+
+    @Test
+    @DisplayName("Once the catchment map is ready a delivery goes to the service point with the fewest moves")
+    void assign_readyCatchment_fewestMovesNotStraightLine() {
+        List<DronesAvailability.ServicePoint> servicePoints = wallBetween();
+        List<RestrictedArea> zones = List.of(wall());
+
+        assertEquals(1, distanceService.findNearestServicePoint(servicePoints, DELIVERY.getLng(), DELIVERY.getLat())
+                .getId());
+        assertNotNull(pathfinderService.prepareCatchment(servicePoints.stream()
+                .map(DronesAvailability.ServicePoint::getLocation).toList(), zones).join());
+        assertNotNull(assigner.readyCatchment(servicePoints, zones));
+        assertEquals(2, assigner.assign(DELIVERY, servicePoints, zones).getId());
+    }
+
+    @Test
+    @DisplayName("A delivery no service point can reach is not assigned")
+    void assign_deliveryInZone_returnsNull() {
+        List<DronesAvailability.ServicePoint> servicePoints = List.of(servicePoint(1, -3.1880, 55.9440));
+        List<RestrictedArea> zones = List.of(rectangleZone("Over the delivery", -3.1890, 55.9450, -3.1870, 55.9460));
+
+        assertNull(assigner.assign(DELIVERY, servicePoints, zones));
+        assertNull(assigner.assign(DELIVERY, List.of(), zones));
+    }
+}
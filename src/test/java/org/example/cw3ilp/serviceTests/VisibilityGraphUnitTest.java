@@ -0,0 +1,83 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.geometry.RestrictedAreaIndex;
+import org.example.cw3ilp.service.geometry.VisibilityGraph;
+import org.example.cw3ilp.service.geometry.VisibilityHeuristic;
+import org.example.cw3ilp.service.pathfinding.LatticeAStar;
+import org.example.cw3ilp.service.pathfinding.LatticeDistance;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VisibilityGraphUnitTest {
+
+    // A tall wall between the two test points
+    private RestrictedAreaIndex createWall() {
+        RestrictedArea wall = new RestrictedArea();
+        wall.setName("Wall");
+        wall.setVertices(List.of(
+                new LngLatAlt(-3.1900, 55.9400, 0.0),
+                new LngLatAlt(-3.1890, 55.9400, 0.0),
+                new LngLatAlt(-3.1890, 55.9500, 0.0),
+                new LngLatAlt(-3.1900, 55.9500, 0.0),
+                new LngLatAlt(-3.1900, 55.9400, 0.0)));
+        return RestrictedAreaIndex.build(List.of(wall));
+    }
+
+    @Test
+    @DisplayName("Corners of a zone see each other along its edges but not across it")
+    void isVisible_wallCorners_onlyAlongEdges() {
+        VisibilityGraph graph = VisibilityGraph.build(createWall());
+        assertNotNull(graph);
+
+        assertTrue(graph.isVisible(-3.1900, 55.9400, -3.1890, 55.9400));
+        assertTrue(graph.isVisible(-3.1900, 55.9400, -3.1900, 55.9500));
+        assertFalse(graph.isVisible(-3.1900, 55.9400, -3.1890, 55.9500));
+        assertFalse(graph.isVisible(-3.1950, 55.9450, -3.1850, 55.9450));
+    }
+
+    @Test
+    @DisplayName("Distance around the wall is the detour via its corners, not the straight line")
+    void distancesTo_behindWall_goesAroundCorners() {
+        VisibilityGraph graph = VisibilityGraph.build(createWall());
+        double[] distance = graph.distancesTo(-3.1850, 55.9450);
+
+        double straight = LatticeDistance.moves(-3.1850 - (-3.1900), 55.9450 - 55.9400);
+        for (int v = 0; v < graph.getVertexCount(); v++) {
+            assertTrue(distance[v] >= LatticeDistance.moves(-3.1850 - graph.x(v), 55.9450 - graph.y(v)) - 1e-9);
+        }
+        // the west corners reach the goal over the wall's south or north edge
+        int southWest = 0;
+        assertTrue(distance[southWest] > straight);
+    }
+
+    @Test
+    @DisplayName("Heuristic behind the wall exceeds the straight-line estimate and is 0 at the goal")
+    void estimate_behindWall_exceedsStraightLine() {
+        RestrictedAreaIndex index = createWall();
+        double goalLng = -3.1850, goalLat = 55.9450;
+        VisibilityHeuristic heuristic = VisibilityHeuristic.forGoal(VisibilityGraph.build(index), index,
+                goalLng, goalLat, LatticeAStar.goalRadius(goalLat));
+        assertNotNull(heuristic);
+
+        double straight = LatticeDistance.moves(goalLng - (-3.1950), 0);
+        assertTrue(heuristic.estimate(-3.1950, 55.9450) > straight);
+        assertEquals(0, heuristic.estimate(goalLng, goalLat));
+    }
+
+    @Test
+    @DisplayName("No graph is built without zones, and no heuristic for a goal next to a zone")
+    void build_noZonesOrGoalAtEdge_returnsNull() {
+        assertNull(VisibilityGraph.build(RestrictedAreaIndex.build(new ArrayList<>())));
+
+        RestrictedAreaIndex index = createWall();
+        assertNull(VisibilityHeuristic.forGoal(VisibilityGraph.build(index), index,
+                -3.18895, 55.9450, LatticeAStar.goalRadius(55.9450)));
+    }
+}
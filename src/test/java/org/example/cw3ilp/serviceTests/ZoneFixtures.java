@@ -0,0 +1,41 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.LngLatAlt;
+import org.example.cw3ilp.api.model.RestrictedArea;
+
+import java.util.List;
+
+/**
+ * Restricted-area layouts shared by the geometry and pathfinding tests
+ */
+final class ZoneFixtures {
+
+    private ZoneFixtures() {
+    }
+
+    static RestrictedArea rectangleZone(String name, double minLng, double minLat, double maxLng, double maxLat) {
+        RestrictedArea zone = new RestrictedArea();
+        zone.setName(name);
+        zone.setVertices(List.of(
+                new LngLatAlt(minLng, minLat, 0.0),
+                new LngLatAlt(maxLng, minLat, 0.0),
+                new LngLatAlt(maxLng, maxLat, 0.0),
+                new LngLatAlt(minLng, maxLat, 0.0),
+                new LngLatAlt(minLng, minLat, 0.0)));
+        return zone;
+    }
+
+    static RestrictedArea squareZone(String name, LngLatAlt centre, double halfWidth) {
+        return rectangleZone(name, centre.getLng() - halfWidth, centre.getLat() - halfWidth,
+                centre.getLng() + halfWidth, centre.getLat() + halfWidth);
+    }
+
+    // Square ring of four walls around a free courtyard centred on (-3.1900, 55.9450)
+    static List<RestrictedArea> courtyardWalls() {
+        return List.of(
+                rectangleZone("North wall", -3.1920, 55.9465, -3.1880, 55.9470),
+                rectangleZone("South wall", -3.1920, 55.9430, -3.1880, 55.9435),
+                rectangleZone("West wall", -3.1920, 55.9430, -3.1915, 55.9470),
+                rectangleZone("East wall", -3.1885, 55.9430, -3.1880, 55.9470));
+    }
+}
@@ -0,0 +1,80 @@
+package org.example.cw3ilp.serviceTests;
+
+import org.example.cw3ilp.api.model.RestrictedArea;
+import org.example.cw3ilp.service.geometry.ZoneSnapshot;
+import org.example.cw3ilp.service.geometry.ZoneSnapshotCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.example.cw3ilp.serviceTests.ZoneFixtures.courtyardWalls;
+import static org.example.cw3ilp.serviceTests.ZoneFixtures.rectangleZone;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ZoneSnapshotCacheUnitTest {
+
+    private final ZoneSnapshotCache cache = new ZoneSnapshotCache(true);
+
+    @AfterEach
+    void tearDown() {
+        cache.close();
+    }
+
+    @Test
+    @DisplayName("Alternating zone sets keep their snapshots instead of rebuilding each other's")
+    void get_alternatingZoneSets_reusesSnapshots() {
+        List<RestrictedArea> walls = courtyardWalls();
+        List<RestrictedArea> wall = List.of(rectangleZone("Wall", -3.2005, 55.930, -3.1995, 55.960));
+
+        ZoneSnapshot first = cache.get(walls);
+        ZoneSnapshot second = cache.get(wall);
+
+        assertNotSame(first, second);
+        assertSame(first, cache.get(walls));
+        assertSame(second, cache.get(wall));
+        assertSame(first, cache.get(new ArrayList<>(walls)));
+    }
+
+    @Test
+    @DisplayName("A zone list changed in place gets a new snapshot")
+    void get_listMutatedInPlace_rebuildsSnapshot() {
+        List<RestrictedArea> zones = new ArrayList<>(courtyardWalls());
+        ZoneSnapshot before = cache.get(zones);
+
+        zones.add(rectangleZone("Wall", -3.2005, 55.930, -3.1995, 55.960));
+        ZoneSnapshot after = cache.get(zones);
+
+        assertNotSame(before, after);
+        assertEquals(before.getPolygons().size() + 1, after.getPolygons().size());
+    }
+
+    @Test
+    @DisplayName("A zone replaced in place in the last list looked up is not served its old snapshot")
+    void get_zoneReplacedInPlace_rebuildsSnapshot() {
+        List<RestrictedArea> zones = new ArrayList<>(courtyardWalls());
+        ZoneSnapshot before = cache.get(zones);
+        assertSame(before, cache.get(zones));
+
+        zones.set(0, rectangleZone("Wall", -3.2005, 55.930, -3.1995, 55.960));
+        ZoneSnapshot after = cache.get(zones);
+
+        assertNotSame(before, after);
+        assertEquals(before.getPolygons().size(), after.getPolygons().size());
+    }
+
+    @Test
+    @DisplayName("Prepared snapshots are labelled and rasterized in the background")
+    void prepare_completesWithComponentsAndRaster() throws Exception {
+        List<RestrictedArea> zones = courtyardWalls();
+
+        ZoneSnapshot snapshot = cache.prepare(zones).get(30, TimeUnit.SECONDS);
+
+        assertSame(cache.get(zones), snapshot);
+        assertNotNull(snapshot.getComponents());
+        assertNotNull(snapshot.getRaster());
+    }
+}